@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers for the default implementations of the attribute methods of
+ * {@link RoboReference}.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class AttributeFutures {
+	private AttributeFutures() {
+	}
+
+	/**
+	 * Adapts a future to a completion stage. Futures which already are
+	 * completion stages are returned as they are. Other futures not yet done
+	 * are waited for on a thread of the common pool, so references returning
+	 * such futures should override the asynchronous attribute methods.
+	 * 
+	 * @param future
+	 *            the future to adapt.
+	 * @return the completion stage.
+	 */
+	@SuppressWarnings("unchecked")
+	static <R> CompletableFuture<R> toCompletableFuture(Future<R> future) {
+		if (future == null) {
+			// Adapters not supporting attributes
+			return CompletableFuture.completedFuture(null);
+		}
+		if (future instanceof CompletableFuture) {
+			return (CompletableFuture<R>) future;
+		}
+		if (future instanceof AttributeRequest) {
+			return ((AttributeRequest<R>) future).toCompletableFuture();
+		}
+		if (future.isDone()) {
+			CompletableFuture<R> result = new CompletableFuture<>();
+			try {
+				result.complete(future.get());
+			} catch (ExecutionException e) {
+				result.completeExceptionally(e.getCause());
+			} catch (Throwable t) {
+				result.completeExceptionally(t);
+			}
+			return result;
+		}
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return future.get();
+			} catch (ExecutionException e) {
+				throw new CompletionException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * Reads the attributes one at a time, and collects them into a map.
+	 * 
+	 * @param reference
+	 *            the reference to read the attributes from.
+	 * @param attributes
+	 *            the attributes to read.
+	 * @return the future map of the attribute values.
+	 */
+	static CompletableFuture<Map<AttributeDescriptor<?>, Object>> collect(RoboReference<?> reference,
+			Collection<AttributeDescriptor<?>> attributes) {
+		Map<AttributeDescriptor<?>, CompletableFuture<?>> futures = new HashMap<>();
+		for (AttributeDescriptor<?> descriptor : attributes) {
+			futures.put(descriptor, reference.getAttributeAsync(descriptor).toCompletableFuture());
+		}
+		return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+			Map<AttributeDescriptor<?>, Object> values = new HashMap<>();
+			futures.forEach((descriptor, future) -> values.put(descriptor, future.join()));
+			return values;
+		});
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * Listener for changes of the attributes of a unit.
+ * 
+ * @see RoboReference#subscribe(java.util.Collection, AttributeListener, long,
+ *      java.util.concurrent.TimeUnit, boolean)
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@FunctionalInterface
+public interface AttributeListener {
+	/**
+	 * Called when an attribute subscribed to has changed. Called on a thread
+	 * of the scheduler, one call at a time for a subscription, in the order
+	 * the changes were made. Do not block.
+	 * 
+	 * @param descriptor
+	 *            the attribute which changed.
+	 * @param value
+	 *            the new value of the attribute.
+	 */
+	void onAttributeChanged(AttributeDescriptor<?> descriptor, Object value);
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An attribute request posted to an {@link Inbox}, run in order with the
+ * messages. The outcome is also made available as a {@link CompletableFuture},
+ * so that callers can compose on the result instead of blocking for it.
+ * 
+ * <p>
+ * Internal implementation class. Package private, so that it can never be
+ * confused with a message.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class AttributeRequest<R> extends FutureTask<R> {
+	private final long sequence;
+	private final CompletableFuture<R> completion = new CompletableFuture<>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param callable
+	 *            the request.
+	 */
+	AttributeRequest(Callable<R> callable) {
+		this(callable, 0);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param callable
+	 *            the request.
+	 * @param sequence
+	 *            the sequence of the last message posted before the request,
+	 *            for inboxes ordering by sequence.
+	 */
+	AttributeRequest(Callable<R> callable, long sequence) {
+		super(callable);
+		this.sequence = sequence;
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return a future completed when the request has been run or cancelled.
+	 */
+	CompletableFuture<R> toCompletableFuture() {
+		return completion;
+	}
+
+	@Override
+	protected void done() {
+		if (isCancelled()) {
+			completion.cancel(false);
+			return;
+		}
+		try {
+			completion.complete(get());
+		} catch (ExecutionException e) {
+			completion.completeExceptionally(e.getCause());
+		} catch (InterruptedException e) {
+			// Cannot happen, the task is done
+			Thread.currentThread().interrupt();
+			completion.completeExceptionally(e);
+		}
+	}
+}
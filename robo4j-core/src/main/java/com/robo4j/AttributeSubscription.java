@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.Collection;
+
+/**
+ * The handle to a subscription for attribute changes.
+ * 
+ * @see RoboReference#subscribe(Collection, AttributeListener, long,
+ *      java.util.concurrent.TimeUnit, boolean)
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface AttributeSubscription {
+	/**
+	 * @return the attributes subscribed to.
+	 */
+	Collection<AttributeDescriptor<?>> getAttributes();
+
+	/**
+	 * Stops the notifications. Changes not yet delivered are dropped.
+	 */
+	void cancel();
+
+	/**
+	 * @return true if the subscription has been cancelled.
+	 */
+	boolean isCancelled();
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.scheduler.Scheduler;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The attribute subscriptions of a unit. The changes published by the unit are
+ * handed over to the scheduler, so that the listeners never run on the
+ * delivery thread of the unit, and can be rate limited.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class AttributeSubscriptions {
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	private final class Subscription implements AttributeSubscription {
+		private final Collection<AttributeDescriptor<?>> attributes;
+		private final AttributeListener listener;
+		private final Scheduler scheduler;
+		private final long minIntervalNanos;
+		// Only the latest value of each attribute, when coalescing
+		private final Map<String, Entry<AttributeDescriptor<?>, Object>> latest;
+		// Every change, when not coalescing
+		private final List<Entry<AttributeDescriptor<?>, Object>> changes;
+		private long lastDelivery;
+		private boolean scheduled;
+		private volatile boolean cancelled;
+
+		Subscription(Collection<AttributeDescriptor<?>> attributes, AttributeListener listener, Scheduler scheduler, long minIntervalNanos,
+				boolean coalesce) {
+			this.attributes = Collections.unmodifiableList(new ArrayList<>(attributes));
+			this.listener = listener;
+			this.scheduler = scheduler;
+			this.minIntervalNanos = minIntervalNanos;
+			this.latest = coalesce ? new LinkedHashMap<>() : null;
+			this.changes = coalesce ? null : new ArrayList<>();
+			this.lastDelivery = System.nanoTime() - minIntervalNanos;
+		}
+
+		boolean isSubscribed(AttributeDescriptor<?> descriptor) {
+			for (AttributeDescriptor<?> attribute : attributes) {
+				if (MailboxAttributes.matches(attribute, descriptor)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void offer(AttributeDescriptor<?> descriptor, Object value) {
+			Entry<AttributeDescriptor<?>, Object> change = new SimpleImmutableEntry<>(descriptor, value);
+			synchronized (this) {
+				if (cancelled) {
+					return;
+				}
+				if (latest != null) {
+					latest.put(descriptor.getAttributeName(), change);
+				} else {
+					changes.add(change);
+				}
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			scheduleDelivery();
+		}
+
+		private void scheduleDelivery() {
+			long delay;
+			synchronized (this) {
+				delay = lastDelivery + minIntervalNanos - System.nanoTime();
+			}
+			try {
+				if (delay <= 0) {
+					scheduler.execute(this::deliver);
+				} else {
+					scheduler.schedule(this::deliver, delay, TimeUnit.NANOSECONDS);
+				}
+			} catch (RejectedExecutionException e) {
+				SimpleLoggingUtil.debug(getClass(), "Dropping attribute changes - the scheduler is shutting down");
+				cancel();
+			}
+		}
+
+		private void deliver() {
+			List<Entry<AttributeDescriptor<?>, Object>> delivered;
+			synchronized (this) {
+				delivered = drain();
+				lastDelivery = System.nanoTime();
+			}
+			for (Entry<AttributeDescriptor<?>, Object> change : delivered) {
+				if (cancelled) {
+					return;
+				}
+				try {
+					listener.onAttributeChanged(change.getKey(), change.getValue());
+				} catch (Throwable t) {
+					SimpleLoggingUtil.error(listener.getClass(), "Error notifying attribute change", t);
+				}
+			}
+			// Only one delivery at a time, so the changes stay in order
+			synchronized (this) {
+				if (cancelled || (latest != null ? latest.isEmpty() : changes.isEmpty())) {
+					scheduled = false;
+					return;
+				}
+			}
+			scheduleDelivery();
+		}
+
+		private List<Entry<AttributeDescriptor<?>, Object>> drain() {
+			List<Entry<AttributeDescriptor<?>, Object>> drained;
+			if (latest != null) {
+				drained = new ArrayList<>(latest.values());
+				latest.clear();
+			} else {
+				drained = new ArrayList<>(changes);
+				changes.clear();
+			}
+			return drained;
+		}
+
+		@Override
+		public Collection<AttributeDescriptor<?>> getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			subscriptions.remove(this);
+			synchronized (this) {
+				if (latest != null) {
+					latest.clear();
+				} else {
+					changes.clear();
+				}
+			}
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+	}
+
+	/**
+	 * Adds a subscription.
+	 * 
+	 * @see RoboReference#subscribe(Collection, AttributeListener, long,
+	 *      TimeUnit, boolean)
+	 */
+	AttributeSubscription subscribe(Collection<AttributeDescriptor<?>> attributes, AttributeListener listener, Scheduler scheduler,
+			long minInterval, TimeUnit unit, boolean coalesce) {
+		if (attributes.isEmpty()) {
+			throw new IllegalArgumentException("No attributes to subscribe to");
+		}
+		Subscription subscription = new Subscription(attributes, listener, scheduler, unit.toNanos(Math.max(0, minInterval)), coalesce);
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	/**
+	 * Notifies the subscriptions to the attribute.
+	 * 
+	 * @param descriptor
+	 *            the attribute which changed.
+	 * @param value
+	 *            the new value.
+	 */
+	void publish(AttributeDescriptor<?> descriptor, Object value) {
+		for (Subscription subscription : subscriptions) {
+			if (subscription.isSubscribed(descriptor)) {
+				subscription.offer(descriptor, value);
+			}
+		}
+	}
+
+	/**
+	 * Delivers initial values to one subscription only.
+	 */
+	void publish(AttributeSubscription subscription, Map<AttributeDescriptor<?>, Object> values) {
+		for (Entry<AttributeDescriptor<?>, Object> value : values.entrySet()) {
+			((Subscription) subscription).offer(value.getKey(), value.getValue());
+		}
+	}
+
+	boolean isEmpty() {
+		return subscriptions.isEmpty();
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate units with this annotation to declare that only the latest message
+ * matters, for example for units consuming sensor samples. While the unit is
+ * busy, a new message replaces the one waiting to be delivered, so the unit
+ * always processes the freshest message and never falls behind.
+ * 
+ * <p>
+ * The replaced messages are counted in the
+ * {@link MailboxAttributes#DESCRIPTOR_OVERFLOW_COUNT} attribute.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface ConflatingTrait {
+
+}
@@ -26,6 +26,13 @@ import java.lang.annotation.Target;
  * Annotate the with this annotation to declare that the unit will get messages
  * delivered one at a time.
  * 
+ * <p>
+ * Note that all units local to a RoboSystem have their messages delivered in
+ * order, one at a time, from their mailbox, unless annotated with
+ * {@link KeyedTrait}. This annotation documents that the unit depends on it,
+ * and takes precedence over the {@link KeyedTrait}.
+ * </p>
+ * 
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An executor running everything on a single thread of its own, waiting for
+ * work using an {@link IdleStrategy}.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @see DedicatedThreadTrait
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class DedicatedThread implements Executor, Runnable {
+	private static final String NAME_PREFIX = "Robo4J Dedicated ";
+
+	private final MessageQueue<Runnable> tasks = new MpscQueue<>();
+	private final IdleStrategy idleStrategy;
+	private final Thread thread;
+	private volatile boolean running = true;
+	private volatile boolean waiting;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param unitId
+	 *            the id of the unit the thread delivers messages to.
+	 * @param trait
+	 *            the settings of the thread.
+	 */
+	DedicatedThread(String unitId, DedicatedThreadTrait trait) {
+		this.idleStrategy = trait.idleStrategy();
+		this.thread = new Thread(this, trait.name().isEmpty() ? NAME_PREFIX + unitId : trait.name());
+		thread.setPriority(trait.priority());
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts the thread.
+	 */
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Runs the tasks already submitted, and then stops the thread.
+	 */
+	void halt() {
+		running = false;
+		LockSupport.unpark(thread);
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (!running) {
+			throw new RejectedExecutionException("The thread " + thread.getName() + " has been halted");
+		}
+		tasks.offer(task);
+		if (waiting) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	@Override
+	public void run() {
+		int counter = 0;
+		while (running) {
+			Runnable task = tasks.poll();
+			if (task != null) {
+				runTask(task);
+				counter = 0;
+			} else if (idleStrategy.requiresWakeUp()) {
+				waiting = true;
+				// Checking again after publishing the flag, so that a task
+				// added concurrently is either seen here or wakes us up.
+				if (tasks.peek() == null && running) {
+					counter = idleStrategy.idle(counter);
+				}
+				waiting = false;
+			} else {
+				counter = idleStrategy.idle(counter);
+			}
+		}
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			runTask(task);
+		}
+	}
+
+	// Protects the thread from problems in the tasks.
+	private void runTask(Runnable task) {
+		try {
+			task.run();
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(getClass(), "Error running task on " + thread.getName(), t);
+		}
+	}
+}
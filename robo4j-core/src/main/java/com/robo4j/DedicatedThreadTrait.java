@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate units with this annotation to have messages delivered by a thread
+ * of their own, instead of by a shared thread pool. Meant for units driving
+ * hardware, where the latency of the loop should not depend on what the rest
+ * of the system is doing, and where the unit may block on the device.
+ * 
+ * <p>
+ * The unit gets a normal mailbox, so the mailbox traits still apply. The
+ * thread is started when the mailbox is created, and stopped when the system
+ * is shut down, after delivering the messages already in the mailbox.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface DedicatedThreadTrait {
+	/**
+	 * @return the name of the thread. Defaults to a name based on the unit id.
+	 */
+	String name() default "";
+
+	/**
+	 * @return how the thread waits for new messages.
+	 */
+	IdleStrategy idleStrategy() default IdleStrategy.BACK_OFF;
+
+	/**
+	 * @return the priority of the thread.
+	 */
+	int priority() default Thread.NORM_PRIORITY;
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * A snapshot of how busy one of the executors of a context is. The values
+ * which cannot be had from the kind of executor in use are reported as
+ * {@link #UNKNOWN}.
+ * 
+ * @see MetricsRegistry#getExecutorMetrics()
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class ExecutorMetrics {
+	public static final long UNKNOWN = -1;
+
+	private final String name;
+	private final long poolSize;
+	private final long maxPoolSize;
+	private final long activeCount;
+	private final long queueSize;
+	private final long completedCount;
+
+	private ExecutorMetrics(String name, long poolSize, long maxPoolSize, long activeCount, long queueSize,
+			long completedCount) {
+		this.name = name;
+		this.poolSize = poolSize;
+		this.maxPoolSize = maxPoolSize;
+		this.activeCount = activeCount;
+		this.queueSize = queueSize;
+		this.completedCount = completedCount;
+	}
+
+	/**
+	 * Takes a snapshot of an executor.
+	 * 
+	 * @param name
+	 *            the name to report the executor by.
+	 * @param executor
+	 *            the executor.
+	 * @return the snapshot.
+	 */
+	static ExecutorMetrics of(String name, Executor executor) {
+		if (executor instanceof ThreadPoolExecutor) {
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+			return new ExecutorMetrics(name, pool.getPoolSize(), pool.getMaximumPoolSize(), pool.getActiveCount(),
+					pool.getQueue().size(), pool.getCompletedTaskCount());
+		}
+		if (executor instanceof ForkJoinPool) {
+			ForkJoinPool pool = (ForkJoinPool) executor;
+			return new ExecutorMetrics(name, pool.getPoolSize(), pool.getParallelism(), pool.getActiveThreadCount(),
+					pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount(), UNKNOWN);
+		}
+		return new ExecutorMetrics(name, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of threads in the pool.
+	 */
+	public long getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * @return the maximum number of threads, or for a fork join pool, the
+	 *         targeted parallelism.
+	 */
+	public long getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * @return the number of threads running tasks.
+	 */
+	public long getActiveCount() {
+		return activeCount;
+	}
+
+	/**
+	 * @return the number of tasks waiting for a thread.
+	 */
+	public long getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * @return the number of tasks run to completion.
+	 */
+	public long getCompletedCount() {
+		return completedCount;
+	}
+
+	/**
+	 * @return the share of the threads running tasks, between 0 and 1, or
+	 *         {@link #UNKNOWN}.
+	 */
+	public double getUtilization() {
+		if (activeCount == UNKNOWN || maxPoolSize <= 0) {
+			return UNKNOWN;
+		}
+		return Math.min(1.0, (double) activeCount / maxPoolSize);
+	}
+
+	@Override
+	public String toString() {
+		return "ExecutorMetrics [name=" + name + ", poolSize=" + poolSize + ", activeCount=" + activeCount
+				+ ", queueSize=" + queueSize + ", completedCount=" + completedCount + "]";
+	}
+}
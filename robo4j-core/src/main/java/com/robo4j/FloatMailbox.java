@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.jfr.MessageDeliveryEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The mailbox of a unit implementing {@link FloatUnit}. The floats are kept
+ * in a pre-allocated ring, the slots of which are handed out by a
+ * {@link Sequencer}, so neither sending nor delivering a float allocates.
+ * Like the {@link Mailbox}, a single drain task running on the executor of
+ * the delivery policy delivers the floats in order.
+ * 
+ * <p>
+ * Attribute requests are queued separately, tagged with the last claimed
+ * sequence, and run once that sequence has been delivered. Urgent messages are
+ * delivered as normal messages.
+ * </p>
+ * 
+ * <p>
+ * With {@link MailboxOverflowPolicy#DROP_OLDEST}, a sender finding the ring
+ * full drops the oldest published float to make room. The drain task
+ * therefore copies each float out of its slot before consuming it, and skips
+ * the floats dropped while it was copying them.
+ * </p>
+ * 
+ * <p>
+ * Once halted, or if the executor rejects the drain task, no more floats are
+ * accepted.
+ * </p>
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class FloatMailbox implements Inbox<Float>, Runnable {
+	private static final int MAX_CAPACITY = 1 << 30;
+	// Marks an empty conflating slot. Any other value is the raw float bits.
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private final RoboUnit<Float> unit;
+	private final FloatUnit handler;
+	private final Executor executor;
+	private final int batchSize;
+	private final MailboxOverflowPolicy overflowPolicy;
+	private final float[] values;
+	private final long[] deadlines;
+	private final boolean[] expiring;
+	private final long[] enqueued;
+	private final Sequencer sequencer;
+	// Only used for conflating mailboxes.
+	private final AtomicLong latest;
+	private final Queue<AttributeRequest<?>> requests = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final AtomicLong overflowCount = new AtomicLong();
+	private final AtomicLong expiredCount = new AtomicLong();
+	private final UnitMetrics metrics;
+	private final HandlerWatch watch;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param unit
+	 *            the unit to deliver the floats to. Must implement
+	 *            {@link FloatUnit}.
+	 * @param executor
+	 *            the executor to run the drain task on.
+	 * @param batchSize
+	 *            the maximum number of floats to deliver before yielding the
+	 *            executor thread to other units.
+	 * @param capacity
+	 *            the number of slots. Rounded up to the closest power of two.
+	 * @param overflowPolicy
+	 *            what to do when the ring is full.
+	 * @param conflating
+	 *            if true, only the latest float is kept.
+	 */
+	FloatMailbox(RoboUnit<Float> unit, Executor executor, int batchSize, int capacity, MailboxOverflowPolicy overflowPolicy,
+			boolean conflating) {
+		if (capacity < 1 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Mailbox capacity for " + unit.getId() + " must be between 1 and " + MAX_CAPACITY);
+		}
+		this.unit = unit;
+		this.handler = (FloatUnit) unit;
+		this.executor = executor;
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+		int size = conflating ? 1 : Sequencer.roundUp(capacity);
+		this.values = new float[size];
+		this.deadlines = new long[size];
+		this.expiring = new boolean[size];
+		this.enqueued = new long[size];
+		this.sequencer = new Sequencer(size);
+		this.latest = conflating ? new AtomicLong(EMPTY) : null;
+		this.metrics = unit.getMetrics();
+		this.watch = metrics.newHandlerWatch();
+	}
+
+	/**
+	 * Enqueues a float.
+	 * 
+	 * @param value
+	 *            the float to deliver.
+	 * @param deadline
+	 *            the deadline, as given by {@link System#nanoTime()}, if
+	 *            hasDeadline is true.
+	 * @param hasDeadline
+	 *            true if the float should be dropped at the deadline.
+	 * @param tryOnly
+	 *            if true, the sender will neither be blocked nor get an
+	 *            exception when the mailbox is full.
+	 * @return true if the float was accepted.
+	 */
+	boolean offerFloat(float value, long deadline, boolean hasDeadline, boolean tryOnly) {
+		if (latest != null && !sequencer.isHalted()) {
+			if (latest.getAndSet(Float.floatToRawIntBits(value)) != EMPTY) {
+				overflowCount.incrementAndGet();
+			}
+			schedule();
+			return true;
+		}
+		long sequence = sequencer.tryClaim();
+		if (sequence == Sequencer.NOT_CLAIMED && overflowPolicy == MailboxOverflowPolicy.DROP_OLDEST) {
+			sequence = claimByDroppingOldest();
+		}
+		if (sequence == Sequencer.NOT_CLAIMED && !tryOnly && overflowPolicy == MailboxOverflowPolicy.BLOCK
+				&& !sequencer.isHalted()) {
+			if (Mailbox.DELIVERING_ON.get() == executor) {
+				// The sender may be what the mailbox is waiting for, either
+				// the unit itself, or the only thread free to deliver.
+				overflowCount.incrementAndGet();
+				throw new MailboxOverflowException("The mailbox of " + unit.getId() + " is full (capacity " + values.length
+						+ "), and blocking a sender delivering on the same executor could deadlock");
+			}
+			sequence = sequencer.claim(RingBufferWaitStrategy.YIELD);
+		}
+		if (sequence == Sequencer.NOT_CLAIMED) {
+			overflowCount.incrementAndGet();
+			if (overflowPolicy == MailboxOverflowPolicy.FAIL && !tryOnly) {
+				throw new MailboxOverflowException("The mailbox of " + unit.getId() + " is full (capacity " + values.length + ")");
+			}
+			return false;
+		}
+		put(sequence, value, deadline, hasDeadline);
+		schedule();
+		return true;
+	}
+
+	private long claimByDroppingOldest() {
+		long sequence = Sequencer.NOT_CLAIMED;
+		while (sequence == Sequencer.NOT_CLAIMED && !sequencer.isHalted()) {
+			boolean dropped = sequencer.tryDropOldest();
+			if (dropped) {
+				overflowCount.incrementAndGet();
+			}
+			sequence = sequencer.tryClaim();
+			if (!dropped) {
+				// The oldest float is still being written, or another sender
+				// took the slot - dropping the newest instead
+				break;
+			}
+		}
+		return sequence;
+	}
+
+	private void put(long sequence, float value, long deadline, boolean hasDeadline) {
+		int index = sequencer.index(sequence);
+		values[index] = value;
+		deadlines[index] = deadline;
+		expiring[index] = hasDeadline;
+		enqueued[index] = metrics.timestamp();
+		sequencer.publish(sequence);
+	}
+
+	@Override
+	public boolean offer(Float message, boolean tryOnly) {
+		return offerFloat(message, 0, false, tryOnly);
+	}
+
+	@Override
+	public boolean offer(Float message, long deadline, boolean tryOnly) {
+		return offerFloat(message, deadline, true, tryOnly);
+	}
+
+	@Override
+	public void offerUrgent(Float message) {
+		offerFloat(message, 0, false, false);
+	}
+
+	@Override
+	public int offerAll(List<Float> messages) {
+		if (latest == null && overflowPolicy == MailboxOverflowPolicy.FAIL) {
+			// Accepted or rejected as a whole
+			long sequence = sequencer.tryClaim(messages.size());
+			if (sequence == Sequencer.NOT_CLAIMED) {
+				overflowCount.addAndGet(messages.size());
+				throw new MailboxOverflowException("The mailbox of " + unit.getId() + " has no room for " + messages.size()
+						+ " more messages (capacity " + values.length + ")");
+			}
+			for (Float message : messages) {
+				put(sequence++, message, 0, false);
+			}
+			schedule();
+			return messages.size();
+		}
+		int accepted = 0;
+		for (Float message : messages) {
+			if (offerFloat(message, 0, false, false)) {
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+	@Override
+	public <R> AttributeRequest<R> submit(Callable<R> callable) {
+		AttributeRequest<R> request = new AttributeRequest<>(callable, sequencer.getClaimed());
+		requests.offer(request);
+		if (sequencer.isHalted()) {
+			request.cancel(false);
+		} else {
+			schedule();
+		}
+		return request;
+	}
+
+	@Override
+	public boolean isBounded() {
+		return true;
+	}
+
+	@Override
+	public int getCapacity() {
+		return values.length;
+	}
+
+	@Override
+	public long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	@Override
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+
+	/**
+	 * Stops accepting floats, and releases any sender waiting for a free slot.
+	 * The floats already accepted are still delivered, if the executor allows.
+	 */
+	void halt() {
+		sequencer.halt();
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// We own the ring until the flag is reset.
+				halt();
+				discardAll();
+				scheduled.set(false);
+				SimpleLoggingUtil.error(unit.getClass(), "Executor rejected the delivery of messages to " + unit.getId());
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		Executor previous = Mailbox.DELIVERING_ON.get();
+		Mailbox.DELIVERING_ON.set(executor);
+		try {
+			for (int i = 0; i < batchSize; i++) {
+				boolean busy = deliverLatest();
+				// Senders dropping the oldest float may move the consumed
+				// sequence, so it is read again every time
+				long next = sequencer.getConsumed() + 1;
+				if (sequencer.isPublished(next)) {
+					deliverNext(next);
+					busy = true;
+				}
+				if (runRequests(sequencer.getConsumed())) {
+					busy = true;
+				}
+				if (!busy) {
+					break;
+				}
+			}
+		} finally {
+			Mailbox.DELIVERING_ON.set(previous);
+		}
+		scheduled.set(false);
+		if (hasPending() && scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// The executor is shutting down - deliver what is left here.
+				halt();
+				drainAll();
+				scheduled.set(false);
+			}
+		}
+	}
+
+	/*
+	 * Delivers everything published in the current thread. Only called by the
+	 * owner of the scheduled flag, once halted. Slots claimed but not yet
+	 * published are left to the schedule() of their sender.
+	 */
+	private void drainAll() {
+		do {
+			deliverLatest();
+			long next;
+			while (sequencer.isPublished(next = sequencer.getConsumed() + 1)) {
+				deliverNext(next);
+			}
+		} while (runRequests(sequencer.getConsumed()));
+		AttributeRequest<?> request;
+		while ((request = requests.poll()) != null) {
+			request.cancel(false);
+		}
+	}
+
+	private void discardAll() {
+		if (latest != null) {
+			latest.set(EMPTY);
+		}
+		long next;
+		while (sequencer.isPublished(next = sequencer.getConsumed() + 1)) {
+			sequencer.tryConsume(next);
+		}
+		AttributeRequest<?> request;
+		while ((request = requests.poll()) != null) {
+			request.cancel(false);
+		}
+	}
+
+	/*
+	 * Copies the float out of its slot before consuming it, since a sender
+	 * may drop and reuse the slot as soon as it has been consumed. A float
+	 * dropped while being copied is not delivered.
+	 */
+	private void deliverNext(long sequence) {
+		int index = sequencer.index(sequence);
+		float value = values[index];
+		long deadline = deadlines[index];
+		boolean hasDeadline = expiring[index];
+		long enqueuedTime = enqueued[index];
+		if (!sequencer.tryConsume(sequence)) {
+			return;
+		}
+		if (hasDeadline && System.nanoTime() - deadline > 0) {
+			expiredCount.incrementAndGet();
+			return;
+		}
+		deliverFloat(value, enqueuedTime);
+	}
+
+	private boolean hasPending() {
+		long consumed = sequencer.getConsumed();
+		if (sequencer.isPublished(consumed + 1) || (latest != null && latest.get() != EMPTY)) {
+			return true;
+		}
+		AttributeRequest<?> request = requests.peek();
+		return request != null && request.getSequence() <= consumed;
+	}
+
+	private boolean deliverLatest() {
+		if (latest != null) {
+			long bits = latest.getAndSet(EMPTY);
+			if (bits != EMPTY) {
+				deliverFloat(Float.intBitsToFloat((int) bits), UnitMetrics.NOT_TIMED);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean runRequests(long deliveredSequence) {
+		boolean ran = false;
+		AttributeRequest<?> request;
+		while ((request = requests.peek()) != null && request.getSequence() <= deliveredSequence) {
+			requests.poll();
+			// The request must see the latest float sent before it.
+			deliverLatest();
+			request.run();
+			ran = true;
+		}
+		return ran;
+	}
+
+	// Protects the executors from problems in the units.
+	private void deliverFloat(float value, long enqueuedTime) {
+		long start = UnitMetrics.startTime(enqueuedTime);
+		MessageDeliveryEvent event = UnitMetrics.beginDelivery();
+		watch.begin();
+		try {
+			handler.onFloat(value);
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(unit.getClass(), "Error processing message", t);
+		} finally {
+			watch.end();
+		}
+		metrics.messagesProcessed(1, enqueuedTime, start, event);
+	}
+}
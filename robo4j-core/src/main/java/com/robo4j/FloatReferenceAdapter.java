@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.Configuration;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boxes the floats sent to a reference which does not support primitive
+ * floats.
+ * 
+ * @see FloatRoboReference#adapt(RoboReference)
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class FloatReferenceAdapter implements FloatRoboReference {
+	private final RoboReference<Float> reference;
+
+	FloatReferenceAdapter(RoboReference<Float> reference) {
+		this.reference = reference;
+	}
+
+	@Override
+	public void sendFloat(float value) {
+		reference.sendMessage(value);
+	}
+
+	@Override
+	public void sendFloat(float value, long timeToLive, TimeUnit unit) {
+		reference.sendMessage(value, timeToLive, unit);
+	}
+
+	@Override
+	public String getId() {
+		return reference.getId();
+	}
+
+	@Override
+	public LifecycleState getState() {
+		return reference.getState();
+	}
+
+	@Override
+	public void sendMessage(Float message) {
+		reference.sendMessage(message);
+	}
+
+	@Override
+	public void sendMessage(Float message, long timeToLive, TimeUnit unit) {
+		reference.sendMessage(message, timeToLive, unit);
+	}
+
+	@Override
+	public boolean trySendMessage(Float message) {
+		return reference.trySendMessage(message);
+	}
+
+	@Override
+	public void sendUrgentMessage(Float message) {
+		reference.sendUrgentMessage(message);
+	}
+
+	@Override
+	public void sendMessages(Collection<Float> messages) {
+		reference.sendMessages(messages);
+	}
+
+	@Override
+	public Class<Float> getMessageType() {
+		return reference.getMessageType();
+	}
+
+	@Override
+	public Configuration getConfiguration() {
+		return reference.getConfiguration();
+	}
+
+	@Override
+	public <R> Future<R> getAttribute(AttributeDescriptor<R> attribute) {
+		return reference.getAttribute(attribute);
+	}
+
+	@Override
+	public <R> CompletionStage<R> getAttributeAsync(AttributeDescriptor<R> attribute) {
+		return reference.getAttributeAsync(attribute);
+	}
+
+	@Override
+	public Collection<AttributeDescriptor<?>> getKnownAttributes() {
+		return reference.getKnownAttributes();
+	}
+
+	@Override
+	public Future<Map<AttributeDescriptor<?>, Object>> getAttributes() {
+		return reference.getAttributes();
+	}
+
+	@Override
+	public CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync() {
+		return reference.getAttributesAsync();
+	}
+
+	@Override
+	public Future<Map<AttributeDescriptor<?>, Object>> getAttributes(Collection<AttributeDescriptor<?>> attributes) {
+		return reference.getAttributes(attributes);
+	}
+
+	@Override
+	public CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync(Collection<AttributeDescriptor<?>> attributes) {
+		return reference.getAttributesAsync(attributes);
+	}
+
+	@Override
+	public AttributeSubscription subscribe(Collection<AttributeDescriptor<?>> attributes, AttributeListener listener, long minInterval,
+			TimeUnit unit, boolean coalesce) {
+		return reference.subscribe(attributes, listener, minInterval, unit, coalesce);
+	}
+
+	@Override
+	public String toString() {
+		return "FloatReferenceAdapter for " + reference;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A reference to a unit taking float messages, which can send floats without
+ * boxing them. The references to local units implementing {@link FloatUnit}
+ * implement this interface. Use {@link #adapt(RoboReference)} to get one for
+ * any reference.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface FloatRoboReference extends RoboReference<Float> {
+	/**
+	 * Sends a float to the unit. Messages will only be delivered to started
+	 * units.
+	 * 
+	 * @param value
+	 *            the message to send.
+	 */
+	void sendFloat(float value);
+
+	/**
+	 * Sends a float to the unit, which is dropped if it could not be delivered
+	 * in time.
+	 * 
+	 * @param value
+	 *            the message to send.
+	 * @param timeToLive
+	 *            the time after which the message should no longer be
+	 *            delivered.
+	 * @param unit
+	 *            the time unit of the time to live.
+	 * 
+	 * @see RoboReference#sendMessage(Object, long, TimeUnit)
+	 */
+	void sendFloat(float value, long timeToLive, TimeUnit unit);
+
+	/**
+	 * Returns a {@link FloatRoboReference} for the specified reference. If the
+	 * reference does not support sending primitive floats, the returned
+	 * reference will box them.
+	 * 
+	 * @param reference
+	 *            the reference to adapt.
+	 * @return the reference itself, if it already is a
+	 *         {@link FloatRoboReference}, otherwise an adapter.
+	 */
+	static FloatRoboReference adapt(RoboReference<Float> reference) {
+		if (reference instanceof FloatRoboReference) {
+			return (FloatRoboReference) reference;
+		}
+		return new FloatReferenceAdapter(reference);
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * Implemented by units of type {@link RoboUnit}&lt;Float&gt; to have float
+ * messages delivered as primitive floats. Messages sent to such units, using
+ * {@link FloatRoboReference#sendFloat(float)} or as boxed {@link Float}s, are
+ * kept in a pre-allocated ring of floats, so delivery neither boxes nor
+ * allocates.
+ * 
+ * <p>
+ * The mailbox is always bounded. The capacity defaults to
+ * {@link #DEFAULT_CAPACITY}, and the overflow policy to
+ * {@link MailboxOverflowPolicy#DROP_OLDEST}, so that a sender is never held up
+ * by a slow unit, and the latest float, such as the latest set-point of an
+ * actuator, is always kept. Both can be changed using the
+ * {@link BoundedMailboxTrait} or the unit configuration, for instance to
+ * {@link MailboxOverflowPolicy#BLOCK} if no floats may be lost. Annotate the
+ * unit with {@link ConflatingTrait} to only keep the latest float.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface FloatUnit {
+	/**
+	 * The default capacity of the ring of floats.
+	 */
+	int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Called instead of {@link RoboUnit#onMessage(Object)} to deliver a
+	 * message.
+	 * 
+	 * @param value
+	 *            the message received by this unit.
+	 */
+	void onFloat(float value);
+}
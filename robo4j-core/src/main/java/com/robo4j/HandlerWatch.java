@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the message handler running in one delivery lane of a unit, such as
+ * a mailbox partition or a ring buffer, for the {@link UnitWatchdog}. The lane
+ * must deliver one message at a time.
+ * 
+ * <p>
+ * To keep the cost on the delivering thread down to a couple of ordered
+ * writes, no time is taken. Each delivery is numbered instead, and the
+ * watchdog times for how long it keeps seeing the same number.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class HandlerWatch {
+	static final long IDLE = 0;
+
+	private final AtomicLong running = new AtomicLong(IDLE);
+	private volatile Thread thread;
+	// Only accessed by the delivering thread, one at a time.
+	private long sequence;
+
+	// Only accessed by the watchdog.
+	long observed = IDLE;
+	long observedSince;
+	boolean reported;
+
+	/**
+	 * To be called by the delivering thread just before calling the handler.
+	 */
+	void begin() {
+		Thread current = Thread.currentThread();
+		if (thread != current) {
+			thread = current;
+		}
+		if (++sequence == IDLE) {
+			sequence++;
+		}
+		running.lazySet(sequence);
+	}
+
+	/**
+	 * To be called by the delivering thread when the handler has returned.
+	 */
+	void end() {
+		running.lazySet(IDLE);
+	}
+
+	/**
+	 * @return the number of the delivery in progress, or {@link #IDLE}.
+	 */
+	long getRunning() {
+		return running.get();
+	}
+
+	/**
+	 * @return the thread running the latest delivery. Only valid while the
+	 *         delivery is in progress.
+	 */
+	Thread getThread() {
+		return thread;
+	}
+}
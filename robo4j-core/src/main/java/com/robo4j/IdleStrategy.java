@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a dedicated delivery thread waits for new messages.
+ * 
+ * @see DedicatedThreadTrait
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public enum IdleStrategy {
+	/**
+	 * Spins without ever giving up the CPU. Lowest latency, but uses up a
+	 * full core even when idle.
+	 */
+	BUSY_SPIN,
+	/**
+	 * Spins for a while, then yields the CPU to other threads.
+	 */
+	YIELD,
+	/**
+	 * Parks until a message arrives. Uses no CPU when idle, but the senders
+	 * have to wake the thread up, and waking up takes time.
+	 */
+	PARK,
+	/**
+	 * Spins, then yields, then parks for exponentially longer periods of
+	 * time, up to {@link #MAX_BACK_OFF_MICROS} µs. The senders never have to
+	 * wake the thread up.
+	 */
+	BACK_OFF;
+
+	/**
+	 * The longest time a backing off thread sleeps before checking again.
+	 */
+	public static final int MAX_BACK_OFF_MICROS = 1000;
+
+	private static final long MIN_BACK_OFF_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+	private static final long MAX_BACK_OFF_NANOS = TimeUnit.MICROSECONDS.toNanos(MAX_BACK_OFF_MICROS);
+
+	/**
+	 * @return true if the senders must wake up the waiting thread.
+	 */
+	boolean requiresWakeUp() {
+		return this == PARK;
+	}
+
+	/**
+	 * Waits a little.
+	 * 
+	 * @param counter
+	 *            the number of times waited so far, starting with 0.
+	 * @return the counter to use for the next wait.
+	 */
+	int idle(int counter) {
+		switch (this) {
+		case BUSY_SPIN:
+			return Idling.spin(counter);
+		case YIELD:
+			return Idling.spinThenYield(counter);
+		case PARK:
+			LockSupport.park(this);
+			return counter;
+		case BACK_OFF:
+		default:
+			return Idling.backOff(counter, this, MIN_BACK_OFF_NANOS, MAX_BACK_OFF_NANOS);
+		}
+	}
+}
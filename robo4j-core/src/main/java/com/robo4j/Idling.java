@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The spinning, yielding and backing off shared by the {@link IdleStrategy}
+ * of the dedicated threads and the {@link RingBufferWaitStrategy} of the ring
+ * buffers. The strategies keep a counter of the number of times waited so
+ * far, starting with 0, and pass it in to get the counter to use for the next
+ * wait.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class Idling {
+	/**
+	 * The number of times to spin before yielding.
+	 */
+	static final int SPIN_TRIES = 100;
+	/**
+	 * The number of times to yield before backing off.
+	 */
+	static final int YIELD_TRIES = 100;
+
+	// The back off is doubled at most this many times
+	private static final int MAX_BACK_OFF_DOUBLINGS = 20;
+
+	private Idling() {
+		// Not to be instantiated
+	}
+
+	/**
+	 * Spins once, without ever giving up the CPU.
+	 */
+	static int spin(int counter) {
+		Thread.onSpinWait();
+		return counter;
+	}
+
+	/**
+	 * Spins for {@link #SPIN_TRIES} waits, then yields the CPU.
+	 */
+	static int spinThenYield(int counter) {
+		if (counter < SPIN_TRIES) {
+			Thread.onSpinWait();
+			return counter + 1;
+		}
+		Thread.yield();
+		return counter;
+	}
+
+	/**
+	 * Spins for {@link #SPIN_TRIES} waits, yields for {@link #YIELD_TRIES}
+	 * waits, and then parks for exponentially longer periods of time, from
+	 * minParkNanos up to maxParkNanos.
+	 */
+	static int backOff(int counter, Object blocker, long minParkNanos, long maxParkNanos) {
+		if (counter < SPIN_TRIES + YIELD_TRIES) {
+			if (counter < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+			return counter + 1;
+		}
+		int parks = Math.min(counter - SPIN_TRIES - YIELD_TRIES, MAX_BACK_OFF_DOUBLINGS);
+		LockSupport.parkNanos(blocker, Math.min(maxParkNanos, minParkNanos << parks));
+		return parks < MAX_BACK_OFF_DOUBLINGS ? counter + 1 : counter;
+	}
+}
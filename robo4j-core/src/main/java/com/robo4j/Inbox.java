@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Where the messages to a local unit are posted, awaiting delivery.
+ * 
+ * <p>
+ * Internal implementation interface.
+ * </p>
+ * 
+ * @see UnitMailboxes
+ * @see RingBuffer
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+interface Inbox<T> {
+	/**
+	 * Posts a message.
+	 * 
+	 * @param message
+	 *            the message to deliver.
+	 * @param tryOnly
+	 *            if true, the sender will neither be blocked nor get an
+	 *            exception when the inbox is full.
+	 * @return true if the message was accepted.
+	 */
+	boolean offer(T message, boolean tryOnly);
+
+	/**
+	 * Posts a message, which should not be delivered after the deadline.
+	 * 
+	 * @param message
+	 *            the message to deliver.
+	 * @param deadline
+	 *            the deadline, as given by {@link System#nanoTime()}.
+	 * @param tryOnly
+	 *            if true, the sender will neither be blocked nor get an
+	 *            exception when the inbox is full.
+	 * @return true if the message was accepted.
+	 */
+	boolean offer(T message, long deadline, boolean tryOnly);
+
+	/**
+	 * Posts a message to be delivered before any waiting messages.
+	 * 
+	 * @param message
+	 *            the message to deliver.
+	 */
+	void offerUrgent(T message);
+
+	/**
+	 * Posts a batch of messages.
+	 * 
+	 * @param messages
+	 *            the messages to deliver. Must not be empty, and must not be
+	 *            modified afterwards.
+	 * @return the number of messages accepted.
+	 */
+	int offerAll(List<T> messages);
+
+	/**
+	 * Posts an attribute request, to be run in order with the messages.
+	 * 
+	 * @param callable
+	 *            the attribute request.
+	 * @return the future result of the request.
+	 */
+	<R> AttributeRequest<R> submit(Callable<R> callable);
+
+	boolean isBounded();
+
+	int getCapacity();
+
+	long getOverflowCount();
+
+	long getExpiredCount();
+}
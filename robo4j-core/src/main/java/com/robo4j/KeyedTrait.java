@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate units with this annotation to have messages with different keys
+ * delivered in parallel, while messages with the same key are delivered in
+ * order, one at a time. The key of a message is provided by
+ * {@link RoboUnit#getMessageKey(Object)}. The messages are spread over a fixed
+ * number of partitions, each with its own mailbox, so messages with different
+ * keys may still end up being delivered one at a time.
+ * 
+ * <p>
+ * Units with this trait must be able to handle calls to onMessage from
+ * several threads at once. Attribute requests are delivered in order with the
+ * messages of the first partition. The number of partitions can be overridden
+ * in the unit configuration using the {@link RoboUnit#KEY_MAILBOX_PARTITIONS}
+ * key.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface KeyedTrait {
+	/**
+	 * @return the number of partitions, or 0 to use the number of available
+	 *         processors.
+	 */
+	int partitions() default 0;
+}
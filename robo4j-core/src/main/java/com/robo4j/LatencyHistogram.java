@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies, in nanoseconds, cheap enough to record into on
+ * every message. The values are counted in log-linear buckets: each power of
+ * two is split into four buckets, so the percentiles are reported with a
+ * precision of 25% or better. Recording never allocates, and only uses a few
+ * uncontended atomic operations.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS + (62 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts;
+	private final AtomicLong count;
+	private final AtomicLong sum;
+	private final AtomicLong max;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram() {
+		this(new AtomicLongArray(BUCKETS), 0, 0, 0);
+	}
+
+	private LatencyHistogram(AtomicLongArray counts, long count, long sum, long max) {
+		this.counts = counts;
+		this.count = new AtomicLong(count);
+		this.sum = new AtomicLong(sum);
+		this.max = new AtomicLong(max);
+	}
+
+	/**
+	 * Records a latency.
+	 * 
+	 * @param nanos
+	 *            the latency, in nanoseconds. Negative values are recorded as
+	 *            zero.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(getBucket(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+			// Retry
+		}
+	}
+
+	/**
+	 * @return a copy of this histogram, which will not change.
+	 */
+	public LatencyHistogram snapshot() {
+		AtomicLongArray copy = new AtomicLongArray(BUCKETS);
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			long bucketCount = counts.get(i);
+			copy.set(i, bucketCount);
+			total += bucketCount;
+		}
+		// The count is taken from the buckets, so that the copy is
+		// consistent even if values were recorded while copying.
+		return new LatencyHistogram(copy, total, sum.get(), max.get());
+	}
+
+	/**
+	 * @return the number of recorded latencies.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the sum of the recorded latencies, in nanoseconds.
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * @return the largest recorded latency, in nanoseconds.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return the mean of the recorded latencies, in nanoseconds, or 0 if
+	 *         nothing has been recorded.
+	 */
+	public double getMean() {
+		long currentCount = count.get();
+		return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+	}
+
+	/**
+	 * Returns the latency at or below which the specified percentage of the
+	 * recorded latencies fall. The value is the upper bound of the bucket the
+	 * percentile falls in, but never more than the largest recorded latency.
+	 * 
+	 * @param percentile
+	 *            the percentile, between 0 and 100.
+	 * @return the latency, in nanoseconds, or 0 if nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100, was " + percentile);
+		}
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(getBucketUpperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * @return the number of buckets.
+	 */
+	public int getNumberOfBuckets() {
+		return BUCKETS;
+	}
+
+	/**
+	 * @param bucket
+	 *            the index of the bucket.
+	 * @return the largest latency, in nanoseconds, counted in the bucket.
+	 */
+	public long getBucketUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long lowerBound = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+
+	/**
+	 * @param bucket
+	 *            the index of the bucket.
+	 * @return the number of latencies counted in the bucket.
+	 */
+	public long getBucketCount(int bucket) {
+		return counts.get(bucket);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%.0f ns, p50=%d ns, p99=%d ns, max=%d ns", getCount(), getMean(), getValueAtPercentile(50),
+				getValueAtPercentile(99), getMax());
+	}
+
+	static int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+}
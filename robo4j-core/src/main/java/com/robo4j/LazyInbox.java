@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.tracing.TraceContext;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracer;
+import com.robo4j.tracing.Tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Inbox for a unit which is initialized and started on demand. The first
+ * message or attribute request initializes and starts the unit. Messages and
+ * requests posted until the unit is started are kept, in order, and handed
+ * to the real inbox of the unit once it is up.
+ * 
+ * <p>
+ * If the unit fails to initialize or start, it is put in the
+ * {@link LifecycleState#FAILED} state, and the waiting messages are dropped.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class LazyInbox<T> implements Inbox<T> {
+	private final RoboUnit<T> unit;
+	private final Configuration configuration;
+	private final Executor executor;
+	private final Supplier<Inbox<T>> inboxFactory;
+
+	// Guarded by itself
+	private final List<Consumer<Inbox<T>>> waiting = new ArrayList<>();
+	private final List<AttributeRequest<?>> waitingRequests = new ArrayList<>();
+	private volatile boolean activated;
+	private volatile boolean failed;
+	private volatile Inbox<T> delegate;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param unit
+	 *            the unit to initialize and start on demand.
+	 * @param configuration
+	 *            the configuration to initialize the unit with.
+	 * @param executor
+	 *            the executor on which to initialize and start the unit.
+	 * @param inboxFactory
+	 *            creates the real inbox, once the unit is initialized.
+	 */
+	LazyInbox(RoboUnit<T> unit, Configuration configuration, Executor executor, Supplier<Inbox<T>> inboxFactory) {
+		this.unit = unit;
+		this.configuration = configuration;
+		this.executor = executor;
+		this.inboxFactory = inboxFactory;
+	}
+
+	@Override
+	public boolean offer(T message, boolean tryOnly) {
+		Inbox<T> inbox = delegate;
+		if (inbox == null && defer(i -> i.offer(message, tryOnly))) {
+			return !failed;
+		}
+		return delegate.offer(message, tryOnly);
+	}
+
+	@Override
+	public boolean offer(T message, long deadline, boolean tryOnly) {
+		Inbox<T> inbox = delegate;
+		if (inbox == null && defer(i -> i.offer(message, deadline, tryOnly))) {
+			return !failed;
+		}
+		return delegate.offer(message, deadline, tryOnly);
+	}
+
+	@Override
+	public void offerUrgent(T message) {
+		Inbox<T> inbox = delegate;
+		if (inbox == null && defer(i -> i.offerUrgent(message))) {
+			return;
+		}
+		delegate.offerUrgent(message);
+	}
+
+	@Override
+	public int offerAll(List<T> messages) {
+		Inbox<T> inbox = delegate;
+		if (inbox == null && defer(i -> i.offerAll(messages))) {
+			return failed ? 0 : messages.size();
+		}
+		return delegate.offerAll(messages);
+	}
+
+	@Override
+	public <R> AttributeRequest<R> submit(Callable<R> request) {
+		Inbox<T> inbox = delegate;
+		if (inbox == null) {
+			AttributeRequest<R> task = new AttributeRequest<>(request);
+			if (defer(i -> i.submit(() -> {
+				task.run();
+				return null;
+			}))) {
+				synchronized (waiting) {
+					if (failed) {
+						task.cancel(false);
+					} else if (delegate == null) {
+						waitingRequests.add(task);
+					}
+				}
+				return task;
+			}
+		}
+		return delegate.submit(request);
+	}
+
+	@Override
+	public boolean isBounded() {
+		Inbox<T> inbox = delegate;
+		return inbox != null && inbox.isBounded();
+	}
+
+	@Override
+	public int getCapacity() {
+		Inbox<T> inbox = delegate;
+		return inbox == null ? Integer.MAX_VALUE : inbox.getCapacity();
+	}
+
+	@Override
+	public long getOverflowCount() {
+		Inbox<T> inbox = delegate;
+		return inbox == null ? 0 : inbox.getOverflowCount();
+	}
+
+	@Override
+	public long getExpiredCount() {
+		Inbox<T> inbox = delegate;
+		return inbox == null ? 0 : inbox.getExpiredCount();
+	}
+
+	/**
+	 * @return true if the unit has not yet been started, and has not failed
+	 *         to start.
+	 */
+	boolean isPending() {
+		return delegate == null && !failed;
+	}
+
+	/**
+	 * @return true once the first message or request has been posted, and the
+	 *         unit is being, or has been, initialized and started.
+	 */
+	boolean isActivated() {
+		return activated;
+	}
+
+	/**
+	 * Keeps the action until the unit is started, and starts the unit if this
+	 * is the first one. Returns false if the unit was started in the
+	 * meantime, in which case the action should be applied directly. The
+	 * trace context of the sender, if any, is kept with the action.
+	 */
+	private boolean defer(Consumer<Inbox<T>> action) {
+		synchronized (waiting) {
+			if (delegate != null) {
+				return false;
+			}
+			if (!failed) {
+				waiting.add(traced(action));
+			}
+			if (!activated) {
+				activated = true;
+				executor.execute(this::activate);
+			}
+			return true;
+		}
+	}
+
+	private static <T> Consumer<Inbox<T>> traced(Consumer<Inbox<T>> action) {
+		TraceContext trace = Tracing.current();
+		if (trace == null) {
+			return action;
+		}
+		Tracer tracer = Tracing.currentTracer();
+		return inbox -> {
+			TraceScope scope = Tracing.activate(trace, tracer);
+			try {
+				action.accept(inbox);
+			} finally {
+				scope.close();
+			}
+		};
+	}
+
+	private void activate() {
+		long start = System.nanoTime();
+		Inbox<T> inbox;
+		try {
+			unit.initialize(configuration);
+			unit.setState(LifecycleState.STARTING);
+			unit.start();
+			unit.setState(LifecycleState.STARTED);
+			inbox = inboxFactory.get();
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(getClass(), "Failed to initialize and start unit " + unit.getId() + " on demand", t);
+			unit.setState(LifecycleState.FAILED);
+			synchronized (waiting) {
+				failed = true;
+				waiting.clear();
+				waitingRequests.forEach(task -> task.cancel(false));
+				waitingRequests.clear();
+			}
+			return;
+		}
+		synchronized (waiting) {
+			// Handed over while holding the lock, so that nothing posted
+			// after this point can overtake the waiting messages. One failing
+			// message, for instance overflowing the inbox, must not keep the
+			// others, or the inbox, from being handed over.
+			try {
+				for (Consumer<Inbox<T>> action : waiting) {
+					try {
+						action.accept(inbox);
+					} catch (Throwable t) {
+						SimpleLoggingUtil.error(getClass(), "Failed to hand over waiting message to unit " + unit.getId(), t);
+					}
+				}
+			} finally {
+				waiting.clear();
+				waitingRequests.clear();
+				delegate = inbox;
+			}
+		}
+		SimpleLoggingUtil.debug(getClass(), String.format("Took %d ms to initialize and start unit %s on demand",
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), unit.getId()));
+	}
+}
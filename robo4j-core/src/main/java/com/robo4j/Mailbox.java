@@ -0,0 +1,763 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.jfr.MessageDeliveryEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.tracing.Span;
+import com.robo4j.tracing.TraceContext;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracer;
+import com.robo4j.tracing.Tracing;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The mailbox of a unit. Messages are enqueued without locking, and a single
+ * drain task, running on the executor of the delivery policy of the unit,
+ * delivers them in batches. Messages to a unit are therefore always delivered
+ * in order and one at a time, and no task is created per message.
+ * 
+ * <p>
+ * Attribute requests are posted to the same queue, so that they are handled
+ * in order with, and never concurrently to, the messages. They do not count
+ * towards the capacity of a bounded mailbox.
+ * </p>
+ * 
+ * <p>
+ * Messages sent with a deadline are dropped, and counted, if they are still
+ * waiting when the deadline has passed.
+ * </p>
+ * 
+ * <p>
+ * Urgent messages are posted to a separate lane, which is always emptied
+ * first. To not have to wait for the drain task to get its turn on a busy
+ * executor, urgent messages are also delivered from the urgent executor when
+ * no other thread is delivering to the unit. Urgent messages never count
+ * towards the capacity, and are never dropped. An urgent message supersedes
+ * the messages waiting when it was sent, which would otherwise be delivered
+ * after it, undoing for instance an emergency stop. They are dropped, and
+ * counted as expired. Attribute requests are still run.
+ * </p>
+ * 
+ * <p>
+ * A conflating mailbox only keeps the latest message. It behaves as a mailbox
+ * with room for one message using {@link MailboxOverflowPolicy#DROP_OLDEST},
+ * but is cheaper, as the message is simply swapped into a single slot.
+ * </p>
+ * 
+ * <p>
+ * Messages posted while a trace context is current carry a child of it, which
+ * is current while the unit handles the message, and a span is recorded for
+ * the delivery.
+ * </p>
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class Mailbox<T> implements Runnable {
+	static final int UNBOUNDED = 0;
+	private static final long BLOCK_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	// Posted to the queue for every urgent message, after the messages it
+	// supersedes.
+	private static final Object URGENT_MARKER = new Object();
+
+	private final RoboUnit<T> unit;
+	private final UnitMetrics metrics;
+	private final HandlerWatch watch;
+	// Null if the context of the unit is not traced
+	private final Tracer tracer;
+	private final Executor executor;
+	private final Executor urgentExecutor;
+	private final int batchSize;
+	private final int capacity;
+	private final MailboxOverflowPolicy overflowPolicy;
+	private final MessageQueue<Object> queue;
+	// Only set if the oldest message is dropped on overflow, in which case
+	// it is also the queue.
+	private final DroppingQueue droppingQueue;
+	private final MessageQueue<Object> urgentQueue = new MpscQueue<>();
+	// Held while delivering, so that the drain task and the urgent executor
+	// never deliver at the same time.
+	private final ReentrantLock deliveryLock = new ReentrantLock();
+	private final Runnable urgentDrainTask = this::drainUrgent;
+	// Only used for conflating mailboxes.
+	private final AtomicReference<Object> latest;
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicLong overflowCount = new AtomicLong();
+	private final AtomicLong expiredCount = new AtomicLong();
+	private final Object notFull = new Object();
+	private volatile int blockedSenders;
+	// The executor the current thread is delivering messages on, if any.
+	static final ThreadLocal<Executor> DELIVERING_ON = new ThreadLocal<>();
+	// Only accessed while holding the delivery lock. While fewer markers
+	// than urgent messages have been seen, the messages dequeued are
+	// superseded.
+	private int urgentDelivered;
+	private int markersSeen;
+
+	// Wraps messages with a deadline, and messages which are timed or traced.
+	private static final class Envelope {
+		private final Object message;
+		private final long deadline;
+		private final boolean expiring;
+		private final long enqueued;
+		private final TraceContext trace;
+
+		Envelope(Object message, long deadline, boolean expiring, long enqueued, TraceContext trace) {
+			this.message = message;
+			this.deadline = deadline;
+			this.expiring = expiring;
+			this.enqueued = enqueued;
+			this.trace = trace;
+		}
+	}
+
+	// Dropping the oldest message means removing it from the producer side,
+	// which the single consumer queue does not support.
+	private static final class DroppingQueue implements MessageQueue<Object> {
+		private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+
+		@Override
+		public void offer(Object element) {
+			queue.offer(element);
+		}
+
+		@Override
+		public Object poll() {
+			return queue.poll();
+		}
+
+		@Override
+		public Object peek() {
+			return queue.peek();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return queue.isEmpty();
+		}
+
+		/*
+		 * Removes the oldest message, skipping attribute requests and urgent
+		 * markers. Returns false if there was none.
+		 */
+		boolean dropOldest() {
+			for (Object item : queue) {
+				if (item != URGENT_MARKER && !(item instanceof AttributeRequest) && queue.remove(item)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final class MessageBatch {
+		private final List<?> messages;
+		private final long enqueued;
+		private final TraceContext trace;
+
+		MessageBatch(List<?> messages, long enqueued, TraceContext trace) {
+			this.messages = messages;
+			this.enqueued = enqueued;
+			this.trace = trace;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param unit
+	 *            the unit to deliver the messages to.
+	 * @param executor
+	 *            the executor to run the drain task on.
+	 * @param urgentExecutor
+	 *            the executor to deliver urgent messages on.
+	 * @param batchSize
+	 *            the maximum number of messages to deliver before yielding the
+	 *            executor thread to other units.
+	 * @param capacity
+	 *            the maximum number of waiting messages, or {@link #UNBOUNDED}.
+	 * @param overflowPolicy
+	 *            what to do when a bounded mailbox is full.
+	 * @param conflating
+	 *            if true, only the latest message is kept, and the capacity and
+	 *            overflow policy are ignored.
+	 */
+	Mailbox(RoboUnit<T> unit, Executor executor, Executor urgentExecutor, int batchSize, int capacity,
+			MailboxOverflowPolicy overflowPolicy, boolean conflating) {
+		this.unit = unit;
+		this.metrics = unit.getMetrics();
+		this.watch = metrics.newHandlerWatch();
+		this.tracer = unit.getContext().getTracer();
+		this.executor = executor;
+		this.urgentExecutor = urgentExecutor;
+		this.batchSize = batchSize;
+		this.capacity = conflating ? 1 : capacity;
+		this.overflowPolicy = conflating ? MailboxOverflowPolicy.DROP_OLDEST : overflowPolicy;
+		this.latest = conflating ? new AtomicReference<>() : null;
+		if (isBounded() && this.overflowPolicy == MailboxOverflowPolicy.DROP_OLDEST && latest == null) {
+			this.droppingQueue = new DroppingQueue();
+			this.queue = droppingQueue;
+		} else {
+			this.droppingQueue = null;
+			this.queue = new MpscQueue<>();
+		}
+	}
+
+	/**
+	 * Enqueues a message, and makes sure that the drain task is scheduled.
+	 * 
+	 * @param message
+	 *            the message to deliver.
+	 * @param tryOnly
+	 *            if true, the sender will neither be blocked nor get an
+	 *            exception when the mailbox is full.
+	 * @return true if the message was accepted.
+	 */
+	boolean offer(T message, boolean tryOnly) {
+		return offerItem(wrap(message), tryOnly);
+	}
+
+	/**
+	 * Enqueues a message which is dropped, instead of delivered, if it is still
+	 * waiting in the mailbox at the deadline.
+	 * 
+	 * @param message
+	 *            the message to deliver.
+	 * @param deadline
+	 *            the deadline, as given by {@link System#nanoTime()}.
+	 * @param tryOnly
+	 *            if true, the sender will neither be blocked nor get an
+	 *            exception when the mailbox is full.
+	 * @return true if the message was accepted.
+	 */
+	boolean offer(T message, long deadline, boolean tryOnly) {
+		TraceContext trace = childTrace();
+		return offerItem(new Envelope(message, deadline, true, timestamp(trace), trace), tryOnly);
+	}
+
+	// Only the timed and traced messages are wrapped.
+	private Object wrap(T message) {
+		TraceContext trace = childTrace();
+		long enqueued = timestamp(trace);
+		return enqueued == UnitMetrics.NOT_TIMED ? message : new Envelope(message, 0, false, enqueued, trace);
+	}
+
+	// The span of the delivery, if the sender is traced.
+	private static TraceContext childTrace() {
+		TraceContext current = Tracing.current();
+		return current == null ? null : current.newChild();
+	}
+
+	// Traced messages are always timed, as the span needs the time.
+	private long timestamp(TraceContext trace) {
+		return trace == null ? metrics.timestamp() : System.nanoTime();
+	}
+
+	private boolean offerItem(Object item, boolean tryOnly) {
+		if (latest != null) {
+			if (latest.getAndSet(item) != null) {
+				overflowCount.incrementAndGet();
+			}
+			schedule();
+			return true;
+		}
+		if (isBounded() && !reserve(tryOnly)) {
+			overflowCount.incrementAndGet();
+			if (overflowPolicy == MailboxOverflowPolicy.FAIL && !tryOnly) {
+				throw new MailboxOverflowException("The mailbox of " + unit.getId() + " is full (capacity " + capacity + ")");
+			}
+			return false;
+		}
+		enqueue(item);
+		return true;
+	}
+
+	/**
+	 * Enqueues an urgent message, to be delivered before, and instead of, any
+	 * waiting messages.
+	 * 
+	 * @param message
+	 *            the message to deliver.
+	 */
+	void offerUrgent(T message) {
+		if (latest != null) {
+			if (latest.getAndSet(null) != null) {
+				expiredCount.incrementAndGet();
+			}
+		} else {
+			// Must be posted before the message, so that it is in the queue
+			// by the time the message is delivered.
+			queue.offer(URGENT_MARKER);
+		}
+		urgentQueue.offer(wrap(message));
+		scheduleUrgent();
+	}
+
+	/**
+	 * Enqueues a batch of messages, to be delivered in one call to
+	 * {@link RoboUnit#onMessages(List)}. Conflating mailboxes only keep the
+	 * last message of the batch. Bounded mailboxes enqueue the messages one at
+	 * a time, subject to the overflow policy, except for the
+	 * {@link MailboxOverflowPolicy#FAIL} policy, under which the batch is
+	 * either accepted or rejected as a whole.
+	 * 
+	 * @param messages
+	 *            the messages to deliver. Must not be empty, and must not be
+	 *            modified afterwards.
+	 * @return the number of messages accepted.
+	 */
+	int offerAll(List<T> messages) {
+		if (latest != null) {
+			long dropped = messages.size() - 1;
+			if (latest.getAndSet(messages.get(messages.size() - 1)) != null) {
+				dropped++;
+			}
+			overflowCount.addAndGet(dropped);
+			schedule();
+		} else if (isFailingOnOverflow()) {
+			if (!tryReserve(messages.size())) {
+				throw batchOverflow(messages.size());
+			}
+			enqueueReserved(messages);
+		} else if (isBounded()) {
+			int accepted = 0;
+			for (T message : messages) {
+				if (offer(message, false)) {
+					accepted++;
+				}
+			}
+			return accepted;
+		} else {
+			TraceContext trace = childTrace();
+			enqueue(new MessageBatch(messages, timestamp(trace), trace));
+		}
+		return messages.size();
+	}
+
+	/**
+	 * Enqueues an attribute request, to be run in order with the messages.
+	 * 
+	 * @param callable
+	 *            the attribute request.
+	 * @return the future result of the request.
+	 */
+	<R> AttributeRequest<R> submit(Callable<R> callable) {
+		AttributeRequest<R> request = new AttributeRequest<>(callable);
+		enqueue(request);
+		return request;
+	}
+
+	boolean isBounded() {
+		return capacity > UNBOUNDED;
+	}
+
+	/**
+	 * @return true if a full mailbox rejects messages with an exception.
+	 */
+	boolean isFailingOnOverflow() {
+		return isBounded() && latest == null && overflowPolicy == MailboxOverflowPolicy.FAIL;
+	}
+
+	/**
+	 * Reserves room for a batch of messages, all or nothing, to be enqueued
+	 * with {@link #enqueueReserved(List)}.
+	 * 
+	 * @return true if there was room for all the messages.
+	 */
+	boolean tryReserve(int count) {
+		int current;
+		do {
+			current = size.get();
+			if (current + count > capacity) {
+				return false;
+			}
+		} while (!size.compareAndSet(current, current + count));
+		return true;
+	}
+
+	/**
+	 * Gives back the room reserved for a batch that will not be enqueued.
+	 */
+	void cancelReservation(int count) {
+		size.addAndGet(-count);
+	}
+
+	/**
+	 * Enqueues a batch of messages, one at a time, in the room reserved by
+	 * {@link #tryReserve(int)}.
+	 */
+	void enqueueReserved(List<T> messages) {
+		for (T message : messages) {
+			queue.offer(wrap(message));
+		}
+		schedule();
+	}
+
+	/**
+	 * Counts a rejected batch as overflowed.
+	 * 
+	 * @return the exception to throw to the sender.
+	 */
+	MailboxOverflowException batchOverflow(int count) {
+		overflowCount.addAndGet(count);
+		return new MailboxOverflowException(
+				"The mailbox of " + unit.getId() + " has no room for " + count + " more messages (capacity " + capacity + ")");
+	}
+
+	boolean isConflating() {
+		return latest != null;
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	long getExpiredCount() {
+		return expiredCount.get();
+	}
+
+	/*
+	 * Reserves room for one message. Returns false if the message should not
+	 * be enqueued.
+	 */
+	private boolean reserve(boolean tryOnly) {
+		if (tryReserve()) {
+			return true;
+		}
+		switch (overflowPolicy) {
+		case DROP_OLDEST:
+			return reserveByDroppingOldest();
+		case BLOCK:
+			if (tryOnly) {
+				return false;
+			}
+			if (DELIVERING_ON.get() == executor) {
+				// The sender may be what the mailbox is waiting for, either
+				// the unit itself, or the only thread free to deliver.
+				overflowCount.incrementAndGet();
+				throw new MailboxOverflowException("The mailbox of " + unit.getId() + " is full (capacity " + capacity
+						+ "), and blocking a sender delivering on the same executor could deadlock");
+			}
+			return reserveBlocking();
+		case DROP_NEWEST:
+		case FAIL:
+		default:
+			return false;
+		}
+	}
+
+	private boolean tryReserve() {
+		return tryReserve(1);
+	}
+
+	/*
+	 * Takes over the room of the oldest waiting message. Always succeeds, but
+	 * only counts as an overflow if a message was actually dropped.
+	 */
+	private boolean reserveByDroppingOldest() {
+		while (true) {
+			if (droppingQueue.dropOldest()) {
+				overflowCount.incrementAndGet();
+				return true;
+			}
+			if (tryReserve()) {
+				return true;
+			}
+		}
+	}
+
+	private boolean reserveBlocking() {
+		synchronized (notFull) {
+			blockedSenders++;
+			try {
+				while (!tryReserve()) {
+					TimeUnit.NANOSECONDS.timedWait(notFull, BLOCK_RECHECK_NANOS);
+				}
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				blockedSenders--;
+			}
+		}
+	}
+
+	private void release() {
+		if (isBounded() && latest == null) {
+			size.decrementAndGet();
+			if (blockedSenders > 0) {
+				synchronized (notFull) {
+					notFull.notifyAll();
+				}
+			}
+		}
+	}
+
+	private void enqueue(Object item) {
+		queue.offer(item);
+		schedule();
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// We own the queue until the flag is reset.
+				discardAll();
+				scheduled.set(false);
+				SimpleLoggingUtil.error(unit.getClass(), "Executor rejected the delivery of messages to " + unit.getId());
+			}
+		}
+	}
+
+	private void scheduleUrgent() {
+		try {
+			urgentExecutor.execute(urgentDrainTask);
+		} catch (RejectedExecutionException e) {
+			// The drain task will still get to them first.
+			schedule();
+		}
+	}
+
+	/*
+	 * Delivers the urgent messages, unless someone else is delivering, in which
+	 * case they will be delivered by that thread.
+	 */
+	private void drainUrgent() {
+		if (!deliveryLock.tryLock()) {
+			return;
+		}
+		Executor previous = DELIVERING_ON.get();
+		DELIVERING_ON.set(urgentExecutor);
+		try {
+			Object message;
+			while ((message = urgentQueue.poll()) != null) {
+				deliverUrgent(message);
+			}
+		} finally {
+			DELIVERING_ON.set(previous);
+			unlockDelivery();
+		}
+	}
+
+	// Urgent messages may have been posted after the last check.
+	private void unlockDelivery() {
+		deliveryLock.unlock();
+		if (!urgentQueue.isEmpty()) {
+			scheduleUrgent();
+		}
+	}
+
+	@Override
+	public void run() {
+		deliveryLock.lock();
+		Executor previous = DELIVERING_ON.get();
+		DELIVERING_ON.set(executor);
+		try {
+			for (int i = 0; i < batchSize; i++) {
+				Object item = urgentQueue.poll();
+				if (item != null) {
+					deliverUrgent(item);
+				} else if ((item = queue.poll()) != null) {
+					deliver(item);
+				} else if (!deliverLatest()) {
+					break;
+				}
+			}
+		} finally {
+			DELIVERING_ON.set(previous);
+			unlockDelivery();
+		}
+		scheduled.set(false);
+		if (hasPending() && scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// The executor is shutting down - deliver what is left here.
+				drainAll();
+				scheduled.set(false);
+			}
+		}
+	}
+
+	private boolean hasPending() {
+		return !queue.isEmpty() || (latest != null && latest.get() != null);
+	}
+
+	private void drainAll() {
+		deliveryLock.lock();
+		try {
+			Object item;
+			while ((item = urgentQueue.poll()) != null) {
+				deliverUrgent(item);
+			}
+			while ((item = queue.poll()) != null) {
+				deliver(item);
+			}
+			deliverLatest();
+		} finally {
+			deliveryLock.unlock();
+		}
+	}
+
+	private boolean deliverLatest() {
+		if (latest != null) {
+			Object message = latest.getAndSet(null);
+			if (message != null) {
+				deliverMessage(message);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void discardAll() {
+		if (latest != null) {
+			latest.set(null);
+		}
+		Object item;
+		while ((item = queue.poll()) != null) {
+			if (item instanceof AttributeRequest) {
+				((AttributeRequest<?>) item).cancel(false);
+			} else if (item != URGENT_MARKER) {
+				release();
+			}
+		}
+	}
+
+	private void deliver(Object item) {
+		if (item == URGENT_MARKER) {
+			markersSeen++;
+			return;
+		}
+		if (item instanceof AttributeRequest) {
+			// In a conflating mailbox, the request must see the latest message
+			// sent before it. It may also see a later one.
+			deliverLatest();
+			((AttributeRequest<?>) item).run();
+			return;
+		}
+		if (urgentDelivered - markersSeen > 0) {
+			supersede(item);
+			return;
+		}
+		if (item instanceof MessageBatch) {
+			MessageBatch batch = (MessageBatch) item;
+			deliverMessages(batch.messages, batch.enqueued, batch.trace);
+			return;
+		}
+		release();
+		deliverMessage(item);
+	}
+
+	private void deliverUrgent(Object message) {
+		// Conflating mailboxes drop the superseded message when the urgent
+		// one is sent.
+		if (latest == null) {
+			urgentDelivered++;
+		}
+		deliverMessage(message);
+	}
+
+	private void supersede(Object item) {
+		if (item instanceof MessageBatch) {
+			expiredCount.addAndGet(((MessageBatch) item).messages.size());
+		} else {
+			release();
+			expiredCount.incrementAndGet();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void deliverMessages(List<?> messages, long enqueued, TraceContext trace) {
+		long start = UnitMetrics.startTime(enqueued);
+		MessageDeliveryEvent event = UnitMetrics.beginDelivery();
+		watch.begin();
+		TraceScope scope = Tracing.activate(trace, tracer);
+		try {
+			unit.onMessages((List<T>) messages);
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(unit.getClass(), "Error processing messages", t);
+		} finally {
+			scope.close();
+			watch.end();
+		}
+		metrics.messagesProcessed(messages.size(), enqueued, start, event);
+		recordSpan(trace, enqueued, start);
+	}
+
+	// Protects the executors from problems in the units.
+	@SuppressWarnings("unchecked")
+	private void deliverMessage(Object item) {
+		long enqueued = UnitMetrics.NOT_TIMED;
+		TraceContext trace = null;
+		if (item instanceof Envelope) {
+			Envelope envelope = (Envelope) item;
+			if (envelope.expiring && System.nanoTime() - envelope.deadline > 0) {
+				expiredCount.incrementAndGet();
+				return;
+			}
+			enqueued = envelope.enqueued;
+			trace = envelope.trace;
+			item = envelope.message;
+		}
+		long start = UnitMetrics.startTime(enqueued);
+		MessageDeliveryEvent event = UnitMetrics.beginDelivery();
+		watch.begin();
+		TraceScope scope = Tracing.activate(trace, tracer);
+		try {
+			unit.onMessage((T) item);
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(unit.getClass(), "Error processing message", t);
+		} finally {
+			scope.close();
+			watch.end();
+		}
+		metrics.messagesProcessed(1, enqueued, start, event);
+		recordSpan(trace, enqueued, start);
+	}
+
+	private void recordSpan(TraceContext trace, long enqueued, long start) {
+		if (trace != null && tracer != null) {
+			tracer.record(new Span(trace, Span.NAME_DELIVER, unit.getContext().getId(), unit.getId(),
+					Tracing.toEpochMicros(enqueued), System.nanoTime() - enqueued, start - enqueued));
+		}
+	}
+}
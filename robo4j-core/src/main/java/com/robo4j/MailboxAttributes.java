@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * Attributes provided by the system for the mailbox of every unit with a
+ * bounded or conflating mailbox. They are answered by the reference directly,
+ * without involving the unit. The expired count is answered for all units.
+ * 
+ * @see BoundedMailboxTrait
+ * @see ConflatingTrait
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class MailboxAttributes {
+	public static final String ATTRIBUTE_NAME_CAPACITY = "mailboxCapacity";
+	public static final String ATTRIBUTE_NAME_OVERFLOW_COUNT = "mailboxOverflowCount";
+	public static final String ATTRIBUTE_NAME_EXPIRED_COUNT = "mailboxExpiredCount";
+
+	/**
+	 * The maximum number of messages waiting in the mailbox.
+	 */
+	public static final AttributeDescriptor<Integer> DESCRIPTOR_CAPACITY = DefaultAttributeDescriptor.create(Integer.class,
+			ATTRIBUTE_NAME_CAPACITY);
+
+	/**
+	 * The number of messages that have been dropped or rejected since the
+	 * unit was created.
+	 */
+	public static final AttributeDescriptor<Long> DESCRIPTOR_OVERFLOW_COUNT = DefaultAttributeDescriptor.create(Long.class,
+			ATTRIBUTE_NAME_OVERFLOW_COUNT);
+
+	/**
+	 * The number of messages that have been dropped since the unit was
+	 * created, since their deadline had passed, or an urgent message had
+	 * superseded them, before they could be delivered.
+	 * 
+	 * @see RoboReference#sendMessage(Object, long, java.util.concurrent.TimeUnit)
+	 * @see RoboReference#sendUrgentMessage(Object)
+	 */
+	public static final AttributeDescriptor<Long> DESCRIPTOR_EXPIRED_COUNT = DefaultAttributeDescriptor.create(Long.class,
+			ATTRIBUTE_NAME_EXPIRED_COUNT);
+
+	private MailboxAttributes() {
+		// no instances
+	}
+
+	static boolean matches(AttributeDescriptor<?> descriptor, AttributeDescriptor<?> other) {
+		return descriptor.getAttributeType() == other.getAttributeType()
+				&& descriptor.getAttributeName().equals(other.getAttributeName());
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * What to do when a message is sent to a unit with a full mailbox.
+ * 
+ * @see BoundedMailboxTrait
+ * @see RoboReference#trySendMessage(Object)
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public enum MailboxOverflowPolicy {
+	/**
+	 * The oldest message in the mailbox is dropped to make room for the new
+	 * one.
+	 */
+	DROP_OLDEST,
+	/**
+	 * The new message is dropped.
+	 */
+	DROP_NEWEST,
+	/**
+	 * The sender is blocked until there is room in the mailbox. A unit
+	 * sending from its message handler, on the same executor as the
+	 * receiving unit, could be what the mailbox is waiting for, and gets a
+	 * {@link MailboxOverflowException} instead.
+	 */
+	BLOCK,
+	/**
+	 * The new message is rejected, and sendMessage will throw a
+	 * {@link MailboxOverflowException}.
+	 */
+	FAIL
+}
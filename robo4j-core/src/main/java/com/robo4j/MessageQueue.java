@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * The few queue operations the mailboxes need. Kept this small so that the
+ * queues do not have to support iterating, sizing, or any of the other
+ * operations of a {@link java.util.Collection}.
+ * 
+ * <p>
+ * Internal implementation interface.
+ * </p>
+ * 
+ * @see MpscQueue
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+interface MessageQueue<E> {
+	/**
+	 * Adds an element to the end of the queue.
+	 * 
+	 * @param element
+	 *            the element to add. Must not be null.
+	 */
+	void offer(E element);
+
+	/**
+	 * Removes the first element of the queue.
+	 * 
+	 * @return the first element, or null if there is none.
+	 */
+	E poll();
+
+	/**
+	 * @return the first element of the queue, without removing it, or null if
+	 *         there is none.
+	 */
+	E peek();
+
+	/**
+	 * @return true if there is nothing to poll.
+	 */
+	boolean isEmpty();
+}
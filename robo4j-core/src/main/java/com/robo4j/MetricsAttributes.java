@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * Attributes provided by the system for the runtime metrics of every unit.
+ * They are answered by the reference directly, without involving the unit,
+ * but are not listed among the known attributes of the unit.
+ * 
+ * @see UnitMetrics
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class MetricsAttributes {
+	public static final String ATTRIBUTE_NAME_RECEIVED_COUNT = "metricsReceivedCount";
+	public static final String ATTRIBUTE_NAME_DROPPED_COUNT = "metricsDroppedCount";
+	public static final String ATTRIBUTE_NAME_PROCESSED_COUNT = "metricsProcessedCount";
+	public static final String ATTRIBUTE_NAME_MAILBOX_DEPTH = "metricsMailboxDepth";
+	public static final String ATTRIBUTE_NAME_QUEUE_TIME = "metricsQueueTime";
+	public static final String ATTRIBUTE_NAME_SERVICE_TIME = "metricsServiceTime";
+
+	/**
+	 * @see UnitMetrics#getReceivedCount()
+	 */
+	public static final AttributeDescriptor<Long> DESCRIPTOR_RECEIVED_COUNT = DefaultAttributeDescriptor.create(Long.class,
+			ATTRIBUTE_NAME_RECEIVED_COUNT);
+
+	/**
+	 * @see UnitMetrics#getDroppedCount()
+	 */
+	public static final AttributeDescriptor<Long> DESCRIPTOR_DROPPED_COUNT = DefaultAttributeDescriptor.create(Long.class,
+			ATTRIBUTE_NAME_DROPPED_COUNT);
+
+	/**
+	 * @see UnitMetrics#getProcessedCount()
+	 */
+	public static final AttributeDescriptor<Long> DESCRIPTOR_PROCESSED_COUNT = DefaultAttributeDescriptor.create(Long.class,
+			ATTRIBUTE_NAME_PROCESSED_COUNT);
+
+	/**
+	 * @see UnitMetrics#getMailboxDepth()
+	 */
+	public static final AttributeDescriptor<Long> DESCRIPTOR_MAILBOX_DEPTH = DefaultAttributeDescriptor.create(Long.class,
+			ATTRIBUTE_NAME_MAILBOX_DEPTH);
+
+	/**
+	 * A snapshot of the queue time histogram.
+	 * 
+	 * @see UnitMetrics#getQueueTime()
+	 */
+	public static final AttributeDescriptor<LatencyHistogram> DESCRIPTOR_QUEUE_TIME = DefaultAttributeDescriptor
+			.create(LatencyHistogram.class, ATTRIBUTE_NAME_QUEUE_TIME);
+
+	/**
+	 * A snapshot of the service time histogram.
+	 * 
+	 * @see UnitMetrics#getServiceTime()
+	 */
+	public static final AttributeDescriptor<LatencyHistogram> DESCRIPTOR_SERVICE_TIME = DefaultAttributeDescriptor
+			.create(LatencyHistogram.class, ATTRIBUTE_NAME_SERVICE_TIME);
+
+	private MetricsAttributes() {
+		// no instances
+	}
+
+	/**
+	 * @return the value of the attribute, or null if it is not a metrics
+	 *         attribute.
+	 */
+	static Object read(UnitMetrics metrics, AttributeDescriptor<?> attribute) {
+		if (!attribute.getAttributeName().startsWith("metrics")) {
+			return null;
+		}
+		if (MailboxAttributes.matches(DESCRIPTOR_RECEIVED_COUNT, attribute)) {
+			return metrics.getReceivedCount();
+		}
+		if (MailboxAttributes.matches(DESCRIPTOR_DROPPED_COUNT, attribute)) {
+			return metrics.getDroppedCount();
+		}
+		if (MailboxAttributes.matches(DESCRIPTOR_PROCESSED_COUNT, attribute)) {
+			return metrics.getProcessedCount();
+		}
+		if (MailboxAttributes.matches(DESCRIPTOR_MAILBOX_DEPTH, attribute)) {
+			return metrics.getMailboxDepth();
+		}
+		if (MailboxAttributes.matches(DESCRIPTOR_QUEUE_TIME, attribute)) {
+			return metrics.getQueueTime().snapshot();
+		}
+		if (MailboxAttributes.matches(DESCRIPTOR_SERVICE_TIME, attribute)) {
+			return metrics.getServiceTime().snapshot();
+		}
+		return null;
+	}
+}
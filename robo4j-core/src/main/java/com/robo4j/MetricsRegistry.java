@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Provides the runtime metrics of the units, and of the executors delivering
+ * to them, in a {@link RoboContext}.
+ * 
+ * @see RoboContext#getMetricsRegistry()
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface MetricsRegistry {
+	/**
+	 * A registry without any metrics, for contexts that do not collect any.
+	 */
+	MetricsRegistry NONE = new MetricsRegistry() {
+		@Override
+		public Collection<UnitMetrics> getUnitMetrics() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public UnitMetrics getUnitMetrics(String unitId) {
+			return null;
+		}
+	};
+
+	/**
+	 * @return the metrics of all the units, in the order the units were
+	 *         added.
+	 */
+	Collection<UnitMetrics> getUnitMetrics();
+
+	/**
+	 * @param unitId
+	 *            the id of the unit.
+	 * @return the metrics of the unit, or null if there is no such unit.
+	 */
+	UnitMetrics getUnitMetrics(String unitId);
+
+	/**
+	 * @return a snapshot of the metrics of the executors of the context.
+	 */
+	default Collection<ExecutorMetrics> getExecutorMetrics() {
+		return Collections.emptyList();
+	}
+}
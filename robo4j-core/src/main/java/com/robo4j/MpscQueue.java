@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free, unbounded, multi-producer single-consumer queue. Producers only
+ * contend on a single atomic swap of the tail, and the single consumer never
+ * contends with the producers.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class MpscQueue<E> implements MessageQueue<E> {
+	private static final class Node<E> {
+		private volatile Node<E> next;
+		private E value;
+
+		Node(E value) {
+			this.value = value;
+		}
+	}
+
+	private final AtomicReference<Node<E>> tail;
+	// Only ever touched by the consumer.
+	private Node<E> head;
+
+	MpscQueue() {
+		Node<E> stub = new Node<>(null);
+		head = stub;
+		tail = new AtomicReference<>(stub);
+	}
+
+	/**
+	 * Adds an element to the queue. May be called from any thread.
+	 * 
+	 * @param element
+	 *            the element to add. Must not be null.
+	 */
+	@Override
+	public void offer(E element) {
+		Node<E> node = new Node<>(element);
+		Node<E> previous = tail.getAndSet(node);
+		previous.next = node;
+	}
+
+	/**
+	 * Removes the first element of the queue. Must only be called by the
+	 * consumer.
+	 * 
+	 * @return the first element, or null if the queue is empty or if a producer
+	 *         has not yet finished linking its element.
+	 */
+	@Override
+	public E poll() {
+		Node<E> next = head.next;
+		if (next == null) {
+			return null;
+		}
+		E value = next.value;
+		next.value = null;
+		head = next;
+		return value;
+	}
+
+	/**
+	 * @return true if there is nothing to consume. Must only be called by the
+	 *         consumer.
+	 */
+	@Override
+	public boolean isEmpty() {
+		return head.next == null;
+	}
+
+	/**
+	 * @return the first element, without removing it. Must only be called by
+	 *         the consumer.
+	 */
+	@Override
+	public E peek() {
+		Node<E> next = head.next;
+		return next == null ? null : next.value;
+	}
+}
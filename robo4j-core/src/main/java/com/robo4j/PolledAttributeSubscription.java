@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default implementation of an attribute subscription, for references
+ * which cannot report changes. The attributes are polled at the minimum
+ * interval of the subscription, and the listener is notified of the values
+ * which differ from the previous poll. Polls are run one at a time, on a
+ * single thread shared by all polled subscriptions, so only the latest value
+ * of each attribute is ever seen.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @see RoboReference#subscribe(Collection, AttributeListener, long, TimeUnit,
+ *      boolean)
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class PolledAttributeSubscription implements AttributeSubscription {
+	/**
+	 * The poll interval used when no minimum interval is given.
+	 */
+	static final long DEFAULT_POLL_INTERVAL_MILLIS = 100;
+
+	private static final ScheduledExecutorService POLLER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "Robo4J Attribute Poller");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final RoboReference<?> reference;
+	private final Collection<AttributeDescriptor<?>> attributes;
+	private final AttributeListener listener;
+	private final long intervalNanos;
+	// Only accessed by the poll in progress
+	private final Map<String, Object> lastValues = new HashMap<>();
+	private volatile boolean cancelled;
+
+	private PolledAttributeSubscription(RoboReference<?> reference, Collection<AttributeDescriptor<?>> attributes,
+			AttributeListener listener, long intervalNanos) {
+		this.reference = reference;
+		this.attributes = Collections.unmodifiableList(new ArrayList<>(attributes));
+		this.listener = listener;
+		this.intervalNanos = intervalNanos;
+	}
+
+	/**
+	 * Starts polling the attributes. The first poll notifies the current values.
+	 * 
+	 * @see RoboReference#subscribe(Collection, AttributeListener, long,
+	 *      TimeUnit, boolean)
+	 */
+	static AttributeSubscription subscribe(RoboReference<?> reference, Collection<AttributeDescriptor<?>> attributes,
+			AttributeListener listener, long minInterval, TimeUnit unit) {
+		if (attributes.isEmpty()) {
+			throw new IllegalArgumentException("No attributes to subscribe to");
+		}
+		long intervalNanos = minInterval > 0 ? unit.toNanos(minInterval) : TimeUnit.MILLISECONDS.toNanos(DEFAULT_POLL_INTERVAL_MILLIS);
+		PolledAttributeSubscription subscription = new PolledAttributeSubscription(reference, attributes, listener, intervalNanos);
+		subscription.schedule(0);
+		return subscription;
+	}
+
+	private void schedule(long delayNanos) {
+		if (cancelled) {
+			return;
+		}
+		try {
+			POLLER.schedule(this::poll, delayNanos, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			cancel();
+		}
+	}
+
+	private void poll() {
+		if (cancelled) {
+			return;
+		}
+		try {
+			// The next poll is scheduled once this one is done
+			reference.getAttributesAsync(attributes).whenCompleteAsync((values, error) -> {
+				if (error != null) {
+					SimpleLoggingUtil.error(listener.getClass(), "Failed to poll the attributes of " + reference.getId(), error);
+				} else {
+					notifyChanges(values);
+				}
+				schedule(intervalNanos);
+			}, POLLER);
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(listener.getClass(), "Cannot poll the attributes of " + reference.getId() + " - cancelling", t);
+			cancel();
+		}
+	}
+
+	private void notifyChanges(Map<AttributeDescriptor<?>, Object> values) {
+		for (Entry<AttributeDescriptor<?>, Object> value : values.entrySet()) {
+			String name = value.getKey().getAttributeName();
+			if (cancelled || (lastValues.containsKey(name) && Objects.equals(lastValues.get(name), value.getValue()))) {
+				continue;
+			}
+			lastValues.put(name, value.getValue());
+			try {
+				listener.onAttributeChanged(value.getKey(), value.getValue());
+			} catch (Throwable t) {
+				SimpleLoggingUtil.error(listener.getClass(), "Error notifying attribute change", t);
+			}
+		}
+	}
+
+	@Override
+	public Collection<AttributeDescriptor<?>> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.jfr.MessageDeliveryEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A multi producer, single consumer ring of pre-allocated events, delivered
+ * to the unit by a dedicated thread. The slots are handed out by a
+ * {@link Sequencer}; the consumer delivers them in sequence order as they
+ * become published.
+ * 
+ * <p>
+ * Attribute requests are queued separately, tagged with the last claimed
+ * sequence, and run by the consumer once that sequence has been delivered.
+ * Urgent messages, deadlines and batches are not supported, and are delivered
+ * as normal messages.
+ * </p>
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @see RingBufferTrait
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class RingBuffer<T> implements Inbox<T>, Runnable {
+	private static final int MAX_SIZE = 1 << 30;
+
+	private final RoboUnit<T> unit;
+	private final UnitMetrics metrics;
+	private final HandlerWatch watch;
+	private final RingBufferEvents<T> events;
+	private final RingBufferWaitStrategy waitStrategy;
+	private final Object[] entries;
+	private final long[] enqueued;
+	private final Sequencer sequencer;
+	private final AtomicLong overflowCount = new AtomicLong();
+	private final MessageQueue<AttributeRequest<?>> requests = new MpscQueue<>();
+	private final Thread thread;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param unit
+	 *            the unit to deliver the events to. Must implement
+	 *            {@link RingBufferEvents}.
+	 * @param size
+	 *            the number of slots. Rounded up to the closest power of two.
+	 * @param waitStrategy
+	 *            how to wait for events, and for free slots.
+	 */
+	@SuppressWarnings("unchecked")
+	RingBuffer(RoboUnit<T> unit, int size, RingBufferWaitStrategy waitStrategy) {
+		if (size < 1 || size > MAX_SIZE) {
+			throw new IllegalArgumentException("Ring buffer size for " + unit.getId() + " must be between 1 and " + MAX_SIZE);
+		}
+		this.unit = unit;
+		this.metrics = unit.getMetrics();
+		this.watch = metrics.newHandlerWatch();
+		this.events = (RingBufferEvents<T>) unit;
+		this.waitStrategy = waitStrategy;
+		int actualSize = Sequencer.roundUp(size);
+		this.entries = new Object[actualSize];
+		for (int i = 0; i < actualSize; i++) {
+			entries[i] = events.newEvent();
+		}
+		this.enqueued = new long[actualSize];
+		this.sequencer = new Sequencer(actualSize);
+		this.thread = new Thread(this, "Robo4J Ring Buffer " + unit.getId());
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts the thread delivering the events.
+	 */
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Delivers the events already published, and then stops the thread.
+	 */
+	void halt() {
+		sequencer.halt();
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * @see RingBufferReference#claim()
+	 */
+	long claim() {
+		long sequence = sequencer.claim(waitStrategy);
+		if (sequence < 0) {
+			overflowCount.incrementAndGet();
+		}
+		return sequence;
+	}
+
+	/**
+	 * Claims the next slot, unless the ring is full or halted.
+	 * 
+	 * @return the sequence of the claimed slot, or -1 if the ring was full or
+	 *         halted.
+	 */
+	long tryClaim() {
+		return sequencer.tryClaim();
+	}
+
+	/**
+	 * @see RingBufferReference#getEvent(long)
+	 */
+	@SuppressWarnings("unchecked")
+	T getEvent(long sequence) {
+		if (sequence < 0) {
+			// Filled in and thrown away
+			return events.newEvent();
+		}
+		return (T) entries[sequencer.index(sequence)];
+	}
+
+	/**
+	 * @see RingBufferReference#publish(long)
+	 */
+	void publish(long sequence) {
+		if (sequence < 0) {
+			return;
+		}
+		enqueued[sequencer.index(sequence)] = metrics.timestamp();
+		sequencer.publish(sequence);
+	}
+
+	@Override
+	public boolean offer(T message, boolean tryOnly) {
+		long sequence = tryOnly ? tryClaim() : sequencer.claim(waitStrategy);
+		if (sequence < 0) {
+			overflowCount.incrementAndGet();
+			return false;
+		}
+		try {
+			events.copyEvent(message, getEvent(sequence));
+		} finally {
+			publish(sequence);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean offer(T message, long deadline, boolean tryOnly) {
+		return offer(message, tryOnly);
+	}
+
+	@Override
+	public void offerUrgent(T message) {
+		offer(message, false);
+	}
+
+	@Override
+	public int offerAll(List<T> messages) {
+		int accepted = 0;
+		for (T message : messages) {
+			if (offer(message, false)) {
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+	@Override
+	public <R> AttributeRequest<R> submit(Callable<R> callable) {
+		AttributeRequest<R> request = new AttributeRequest<>(callable, sequencer.getClaimed());
+		requests.offer(request);
+		if (sequencer.isHalted()) {
+			request.cancel(false);
+		}
+		return request;
+	}
+
+	@Override
+	public boolean isBounded() {
+		return true;
+	}
+
+	@Override
+	public int getCapacity() {
+		return entries.length;
+	}
+
+	@Override
+	public long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	@Override
+	public long getExpiredCount() {
+		return 0;
+	}
+
+	@Override
+	public void run() {
+		long next = sequencer.getConsumed() + 1;
+		int counter = 0;
+		while (!sequencer.isHalted() || sequencer.isPublished(next)) {
+			boolean busy = false;
+			if (sequencer.isPublished(next)) {
+				deliver(getEvent(next), enqueued[sequencer.index(next)]);
+				sequencer.setConsumed(next);
+				next++;
+				busy = true;
+			}
+			if (runRequests(next - 1)) {
+				busy = true;
+			}
+			counter = busy ? 0 : waitStrategy.idle(counter);
+		}
+		AttributeRequest<?> request;
+		while ((request = requests.poll()) != null) {
+			request.cancel(false);
+		}
+	}
+
+	private boolean runRequests(long deliveredSequence) {
+		boolean ran = false;
+		AttributeRequest<?> request;
+		while ((request = requests.peek()) != null && request.getSequence() <= deliveredSequence) {
+			requests.poll();
+			request.run();
+			ran = true;
+		}
+		return ran;
+	}
+
+	// Protects the thread from problems in the unit.
+	private void deliver(T event, long enqueuedTime) {
+		long start = UnitMetrics.startTime(enqueuedTime);
+		MessageDeliveryEvent deliveryEvent = UnitMetrics.beginDelivery();
+		watch.begin();
+		try {
+			unit.onMessage(event);
+		} catch (Throwable t) {
+			SimpleLoggingUtil.error(unit.getClass(), "Error processing message", t);
+		} finally {
+			watch.end();
+		}
+		metrics.messagesProcessed(1, enqueuedTime, start, deliveryEvent);
+	}
+}
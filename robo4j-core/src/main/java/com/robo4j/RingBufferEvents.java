@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * Implemented by units with the {@link RingBufferTrait}, to provide the
+ * pre-allocated events of the ring.
+ * 
+ * @param <T>
+ *            the message type of the unit.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface RingBufferEvents<T> {
+	/**
+	 * Creates an event for a slot in the ring. Called once per slot, before
+	 * the first message is sent.
+	 * 
+	 * @return a new, mutable, event.
+	 */
+	T newEvent();
+
+	/**
+	 * Copies a message sent the normal way into the event of a slot.
+	 * 
+	 * @param source
+	 *            the message sent.
+	 * @param target
+	 *            the event of the claimed slot.
+	 */
+	void copyEvent(T source, T target);
+}
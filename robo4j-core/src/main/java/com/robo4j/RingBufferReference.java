@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+/**
+ * The reference to a unit with the {@link RingBufferTrait}. Publishing a
+ * message is done in three steps:
+ * 
+ * <pre>
+ * long sequence = reference.claim();
+ * try {
+ * 	ImuEvent event = reference.getEvent(sequence);
+ * 	event.set(x, y, z);
+ * } finally {
+ * 	reference.publish(sequence);
+ * }
+ * </pre>
+ * 
+ * Every claimed sequence must be published, or delivery to the unit will
+ * stop.
+ * 
+ * @param <T>
+ *            the message type of the unit.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface RingBufferReference<T> extends RoboReference<T> {
+	/**
+	 * Claims the next slot in the ring, waiting for it to become free if the
+	 * ring is full. Once the unit is shut down, no slot is claimed, and -1 is
+	 * returned. {@link #getEvent(long)} and {@link #publish(long)} accept -1,
+	 * and the event is then thrown away.
+	 * 
+	 * @return the sequence of the claimed slot, or -1 if the unit is shut
+	 *         down.
+	 */
+	long claim();
+
+	/**
+	 * Returns the event of a claimed slot, to be filled in.
+	 * 
+	 * @param sequence
+	 *            the sequence of the claimed slot.
+	 * @return the event in the slot.
+	 */
+	T getEvent(long sequence);
+
+	/**
+	 * Publishes a claimed slot, making the event available to the unit.
+	 * 
+	 * @param sequence
+	 *            the sequence of the claimed slot.
+	 */
+	void publish(long sequence);
+}
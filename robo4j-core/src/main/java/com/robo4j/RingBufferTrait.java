@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate units with this annotation to have messages delivered through a
+ * pre-allocated ring of mutable events, by a thread dedicated to the unit.
+ * Producers claim a slot, fill in the event and publish it, without any
+ * allocation or locking. Meant for tight control loops where garbage
+ * collection and thread hand-off latencies matter.
+ * 
+ * <p>
+ * Units with this trait must implement {@link RingBufferEvents}, and the
+ * event handed to {@link RoboUnit#onMessage(Object)} is reused once the method
+ * returns. To publish without allocating, cast the reference to the unit to a
+ * {@link RingBufferReference}. Messages sent the normal way are copied into a
+ * slot. Senders wait, using the wait strategy, while the ring is full.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface RingBufferTrait {
+	/**
+	 * @return the number of slots in the ring. Rounded up to the closest power
+	 *         of two.
+	 */
+	int size() default 1024;
+
+	/**
+	 * @return how the threads wait for events or free slots.
+	 */
+	RingBufferWaitStrategy waitStrategy() default RingBufferWaitStrategy.YIELD;
+}
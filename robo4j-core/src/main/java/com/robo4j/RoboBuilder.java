@@ -22,6 +22,11 @@ import com.robo4j.configuration.ConfigurationFactoryException;
 import com.robo4j.configuration.XmlConfigurationFactory;
 import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.net.LookupServiceProvider;
+import com.robo4j.scheduler.DefaultScheduler;
+import com.robo4j.scheduler.ExecutorProvider;
+import com.robo4j.scheduler.HashedWheelScheduler;
+import com.robo4j.scheduler.Scheduler;
+import com.robo4j.scheduler.ShardedScheduler;
 import com.robo4j.util.StringConstants;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -35,7 +40,9 @@ import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -58,6 +65,101 @@ public final class RoboBuilder {
 	 * Configuration key for the maximum thread size for the worker thread pool.
 	 */
 	public static final String KEY_BLOCKING_POOL_SIZE = "poolSizeBlocking";
+	/**
+	 * Configuration key for the maximum thread size for the thread pool
+	 * delivering urgent messages.
+	 */
+	public static final String KEY_URGENT_POOL_SIZE = "poolSizeUrgent";
+	/**
+	 * Configuration key for the name of the {@link Scheduler} implementation
+	 * to use, either {@value DefaultScheduler#NAME},
+	 * {@value HashedWheelScheduler#NAME} or {@value ShardedScheduler#NAME}.
+	 * The scheduler thread pool size is set using
+	 * {@link #KEY_SCHEDULER_POOL_SIZE}.
+	 */
+	public static final String KEY_SCHEDULER = "scheduler";
+	/**
+	 * Configuration key for the duration of a tick, in microseconds, of the
+	 * {@link HashedWheelScheduler}.
+	 */
+	public static final String KEY_SCHEDULER_TICK_MICROS = "schedulerTickMicros";
+	/**
+	 * Configuration key for the number of buckets in the wheel of the
+	 * {@link HashedWheelScheduler}.
+	 */
+	public static final String KEY_SCHEDULER_WHEEL_SIZE = "schedulerWheelSize";
+	/**
+	 * Configuration key for the number of shards of the
+	 * {@link ShardedScheduler}. Defaults to the scheduler thread pool size.
+	 */
+	public static final String KEY_SCHEDULER_SHARDS = "schedulerShards";
+	/**
+	 * Configuration key for the {@link ExecutorProvider} to use for delivering
+	 * messages to units with the default delivery policy. If not set, messages
+	 * are delivered on the scheduler threads.
+	 */
+	public static final String KEY_SYSTEM_EXECUTOR = "executorSystem";
+	/**
+	 * Configuration key for the {@link ExecutorProvider} to use for delivering
+	 * messages to units annotated with {@link WorkTrait}.
+	 */
+	public static final String KEY_WORKER_EXECUTOR = "executorWorker";
+	/**
+	 * Configuration key for the {@link ExecutorProvider} to use for delivering
+	 * messages to units annotated with {@link BlockingTrait}.
+	 */
+	public static final String KEY_BLOCKING_EXECUTOR = "executorBlocking";
+	/**
+	 * Configuration key for the maximum number of messages delivered to a unit
+	 * before its mailbox yields the thread to other units. Must be at least 1.
+	 */
+	public static final String KEY_MAILBOX_BATCH_SIZE = "mailboxBatchSize";
+	/**
+	 * Configuration key for how many messages to each unit are timed for the
+	 * unit metrics: one out of this many. 1 times every message, and 0 turns
+	 * the timing off. The message counts are always kept. Defaults to
+	 * {@link UnitMetrics#DEFAULT_SAMPLING}.
+	 */
+	public static final String KEY_METRICS_SAMPLING = "metricsSampling";
+	/**
+	 * Configuration key for the maximum number of threads used to start, stop
+	 * and shut down units in parallel. If not set, or 0, one thread per unit
+	 * is used.
+	 */
+	public static final String KEY_LIFECYCLE_POOL_SIZE = "poolSizeLifecycle";
+	/**
+	 * Configuration key for the default maximum time, in milliseconds, to
+	 * wait for a unit to start, stop or shut down before the system moves on.
+	 */
+	public static final String KEY_LIFECYCLE_TIMEOUT = "lifecycleTimeout";
+	/**
+	 * Configuration key for initializing and starting units on demand, when
+	 * the first message or attribute request is sent to them, rather than up
+	 * front. Applies to the units instantiated by the builder from a
+	 * configuration, and can be overridden per unit using
+	 * {@link RoboUnit#KEY_LAZY_INITIALIZATION}.
+	 */
+	public static final String KEY_LAZY_INITIALIZATION = "lazyInitialization";
+	/**
+	 * Configuration key for the time, in milliseconds, between the checks of
+	 * the watchdog, which reports message handlers running over their budget
+	 * and mailboxes which keep growing. 0 turns the watchdog off. Defaults to
+	 * 0, so the watchdog only runs if an interval, such as 500, is configured.
+	 */
+	public static final String KEY_WATCHDOG_INTERVAL = "watchdogInterval";
+	/**
+	 * Configuration key for the default maximum time, in milliseconds, a unit
+	 * may spend handling a message before the watchdog reports it, along with
+	 * the stack of the thread running it. 0 turns the check off. Defaults to
+	 * 2000. Can be overridden per unit using {@link RoboUnit#KEY_WATCHDOG_BUDGET}.
+	 */
+	public static final String KEY_WATCHDOG_BUDGET = "watchdogBudget";
+	/**
+	 * Configuration key for the number of watchdog checks in a row the
+	 * mailbox of a unit must have grown at, for the watchdog to report it. 0
+	 * turns the check off. Defaults to 10.
+	 */
+	public static final String KEY_WATCHDOG_QUEUE_GROWTH = "watchdogQueueGrowth";
 	/**
 	 * Configuration key for the child configuration for the message server.
 	 */
@@ -70,8 +172,16 @@ public final class RoboBuilder {
 	 * Configuration key for the auto discovery metadata service.
 	 */
 	public static final String KEY_CONFIGURATION_EMITTER_METADATA = "com.robo4j.discovery.metadata";
+	/**
+	 * Configuration key for the child configuration for tracing messages end
+	 * to end. Tracing is enabled if a file or url to export the spans to is
+	 * configured, see {@link com.robo4j.tracing.Tracer#KEY_FILE} and
+	 * {@link com.robo4j.tracing.Tracer#KEY_URL}.
+	 */
+	public static final String KEY_CONFIGURATION_TRACING = "com.robo4j.tracing";
 
 	private final Set<RoboUnit<?>> units = new HashSet<>();
+	private final Map<RoboUnit<?>, Configuration> lazyUnits = new HashMap<>();
 	private final RoboSystem system;
 
 	/**
@@ -373,7 +483,8 @@ public final class RoboBuilder {
 
 	/**
 	 * Instantiates a RoboUnit from the provided class using the provided id and
-	 * adds it. The instance will be initialized using an empty configuration.
+	 * adds it. The instance will be initialized using an empty configuration,
+	 * or on demand if so configured (see {@link #KEY_LAZY_INITIALIZATION}).
 	 * 
 	 * @param clazz
 	 *            the class to use.
@@ -390,7 +501,9 @@ public final class RoboBuilder {
 
 	/**
 	 * Instantiates a RoboUnit from the provided class using the provided id,
-	 * initializes it and adds it.
+	 * initializes it and adds it. If so configured (see
+	 * {@link #KEY_LAZY_INITIALIZATION}), the unit will instead be initialized
+	 * and started on demand.
 	 * 
 	 * @param clazz
 	 *            the class to use.
@@ -415,6 +528,7 @@ public final class RoboBuilder {
 	 */
 	public RoboContext build() {
 		system.addUnits(units);
+		lazyUnits.forEach(system::deferInitialization);
 		LookupServiceProvider.registerLocalContext(system);
 		system.setState(LifecycleState.INITIALIZED);
 		return system;
@@ -486,7 +600,9 @@ public final class RoboBuilder {
 	private RoboUnit<?> instantiateAndInitialize(Class<? extends RoboUnit<?>> clazz, String id, Configuration configuration)
 			throws RoboBuilderException {
 		RoboUnit<?> unit = instantiateRoboUnit(clazz, id);
-		if (configuration != null) {
+		if (configuration != null && isLazy(clazz, configuration)) {
+			lazyUnits.put(unit, configuration);
+		} else if (configuration != null) {
 			try {
 				unit.initialize(configuration);
 			} catch (Exception e) {
@@ -496,6 +612,12 @@ public final class RoboBuilder {
 		return unit;
 	}
 
+	private boolean isLazy(Class<? extends RoboUnit<?>> clazz, Configuration configuration) {
+		boolean lazy = configuration.getBoolean(RoboUnit.KEY_LAZY_INITIALIZATION,
+				system.getConfiguration().getBoolean(KEY_LAZY_INITIALIZATION, false));
+		return lazy && RoboSystem.supportsLazyInitialization(clazz);
+	}
+
 	private RoboSystem readSystemFromXML(InputStream stream) throws RoboBuilderException {
 		try {
 			SystemXMLHandler handler = new SystemXMLHandler();
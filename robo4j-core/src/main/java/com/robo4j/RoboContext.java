@@ -18,6 +18,7 @@ package com.robo4j;
 
 import com.robo4j.configuration.Configuration;
 import com.robo4j.scheduler.Scheduler;
+import com.robo4j.tracing.Tracer;
 
 import java.util.Collection;
 
@@ -89,4 +90,24 @@ public interface RoboContext {
 	 * @return configuration
 	 */
 	Configuration getConfiguration();
+
+	/**
+	 * Returns the runtime metrics of the units in the context.
+	 * 
+	 * @return the metrics registry, or {@link MetricsRegistry#NONE} if the
+	 *         context does not collect any metrics.
+	 */
+	default MetricsRegistry getMetricsRegistry() {
+		return MetricsRegistry.NONE;
+	}
+
+	/**
+	 * Returns the tracer recording the spans of the messages traced through
+	 * the context.
+	 * 
+	 * @return the tracer, or null if the context is not traced.
+	 */
+	default Tracer getTracer() {
+		return null;
+	}
 }
@@ -19,8 +19,11 @@ package com.robo4j;
 import com.robo4j.configuration.Configuration;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Reference to a RoboUnit.
@@ -52,6 +55,74 @@ public interface RoboReference<T> {
 	 */
 	void sendMessage(T message);
 
+	/**
+	 * Sends a message to this RoboUnit, which is dropped if it could not be
+	 * delivered in time, for example a servo target which is stale once the
+	 * next one has been sent. The default implementation ignores the time to
+	 * live. Messages will only be delivered to started units.
+	 * 
+	 * @param message
+	 *            the message to send.
+	 * @param timeToLive
+	 *            the time after which the message should no longer be
+	 *            delivered.
+	 * @param unit
+	 *            the time unit of the time to live.
+	 * 
+	 * @see MailboxAttributes#DESCRIPTOR_EXPIRED_COUNT
+	 */
+	default void sendMessage(T message, long timeToLive, TimeUnit unit) {
+		sendMessage(message);
+	}
+
+	/**
+	 * Tries to send a message to this RoboUnit, without blocking and without
+	 * failing if the mailbox of the unit is full. Messages will only be
+	 * delivered to started units.
+	 * 
+	 * @param message
+	 *            the message to send.
+	 * @return true if the message was accepted for delivery, false if it was
+	 *         dropped.
+	 * 
+	 * @see BoundedMailboxTrait
+	 */
+	default boolean trySendMessage(T message) {
+		sendMessage(message);
+		return true;
+	}
+
+	/**
+	 * Sends an urgent message to this RoboUnit, for example a command to stop
+	 * the motors. Urgent messages skip ahead of all other waiting messages, and
+	 * are never dropped. The messages waiting when the urgent message is sent
+	 * are superseded by it, and dropped. Messages will only be delivered to
+	 * started units.
+	 * 
+	 * @param message
+	 *            the message to send.
+	 * 
+	 * @see UrgentMessage
+	 */
+	default void sendUrgentMessage(T message) {
+		sendMessage(message);
+	}
+
+	/**
+	 * Sends a batch of messages to this RoboUnit. The messages are delivered in
+	 * order, and local units will get them handed over in as few calls to
+	 * {@link RoboUnit#onMessages(java.util.List)} as possible. Messages will
+	 * only be delivered to started units.
+	 * 
+	 * @param messages
+	 *            the messages to send.
+	 */
+	default void sendMessages(Collection<T> messages) {
+		for (T message : messages) {
+			sendMessage(message);
+		}
+	}
+
 	/**
 	 * Returns the type of messages this RoboUnit accepts. This should never
 	 * change in runtime.
@@ -79,6 +150,22 @@ public interface RoboReference<T> {
 	 */
 	<R> Future<R> getAttribute(AttributeDescriptor<R> attribute);
 
+	/**
+	 * Returns the value of the specified attribute, without blocking the
+	 * calling thread while waiting for it. Compose on the returned stage
+	 * instead of blocking on it.
+	 * 
+	 * @param attribute
+	 *            the attribute to read.
+	 * @param <R>
+	 *            attribute descriptor
+	 * 
+	 * @return the value of the attribute, once read.
+	 */
+	default <R> CompletionStage<R> getAttributeAsync(AttributeDescriptor<R> attribute) {
+		return AttributeFutures.toCompletableFuture(getAttribute(attribute));
+	}
+
 	/**
 	 * Returns the attributes that this RoboUnit knows about. Should not change,
 	 * and AttributeDescriptors may be cached.
@@ -93,4 +180,89 @@ public interface RoboReference<T> {
 	 * @return the values of all attributes.
 	 */
 	Future<Map<AttributeDescriptor<?>, Object>> getAttributes();
+
+	/**
+	 * Returns the values of all attributes in one read, without blocking the
+	 * calling thread while waiting for them.
+	 * 
+	 * @return the values of all attributes, once read.
+	 */
+	default CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync() {
+		return AttributeFutures.toCompletableFuture(getAttributes());
+	}
+
+	/**
+	 * Returns the values of the specified attributes. Local units read all the
+	 * attributes in one go, as a consistent snapshot. The default
+	 * implementation reads the attributes one at a time.
+	 * 
+	 * @param attributes
+	 *            the attributes to read.
+	 * @return the values of the attributes.
+	 */
+	default Future<Map<AttributeDescriptor<?>, Object>> getAttributes(Collection<AttributeDescriptor<?>> attributes) {
+		return AttributeFutures.collect(this, attributes);
+	}
+
+	/**
+	 * Returns the values of the specified attributes, without blocking the
+	 * calling thread while waiting for them.
+	 * 
+	 * @param attributes
+	 *            the attributes to read.
+	 * @return the values of the attributes, once read.
+	 * @see #getAttributes(Collection)
+	 */
+	default CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync(Collection<AttributeDescriptor<?>> attributes) {
+		return AttributeFutures.toCompletableFuture(getAttributes(attributes));
+	}
+
+	/**
+	 * Subscribes to changes of the specified attributes, instead of polling
+	 * them. The listener is first notified with the current values of the
+	 * attributes, and then every time the unit reports a change. Only
+	 * attributes for which the unit reports changes will be notified.
+	 * 
+	 * <p>
+	 * The default implementation, for references that cannot report changes,
+	 * polls the attributes using {@link #getAttributesAsync(Collection)} at
+	 * the minimum interval, or every 100 ms if none is given, and notifies
+	 * the values that differ from the previous poll. Changes in between polls
+	 * are never seen, as if coalescing.
+	 * </p>
+	 * 
+	 * @param attributes
+	 *            the attributes to subscribe to.
+	 * @param listener
+	 *            the listener to notify.
+	 * @param minInterval
+	 *            the minimum time between notifications, or 0 to notify as
+	 *            soon as possible. Changes made in between are held back until
+	 *            the interval has passed.
+	 * @param unit
+	 *            the time unit of the minimum interval.
+	 * @param coalesce
+	 *            true to only notify the latest value of each attribute, when
+	 *            several changes have been held back. If false, every change
+	 *            is notified.
+	 * @return the handle to cancel the subscription with.
+	 */
+	default AttributeSubscription subscribe(Collection<AttributeDescriptor<?>> attributes, AttributeListener listener, long minInterval,
+			TimeUnit unit, boolean coalesce) {
+		return PolledAttributeSubscription.subscribe(this, attributes, listener, minInterval, unit);
+	}
+
+	/**
+	 * Subscribes to every change of the specified attribute.
+	 * 
+	 * @param attribute
+	 *            the attribute to subscribe to.
+	 * @param listener
+	 *            the listener to notify.
+	 * @return the handle to cancel the subscription with.
+	 * @see #subscribe(Collection, AttributeListener, long, TimeUnit, boolean)
+	 */
+	default AttributeSubscription subscribe(AttributeDescriptor<?> attribute, AttributeListener listener) {
+		return subscribe(Collections.singletonList(attribute), listener, 0, TimeUnit.MILLISECONDS, false);
+	}
 }
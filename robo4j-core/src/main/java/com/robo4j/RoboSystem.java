@@ -25,8 +25,18 @@ import com.robo4j.net.MessageServer;
 import com.robo4j.net.ReferenceDesciptor;
 import com.robo4j.net.RoboContextDescriptor;
 import com.robo4j.scheduler.DefaultScheduler;
-import com.robo4j.scheduler.RoboThreadFactory;
+import com.robo4j.scheduler.ExecutorProvider;
+import com.robo4j.scheduler.ExecutorProviders;
+import com.robo4j.scheduler.HashedWheelScheduler;
 import com.robo4j.scheduler.Scheduler;
+import com.robo4j.scheduler.ShardedScheduler;
+import com.robo4j.tracing.FileSpanExporter;
+import com.robo4j.tracing.HttpSpanExporter;
+import com.robo4j.tracing.Span;
+import com.robo4j.tracing.SpanExporter;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracer;
+import com.robo4j.tracing.Tracing;
 import com.robo4j.util.SystemUtil;
 
 import java.io.IOException;
@@ -35,20 +45,26 @@ import java.io.Serializable;
 import java.net.SocketException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 /**
  * This is the default implementation for a local {@link RoboContext}. Contains
@@ -61,25 +77,61 @@ import java.util.stream.Collectors;
 final class RoboSystem implements RoboContext {
 	private static final String NAME_BLOCKING_POOL = "Robo4J Blocking Pool";
 	private static final String NAME_WORKER_POOL = "Robo4J Worker Pool";
+	private static final String NAME_SYSTEM_POOL = "Robo4J System Pool";
+	private static final String NAME_URGENT_POOL = "Robo4J Urgent Pool";
 	private static final int DEFAULT_BLOCKING_POOL_SIZE = 4;
 	private static final int DEFAULT_WORKER_POOL_SIZE = 2;
 	private static final int DEFAULT_SCHEDULER_POOL_SIZE = 2;
-	private static final int KEEP_ALIVE_TIME = 10;
+	private static final int DEFAULT_URGENT_POOL_SIZE = 1;
+	private static final int DEFAULT_MAILBOX_BATCH_SIZE = 64;
+	private static final int DEFAULT_LIFECYCLE_POOL_SIZE = 0;
+	private static final int DEFAULT_LIFECYCLE_TIMEOUT = 10000;
+	// The watchdog is opt-in
+	private static final int DEFAULT_WATCHDOG_INTERVAL = 0;
+	private static final int DEFAULT_WATCHDOG_BUDGET = 2000;
+	private static final int DEFAULT_WATCHDOG_QUEUE_GROWTH = 10;
 
 	private static final EnumSet<LifecycleState> MESSAGE_DELIVERY_CRITERIA = EnumSet.of(LifecycleState.STARTED, LifecycleState.STOPPED,
 			LifecycleState.STOPPING);
 
 	private final AtomicReference<LifecycleState> state = new AtomicReference<>(LifecycleState.UNINITIALIZED);
-	private final Map<String, RoboUnit<?>> units = new HashMap<>();
-	private final Map<RoboUnit<?>, RoboReference<?>> referenceCache = new WeakHashMap<>();
+	// Copy on write - replaced, never modified, when units are added.
+	private volatile UnitRegistry registry = UnitRegistry.EMPTY;
+	private final Map<String, LazyInbox<?>> lazyInboxes = new ConcurrentHashMap<>();
 
 	private final Scheduler systemScheduler;
 
-	private final ThreadPoolExecutor workExecutor;
-	private final LinkedBlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>();
+	// The same instance for every unit, since the mailboxes compare executors
+	// by identity to detect a unit blocking on its own delivery threads.
+	private final Executor systemDeliveryExecutor;
 
-	private final ThreadPoolExecutor blockingExecutor;
-	private final LinkedBlockingQueue<Runnable> blockingQueue = new LinkedBlockingQueue<>();
+	private final List<RingBuffer<?>> ringBuffers = new CopyOnWriteArrayList<>();
+	private final List<FloatMailbox> floatMailboxes = new CopyOnWriteArrayList<>();
+	private final List<DedicatedThread> dedicatedThreads = new CopyOnWriteArrayList<>();
+
+	// Null unless configured, in which case it is used instead of the
+	// scheduler for delivering messages.
+	private final ExecutorService systemExecutor;
+
+	private final ExecutorService workExecutor;
+
+	private final ExecutorService blockingExecutor;
+
+	private final ExecutorService urgentExecutor;
+
+	private final int mailboxBatchSize;
+
+	private final int metricsSampling;
+
+	private final MetricsRegistry metricsRegistry = new SystemMetricsRegistry();
+
+	private final UnitLifecycle lifecycle;
+
+	// Null if the watchdog is turned off
+	private final UnitWatchdog watchdog;
+
+	// Null unless tracing is configured
+	private final Tracer tracer;
 
 	private final String uid;
 	private final Configuration configuration;
@@ -89,32 +141,115 @@ final class RoboSystem implements RoboContext {
 	private volatile ScheduledFuture<?> emitterFuture;
 
 	private enum DeliveryPolicy {
-		SYSTEM, WORK, BLOCKING
+		SYSTEM, WORK, BLOCKING, RING, DEDICATED
+	}
+
+	private class SystemMetricsRegistry implements MetricsRegistry {
+		@Override
+		public Collection<UnitMetrics> getUnitMetrics() {
+			List<UnitMetrics> metrics = new ArrayList<>();
+			for (RoboUnit<?> unit : registry.getUnits().values()) {
+				metrics.add(unit.getMetrics());
+			}
+			return metrics;
+		}
+
+		@Override
+		public UnitMetrics getUnitMetrics(String unitId) {
+			RoboUnit<?> unit = registry.getUnits().get(unitId);
+			return unit == null ? null : unit.getMetrics();
+		}
+
+		@Override
+		public Collection<ExecutorMetrics> getExecutorMetrics() {
+			List<ExecutorMetrics> metrics = new ArrayList<>();
+			if (systemExecutor != null) {
+				metrics.add(ExecutorMetrics.of(NAME_SYSTEM_POOL, systemExecutor));
+			}
+			metrics.add(ExecutorMetrics.of(NAME_WORKER_POOL, workExecutor));
+			metrics.add(ExecutorMetrics.of(NAME_BLOCKING_POOL, blockingExecutor));
+			metrics.add(ExecutorMetrics.of(NAME_URGENT_POOL, urgentExecutor));
+			return metrics;
+		}
+	}
+
+	private class RingBufferRoboReference<T> extends LocalRoboReference<T> implements RingBufferReference<T> {
+		private static final long serialVersionUID = 1L;
+
+		RingBufferRoboReference(RoboUnit<T> unit) {
+			super(unit);
+		}
+
+		@Override
+		public long claim() {
+			return getRingBuffer().claim();
+		}
+
+		@Override
+		public T getEvent(long sequence) {
+			return getRingBuffer().getEvent(sequence);
+		}
+
+		@Override
+		public void publish(long sequence) {
+			getMetrics().messagesSent(1, sequence >= 0 ? 1 : 0);
+			getRingBuffer().publish(sequence);
+		}
+
+		private RingBuffer<T> getRingBuffer() {
+			return (RingBuffer<T>) getMailbox();
+		}
 	}
 
-	private enum ThreadingPolicy {
-		NORMAL, CRITICAL
+	private class FloatLocalRoboReference extends LocalRoboReference<Float> implements FloatRoboReference {
+		private static final long serialVersionUID = 1L;
+
+		FloatLocalRoboReference(RoboUnit<Float> unit) {
+			super(unit);
+		}
+
+		@Override
+		public void sendFloat(float value) {
+			if (isDeliverable()) {
+				boolean accepted = false;
+				try {
+					accepted = getFloatMailbox().offerFloat(value, 0, false, false);
+				} finally {
+					getMetrics().messagesSent(1, accepted ? 1 : 0);
+				}
+			}
+		}
+
+		@Override
+		public void sendFloat(float value, long timeToLive, TimeUnit timeUnit) {
+			if (isDeliverable()) {
+				boolean accepted = false;
+				try {
+					accepted = getFloatMailbox().offerFloat(value, System.nanoTime() + timeUnit.toNanos(timeToLive), true, false);
+				} finally {
+					getMetrics().messagesSent(1, accepted ? 1 : 0);
+				}
+			}
+		}
+
+		private FloatMailbox getFloatMailbox() {
+			return (FloatMailbox) getMailbox();
+		}
 	}
 
 	private class LocalRoboReference<T> implements RoboReference<T>, Serializable {
 		private static final long serialVersionUID = 1L;
 		private final RoboUnit<T> unit;
 		private final DeliveryPolicy deliveryPolicy;
-		private final ThreadingPolicy threadingPolicy;
+		private final UnitMetrics metrics;
+		private volatile Inbox<T> mailbox;
 
 		LocalRoboReference(RoboUnit<T> unit) {
 			this.unit = unit;
+			this.metrics = unit.getMetrics();
 			@SuppressWarnings("unchecked")
 			Class<? extends RoboUnit<?>> clazz = (Class<? extends RoboUnit<?>>) unit.getClass();
 			this.deliveryPolicy = deriveDeliveryPolicy(clazz);
-			this.threadingPolicy = deriveThreadingPolicy(clazz);
-		}
-
-		private ThreadingPolicy deriveThreadingPolicy(Class<? extends RoboUnit<?>> clazz) {
-			if (clazz.getAnnotation(CriticalSectionTrait.class) != null) {
-				return ThreadingPolicy.CRITICAL;
-			}
-			return ThreadingPolicy.NORMAL;
 		}
 
 		private DeliveryPolicy deriveDeliveryPolicy(Class<? extends RoboUnit<?>> clazz) {
@@ -124,9 +259,97 @@ final class RoboSystem implements RoboContext {
 			if (clazz.getAnnotation(BlockingTrait.class) != null) {
 				return DeliveryPolicy.BLOCKING;
 			}
+			if (clazz.getAnnotation(RingBufferTrait.class) != null) {
+				if (!RingBufferEvents.class.isAssignableFrom(clazz)) {
+					throw new IllegalArgumentException(clazz.getName() + " has the " + RingBufferTrait.class.getSimpleName()
+							+ ", but does not implement " + RingBufferEvents.class.getSimpleName());
+				}
+				return DeliveryPolicy.RING;
+			}
+			if (clazz.getAnnotation(DedicatedThreadTrait.class) != null) {
+				return DeliveryPolicy.DEDICATED;
+			}
 			return DeliveryPolicy.SYSTEM;
 		}
 
+		// Created on first use, since the unit configuration is not available
+		// when the reference is created.
+		Inbox<T> getMailbox() {
+			Inbox<T> result = mailbox;
+			if (result == null) {
+				synchronized (this) {
+					result = mailbox;
+					if (result == null) {
+						result = createMailbox();
+						mailbox = result;
+						metrics.setInbox(result);
+					}
+				}
+			}
+			return result;
+		}
+
+		UnitMetrics getMetrics() {
+			return metrics;
+		}
+
+		private Inbox<T> createMailbox() {
+			@SuppressWarnings("unchecked")
+			LazyInbox<T> lazyInbox = (LazyInbox<T>) lazyInboxes.get(unit.getId());
+			if (lazyInbox != null) {
+				return lazyInbox;
+			}
+			return createUnitMailbox();
+		}
+
+		Inbox<T> createUnitMailbox() {
+			if (deliveryPolicy == DeliveryPolicy.RING) {
+				RingBufferTrait trait = unit.getClass().getAnnotation(RingBufferTrait.class);
+				RingBuffer<T> ringBuffer = new RingBuffer<>(unit, trait.size(), trait.waitStrategy());
+				ringBuffers.add(ringBuffer);
+				ringBuffer.start();
+				return ringBuffer;
+			}
+			if (unit instanceof FloatUnit) {
+				return createFloatMailbox();
+			}
+			Executor executor = getUnitExecutor();
+			// Units with a dedicated thread must only ever be called from it,
+			// urgent messages included.
+			return UnitMailboxes.create(unit, executor, deliveryPolicy == DeliveryPolicy.DEDICATED ? executor : urgentExecutor,
+					mailboxBatchSize);
+		}
+
+		private Executor getUnitExecutor() {
+			if (deliveryPolicy == DeliveryPolicy.DEDICATED) {
+				DedicatedThread thread = new DedicatedThread(unit.getId(), unit.getClass().getAnnotation(DedicatedThreadTrait.class));
+				dedicatedThreads.add(thread);
+				thread.start();
+				return thread;
+			}
+			return getExecutor(deliveryPolicy, unit.getId());
+		}
+
+		@SuppressWarnings("unchecked")
+		private Inbox<T> createFloatMailbox() {
+			boolean conflating = unit.getClass().getAnnotation(ConflatingTrait.class) != null;
+			FloatMailbox mailbox = new FloatMailbox((RoboUnit<Float>) unit, getUnitExecutor(), mailboxBatchSize,
+					UnitMailboxes.readCapacity(unit, FloatUnit.DEFAULT_CAPACITY),
+					UnitMailboxes.readOverflowPolicy(unit, MailboxOverflowPolicy.DROP_OLDEST), conflating);
+			floatMailboxes.add(mailbox);
+			return (Inbox<T>) mailbox;
+		}
+
+		// Units initialized on demand accept messages until they have been
+		// started, as the first message is what starts them.
+		boolean isDeliverable() {
+			if (MESSAGE_DELIVERY_CRITERIA.contains(getState())) {
+				return true;
+			}
+			LazyInbox<?> lazyInbox = lazyInboxes.get(unit.getId());
+			return lazyInbox != null && lazyInbox.isPending() && state.get() == LifecycleState.STARTED;
+		}
+
 		@Override
 		public String getId() {
 			return unit.getId();
@@ -142,87 +365,204 @@ final class RoboSystem implements RoboContext {
 			return unit.getConfiguration();
 		}
 
+		// The messages are counted once the mailbox has accepted or refused
+		// them, an exception meaning refused.
 		@Override
 		public void sendMessage(T message) {
-			if (MESSAGE_DELIVERY_CRITERIA.contains(getState())) {
-				switch (threadingPolicy) {
-				case NORMAL:
-					deliverOnQueue(message);
-					break;
-				case CRITICAL:
-					synchronized (unit) {
-						deliverOnQueue(message);
-					}
-					break;
-				default:
-					throw new IllegalStateException(String.format("not supported policy: %s", threadingPolicy));
+			if (isDeliverable()) {
+				boolean accepted = false;
+				try {
+					accepted = getMailbox().offer(message, false);
+				} finally {
+					metrics.messagesSent(1, accepted ? 1 : 0);
 				}
 			}
 		}
 
+		@Override
+		public void sendMessage(T message, long timeToLive, TimeUnit timeUnit) {
+			if (isDeliverable()) {
+				boolean accepted = false;
+				try {
+					accepted = getMailbox().offer(message, System.nanoTime() + timeUnit.toNanos(timeToLive), false);
+				} finally {
+					metrics.messagesSent(1, accepted ? 1 : 0);
+				}
+			}
+		}
+
+		@Override
+		public void sendUrgentMessage(T message) {
+			if (isDeliverable()) {
+				getMailbox().offerUrgent(message);
+				metrics.messagesSent(1, 1);
+			}
+		}
+
+		@Override
+		public void sendMessages(Collection<T> messages) {
+			if (isDeliverable() && !messages.isEmpty()) {
+				int accepted = 0;
+				try {
+					// Copied, since the sender may reuse the collection.
+					accepted = getMailbox().offerAll(new ArrayList<>(messages));
+				} finally {
+					metrics.messagesSent(messages.size(), accepted);
+				}
+			}
+		}
+
+		@Override
+		public boolean trySendMessage(T message) {
+			if (isDeliverable()) {
+				boolean accepted = getMailbox().offer(message, true);
+				metrics.messagesSent(1, accepted ? 1 : 0);
+				return accepted;
+			}
+			return false;
+		}
+
 		@Override
 		public String toString() {
 			return "LocalReference id: " + unit.getId() + " (system: " + uid + ")";
 		}
 
-		private void deliverOnQueue(T message) {
-			switch (deliveryPolicy) {
-			case SYSTEM:
-				systemScheduler.execute(new Messenger<T>(unit, message));
-				break;
-			case WORK:
-				workExecutor.execute(new Messenger<T>(unit, message));
-				break;
-			case BLOCKING:
-				blockingExecutor.execute(new Messenger<T>(unit, message));
-				break;
-			default:
-				SimpleLoggingUtil.error(getClass(), "not supported policy: " + deliveryPolicy);
+		@Override
+		public <R> Future<R> getAttribute(AttributeDescriptor<R> attribute) {
+			Inbox<T> mailbox = getMailbox();
+			Object value = getSystemAttribute(mailbox, attribute);
+			if (value != null) {
+				return CompletableFuture.completedFuture(attribute.getAttributeType().cast(value));
 			}
+			return mailbox.submit(() -> unit.onGetAttribute(attribute));
 		}
 
 		@Override
-		public <R> Future<R> getAttribute(AttributeDescriptor<R> attribute) {
-			return systemScheduler.submit(() -> unit.onGetAttribute(attribute));
+		public <R> CompletionStage<R> getAttributeAsync(AttributeDescriptor<R> attribute) {
+			Inbox<T> mailbox = getMailbox();
+			Object value = getSystemAttribute(mailbox, attribute);
+			if (value != null) {
+				return CompletableFuture.completedFuture(attribute.getAttributeType().cast(value));
+			}
+			return mailbox.submit(() -> unit.onGetAttribute(attribute)).toCompletableFuture();
 		}
 
 		@Override
 		public Collection<AttributeDescriptor<?>> getKnownAttributes() {
+			if (getMailbox().isBounded()) {
+				List<AttributeDescriptor<?>> attributes = new ArrayList<>(unit.getKnownAttributes());
+				attributes.add(MailboxAttributes.DESCRIPTOR_CAPACITY);
+				attributes.add(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT);
+				attributes.add(MailboxAttributes.DESCRIPTOR_EXPIRED_COUNT);
+				return attributes;
+			}
 			return unit.getKnownAttributes();
 		}
 
 		@Override
 		public Future<Map<AttributeDescriptor<?>, Object>> getAttributes() {
-			return systemScheduler.submit(unit::onGetAttributes);
+			return requestAttributes();
 		}
 
 		@Override
-		public Class<T> getMessageType() {
-			return unit.getMessageType();
+		public CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync() {
+			return requestAttributes().toCompletableFuture();
 		}
 
-		Object writeReplace() throws ObjectStreamException {
-			return new ReferenceDesciptor(RoboSystem.this.getId(), getId(), getMessageType().getName());
+		@Override
+		public Future<Map<AttributeDescriptor<?>, Object>> getAttributes(Collection<AttributeDescriptor<?>> attributes) {
+			return requestAttributes(attributes);
 		}
-	}
 
-	// Protects the executors from problems in the units.
-	private static class Messenger<T> implements Runnable {
-		private final RoboUnit<T> unit;
-		private final T message;
-
-		public Messenger(RoboUnit<T> unit, T message) {
-			this.unit = unit;
-			this.message = message;
+		@Override
+		public CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync(Collection<AttributeDescriptor<?>> attributes) {
+			return requestAttributes(attributes).toCompletableFuture();
 		}
 
 		@Override
-		public void run() {
-			try {
-				unit.onMessage(message);
-			} catch (Throwable t) {
-				SimpleLoggingUtil.error(unit.getClass(), "Error processing message", t);
+		public AttributeSubscription subscribe(Collection<AttributeDescriptor<?>> attributes, AttributeListener listener, long minInterval,
+				TimeUnit timeUnit, boolean coalesce) {
+			AttributeSubscriptions subscriptions = unit.getAttributeSubscriptions();
+			AttributeSubscription subscription = subscriptions.subscribe(attributes, listener, getScheduler(), minInterval, timeUnit, coalesce);
+			// The current values are read and published in order with the
+			// messages, and therefore also with the changes reported while
+			// handling them.
+			Inbox<T> mailbox = getMailbox();
+			List<AttributeDescriptor<?>> requested = new ArrayList<>(attributes);
+			mailbox.submit(() -> {
+				subscriptions.publish(subscription, readAttributes(mailbox, requested));
+				return null;
+			});
+			return subscription;
+		}
+
+		private AttributeRequest<Map<AttributeDescriptor<?>, Object>> requestAttributes() {
+			Inbox<T> mailbox = getMailbox();
+			if (mailbox.isBounded()) {
+				return mailbox.submit(() -> {
+					Map<AttributeDescriptor<?>, Object> attributes = new HashMap<>(unit.onGetAttributes());
+					attributes.put(MailboxAttributes.DESCRIPTOR_CAPACITY, mailbox.getCapacity());
+					attributes.put(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT, mailbox.getOverflowCount());
+					attributes.put(MailboxAttributes.DESCRIPTOR_EXPIRED_COUNT, mailbox.getExpiredCount());
+					return attributes;
+				});
+			}
+			return mailbox.submit(unit::onGetAttributes);
+		}
+
+		// One request for all the attributes, so that the values are read
+		// together, in order with the messages.
+		private AttributeRequest<Map<AttributeDescriptor<?>, Object>> requestAttributes(Collection<AttributeDescriptor<?>> attributes) {
+			Inbox<T> mailbox = getMailbox();
+			// Copied, since the caller may reuse the collection.
+			List<AttributeDescriptor<?>> requested = new ArrayList<>(attributes);
+			return mailbox.submit(() -> readAttributes(mailbox, requested));
+		}
+
+		private Map<AttributeDescriptor<?>, Object> readAttributes(Inbox<T> mailbox, List<AttributeDescriptor<?>> requested) {
+			Map<AttributeDescriptor<?>, Object> values = new HashMap<>();
+			List<AttributeDescriptor<?>> unitAttributes = new ArrayList<>(requested.size());
+			for (AttributeDescriptor<?> descriptor : requested) {
+				Object value = getSystemAttribute(mailbox, descriptor);
+				if (value != null) {
+					values.put(descriptor, value);
+				} else {
+					unitAttributes.add(descriptor);
+				}
+			}
+			if (!unitAttributes.isEmpty()) {
+				values.putAll(unit.onGetAttributes(unitAttributes));
 			}
+			return values;
+		}
+
+		private Object getSystemAttribute(Inbox<T> mailbox, AttributeDescriptor<?> attribute) {
+			Object metricsValue = MetricsAttributes.read(metrics, attribute);
+			if (metricsValue != null) {
+				return metricsValue;
+			}
+			if (MailboxAttributes.matches(MailboxAttributes.DESCRIPTOR_EXPIRED_COUNT, attribute)) {
+				return mailbox.getExpiredCount();
+			}
+			if (!mailbox.isBounded()) {
+				return null;
+			}
+			if (MailboxAttributes.matches(MailboxAttributes.DESCRIPTOR_CAPACITY, attribute)) {
+				return mailbox.getCapacity();
+			}
+			if (MailboxAttributes.matches(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT, attribute)) {
+				return mailbox.getOverflowCount();
+			}
+			return null;
+		}
+
+		@Override
+		public Class<T> getMessageType() {
+			return unit.getMessageType();
+		}
+
+		Object writeReplace() throws ObjectStreamException {
+			return new ReferenceDesciptor(RoboSystem.this.getId(), getId(), getMessageType().getName());
 		}
 	}
 
@@ -246,14 +586,29 @@ final class RoboSystem implements RoboContext {
 	RoboSystem(String uid, Configuration configuration) {
 		this.uid = uid;
 		this.configuration = configuration;
+		mailboxBatchSize = configuration.getInteger(RoboBuilder.KEY_MAILBOX_BATCH_SIZE, DEFAULT_MAILBOX_BATCH_SIZE);
+		if (mailboxBatchSize < 1) {
+			// A mailbox delivering nothing per run would reschedule itself
+			// forever. Checked before any threads are started.
+			throw new IllegalArgumentException(RoboBuilder.KEY_MAILBOX_BATCH_SIZE + " must be at least 1, was " + mailboxBatchSize);
+		}
 		int schedulerPoolSize = configuration.getInteger(RoboBuilder.KEY_SCHEDULER_POOL_SIZE, DEFAULT_SCHEDULER_POOL_SIZE);
 		int workerPoolSize = configuration.getInteger(RoboBuilder.KEY_WORKER_POOL_SIZE, DEFAULT_WORKER_POOL_SIZE);
-		int blockingPoolSize = configuration.getInteger(RoboBuilder.KEY_BLOCKING_POOL_SIZE, DEFAULT_SCHEDULER_POOL_SIZE);
-		workExecutor = new ThreadPoolExecutor(workerPoolSize, workerPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, workQueue,
-				new RoboThreadFactory(new ThreadGroup(NAME_WORKER_POOL), NAME_WORKER_POOL, true));
-		blockingExecutor = new ThreadPoolExecutor(blockingPoolSize, blockingPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, blockingQueue,
-				new RoboThreadFactory(new ThreadGroup(NAME_BLOCKING_POOL), NAME_BLOCKING_POOL, true));
-		systemScheduler = new DefaultScheduler(this, schedulerPoolSize);
+		int blockingPoolSize = configuration.getInteger(RoboBuilder.KEY_BLOCKING_POOL_SIZE, DEFAULT_BLOCKING_POOL_SIZE);
+		workExecutor = createExecutor(configuration.getString(RoboBuilder.KEY_WORKER_EXECUTOR, null), NAME_WORKER_POOL, workerPoolSize);
+		blockingExecutor = createExecutor(configuration.getString(RoboBuilder.KEY_BLOCKING_EXECUTOR, null), NAME_BLOCKING_POOL,
+				blockingPoolSize);
+		urgentExecutor = ExecutorProviders.FIXED.createExecutor(NAME_URGENT_POOL,
+				configuration.getInteger(RoboBuilder.KEY_URGENT_POOL_SIZE, DEFAULT_URGENT_POOL_SIZE));
+		String systemExecutorName = configuration.getString(RoboBuilder.KEY_SYSTEM_EXECUTOR, null);
+		systemExecutor = systemExecutorName == null ? null : createExecutor(systemExecutorName, NAME_SYSTEM_POOL, schedulerPoolSize);
+		systemScheduler = createScheduler(configuration, schedulerPoolSize);
+		systemDeliveryExecutor = systemScheduler::execute;
+		metricsSampling = configuration.getInteger(RoboBuilder.KEY_METRICS_SAMPLING, UnitMetrics.DEFAULT_SAMPLING);
+		lifecycle = new UnitLifecycle(() -> registry.getUnits(), configuration.getInteger(RoboBuilder.KEY_LIFECYCLE_POOL_SIZE, DEFAULT_LIFECYCLE_POOL_SIZE),
+				configuration.getInteger(RoboBuilder.KEY_LIFECYCLE_TIMEOUT, DEFAULT_LIFECYCLE_TIMEOUT));
+		watchdog = initWatchdog(configuration);
+		tracer = initTracer(configuration.getChildConfiguration(RoboBuilder.KEY_CONFIGURATION_TRACING));
 		messageServer = initServer(configuration.getChildConfiguration(RoboBuilder.KEY_CONFIGURATION_SERVER));
 		emitterConfiguration = configuration.getChildConfiguration(RoboBuilder.KEY_CONFIGURATION_EMITTER);
 	}
@@ -300,7 +655,7 @@ final class RoboSystem implements RoboContext {
 		if (state.get() != LifecycleState.UNINITIALIZED) {
 			throw new UnsupportedOperationException("All units must be registered up front for now.");
 		}
-		addToMap(units);
+		addToMap(Arrays.asList(units));
 	}
 
 	@Override
@@ -340,19 +695,15 @@ final class RoboSystem implements RoboContext {
 	}
 
 	private void startUnits() {
-		// NOTE(Marcus/Sep 4, 2017): May want to schedule the starts.
-		for (RoboUnit<?> unit : units.values()) {
-			unit.setState(LifecycleState.STARTING);
-			unit.start();
-			unit.setState(LifecycleState.STARTED);
-		}
+		lifecycle.run(UnitLifecycle.Phase.START, unit -> !lazyInboxes.containsKey(unit.getId()));
 		state.set(LifecycleState.STARTED);
+		if (watchdog != null) {
+			watchdog.start();
+		}
 	}
 
 	@Override
 	public void stop() {
-		// NOTE(Marcus/Sep 4, 2017): We may want schedule the stops in the
-		// future.
 		if (emitterFuture != null) {
 			emitterFuture.cancel(true);
 		}
@@ -360,7 +711,7 @@ final class RoboSystem implements RoboContext {
 			messageServer.stop();
 		}
 		if (state.compareAndSet(LifecycleState.STARTED, LifecycleState.STOPPING)) {
-			units.values().forEach(RoboUnit::stop);
+			lifecycle.run(UnitLifecycle.Phase.STOP, this::isManaged);
 		}
 		state.set(LifecycleState.STOPPED);
 	}
@@ -369,22 +720,22 @@ final class RoboSystem implements RoboContext {
 	public void shutdown() {
 		stop();
 		state.set(LifecycleState.SHUTTING_DOWN);
-		units.values().forEach((unit) -> unit.setState(LifecycleState.SHUTTING_DOWN));
+		registry.getUnits().values().forEach((unit) -> unit.setState(LifecycleState.SHUTTING_DOWN));
 
 		// First shutdown all executors. We don't care at this point, as any
 		// messages will no longer be delivered.
 		workExecutor.shutdown();
 		blockingExecutor.shutdown();
-
-		// Then schedule shutdowns on the scheduler threads...
-		for (RoboUnit<?> unit : units.values()) {
-			getScheduler().execute(new Runnable() {
-				@Override
-				public void run() {
-					RoboSystem.shutdownUnit(unit);
-				}
-			});
+		urgentExecutor.shutdown();
+		if (systemExecutor != null) {
+			systemExecutor.shutdown();
 		}
+		ringBuffers.forEach(RingBuffer::halt);
+		floatMailboxes.forEach(FloatMailbox::halt);
+		dedicatedThreads.forEach(DedicatedThread::halt);
+
+		// Then shutdown the units, in dependency order...
+		lifecycle.run(UnitLifecycle.Phase.SHUTDOWN, this::isManaged);
 
 		// Then shutdown the system scheduler. Will wait until the termination
 		// shutdown of the system scheduler (or the timeout).
@@ -393,6 +744,12 @@ final class RoboSystem implements RoboContext {
 		} catch (InterruptedException e) {
 			SimpleLoggingUtil.error(getClass(), "System scheduler was interrupted when shutting down.", e);
 		}
+		if (watchdog != null) {
+			watchdog.shutdown();
+		}
+		if (tracer != null) {
+			tracer.shutdown();
+		}
 		state.set(LifecycleState.SHUTDOWN);
 	}
 
@@ -405,19 +762,113 @@ final class RoboSystem implements RoboContext {
 		this.state.set(state);
 	}
 
+	/**
+	 * Registers a unit, already added to the system, to be initialized and
+	 * started on demand, when the first message or attribute request is sent
+	 * to it.
+	 * 
+	 * @param unit
+	 *            the unit.
+	 * @param configuration
+	 *            the configuration to initialize the unit with.
+	 * @throws IllegalStateException
+	 *             if the system has already been started.
+	 */
+	<T> void deferInitialization(RoboUnit<T> unit, Configuration configuration) {
+		if (state.get() != LifecycleState.UNINITIALIZED) {
+			throw new IllegalStateException("Units can only be initialized on demand if registered before the system is started");
+		}
+		if (!supportsLazyInitialization(unit.getClass())) {
+			throw new IllegalArgumentException("Unit " + unit.getId() + " cannot be initialized on demand");
+		}
+		LocalRoboReference<T> reference = (LocalRoboReference<T>) getReference(unit);
+		lazyInboxes.put(unit.getId(), new LazyInbox<>(unit, configuration, blockingExecutor, reference::createUnitMailbox));
+	}
+
+	/**
+	 * Units with inboxes which must be available up front, such as ring
+	 * buffers and float channels, cannot be initialized on demand.
+	 * 
+	 * @param unitClass
+	 *            the class of the unit.
+	 * @return true if units of the class can be initialized on demand.
+	 */
+	static boolean supportsLazyInitialization(Class<?> unitClass) {
+		return !FloatUnit.class.isAssignableFrom(unitClass) && unitClass.getAnnotation(RingBufferTrait.class) == null;
+	}
+
+	/**
+	 * Returns the time spent on each unit the last time the units were taken
+	 * through the specified phase.
+	 * 
+	 * @param phase
+	 *            the phase.
+	 * @return the time spent on each unit, in nanoseconds, by unit id.
+	 */
+	Map<String, Long> getLifecycleTimings(UnitLifecycle.Phase phase) {
+		return lifecycle.getTimings(phase);
+	}
+
+	@Override
+	public MetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	@Override
+	public Tracer getTracer() {
+		return tracer;
+	}
+
+	/**
+	 * @return the watchdog of the system, or null if turned off.
+	 * @see RoboBuilder#KEY_WATCHDOG_INTERVAL
+	 */
+	UnitWatchdog getWatchdog() {
+		return watchdog;
+	}
+
+	/**
+	 * @return how many messages to each unit are timed.
+	 * @see RoboBuilder#KEY_METRICS_SAMPLING
+	 */
+	int getMetricsSampling() {
+		return metricsSampling;
+	}
+
 	@Override
 	public Collection<RoboReference<?>> getUnits() {
-		return units.values().stream().map(this::getReference).collect(Collectors.toList());
+		return registry.getReferences();
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public <T> RoboReference<T> getReference(String id) {
-		@SuppressWarnings("unchecked")
-		RoboUnit<T> roboUnit = (RoboUnit<T>) units.get(id);
-		if (roboUnit == null) {
-			return null;
-		}
-		return getReference(roboUnit);
+		return (RoboReference<T>) registry.getReference(id);
+	}
+
+	/**
+	 * Returns the handle of a unit. Handles are dense, starting at 0, and do
+	 * not change once the unit has been added.
+	 * 
+	 * @param id
+	 *            the id of the unit.
+	 * @return the handle of the unit, or -1 if there is no unit with the id.
+	 */
+	int getHandle(String id) {
+		return registry.getHandle(id);
+	}
+
+	/**
+	 * Returns the reference to the unit with the specified handle.
+	 * 
+	 * @param handle
+	 *            the handle of the unit.
+	 * @return the reference to the unit.
+	 * @see #getHandle(String)
+	 */
+	@SuppressWarnings("unchecked")
+	<T> RoboReference<T> getReference(int handle) {
+		return (RoboReference<T>) registry.getReference(handle);
 	}
 
 	@Override
@@ -431,47 +882,120 @@ final class RoboSystem implements RoboContext {
 	}
 
 	/**
-	 * Returns the reference for a specific unit.
+	 * Returns the reference for a specific unit. A unit has a single
+	 * reference, which is made when the unit is constructed, and registered
+	 * when the unit is added, so the same reference is returned before and
+	 * after the unit is added.
 	 * 
 	 * @param roboUnit
 	 *            the robo unit for which to retrieve a reference.
 	 * @return the {@link RoboReference} to the unit.
+	 * @throws IllegalArgumentException
+	 *             if the unit neither belongs to, nor has been added to, this
+	 *             system.
 	 */
 	public <T> RoboReference<T> getReference(RoboUnit<T> roboUnit) {
 		@SuppressWarnings("unchecked")
-		RoboReference<T> reference = (RoboReference<T>) referenceCache.get(roboUnit);
+		RoboReference<T> reference = (RoboReference<T>) registry.getReference(roboUnit);
+		if (reference != null) {
+			return reference;
+		}
+		if (roboUnit.getContext() != this) {
+			throw new IllegalArgumentException("The unit " + roboUnit.getId() + " has not been added to the system " + uid);
+		}
+		reference = roboUnit.getOwnReference();
 		if (reference == null) {
+			// Called from the constructor of the unit, which keeps the
+			// reference until it is registered when the unit is added.
 			reference = createReference(roboUnit);
-			referenceCache.put(roboUnit, reference);
 		}
 		return reference;
 	}
 
 	@Override
 	public String toString() {
-		return "RoboSystem id: " + uid + " unit count: " + units.size();
+		return "RoboSystem id: " + uid + " unit count: " + registry.size();
 	}
 
+	private Executor getExecutor(DeliveryPolicy deliveryPolicy, String unitId) {
+		switch (deliveryPolicy) {
+		case WORK:
+			return workExecutor;
+		case BLOCKING:
+			return blockingExecutor;
+		case SYSTEM:
+			if (systemExecutor != null) {
+				return systemExecutor;
+			}
+			// Keeping the deliveries to a unit on the shard of the unit
+			if (systemScheduler instanceof ShardedScheduler) {
+				return ((ShardedScheduler) systemScheduler).getExecutor(unitId);
+			}
+			return systemDeliveryExecutor;
+		default:
+			throw new IllegalStateException(String.format("not supported policy: %s", deliveryPolicy));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
 	private <T> RoboReference<T> createReference(RoboUnit<T> roboUnit) {
+		if (roboUnit.getClass().getAnnotation(RingBufferTrait.class) != null) {
+			return new RingBufferRoboReference<>(roboUnit);
+		}
+		if (roboUnit instanceof FloatUnit) {
+			if (roboUnit.getMessageType() != Float.class) {
+				throw new IllegalArgumentException(roboUnit.getClass().getName() + " implements " + FloatUnit.class.getSimpleName()
+						+ ", but does not take Float messages");
+			}
+			return (RoboReference<T>) new FloatLocalRoboReference((RoboUnit<Float>) roboUnit);
+		}
 		return new LocalRoboReference<>(roboUnit);
 	}
 
-	private void addToMap(Set<RoboUnit<?>> unitSet) {
-		unitSet.forEach(unit -> units.put(unit.getId(), unit));
+	private synchronized void addToMap(Collection<RoboUnit<?>> added) {
+		registry = registry.with(added, this::referenceFor);
+	}
+
+	// Units created for this system made their reference when constructed.
+	// Reusing it, so that there is only one mailbox per unit.
+	private RoboReference<?> referenceFor(RoboUnit<?> unit) {
+		return unit.getContext() == this ? unit.internalGetReference() : createReference(unit);
+	}
+
+	// Units initialized on demand are only stopped and shut down if they were
+	// ever started.
+	private boolean isManaged(RoboUnit<?> unit) {
+		LazyInbox<?> lazyInbox = lazyInboxes.get(unit.getId());
+		return lazyInbox == null || lazyInbox.isActivated();
 	}
 
-	private void addToMap(RoboUnit<?>... unitArray) {
-		// NOTE(Marcus/Aug 9, 2017): Do not streamify...
-		for (RoboUnit<?> unit : unitArray) {
-			units.put(unit.getId(), unit);
+	private Scheduler createScheduler(Configuration configuration, int poolSize) {
+		String name = configuration.getString(RoboBuilder.KEY_SCHEDULER, DefaultScheduler.NAME).trim();
+		if (HashedWheelScheduler.NAME.equals(name)) {
+			return new HashedWheelScheduler(this, poolSize,
+					configuration.getInteger(RoboBuilder.KEY_SCHEDULER_TICK_MICROS, HashedWheelScheduler.DEFAULT_TICK_MICROS),
+					configuration.getInteger(RoboBuilder.KEY_SCHEDULER_WHEEL_SIZE, HashedWheelScheduler.DEFAULT_WHEEL_SIZE));
+		}
+		if (ShardedScheduler.NAME.equals(name)) {
+			return new ShardedScheduler(this, configuration.getInteger(RoboBuilder.KEY_SCHEDULER_SHARDS, poolSize));
 		}
+		if (!DefaultScheduler.NAME.equals(name)) {
+			SimpleLoggingUtil.error(RoboSystem.class, "Unknown scheduler " + name + ". Using " + DefaultScheduler.NAME + " instead.");
+		}
+		return new DefaultScheduler(this, poolSize);
 	}
 
-	private static void shutdownUnit(RoboUnit<?> unit) {
-		// NOTE(Marcus/Aug 11, 2017): Should really be scheduled and done in
-		// parallel.
-		unit.shutdown();
-		unit.setState(LifecycleState.SHUTDOWN);
+	private static ExecutorService createExecutor(String providerName, String poolName, int poolSize) {
+		ExecutorProvider provider = ExecutorProviders.FIXED;
+		if (providerName != null) {
+			try {
+				provider = ExecutorProviders.get(providerName.trim());
+			} catch (IllegalArgumentException e) {
+				SimpleLoggingUtil.error(RoboSystem.class, "Could not use executor " + providerName + " for " + poolName + ". Using "
+						+ provider.getName() + " instead.", e);
+			}
+		}
+		return provider.createExecutor(poolName, poolSize);
 	}
 
 	private static Configuration createConfiguration(int schedulerPoolSize, int workerPoolSize, int blockingPoolSize) {
@@ -484,7 +1008,22 @@ final class RoboSystem implements RoboContext {
 			return new MessageServer(new MessageCallback() {
 				@Override
 				public void handleMessage(String sourceUuid, String id, Object message) {
-					getReference(id).sendMessage(message);
+					TraceScope scope = Tracing.startSpan(Tracing.current(), tracer, Span.NAME_RECEIVE, uid, id);
+					try {
+						getReference(id).sendMessage(message);
+					} finally {
+						scope.close();
+					}
+				}
+
+				@Override
+				public void handleMessages(String sourceUuid, String id, List<Object> messages) {
+					TraceScope scope = Tracing.startSpan(Tracing.current(), tracer, Span.NAME_RECEIVE, uid, id);
+					try {
+						RoboSystem.this.<Object> getReference(id).sendMessages(messages);
+					} finally {
+						scope.close();
+					}
 				}
 			}, serverConfiguration);
 		} else {
@@ -492,6 +1031,39 @@ final class RoboSystem implements RoboContext {
 		}
 	}
 
+	private UnitWatchdog initWatchdog(Configuration configuration) {
+		int interval = configuration.getInteger(RoboBuilder.KEY_WATCHDOG_INTERVAL, DEFAULT_WATCHDOG_INTERVAL);
+		if (interval <= 0) {
+			return null;
+		}
+		return new UnitWatchdog(() -> registry.getUnits(), interval,
+				configuration.getInteger(RoboBuilder.KEY_WATCHDOG_BUDGET, DEFAULT_WATCHDOG_BUDGET),
+				configuration.getInteger(RoboBuilder.KEY_WATCHDOG_QUEUE_GROWTH, DEFAULT_WATCHDOG_QUEUE_GROWTH));
+	}
+
+	private static Tracer initTracer(Configuration tracingConfiguration) {
+		if (tracingConfiguration == null) {
+			return null;
+		}
+		String url = tracingConfiguration.getString(Tracer.KEY_URL, null);
+		String file = tracingConfiguration.getString(Tracer.KEY_FILE, null);
+		SpanExporter exporter;
+		try {
+			if (url != null) {
+				exporter = new HttpSpanExporter(URI.create(url.trim()));
+			} else if (file != null) {
+				exporter = new FileSpanExporter(Paths.get(file.trim()));
+			} else {
+				SimpleLoggingUtil.error(RoboSystem.class, "Neither a file nor a url to export the spans to was configured. Proceeding without tracing!");
+				return null;
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			SimpleLoggingUtil.error(RoboSystem.class, "Could not initialize the span exporter. Proceeding without tracing!", e);
+			return null;
+		}
+		return new Tracer(exporter, tracingConfiguration.getInteger(Tracer.KEY_QUEUE_SIZE, Tracer.DEFAULT_QUEUE_SIZE));
+	}
+
 	private ContextEmitter initEmitter(Configuration emitterConfiguration, URI uri) {
 		if (messageServer != null && uri != null) {
 			if (emitterConfiguration.getBoolean(ContextEmitter.KEY_ENABLED, Boolean.FALSE)) {
@@ -21,8 +21,13 @@ import com.robo4j.configuration.Configuration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The core component. Subclass this to provide a messaging capable agent for a
@@ -32,12 +37,56 @@ import java.util.concurrent.Future;
  * @author Miroslav Wengner (@miragemiko)
  */
 public abstract class RoboUnit<T> implements RoboReference<T> {
+	/**
+	 * Unit configuration key for the maximum number of messages waiting in the
+	 * mailbox of the unit. Overrides {@link BoundedMailboxTrait#capacity()}.
+	 */
+	public static final String KEY_MAILBOX_CAPACITY = "mailboxCapacity";
+	/**
+	 * Unit configuration key for the name of the
+	 * {@link MailboxOverflowPolicy} to use when the mailbox is full. Overrides
+	 * {@link BoundedMailboxTrait#overflowPolicy()}.
+	 */
+	public static final String KEY_MAILBOX_OVERFLOW_POLICY = "mailboxOverflowPolicy";
+	/**
+	 * Unit configuration key for the number of partitions for units annotated
+	 * with {@link KeyedTrait}. Overrides {@link KeyedTrait#partitions()}.
+	 */
+	public static final String KEY_MAILBOX_PARTITIONS = "mailboxPartitions";
+	/**
+	 * Unit configuration key for a comma separated list of the ids of the
+	 * units this unit depends on. The unit will be started after, and stopped
+	 * and shut down before, the units it depends on.
+	 */
+	public static final String KEY_DEPENDS_ON = "dependsOn";
+	/**
+	 * Unit configuration key for the maximum time, in milliseconds, to wait
+	 * for the unit to start, stop or shut down before the system moves on.
+	 * Overrides {@link RoboBuilder#KEY_LIFECYCLE_TIMEOUT}.
+	 */
+	public static final String KEY_LIFECYCLE_TIMEOUT = "lifecycleTimeout";
+	/**
+	 * Unit configuration key for initializing and starting the unit on
+	 * demand, when the first message or attribute request is sent to it.
+	 * Overrides {@link RoboBuilder#KEY_LAZY_INITIALIZATION}.
+	 */
+	public static final String KEY_LAZY_INITIALIZATION = "lazyInitialization";
+	/**
+	 * Unit configuration key for the maximum time, in milliseconds, the unit
+	 * may spend handling a message before the watchdog reports it. 0 turns
+	 * the check off for the unit, for instance for a unit meant to block.
+	 * Overrides {@link RoboBuilder#KEY_WATCHDOG_BUDGET}.
+	 */
+	public static final String KEY_WATCHDOG_BUDGET = "watchdogBudget";
+
 	// Yay for erasure
 	private final Class<T> messageType;
 	private final RoboContext context;
 	private final String id;
 	private volatile LifecycleState state = LifecycleState.UNINITIALIZED;
 	private RoboReference<T> reference;
+	private final AttributeSubscriptions attributeSubscriptions = new AttributeSubscriptions();
+	private final UnitMetrics metrics;
 	private Configuration configuration;
 
 	/**
@@ -54,6 +103,8 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		this.messageType = messageType;
 		this.context = context;
 		this.id = id;
+		this.metrics = new UnitMetrics(id,
+				context instanceof RoboSystem ? ((RoboSystem) context).getMetricsSampling() : UnitMetrics.DEFAULT_SAMPLING);
 		if (context instanceof RoboSystem) {
 			reference = ((RoboSystem) context).getReference(this);
 		}
@@ -121,6 +172,28 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 	public void shutdown() {
 	}
 
+	/**
+	 * Returns the ids of the units this unit depends on. Units without
+	 * dependencies between them are started, stopped and shut down in
+	 * parallel. By default the dependencies are read from the
+	 * {@link #KEY_DEPENDS_ON} configuration key.
+	 * 
+	 * @return the ids of the units this unit depends on.
+	 */
+	protected Collection<String> getDependencies() {
+		String dependsOn = configuration == null ? null : configuration.getString(KEY_DEPENDS_ON, null);
+		if (dependsOn == null || dependsOn.trim().isEmpty()) {
+			return Collections.emptySet();
+		}
+		Set<String> dependencies = new LinkedHashSet<>();
+		for (String dependency : dependsOn.split(",")) {
+			if (!dependency.trim().isEmpty()) {
+				dependencies.add(dependency.trim());
+			}
+		}
+		return dependencies;
+	}
+
 	/**
 	 * Returns the state of this unit.
 	 * 
@@ -169,6 +242,48 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		reference.sendMessage(message);
 	}
 
+	/**
+	 * Sends a message to this unit by posting a message on the message bus.
+	 * The message is dropped if it is not delivered within the time to live.
+	 * 
+	 * @see #onMessage(Object)
+	 */
+	@Override
+	public void sendMessage(T message, long timeToLive, TimeUnit unit) {
+		reference.sendMessage(message, timeToLive, unit);
+	}
+
+	/**
+	 * Tries to send a message to this unit by posting a message on the message
+	 * bus.
+	 * 
+	 * @see #onMessage(Object)
+	 */
+	@Override
+	public boolean trySendMessage(T message) {
+		return reference.trySendMessage(message);
+	}
+
+	/**
+	 * Sends an urgent message to this unit, ahead of any waiting messages.
+	 * 
+	 * @see #onMessage(Object)
+	 */
+	@Override
+	public void sendUrgentMessage(T message) {
+		reference.sendUrgentMessage(message);
+	}
+
+	/**
+	 * Sends a batch of messages to this unit by posting it on the message bus.
+	 * 
+	 * @see #onMessages(List)
+	 */
+	@Override
+	public void sendMessages(Collection<T> messages) {
+		reference.sendMessages(messages);
+	}
+
 	/**
 	 * Will post a message to get the attributes on the message queue.
 	 * 
@@ -189,6 +304,62 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		return reference.getAttribute(attribute);
 	}
 
+	@Override
+	public <R> CompletionStage<R> getAttributeAsync(AttributeDescriptor<R> attribute) {
+		return reference.getAttributeAsync(attribute);
+	}
+
+	@Override
+	public CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync() {
+		return reference.getAttributesAsync();
+	}
+
+	/**
+	 * Will post a single message to get the specified attributes on the
+	 * message queue.
+	 * 
+	 * @see #onGetAttributes(Collection)
+	 */
+	@Override
+	public Future<Map<AttributeDescriptor<?>, Object>> getAttributes(Collection<AttributeDescriptor<?>> attributes) {
+		return reference.getAttributes(attributes);
+	}
+
+	@Override
+	public CompletionStage<Map<AttributeDescriptor<?>, Object>> getAttributesAsync(Collection<AttributeDescriptor<?>> attributes) {
+		return reference.getAttributesAsync(attributes);
+	}
+
+	@Override
+	public AttributeSubscription subscribe(Collection<AttributeDescriptor<?>> attributes, AttributeListener listener, long minInterval,
+			TimeUnit unit, boolean coalesce) {
+		return reference.subscribe(attributes, listener, minInterval, unit, coalesce);
+	}
+
+	/**
+	 * Call from subclasses when the value of an attribute has changed, to
+	 * notify the subscribers of the attribute.
+	 * 
+	 * @param descriptor
+	 *            the attribute which changed.
+	 * @param value
+	 *            the new value of the attribute.
+	 * @see #subscribe(Collection, AttributeListener, long, TimeUnit, boolean)
+	 */
+	protected void attributeChanged(AttributeDescriptor<?> descriptor, Object value) {
+		if (!attributeSubscriptions.isEmpty()) {
+			attributeSubscriptions.publish(descriptor, value);
+		}
+	}
+
+	/**
+	 * @return true if anyone has subscribed to the attributes of this unit.
+	 *         Use to avoid computing or boxing values no one listens to.
+	 */
+	protected boolean hasAttributeSubscriptions() {
+		return !attributeSubscriptions.isEmpty();
+	}
+
 	/**
 	 * Override in subclasses to expose the attributes known.
 	 */
@@ -216,6 +387,36 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		// want to consider other means of accessing it to keep it protected.
 	}
 
+	/**
+	 * May be overridden in subclasses to process a batch of messages in one go,
+	 * for example to only act on the latest reading. Called with the messages
+	 * sent using {@link #sendMessages(Collection)}, in order. The default
+	 * implementation calls {@link #onMessage(Object)} for each message.
+	 * 
+	 * @param messages
+	 *            the messages received by this unit. Must not be modified.
+	 */
+	public void onMessages(List<T> messages) {
+		for (T message : messages) {
+			onMessage(message);
+		}
+	}
+
+	/**
+	 * Should be overridden in subclasses annotated with {@link KeyedTrait} to
+	 * provide the key of a message, for example the id of a sensor. Messages
+	 * with the same key are delivered in order. Called by the sending thread,
+	 * so it must be quick and must not depend on the state of the unit.
+	 * 
+	 * @param message
+	 *            the message sent to this unit.
+	 * @return the key of the message, or null to deliver it in order with the
+	 *         attribute requests.
+	 */
+	protected Object getMessageKey(T message) {
+		return null;
+	}
+
 	/**
 	 * May be overridden in subclasses for more performance. The default
 	 * implementation will get the job done though.
@@ -223,10 +424,23 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 	 * @return the map of all the attributes.
 	 */
 	protected Map<AttributeDescriptor<?>, Object> onGetAttributes() {
+		return onGetAttributes(getKnownAttributes());
+	}
+
+	/**
+	 * Returns the values of the specified attributes. Runs in order with the
+	 * messages, like {@link #onGetAttribute(AttributeDescriptor)}, so the
+	 * values are a consistent snapshot. May be overridden in subclasses for
+	 * more performance.
+	 *
+	 * @param attributes
+	 *            the attributes to return the values of.
+	 * @return the map of the attribute values.
+	 */
+	protected Map<AttributeDescriptor<?>, Object> onGetAttributes(Collection<AttributeDescriptor<?>> attributes) {
 		Map<AttributeDescriptor<?>, Object> result = new HashMap<>();
-		Collection<AttributeDescriptor<?>> knownAttributes = getKnownAttributes();
-		for (AttributeDescriptor<?> descriptor : knownAttributes) {
-			result.put(descriptor, getAttribute(descriptor));
+		for (AttributeDescriptor<?> descriptor : attributes) {
+			result.put(descriptor, onGetAttribute(descriptor));
 		}
 		return result;
 	}
@@ -244,6 +458,20 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		return null;
 	}
 
+	/**
+	 * @return the attribute subscriptions of this unit. Internal use only.
+	 */
+	AttributeSubscriptions getAttributeSubscriptions() {
+		return attributeSubscriptions;
+	}
+
+	/**
+	 * @return the runtime metrics of this unit. Internal use only.
+	 */
+	UnitMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * @return a RoboReference. Internal use only.
 	 */
@@ -256,6 +484,15 @@ public abstract class RoboUnit<T> implements RoboReference<T> {
 		}
 	}
 
+	/**
+	 * @return the reference made for the unit by its {@link RoboSystem} when
+	 *         constructed, or null if the unit is still being constructed or
+	 *         does not belong to a {@link RoboSystem}.
+	 */
+	RoboReference<T> getOwnReference() {
+		return reference;
+	}
+
 	private void setConfiguration(Configuration configuration) {
 		this.configuration = configuration;
 	}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the slots of a pre-allocated ring to multiple producers, for a
+ * single consumer. A producer claims a sequence by advancing a counter, fills
+ * in the slot, and marks it as published with the round of the sequence, so
+ * that slots can be published out of order by concurrent producers. The
+ * consumer takes the slots in sequence order as they become published, and
+ * reports them consumed, freeing them for the producers.
+ * 
+ * <p>
+ * Once halted, no more slots are claimed.
+ * </p>
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @see RingBuffer
+ * @see FloatMailbox
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class Sequencer {
+	/**
+	 * Returned when no slot could be claimed.
+	 */
+	static final long NOT_CLAIMED = -1;
+
+	private final int size;
+	private final int mask;
+	private final int indexShift;
+	// The round in which each slot was last published.
+	private final AtomicIntegerArray published;
+	private final AtomicLong claimed = new AtomicLong(-1);
+	private final AtomicLong consumed = new AtomicLong(-1);
+	private volatile boolean halted;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param size
+	 *            the number of slots. Must be a power of two.
+	 */
+	Sequencer(int size) {
+		this.size = size;
+		this.mask = size - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(size);
+		this.published = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			published.set(i, -1);
+		}
+	}
+
+	/**
+	 * @return the capacity rounded up to the closest power of two.
+	 */
+	static int roundUp(int capacity) {
+		return Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+	}
+
+	/**
+	 * @return the number of slots.
+	 */
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the index of the slot of a sequence.
+	 */
+	int index(long sequence) {
+		return (int) sequence & mask;
+	}
+
+	/**
+	 * Claims the next slot, waiting for it to become free if the ring is
+	 * full. A slot is only claimed once free, so a halted ring is never
+	 * overwritten, and no claimed slot is left unpublished.
+	 * 
+	 * @param waitStrategy
+	 *            how to wait for the slot.
+	 * @return the sequence of the claimed slot, or {@link #NOT_CLAIMED} if
+	 *         the ring was halted.
+	 */
+	long claim(RingBufferWaitStrategy waitStrategy) {
+		int counter = 0;
+		long sequence;
+		while ((sequence = tryClaim()) == NOT_CLAIMED) {
+			if (halted) {
+				return NOT_CLAIMED;
+			}
+			counter = waitStrategy.idle(counter);
+		}
+		return sequence;
+	}
+
+	/**
+	 * Claims the next slot, unless the ring is full or halted.
+	 * 
+	 * @return the sequence of the claimed slot, or {@link #NOT_CLAIMED}.
+	 */
+	long tryClaim() {
+		return tryClaim(1);
+	}
+
+	/**
+	 * Claims a number of consecutive slots, all or nothing, unless the ring is
+	 * halted.
+	 * 
+	 * @return the sequence of the first claimed slot, or {@link #NOT_CLAIMED}.
+	 */
+	long tryClaim(int count) {
+		long current;
+		do {
+			if (halted) {
+				return NOT_CLAIMED;
+			}
+			current = claimed.get();
+			if (current + count - size > consumed.get()) {
+				return NOT_CLAIMED;
+			}
+		} while (!claimed.compareAndSet(current, current + count));
+		return current + 1;
+	}
+
+	/**
+	 * Publishes a claimed slot, once filled in.
+	 */
+	void publish(long sequence) {
+		published.lazySet(index(sequence), (int) (sequence >>> indexShift));
+	}
+
+	/**
+	 * @return true if the slot of the sequence has been published.
+	 */
+	boolean isPublished(long sequence) {
+		return published.get(index(sequence)) == (int) (sequence >>> indexShift);
+	}
+
+	/**
+	 * @return the last claimed sequence.
+	 */
+	long getClaimed() {
+		return claimed.get();
+	}
+
+	/**
+	 * @return the last consumed sequence.
+	 */
+	long getConsumed() {
+		return consumed.get();
+	}
+
+	/**
+	 * Frees the slots up to, and including, the sequence. Must only be called
+	 * by the consumer.
+	 */
+	void setConsumed(long sequence) {
+		consumed.lazySet(sequence);
+	}
+
+	/**
+	 * Frees the slot of a sequence, unless a producer dropped it first. Used
+	 * instead of {@link #setConsumed(long)} when producers may drop slots.
+	 * 
+	 * @return true if the slot was consumed by this call.
+	 */
+	boolean tryConsume(long sequence) {
+		return consumed.compareAndSet(sequence - 1, sequence);
+	}
+
+	/**
+	 * Frees the oldest slot without consuming it, to make room in a full ring.
+	 * Only a published slot is dropped, since the producer of an unpublished
+	 * slot may still be writing to it.
+	 * 
+	 * @return true if the slot was dropped by this call, false if it was not
+	 *         published, or was consumed or dropped by someone else.
+	 */
+	boolean tryDropOldest() {
+		long current = consumed.get();
+		return isPublished(current + 1) && consumed.compareAndSet(current, current + 1);
+	}
+
+	/**
+	 * Stops any more slots from being claimed.
+	 */
+	void halt() {
+		halted = true;
+	}
+
+	boolean isHalted() {
+		return halted;
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.jfr.UnitLifecycleEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.scheduler.ExecutorProviders;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Starts, stops and shuts down the units of a {@link RoboSystem}. Units
+ * without dependencies between them are handled in parallel. A unit is
+ * started once the units it depends on have been started, and it is stopped
+ * and shut down before the units it depends on. See
+ * {@link RoboUnit#getDependencies()}.
+ * 
+ * <p>
+ * A unit which fails, or does not finish within its timeout, is logged and
+ * will not hold up the rest of the units. The time spent on each unit is
+ * recorded per phase.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitLifecycle {
+	private static final String NAME_LIFECYCLE_POOL = "Robo4J Lifecycle Pool";
+
+	/**
+	 * The life cycle phases handled.
+	 */
+	enum Phase {
+		START("start", LifecycleState.STARTING, LifecycleState.STARTED, false) {
+			@Override
+			void apply(RoboUnit<?> unit) {
+				unit.start();
+			}
+		},
+		STOP("stop", LifecycleState.STOPPING, LifecycleState.STOPPED, true) {
+			@Override
+			void apply(RoboUnit<?> unit) {
+				unit.stop();
+			}
+		},
+		SHUTDOWN("shut down", LifecycleState.SHUTTING_DOWN, LifecycleState.SHUTDOWN, true) {
+			@Override
+			void apply(RoboUnit<?> unit) {
+				unit.shutdown();
+			}
+		};
+
+		private final String verb;
+		private final LifecycleState transitionState;
+		private final LifecycleState finalState;
+		private final boolean reverse;
+
+		Phase(String verb, LifecycleState transitionState, LifecycleState finalState, boolean reverse) {
+			this.verb = verb;
+			this.transitionState = transitionState;
+			this.finalState = finalState;
+			this.reverse = reverse;
+		}
+
+		abstract void apply(RoboUnit<?> unit);
+	}
+
+	private final Supplier<Map<String, RoboUnit<?>>> units;
+	private final int poolSize;
+	private final int defaultTimeout;
+	private final Map<Phase, Map<String, Long>> timings = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param units
+	 *            provides the current units, by id.
+	 * @param poolSize
+	 *            the maximum number of threads to use, or 0 to use one thread
+	 *            per unit.
+	 * @param defaultTimeout
+	 *            the default time to wait for a unit, in milliseconds.
+	 */
+	UnitLifecycle(Supplier<Map<String, RoboUnit<?>>> units, int poolSize, int defaultTimeout) {
+		this.units = units;
+		this.poolSize = poolSize;
+		this.defaultTimeout = defaultTimeout;
+	}
+
+	/**
+	 * Runs the phase for the included units, and waits until every one of
+	 * them has either finished, failed or timed out. Units not included are
+	 * left as they are, and do not hold up the units depending on them.
+	 * 
+	 * @param phase
+	 *            the phase to run.
+	 * @param included
+	 *            the units to run the phase for.
+	 */
+	void run(Phase phase, Predicate<RoboUnit<?>> included) {
+		Map<String, RoboUnit<?>> units = this.units.get();
+		if (units.isEmpty()) {
+			timings.put(phase, Collections.emptyMap());
+			return;
+		}
+		Map<String, Set<String>> prerequisites = phase.reverse ? getDependents(units) : getDependencies(units);
+		Map<String, Long> phaseTimings = new ConcurrentHashMap<>();
+		Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+		int threads = poolSize <= 0 ? units.size() : Math.min(poolSize, units.size());
+		ExecutorService executor = ExecutorProviders.FIXED.createExecutor(NAME_LIFECYCLE_POOL, threads);
+		long start = System.nanoTime();
+		try {
+			for (String id : sort(prerequisites)) {
+				if (!included.test(units.get(id))) {
+					continue;
+				}
+				List<CompletableFuture<Void>> before = new ArrayList<>();
+				for (String prerequisite : prerequisites.get(id)) {
+					CompletableFuture<Void> future = futures.get(prerequisite);
+					if (future != null) {
+						before.add(future);
+					}
+				}
+				futures.put(id, schedule(phase, units.get(id), before, executor, phaseTimings));
+			}
+			CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).exceptionally(t -> null).join();
+		} finally {
+			executor.shutdown();
+		}
+		timings.put(phase, Collections.unmodifiableMap(phaseTimings));
+		SimpleLoggingUtil.info(getClass(), String.format("Took %d ms to %s %d units", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+				phase.verb, futures.size()));
+	}
+
+	/**
+	 * Returns the time spent on each unit the last time the phase was run.
+	 * Units which have timed out and are still running are not included.
+	 * 
+	 * @param phase
+	 *            the phase.
+	 * @return the time spent on each unit, in nanoseconds, by unit id.
+	 */
+	Map<String, Long> getTimings(Phase phase) {
+		return timings.getOrDefault(phase, Collections.emptyMap());
+	}
+
+	private CompletableFuture<Void> schedule(Phase phase, RoboUnit<?> unit, List<CompletableFuture<Void>> prerequisites,
+			ExecutorService executor, Map<String, Long> phaseTimings) {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		result.exceptionally(t -> {
+			if (t instanceof TimeoutException) {
+				SimpleLoggingUtil.error(getClass(),
+						String.format("Unit %s did not %s within %d ms - proceeding without it", unit.getId(), phase.verb, getTimeout(unit)));
+			}
+			return null;
+		});
+		// Units depending on a failed unit are still run, same as when
+		// running the units one at a time.
+		CompletableFuture.allOf(prerequisites.toArray(new CompletableFuture<?>[0])).whenComplete((v, t) -> {
+			try {
+				executor.execute(() -> runUnit(phase, unit, result, phaseTimings));
+			} catch (RejectedExecutionException e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	private void runUnit(Phase phase, RoboUnit<?> unit, CompletableFuture<Void> result, Map<String, Long> phaseTimings) {
+		result.orTimeout(getTimeout(unit), TimeUnit.MILLISECONDS);
+		unit.setState(phase.transitionState);
+		UnitLifecycleEvent event = new UnitLifecycleEvent();
+		event.begin();
+		long start = System.nanoTime();
+		Throwable failure = null;
+		try {
+			phase.apply(unit);
+			unit.setState(phase.finalState);
+		} catch (Throwable t) {
+			unit.setState(LifecycleState.FAILED);
+			SimpleLoggingUtil.error(getClass(), "Failed to " + phase.verb + " unit " + unit.getId(), t);
+			failure = t;
+		}
+		// Recording the time before completing, so that it is included when
+		// the phase is done
+		long time = System.nanoTime() - start;
+		phaseTimings.put(unit.getId(), time);
+		if (event.isEnabled()) {
+			event.setUnit(unit.getId());
+			event.setPhase(phase.name());
+			event.setSucceeded(failure == null);
+			event.commit();
+		}
+		SimpleLoggingUtil.debug(getClass(),
+				String.format("Took %d ms to %s unit %s", TimeUnit.NANOSECONDS.toMillis(time), phase.verb, unit.getId()));
+		if (failure == null) {
+			result.complete(null);
+		} else {
+			result.completeExceptionally(failure);
+		}
+	}
+
+	private int getTimeout(RoboUnit<?> unit) {
+		if (unit.getConfiguration() == null) {
+			return defaultTimeout;
+		}
+		return unit.getConfiguration().getInteger(RoboUnit.KEY_LIFECYCLE_TIMEOUT, defaultTimeout);
+	}
+
+	private Map<String, Set<String>> getDependencies(Map<String, RoboUnit<?>> units) {
+		Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		for (RoboUnit<?> unit : units.values()) {
+			Set<String> unitDependencies = new LinkedHashSet<>();
+			for (String dependency : unit.getDependencies()) {
+				if (units.containsKey(dependency) && !dependency.equals(unit.getId())) {
+					unitDependencies.add(dependency);
+				} else {
+					SimpleLoggingUtil.error(getClass(), "Unit " + unit.getId() + " depends on unknown unit " + dependency + " - ignoring");
+				}
+			}
+			dependencies.put(unit.getId(), unitDependencies);
+		}
+		return dependencies;
+	}
+
+	private Map<String, Set<String>> getDependents(Map<String, RoboUnit<?>> units) {
+		Map<String, Set<String>> dependents = new LinkedHashMap<>();
+		for (String id : units.keySet()) {
+			dependents.put(id, new LinkedHashSet<>());
+		}
+		for (Map.Entry<String, Set<String>> entry : getDependencies(units).entrySet()) {
+			for (String dependency : entry.getValue()) {
+				dependents.get(dependency).add(entry.getKey());
+			}
+		}
+		return dependents;
+	}
+
+	/**
+	 * Orders the units so that each unit comes after its prerequisites. Units
+	 * in a dependency cycle are logged and put last, in no particular order.
+	 */
+	private static List<String> sort(Map<String, Set<String>> prerequisites) {
+		Map<String, Integer> remaining = new HashMap<>();
+		Map<String, List<String>> successors = new HashMap<>();
+		Deque<String> ready = new ArrayDeque<>();
+		for (Map.Entry<String, Set<String>> entry : prerequisites.entrySet()) {
+			remaining.put(entry.getKey(), entry.getValue().size());
+			if (entry.getValue().isEmpty()) {
+				ready.add(entry.getKey());
+			}
+			for (String prerequisite : entry.getValue()) {
+				successors.computeIfAbsent(prerequisite, k -> new ArrayList<>()).add(entry.getKey());
+			}
+		}
+		List<String> order = new ArrayList<>(prerequisites.size());
+		while (!ready.isEmpty()) {
+			String id = ready.poll();
+			order.add(id);
+			for (String successor : successors.getOrDefault(id, Collections.emptyList())) {
+				if (remaining.merge(successor, -1, Integer::sum) == 0) {
+					ready.add(successor);
+				}
+			}
+		}
+		if (order.size() < prerequisites.size()) {
+			List<String> cyclic = new ArrayList<>(prerequisites.keySet());
+			cyclic.removeAll(order);
+			SimpleLoggingUtil.error(UnitLifecycle.class, "Dependency cycle between the units " + cyclic + " - their order is undefined");
+			order.addAll(cyclic);
+		}
+		return order;
+	}
+}
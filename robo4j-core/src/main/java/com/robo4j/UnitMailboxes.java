@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * The mailboxes of a unit. Units annotated with {@link KeyedTrait} get one
+ * mailbox per partition, and messages are routed to a partition by their key.
+ * All other units get a single mailbox. Also reads the mailbox settings from
+ * the traits and the configuration of the unit.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitMailboxes<T> implements Inbox<T> {
+	private static final ClassValue<Boolean> URGENT_TYPES = new ClassValue<>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			return type.isAnnotationPresent(UrgentMessage.class);
+		}
+	};
+
+	private final RoboUnit<T> unit;
+	private final List<Mailbox<T>> partitions;
+
+	private UnitMailboxes(RoboUnit<T> unit, List<Mailbox<T>> partitions) {
+		this.unit = unit;
+		this.partitions = partitions;
+	}
+
+	/**
+	 * Creates the mailboxes for a unit.
+	 * 
+	 * @param unit
+	 *            the unit.
+	 * @param executor
+	 *            the executor for the delivery policy of the unit.
+	 * @param urgentExecutor
+	 *            the executor for urgent messages.
+	 * @param batchSize
+	 *            the maximum number of messages to deliver in one go.
+	 * @return the mailboxes for the unit.
+	 */
+	static <T> UnitMailboxes<T> create(RoboUnit<T> unit, Executor executor, Executor urgentExecutor, int batchSize) {
+		Class<?> clazz = unit.getClass();
+		Configuration configuration = unit.getConfiguration();
+		int capacity = readCapacity(unit, Mailbox.UNBOUNDED);
+		MailboxOverflowPolicy overflowPolicy = readOverflowPolicy(unit, MailboxOverflowPolicy.DROP_NEWEST);
+		boolean conflating = clazz.getAnnotation(ConflatingTrait.class) != null;
+		int numberOfPartitions = readPartitions(unit, configuration, conflating);
+
+		List<Mailbox<T>> partitions = new ArrayList<>(numberOfPartitions);
+		for (int i = 0; i < numberOfPartitions; i++) {
+			partitions.add(new Mailbox<>(unit, executor, urgentExecutor, batchSize, capacity, overflowPolicy, conflating));
+		}
+		return new UnitMailboxes<>(unit, partitions);
+	}
+
+	/**
+	 * Enqueues a message in the mailbox of its partition.
+	 * 
+	 * @see Mailbox#offer(Object, boolean)
+	 */
+	@Override
+	public boolean offer(T message, boolean tryOnly) {
+		if (message != null && URGENT_TYPES.get(message.getClass())) {
+			getPartition(message).offerUrgent(message);
+			return true;
+		}
+		return getPartition(message).offer(message, tryOnly);
+	}
+
+	/**
+	 * Enqueues a message with a deadline in the mailbox of its partition.
+	 * Urgent messages are delivered right away, and never expire.
+	 * 
+	 * @see Mailbox#offer(Object, long, boolean)
+	 */
+	@Override
+	public boolean offer(T message, long deadline, boolean tryOnly) {
+		if (message != null && URGENT_TYPES.get(message.getClass())) {
+			getPartition(message).offerUrgent(message);
+			return true;
+		}
+		return getPartition(message).offer(message, deadline, tryOnly);
+	}
+
+	/**
+	 * Enqueues an urgent message in the mailbox of its partition. Only the
+	 * waiting messages in the same partition are superseded.
+	 * 
+	 * @see Mailbox#offerUrgent(Object)
+	 */
+	@Override
+	public void offerUrgent(T message) {
+		getPartition(message).offerUrgent(message);
+	}
+
+	/**
+	 * Enqueues a batch of messages, split up by partition. Under the
+	 * {@link MailboxOverflowPolicy#FAIL} policy, the batch is rejected as a
+	 * whole if any of the partitions is full.
+	 * 
+	 * @see Mailbox#offerAll(List)
+	 */
+	@Override
+	public int offerAll(List<T> messages) {
+		if (partitions.size() == 1) {
+			return partitions.get(0).offerAll(messages);
+		}
+		List<List<T>> batches = new ArrayList<>(partitions.size());
+		for (int i = 0; i < partitions.size(); i++) {
+			batches.add(new ArrayList<>());
+		}
+		for (T message : messages) {
+			batches.get(getPartitionIndex(message)).add(message);
+		}
+		if (partitions.get(0).isFailingOnOverflow()) {
+			offerAllOrNothing(batches);
+			return messages.size();
+		}
+		int accepted = 0;
+		for (int i = 0; i < partitions.size(); i++) {
+			if (!batches.get(i).isEmpty()) {
+				accepted += partitions.get(i).offerAll(batches.get(i));
+			}
+		}
+		return accepted;
+	}
+
+	// The batch is rejected as a whole if any of the partitions is full.
+	private void offerAllOrNothing(List<List<T>> batches) {
+		for (int i = 0; i < partitions.size(); i++) {
+			int count = batches.get(i).size();
+			if (count > 0 && !partitions.get(i).tryReserve(count)) {
+				for (int j = 0; j < i; j++) {
+					partitions.get(j).cancelReservation(batches.get(j).size());
+				}
+				throw partitions.get(i).batchOverflow(count);
+			}
+		}
+		for (int i = 0; i < partitions.size(); i++) {
+			if (!batches.get(i).isEmpty()) {
+				partitions.get(i).enqueueReserved(batches.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Enqueues an attribute request in the first partition.
+	 * 
+	 * @see Mailbox#submit(Callable)
+	 */
+	@Override
+	public <R> AttributeRequest<R> submit(Callable<R> callable) {
+		return partitions.get(0).submit(callable);
+	}
+
+	@Override
+	public boolean isBounded() {
+		return partitions.get(0).isBounded();
+	}
+
+	/**
+	 * @return the total capacity of all the partitions.
+	 */
+	@Override
+	public int getCapacity() {
+		int capacity = 0;
+		for (Mailbox<T> partition : partitions) {
+			capacity += partition.getCapacity();
+		}
+		return capacity;
+	}
+
+	/**
+	 * @return the total number of overflows in all the partitions.
+	 */
+	@Override
+	public long getOverflowCount() {
+		long count = 0;
+		for (Mailbox<T> partition : partitions) {
+			count += partition.getOverflowCount();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the total number of expired messages in all the partitions.
+	 */
+	@Override
+	public long getExpiredCount() {
+		long count = 0;
+		for (Mailbox<T> partition : partitions) {
+			count += partition.getExpiredCount();
+		}
+		return count;
+	}
+
+	private Mailbox<T> getPartition(T message) {
+		if (partitions.size() == 1) {
+			return partitions.get(0);
+		}
+		return partitions.get(getPartitionIndex(message));
+	}
+
+	private int getPartitionIndex(T message) {
+		Object key = unit.getMessageKey(message);
+		if (key == null) {
+			return 0;
+		}
+		int hash = key.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), partitions.size());
+	}
+
+	/**
+	 * Reads the mailbox capacity of a unit from the {@link BoundedMailboxTrait}
+	 * and the unit configuration.
+	 * 
+	 * @param unit
+	 *            the unit.
+	 * @param defaultCapacity
+	 *            the capacity to use if none is set.
+	 * @return the capacity of the mailbox of the unit.
+	 */
+	static int readCapacity(RoboUnit<?> unit, int defaultCapacity) {
+		int capacity = defaultCapacity;
+		BoundedMailboxTrait boundedTrait = unit.getClass().getAnnotation(BoundedMailboxTrait.class);
+		if (boundedTrait != null) {
+			capacity = boundedTrait.capacity();
+		}
+		Configuration configuration = unit.getConfiguration();
+		if (configuration != null) {
+			capacity = configuration.getInteger(RoboUnit.KEY_MAILBOX_CAPACITY, capacity);
+		}
+		return capacity;
+	}
+
+	/**
+	 * Reads the mailbox overflow policy of a unit from the
+	 * {@link BoundedMailboxTrait} and the unit configuration.
+	 * 
+	 * @param unit
+	 *            the unit.
+	 * @param defaultPolicy
+	 *            the policy to use if none is set.
+	 * @return the overflow policy of the mailbox of the unit.
+	 */
+	static MailboxOverflowPolicy readOverflowPolicy(RoboUnit<?> unit, MailboxOverflowPolicy defaultPolicy) {
+		MailboxOverflowPolicy overflowPolicy = defaultPolicy;
+		BoundedMailboxTrait boundedTrait = unit.getClass().getAnnotation(BoundedMailboxTrait.class);
+		if (boundedTrait != null) {
+			overflowPolicy = boundedTrait.overflowPolicy();
+		}
+		Configuration configuration = unit.getConfiguration();
+		String policyName = configuration == null ? null : configuration.getString(RoboUnit.KEY_MAILBOX_OVERFLOW_POLICY, null);
+		if (policyName == null) {
+			return overflowPolicy;
+		}
+		try {
+			return MailboxOverflowPolicy.valueOf(policyName.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			SimpleLoggingUtil.error(UnitMailboxes.class,
+					"Unknown mailbox overflow policy " + policyName + " for " + unit.getId() + ". Using " + overflowPolicy);
+			return overflowPolicy;
+		}
+	}
+
+	private static int readPartitions(RoboUnit<?> unit, Configuration configuration, boolean conflating) {
+		Class<?> clazz = unit.getClass();
+		KeyedTrait keyedTrait = clazz.getAnnotation(KeyedTrait.class);
+		if (keyedTrait == null) {
+			return 1;
+		}
+		if (clazz.getAnnotation(CriticalSectionTrait.class) != null || conflating) {
+			SimpleLoggingUtil.error(UnitMailboxes.class,
+					unit.getId() + " is keyed, but also critical or conflating. Delivering all messages in order.");
+			return 1;
+		}
+		int partitions = keyedTrait.partitions();
+		if (configuration != null) {
+			partitions = configuration.getInteger(RoboUnit.KEY_MAILBOX_PARTITIONS, partitions);
+		}
+		return partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+	}
+}
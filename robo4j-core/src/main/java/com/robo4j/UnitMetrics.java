@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.jfr.MessageDeliveryEvent;
+import com.robo4j.jfr.MessageEnqueueEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The runtime metrics of a unit: the number of messages received and
+ * processed, the number of messages waiting in the mailbox, and histograms of
+ * the time the messages spent waiting in the mailbox, and in the message
+ * handler of the unit.
+ * 
+ * <p>
+ * The counters are exact. To keep the overhead low, only a sample of the
+ * messages are timed, as configured with
+ * {@link RoboBuilder#KEY_METRICS_SAMPLING}. While the JFR
+ * {@link MessageDeliveryEvent} is being recorded, every message is timed.
+ * </p>
+ * 
+ * @see MetricsRegistry
+ * @see MetricsAttributes
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class UnitMetrics {
+	/**
+	 * By default, every eighth message is timed.
+	 */
+	public static final int DEFAULT_SAMPLING = 8;
+
+	// Marks a message which is not timed.
+	static final long NOT_TIMED = Long.MIN_VALUE;
+
+	private final String unitId;
+	private final int sampling;
+	private final LongAdder received = new LongAdder();
+	private final LongAdder processed = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LatencyHistogram queueTime = new LatencyHistogram();
+	private final LatencyHistogram serviceTime = new LatencyHistogram();
+	private final List<HandlerWatch> handlerWatches = new CopyOnWriteArrayList<>();
+	private volatile Inbox<?> inbox;
+	// Deliberately not thread safe. Racing senders may only skew which
+	// messages are sampled.
+	private int sampleCounter;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param unitId
+	 *            the id of the unit.
+	 * @param sampling
+	 *            time one message out of this many. 1 times every message,
+	 *            and 0 or less turns timing off.
+	 */
+	UnitMetrics(String unitId, int sampling) {
+		this.unitId = unitId;
+		this.sampling = sampling;
+	}
+
+	/**
+	 * @return the id of the unit.
+	 */
+	public String getUnitId() {
+		return unitId;
+	}
+
+	/**
+	 * @return the number of messages accepted by the mailbox of the unit,
+	 *         including the ones later dropped from it, such as expired
+	 *         messages.
+	 */
+	public long getReceivedCount() {
+		return received.sum();
+	}
+
+	/**
+	 * @return the number of messages sent to the unit, but refused by its
+	 *         mailbox, for instance by the overflow policy. These are not
+	 *         included in the received count.
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return the number of messages the unit has finished handling.
+	 */
+	public long getProcessedCount() {
+		return processed.sum();
+	}
+
+	/**
+	 * @return the number of messages received, but not yet processed by the
+	 *         unit, including any message the unit is busy with.
+	 */
+	public long getMailboxDepth() {
+		Inbox<?> currentInbox = inbox;
+		// The overflow count of the inbox includes the refused messages,
+		// which were never received.
+		long discarded = currentInbox == null ? 0
+				: currentInbox.getOverflowCount() + currentInbox.getExpiredCount() - dropped.sum();
+		// The counters are read one at a time, so the difference may briefly
+		// be off.
+		return Math.max(0, received.sum() - processed.sum() - discarded);
+	}
+
+	/**
+	 * @return the time, in nanoseconds, the timed messages waited in the
+	 *         mailbox.
+	 */
+	public LatencyHistogram getQueueTime() {
+		return queueTime;
+	}
+
+	/**
+	 * @return the time, in nanoseconds, the unit spent handling the timed
+	 *         messages. A batch delivered in one call is timed as one.
+	 */
+	public LatencyHistogram getServiceTime() {
+		return serviceTime;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: received=%d, dropped=%d, processed=%d, depth=%d, queue time [%s], service time [%s]", unitId,
+				getReceivedCount(), getDroppedCount(), getProcessedCount(), getMailboxDepth(), queueTime, serviceTime);
+	}
+
+	void setInbox(Inbox<?> inbox) {
+		this.inbox = inbox;
+	}
+
+	/**
+	 * @return a new watch for a delivery lane of the unit, such as a mailbox
+	 *         partition.
+	 */
+	HandlerWatch newHandlerWatch() {
+		HandlerWatch watch = new HandlerWatch();
+		handlerWatches.add(watch);
+		return watch;
+	}
+
+	/**
+	 * @return the watches of the delivery lanes of the unit.
+	 */
+	List<HandlerWatch> getHandlerWatches() {
+		return handlerWatches;
+	}
+
+	/**
+	 * @return the current time, as given by {@link System#nanoTime()}, if the
+	 *         next message should be timed, otherwise {@link #NOT_TIMED}.
+	 */
+	long timestamp() {
+		if (sampling > 0) {
+			int counter = sampleCounter + 1;
+			if (counter >= sampling) {
+				sampleCounter = 0;
+				return System.nanoTime();
+			}
+			sampleCounter = counter;
+		}
+		// The queue time of every delivery event is wanted
+		return new MessageDeliveryEvent().isEnabled() ? System.nanoTime() : NOT_TIMED;
+	}
+
+	/**
+	 * @return a delivery event, begun. Pass it on to
+	 *         {@link #messagesProcessed(int, long, long, MessageDeliveryEvent)}.
+	 */
+	static MessageDeliveryEvent beginDelivery() {
+		MessageDeliveryEvent event = new MessageDeliveryEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * @return the current time if the message, enqueued at the specified
+	 *         time, is timed, otherwise {@link #NOT_TIMED}.
+	 */
+	static long startTime(long enqueued) {
+		return enqueued == NOT_TIMED ? NOT_TIMED : System.nanoTime();
+	}
+
+	/**
+	 * Records messages sent to the unit, once the mailbox has accepted or
+	 * refused them.
+	 * 
+	 * @param count
+	 *            the number of messages sent.
+	 * @param accepted
+	 *            the number of messages accepted by the mailbox.
+	 */
+	void messagesSent(int count, int accepted) {
+		if (accepted > 0) {
+			received.add(accepted);
+			new MessageEnqueueEvent(unitId, accepted).commit();
+		}
+		if (count > accepted) {
+			dropped.add(count - accepted);
+		}
+	}
+
+	/**
+	 * Records messages handed to the unit.
+	 * 
+	 * @param count
+	 *            the number of messages.
+	 * @param enqueued
+	 *            when the messages were enqueued, or {@link #NOT_TIMED}.
+	 * @param start
+	 *            when the unit started handling the messages, as returned by
+	 *            {@link #startTime(long)}.
+	 * @param event
+	 *            the delivery event, as returned by {@link #beginDelivery()}.
+	 */
+	void messagesProcessed(int count, long enqueued, long start, MessageDeliveryEvent event) {
+		processed.add(count);
+		if (start != NOT_TIMED) {
+			queueTime.record(start - enqueued);
+			serviceTime.record(System.nanoTime() - start);
+		}
+		if (event.isEnabled()) {
+			event.setUnit(unitId);
+			event.setMessageCount(count);
+			event.setQueueTime(start == NOT_TIMED ? -1 : start - enqueued);
+			event.commit();
+		}
+	}
+}
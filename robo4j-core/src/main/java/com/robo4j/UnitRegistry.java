@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable registry of the units in a {@link RoboSystem}, and their
+ * references. Each unit gets a dense integer handle, in the order the units
+ * were added, which can be used to keep per unit state in plain arrays.
+ * 
+ * <p>
+ * The registry is never changed once created, so it can be read without any
+ * locking. Adding units creates a new registry.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitRegistry {
+	/**
+	 * The registry without any units.
+	 */
+	static final UnitRegistry EMPTY = new UnitRegistry(new RoboUnit<?>[0], new RoboReference<?>[0], Collections.emptyMap());
+
+	private final RoboUnit<?>[] units;
+	private final RoboReference<?>[] references;
+	private final Map<String, Integer> handles;
+	private final Map<String, RoboUnit<?>> unitMap;
+	private final Collection<RoboReference<?>> referenceView;
+
+	private UnitRegistry(RoboUnit<?>[] units, RoboReference<?>[] references, Map<String, Integer> handles) {
+		this.units = units;
+		this.references = references;
+		this.handles = handles;
+		Map<String, RoboUnit<?>> unitMap = new LinkedHashMap<>();
+		for (RoboUnit<?> unit : units) {
+			unitMap.put(unit.getId(), unit);
+		}
+		this.unitMap = Collections.unmodifiableMap(unitMap);
+		this.referenceView = Collections.unmodifiableList(Arrays.asList(references));
+	}
+
+	/**
+	 * Creates a new registry with the units added. A unit with the same id as
+	 * a unit already in the registry replaces it, and takes over its handle.
+	 * 
+	 * @param added
+	 *            the units to add.
+	 * @param referenceFactory
+	 *            provides the reference for a unit.
+	 * @return the new registry.
+	 */
+	UnitRegistry with(Collection<RoboUnit<?>> added, Function<RoboUnit<?>, RoboReference<?>> referenceFactory) {
+		RoboUnit<?>[] newUnits = Arrays.copyOf(units, units.length + added.size());
+		RoboReference<?>[] newReferences = Arrays.copyOf(references, references.length + added.size());
+		Map<String, Integer> newHandles = new HashMap<>(handles);
+		int size = units.length;
+		for (RoboUnit<?> unit : added) {
+			Integer handle = newHandles.get(unit.getId());
+			if (handle == null) {
+				handle = size++;
+				newHandles.put(unit.getId(), handle);
+			}
+			newUnits[handle] = unit;
+			newReferences[handle] = referenceFactory.apply(unit);
+		}
+		return new UnitRegistry(Arrays.copyOf(newUnits, size), Arrays.copyOf(newReferences, size), newHandles);
+	}
+
+	/**
+	 * @param id
+	 *            the id of the unit.
+	 * @return the handle of the unit, or -1 if there is no unit with the id.
+	 */
+	int getHandle(String id) {
+		Integer handle = handles.get(id);
+		return handle == null ? -1 : handle;
+	}
+
+	/**
+	 * @param handle
+	 *            the handle of the unit.
+	 * @return the unit with the handle.
+	 */
+	RoboUnit<?> getUnit(int handle) {
+		return units[handle];
+	}
+
+	/**
+	 * @param handle
+	 *            the handle of the unit.
+	 * @return the reference to the unit with the handle.
+	 */
+	RoboReference<?> getReference(int handle) {
+		return references[handle];
+	}
+
+	/**
+	 * @param id
+	 *            the id of the unit.
+	 * @return the reference to the unit, or null if there is no unit with the
+	 *         id.
+	 */
+	RoboReference<?> getReference(String id) {
+		Integer handle = handles.get(id);
+		return handle == null ? null : references[handle];
+	}
+
+	/**
+	 * @param unit
+	 *            the unit.
+	 * @return the reference to the unit, or null if the unit is not in the
+	 *         registry.
+	 */
+	RoboReference<?> getReference(RoboUnit<?> unit) {
+		Integer handle = handles.get(unit.getId());
+		return handle != null && units[handle] == unit ? references[handle] : null;
+	}
+
+	/**
+	 * @return the units, by id, in the order of their handles.
+	 */
+	Map<String, RoboUnit<?>> getUnits() {
+		return unitMap;
+	}
+
+	/**
+	 * @return the references to the units, in the order of their handles.
+	 */
+	Collection<RoboReference<?>> getReferences() {
+		return referenceView;
+	}
+
+	/**
+	 * @return the number of units.
+	 */
+	int size() {
+		return units.length;
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.jfr.HandlerStallEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.scheduler.RoboThreadFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Watches the units of a {@link RoboSystem} for message handlers which do not
+ * return, and for mailboxes which keep growing. A handler blocking on I/O, or
+ * on a future, holds on to a thread of a shared pool, and enough of them will
+ * starve every unit using the pool.
+ * 
+ * <p>
+ * A handler running for longer than its budget is reported once, with the id
+ * of the unit and the stack of the thread running it, and again, as
+ * information, when it finally returns. A mailbox growing at every check, for
+ * the configured number of checks in a row, is reported once, until it
+ * shrinks. The reports are logged, and the stalls also recorded as
+ * {@link HandlerStallEvent}s.
+ * </p>
+ * 
+ * <p>
+ * The watchdog only sees the handlers when it checks, so a handler is
+ * reported somewhere between its budget and its budget plus the check
+ * interval after it was called.
+ * </p>
+ * 
+ * <p>
+ * The watchdog is off unless {@link RoboBuilder#KEY_WATCHDOG_INTERVAL} is
+ * configured.
+ * </p>
+ * 
+ * @see RoboBuilder#KEY_WATCHDOG_INTERVAL
+ * @see RoboBuilder#KEY_WATCHDOG_BUDGET
+ * @see RoboBuilder#KEY_WATCHDOG_QUEUE_GROWTH
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class UnitWatchdog {
+	private static final String NAME_WATCHDOG_THREAD = "Robo4J Watchdog";
+
+	private final Supplier<Map<String, RoboUnit<?>>> units;
+	private final long interval;
+	private final int defaultBudget;
+	private final int queueGrowthChecks;
+	private final AtomicLong stallCount = new AtomicLong();
+	private final AtomicLong queueGrowthCount = new AtomicLong();
+	// Only accessed by the watchdog thread.
+	private final Map<String, QueueGrowth> queueGrowths = new HashMap<>();
+	private ScheduledExecutorService executor;
+
+	private static final class QueueGrowth {
+		private long depth;
+		private long checkedAt;
+		private long startDepth;
+		private long startedAt;
+		private int checks;
+		private boolean reported;
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param units
+	 *            provides the current units, by id.
+	 * @param interval
+	 *            the time between the checks, in milliseconds.
+	 * @param defaultBudget
+	 *            the default time a message handler may run, in milliseconds,
+	 *            or 0 to not watch the handlers by default.
+	 * @param queueGrowthChecks
+	 *            the number of checks in a row a mailbox must have grown to be
+	 *            reported, or 0 to not watch the mailboxes.
+	 */
+	UnitWatchdog(Supplier<Map<String, RoboUnit<?>>> units, long interval, int defaultBudget, int queueGrowthChecks) {
+		this.units = units;
+		this.interval = interval;
+		this.defaultBudget = defaultBudget;
+		this.queueGrowthChecks = queueGrowthChecks;
+	}
+
+	synchronized void start() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadScheduledExecutor(
+					new RoboThreadFactory(new ThreadGroup(NAME_WATCHDOG_THREAD), NAME_WATCHDOG_THREAD, true));
+			executor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * @return the number of handlers reported for running over their budget.
+	 */
+	long getStallCount() {
+		return stallCount.get();
+	}
+
+	/**
+	 * @return the number of times a mailbox was reported for growing.
+	 */
+	long getQueueGrowthCount() {
+		return queueGrowthCount.get();
+	}
+
+	/**
+	 * Checks all the units once.
+	 */
+	void check() {
+		try {
+			long now = System.nanoTime();
+			for (RoboUnit<?> unit : units.get().values()) {
+				long budget = TimeUnit.MILLISECONDS.toNanos(getBudget(unit));
+				if (budget > 0) {
+					for (HandlerWatch watch : unit.getMetrics().getHandlerWatches()) {
+						checkHandler(unit, watch, budget, now);
+					}
+				}
+				if (queueGrowthChecks > 0) {
+					checkQueue(unit, now);
+				}
+			}
+		} catch (Throwable t) {
+			// Must not kill the watchdog
+			SimpleLoggingUtil.error(getClass(), "Watchdog check failed", t);
+		}
+	}
+
+	/**
+	 * Formats the state and stack of a thread, in the style of a thread dump.
+	 * 
+	 * @param thread
+	 *            the thread.
+	 * @return the formatted stack.
+	 */
+	static String dumpThread(Thread thread) {
+		StringBuilder builder = new StringBuilder();
+		builder.append('"').append(thread.getName()).append("\" ").append(thread.getState());
+		ThreadInfo info = ManagementFactory.getThreadMXBean().getThreadInfo(thread.getId(), Integer.MAX_VALUE);
+		StackTraceElement[] stack;
+		if (info != null) {
+			if (info.getLockName() != null) {
+				builder.append(" on ").append(info.getLockName());
+				if (info.getLockOwnerName() != null) {
+					builder.append(" owned by \"").append(info.getLockOwnerName()).append('"');
+				}
+			}
+			stack = info.getStackTrace();
+		} else {
+			stack = thread.getStackTrace();
+		}
+		for (StackTraceElement element : stack) {
+			builder.append(System.lineSeparator()).append("\tat ").append(element);
+		}
+		return builder.toString();
+	}
+
+	private int getBudget(RoboUnit<?> unit) {
+		if (unit.getConfiguration() == null) {
+			return defaultBudget;
+		}
+		return unit.getConfiguration().getInteger(RoboUnit.KEY_WATCHDOG_BUDGET, defaultBudget);
+	}
+
+	private void checkHandler(RoboUnit<?> unit, HandlerWatch watch, long budget, long now) {
+		long running = watch.getRunning();
+		if (running != watch.observed) {
+			if (watch.reported) {
+				SimpleLoggingUtil.info(unit.getClass(), String.format("The message handler of %s returned after more than %d ms",
+						unit.getId(), TimeUnit.NANOSECONDS.toMillis(now - watch.observedSince)));
+			}
+			watch.observed = running;
+			watch.observedSince = now;
+			watch.reported = false;
+		} else if (running != HandlerWatch.IDLE && !watch.reported && now - watch.observedSince >= budget) {
+			Thread thread = watch.getThread();
+			String stack = dumpThread(thread);
+			// The thread may have moved on while being dumped
+			if (watch.getRunning() == running) {
+				watch.reported = true;
+				reportStall(unit, thread, stack, now - watch.observedSince, budget);
+			}
+		}
+	}
+
+	private void reportStall(RoboUnit<?> unit, Thread thread, String stack, long runningTime, long budget) {
+		stallCount.incrementAndGet();
+		SimpleLoggingUtil.error(unit.getClass(),
+				String.format("The message handler of %s has been running for more than %d ms, over its budget of %d ms:%n%s",
+						unit.getId(), TimeUnit.NANOSECONDS.toMillis(runningTime), TimeUnit.NANOSECONDS.toMillis(budget), stack));
+		HandlerStallEvent event = new HandlerStallEvent();
+		if (event.isEnabled()) {
+			event.setUnit(unit.getId());
+			event.setStalledThread(thread);
+			event.setRunningTime(runningTime);
+			event.setStack(stack);
+			event.commit();
+		}
+	}
+
+	private void checkQueue(RoboUnit<?> unit, long now) {
+		long depth = unit.getMetrics().getMailboxDepth();
+		QueueGrowth growth = queueGrowths.get(unit.getId());
+		if (growth == null) {
+			growth = new QueueGrowth();
+			queueGrowths.put(unit.getId(), growth);
+		} else if (depth > growth.depth) {
+			if (growth.checks++ == 0) {
+				growth.startDepth = growth.depth;
+				growth.startedAt = growth.checkedAt;
+			}
+			if (growth.checks >= queueGrowthChecks && !growth.reported) {
+				growth.reported = true;
+				queueGrowthCount.incrementAndGet();
+				SimpleLoggingUtil.error(unit.getClass(),
+						String.format("The mailbox of %s has grown from %d to %d messages over the last %d ms - the unit is not keeping up",
+								unit.getId(), growth.startDepth, depth, TimeUnit.NANOSECONDS.toMillis(now - growth.startedAt)));
+			}
+		} else {
+			growth.checks = 0;
+			if (depth < growth.depth) {
+				growth.reported = false;
+			}
+		}
+		growth.depth = depth;
+		growth.checkedAt = now;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The JFR event for a message handler found by the watchdog to have run for
+ * longer than its budget. Committed by the watchdog, so the stack trace of the
+ * stalled thread is recorded as text.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("robo4j.core.HandlerStall")
+@Category({ "Robo4J", "Core", "Watchdog" })
+@Label("Handler Stall")
+@Description("A message handler running for longer than its budget")
+@StackTrace(false)
+public class HandlerStallEvent extends Event {
+	@Label("Unit")
+	@Description("The id of the unit")
+	private String unit;
+
+	@Label("Stalled Thread")
+	@Description("The thread running the message handler")
+	private Thread stalledThread;
+
+	@Label("Running Time")
+	@Description("For how long the handler had, at least, been running")
+	@Timespan(Timespan.NANOSECONDS)
+	private long runningTime;
+
+	@Label("Stack")
+	@Description("The stack of the stalled thread")
+	private String stack;
+
+	static {
+		FlightRecorder.register(HandlerStallEvent.class);
+	}
+
+	public HandlerStallEvent() {
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public void setUnit(String unit) {
+		this.unit = unit;
+	}
+
+	public Thread getStalledThread() {
+		return stalledThread;
+	}
+
+	public void setStalledThread(Thread stalledThread) {
+		this.stalledThread = stalledThread;
+	}
+
+	public long getRunningTime() {
+		return runningTime;
+	}
+
+	public void setRunningTime(long runningTime) {
+		this.runningTime = runningTime;
+	}
+
+	public String getStack() {
+		return stack;
+	}
+
+	public void setStack(String stack) {
+		this.stack = stack;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * The JFR event for a unit handling messages taken from its mailbox. The
+ * duration of the event is the time spent in the message handler. This is on
+ * the hot path, so by default only deliveries taking longer than 10 ms are
+ * recorded.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("robo4j.core.MessageDelivery")
+@Category({ "Robo4J", "Core", "Messages" })
+@Label("Message Delivery")
+@Description("A unit handling messages taken from its mailbox")
+@StackTrace(false)
+@Threshold("10 ms")
+public class MessageDeliveryEvent extends Event {
+	@Label("Unit")
+	@Description("The id of the unit handling the messages")
+	private String unit;
+
+	@Label("Message Count")
+	@Description("The number of messages handled, more than one for batches")
+	private int messageCount;
+
+	@Label("Queue Time")
+	@Description("The time the messages waited in the mailbox, or -1 if unknown")
+	@Timespan(Timespan.NANOSECONDS)
+	private long queueTime;
+
+	static {
+		FlightRecorder.register(MessageDeliveryEvent.class);
+	}
+
+	public MessageDeliveryEvent() {
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public void setUnit(String unit) {
+		this.unit = unit;
+	}
+
+	public int getMessageCount() {
+		return messageCount;
+	}
+
+	public void setMessageCount(int messageCount) {
+		this.messageCount = messageCount;
+	}
+
+	public long getQueueTime() {
+		return queueTime;
+	}
+
+	public void setQueueTime(long queueTime) {
+		this.queueTime = queueTime;
+	}
+
+	@Label("Sampling")
+	@Description("Records one out of this many events")
+	@Name("sampling")
+	@SettingDefinition
+	protected boolean sampling(SamplingSetting setting) {
+		return setting.sample();
+	}
+}
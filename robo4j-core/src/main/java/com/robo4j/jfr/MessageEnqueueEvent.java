@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event for messages sent to a local unit. This is on the hot path,
+ * and is therefore disabled by default.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("robo4j.core.MessageEnqueue")
+@Category({ "Robo4J", "Core", "Messages" })
+@Label("Message Enqueue")
+@Description("Messages sent to a unit, and put in its mailbox")
+@StackTrace(false)
+@Enabled(false)
+public class MessageEnqueueEvent extends Event {
+	@Label("Unit")
+	@Description("The id of the receiving unit")
+	private String unit;
+
+	@Label("Message Count")
+	@Description("The number of messages enqueued")
+	private int messageCount;
+
+	static {
+		FlightRecorder.register(MessageEnqueueEvent.class);
+	}
+
+	public MessageEnqueueEvent() {
+	}
+
+	public MessageEnqueueEvent(String unit, int messageCount) {
+		this.unit = unit;
+		this.messageCount = messageCount;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public int getMessageCount() {
+		return messageCount;
+	}
+
+	@Label("Sampling")
+	@Description("Records one out of this many events")
+	@Name("sampling")
+	@SettingDefinition
+	protected boolean sampling(SamplingSetting setting) {
+		return setting.sample();
+	}
+}
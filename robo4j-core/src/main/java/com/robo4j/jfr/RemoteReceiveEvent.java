@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event for messages received from a remote context. The duration of
+ * the event is the time spent reading the messages and handing them to the
+ * receiving unit.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("robo4j.core.RemoteReceive")
+@Category({ "Robo4J", "Core", "Remote" })
+@Label("Remote Receive")
+@Description("Messages received from a remote context")
+@StackTrace(false)
+public class RemoteReceiveEvent extends Event {
+	@Label("Source")
+	@Description("The id of the sending context")
+	private String source;
+
+	@Label("Unit")
+	@Description("The id of the receiving unit")
+	private String unit;
+
+	@Label("Message Count")
+	@Description("The number of messages received")
+	private int messageCount;
+
+	static {
+		FlightRecorder.register(RemoteReceiveEvent.class);
+	}
+
+	public RemoteReceiveEvent() {
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public void setSource(String source) {
+		this.source = source;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public void setUnit(String unit) {
+		this.unit = unit;
+	}
+
+	public int getMessageCount() {
+		return messageCount;
+	}
+
+	public void setMessageCount(int messageCount) {
+		this.messageCount = messageCount;
+	}
+
+	@Label("Sampling")
+	@Description("Records one out of this many events")
+	@Name("sampling")
+	@SettingDefinition
+	protected boolean sampling(SamplingSetting setting) {
+		return setting.sample();
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event for sending messages to a unit in a remote context. The
+ * duration of the event is the time spent serializing and writing the
+ * messages.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("robo4j.core.RemoteSend")
+@Category({ "Robo4J", "Core", "Remote" })
+@Label("Remote Send")
+@Description("Messages sent to a unit in a remote context")
+@StackTrace(false)
+public class RemoteSendEvent extends Event {
+	@Label("Target")
+	@Description("The address of the remote context")
+	private String target;
+
+	@Label("Unit")
+	@Description("The id of the receiving unit")
+	private String unit;
+
+	@Label("Message Count")
+	@Description("The number of messages sent")
+	private int messageCount;
+
+	static {
+		FlightRecorder.register(RemoteSendEvent.class);
+	}
+
+	public RemoteSendEvent() {
+	}
+
+	public String getTarget() {
+		return target;
+	}
+
+	public void setTarget(String target) {
+		this.target = target;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public void setUnit(String unit) {
+		this.unit = unit;
+	}
+
+	public int getMessageCount() {
+		return messageCount;
+	}
+
+	public void setMessageCount(int messageCount) {
+		this.messageCount = messageCount;
+	}
+
+	@Label("Sampling")
+	@Description("Records one out of this many events")
+	@Name("sampling")
+	@SettingDefinition
+	protected boolean sampling(SamplingSetting setting) {
+		return setting.sample();
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import java.util.Set;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.MetadataDefinition;
+import jdk.jfr.Name;
+import jdk.jfr.SettingControl;
+
+/**
+ * JFR setting for recording only one event out of every n, for the events
+ * on high rate paths. Set it like any other event setting, for example in a
+ * settings file passed to <code>jcmd &lt;pid&gt; JFR.start settings=...</code>:
+ * 
+ * <pre>
+ * &lt;event name="robo4j.core.MessageDelivery"&gt;
+ *   &lt;setting name="enabled"&gt;true&lt;/setting&gt;
+ *   &lt;setting name="threshold"&gt;0 ms&lt;/setting&gt;
+ *   &lt;setting name="sampling"&gt;100&lt;/setting&gt;
+ * &lt;/event&gt;
+ * </pre>
+ * 
+ * When several recordings use different values, the smallest one wins. The
+ * default is 1, recording every event.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@MetadataDefinition
+@Name("robo4j.Sampling")
+@Label("Sampling")
+@Description("Records one out of this many events")
+public final class SamplingSetting extends SettingControl {
+	private static final String DEFAULT_VALUE = "1";
+
+	private volatile int interval = 1;
+	// Deliberately not thread safe. Racing threads may only skew which
+	// events are recorded.
+	private long counter;
+
+	@Override
+	public String combine(Set<String> values) {
+		int smallest = Integer.MAX_VALUE;
+		for (String value : values) {
+			smallest = Math.min(smallest, parse(value));
+		}
+		return smallest == Integer.MAX_VALUE ? DEFAULT_VALUE : String.valueOf(smallest);
+	}
+
+	@Override
+	public void setValue(String value) {
+		interval = parse(value);
+	}
+
+	@Override
+	public String getValue() {
+		return String.valueOf(interval);
+	}
+
+	/**
+	 * @return true if the next event should be recorded.
+	 */
+	boolean sample() {
+		int currentInterval = interval;
+		return currentInterval <= 1 || counter++ % currentInterval == 0;
+	}
+
+	private static int parse(String value) {
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The JFR event for the execution of a task scheduled with a Robo4J
+ * scheduler. The duration of the event is the time spent running the task.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("robo4j.core.ScheduledTask")
+@Category({ "Robo4J", "Core", "Scheduler" })
+@Label("Scheduled Task")
+@Description("The execution of a scheduled task")
+@StackTrace(false)
+public class ScheduledTaskEvent extends Event {
+	@Label("Scheduler")
+	@Description("The name of the scheduler running the task")
+	private String scheduler;
+
+	@Label("Task")
+	@Description("The class of the task")
+	private Class<?> task;
+
+	@Label("Lateness")
+	@Description("How long after the time it was scheduled for the task started")
+	@Timespan(Timespan.NANOSECONDS)
+	private long lateness;
+
+	static {
+		FlightRecorder.register(ScheduledTaskEvent.class);
+	}
+
+	public ScheduledTaskEvent() {
+	}
+
+	public String getScheduler() {
+		return scheduler;
+	}
+
+	public void setScheduler(String scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	public Class<?> getTask() {
+		return task;
+	}
+
+	public void setTask(Class<?> task) {
+		this.task = task;
+	}
+
+	public long getLateness() {
+		return lateness;
+	}
+
+	public void setLateness(long lateness) {
+		this.lateness = lateness;
+	}
+
+	@Label("Sampling")
+	@Description("Records one out of this many events")
+	@Name("sampling")
+	@SettingDefinition
+	protected boolean sampling(SamplingSetting setting) {
+		return setting.sample();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event for taking a unit through a lifecycle phase, such as starting,
+ * stopping or shutting it down.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@Name("robo4j.core.UnitLifecycle")
+@Category({ "Robo4J", "Core", "Lifecycle" })
+@Label("Unit Lifecycle")
+@Description("A unit being started, stopped or shut down")
+@StackTrace(false)
+public class UnitLifecycleEvent extends Event {
+	@Label("Unit")
+	@Description("The id of the unit")
+	private String unit;
+
+	@Label("Phase")
+	@Description("The lifecycle phase")
+	private String phase;
+
+	@Label("Succeeded")
+	@Description("False if the unit failed the phase")
+	private boolean succeeded;
+
+	static {
+		FlightRecorder.register(UnitLifecycleEvent.class);
+	}
+
+	public UnitLifecycleEvent() {
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public void setUnit(String unit) {
+		this.unit = unit;
+	}
+
+	public String getPhase() {
+		return phase;
+	}
+
+	public void setPhase(String phase) {
+		this.phase = phase;
+	}
+
+	public boolean getSucceeded() {
+		return succeeded;
+	}
+
+	public void setSucceeded(boolean succeeded) {
+		this.succeeded = succeeded;
+	}
+}
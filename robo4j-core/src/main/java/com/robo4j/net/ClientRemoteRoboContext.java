@@ -22,6 +22,7 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationFactory;
+import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.scheduler.Scheduler;
 
 import java.io.IOException;
@@ -66,8 +67,19 @@ public class ClientRemoteRoboContext implements RoboContext {
 				}
 				client.sendMessage(id, message);
 			} catch (IOException e) {
-				// TODO: Error handling
-				e.printStackTrace();
+				SimpleLoggingUtil.error(getClass(), "Failed to send message to " + id, e);
+			}
+		}
+
+		@Override
+		public void sendMessages(Collection<T> messages) {
+			try {
+				if (!client.isConnected()) {
+					client.connect();
+				}
+				client.sendMessages(id, messages);
+			} catch (IOException e) {
+				SimpleLoggingUtil.error(getClass(), "Failed to send " + messages.size() + " messages to " + id, e);
 			}
 		}
 
@@ -16,6 +16,8 @@
  */
 package com.robo4j.net;
 
+import java.util.List;
+
 /**
  * Message callback interface for handling a received message.
  *
@@ -35,4 +37,22 @@ public interface MessageCallback {
 	 *            the message sent.
 	 */
 	void handleMessage(String sourceUuid, String id, Object message);
+
+	/**
+	 * Handles a batch of incoming messages from a remote context. The default
+	 * implementation handles the messages one at a time.
+	 * 
+	 * @param sourceUuid
+	 *            the UUID of the remote context from which the messages were
+	 *            sent.
+	 * @param id
+	 *            the id of the reference for the recipient.
+	 * @param messages
+	 *            the messages sent, in order.
+	 */
+	default void handleMessages(String sourceUuid, String id, List<Object> messages) {
+		for (Object message : messages) {
+			handleMessage(sourceUuid, id, message);
+		}
+	}
 }
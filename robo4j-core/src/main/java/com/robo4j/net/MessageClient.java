@@ -18,7 +18,11 @@ package com.robo4j.net;
 
 import com.robo4j.RoboContext;
 import com.robo4j.configuration.Configuration;
+import com.robo4j.jfr.RemoteSendEvent;
 import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.tracing.Span;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracing;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -29,6 +33,9 @@ import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -155,8 +162,84 @@ public class MessageClient {
 		}
 	}
 
+	/**
+	 * Sends a batch of messages, split into frames of at most
+	 * {@link MessageProtocolConstants#MAX_BATCH_SIZE} messages, so that the
+	 * server never sees an oversized batch. If the connection fails, the
+	 * sending resumes from the frame that failed, so that the frames already
+	 * sent are not delivered twice.
+	 * 
+	 * @param id
+	 *            the id of the recipient.
+	 * @param messages
+	 *            the messages to send, in order.
+	 * @throws IOException
+	 *             if the messages could not be sent.
+	 */
+	public void sendMessages(String id, Collection<?> messages) throws IOException {
+		List<?> batch = new ArrayList<>(messages);
+		int sent = 0;
+		do {
+			int count = Math.min(batch.size() - sent, MessageProtocolConstants.MAX_BATCH_SIZE);
+			try {
+				deliverBatch(id, batch.subList(sent, sent + count));
+				sent += count;
+			} catch (IOException e) {
+				if (failCount < maxFailCount) {
+					failCount++;
+					connect();
+				} else {
+					throw e;
+				}
+			}
+		} while (sent < batch.size());
+	}
+
 	private void deliverMessage(String id, Object message) throws IOException {
-		objectOutputStream.writeUTF(id);
+		RemoteSendEvent event = new RemoteSendEvent();
+		event.begin();
+		try (TraceScope scope = Tracing.startSpan(Span.NAME_SEND, sourceUUID, id)) {
+			objectOutputStream.writeUTF(id);
+			writeTrace(scope);
+			writeMessage(message);
+			objectOutputStream.flush();
+		}
+		commit(event, id, 1);
+	}
+
+	private void deliverBatch(String id, List<?> messages) throws IOException {
+		RemoteSendEvent event = new RemoteSendEvent();
+		event.begin();
+		try (TraceScope scope = Tracing.startSpan(Span.NAME_SEND, sourceUUID, id)) {
+			objectOutputStream.writeUTF(id);
+			writeTrace(scope);
+			objectOutputStream.writeByte(MessageProtocolConstants.BATCH);
+			objectOutputStream.writeInt(messages.size());
+			for (Object message : messages) {
+				writeMessage(message);
+			}
+			objectOutputStream.flush();
+		}
+		commit(event, id, messages.size());
+	}
+
+	private void writeTrace(TraceScope scope) throws IOException {
+		if (scope.getContext() != null) {
+			objectOutputStream.writeByte(MessageProtocolConstants.TRACED);
+			objectOutputStream.writeUTF(scope.getContext().toTraceParent());
+		}
+	}
+
+	private void commit(RemoteSendEvent event, String id, int messageCount) {
+		if (event.isEnabled()) {
+			event.setTarget(messageServerURI.toString());
+			event.setUnit(id);
+			event.setMessageCount(messageCount);
+			event.commit();
+		}
+	}
+
+	private void writeMessage(Object message) throws IOException {
 		if (message instanceof String) {
 			objectOutputStream.writeByte(MessageProtocolConstants.MOD_UTF8);
 			objectOutputStream.writeUTF((String) message);
@@ -187,7 +270,6 @@ public class MessageClient {
 			objectOutputStream.writeByte(MessageProtocolConstants.OBJECT);
 			objectOutputStream.writeObject(message);
 		}
-		objectOutputStream.flush();
 	}
 
 	public boolean isConnected() {
@@ -73,5 +73,25 @@ interface MessageProtocolConstants {
 	 */
 	int REFERENCE = 64;
 
+	/**
+	 * A batch of messages. Followed by the number of messages as an int, and
+	 * then the type and data of each message.
+	 */
+	int BATCH = 96;
+
+	/**
+	 * The maximum number of messages in a batch. Larger batches are sent as
+	 * several frames.
+	 */
+	int MAX_BATCH_SIZE = 65536;
+
+	/**
+	 * The message, or batch, is traced. Followed by the trace context as a W3C
+	 * traceparent header value in modified UTF8, and then the type and data
+	 * of the message. Only sent when a trace is current, so that receivers
+	 * not knowing about tracing still understand untraced messages.
+	 */
+	int TRACED = 112;
+
 	short MAGIC = (short) 0xC0FE;
 }
@@ -17,7 +17,11 @@
 package com.robo4j.net;
 
 import com.robo4j.configuration.Configuration;
+import com.robo4j.jfr.RemoteReceiveEvent;
 import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.tracing.TraceContext;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracing;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
@@ -27,6 +31,8 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is a server that listens on messages, and sends them off to the
@@ -67,8 +73,37 @@ public class MessageServer {
 					ReferenceDesciptor.setCurrentContext(context);
 					while (running) {
 						String id = (String) objectInputStream.readUTF();
-						Object message = decodeMessage(objectInputStream);
-						callback.handleMessage(uuid, id, message);
+						// Begun after the id, so that waiting for the next
+						// message is not included
+						RemoteReceiveEvent event = new RemoteReceiveEvent();
+						event.begin();
+						byte dataType = objectInputStream.readByte();
+						TraceContext trace = null;
+						if (dataType == MessageProtocolConstants.TRACED) {
+							trace = TraceContext.fromTraceParent(objectInputStream.readUTF());
+							dataType = objectInputStream.readByte();
+						}
+						int messageCount = 1;
+						// The callback records the span of the hop, if
+						// tracing is enabled
+						TraceScope scope = Tracing.activate(trace, null);
+						try {
+							if (dataType == MessageProtocolConstants.BATCH) {
+								List<Object> messages = decodeMessages(objectInputStream);
+								messageCount = messages.size();
+								callback.handleMessages(uuid, id, messages);
+							} else {
+								callback.handleMessage(uuid, id, decodeMessage(objectInputStream, dataType));
+							}
+						} finally {
+							scope.close();
+						}
+						if (event.isEnabled()) {
+							event.setSource(uuid);
+							event.setUnit(id);
+							event.setMessageCount(messageCount);
+							event.commit();
+						}
 					}
 				} else {
 					SimpleLoggingUtil.error(getClass(),
@@ -89,8 +124,21 @@ public class MessageServer {
 
 		}
 
-		private Object decodeMessage(ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
-			byte dataType = objectInputStream.readByte();
+		private List<Object> decodeMessages(ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
+			int count = objectInputStream.readInt();
+			if (count < 0 || count > MessageProtocolConstants.MAX_BATCH_SIZE) {
+				throw new IOException("Got a batch of " + count + " messages, but at most "
+						+ MessageProtocolConstants.MAX_BATCH_SIZE + " are allowed!");
+			}
+			// Not presized, as the count has not been backed by any data yet
+			List<Object> messages = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				messages.add(decodeMessage(objectInputStream, objectInputStream.readByte()));
+			}
+			return messages;
+		}
+
+		private Object decodeMessage(ObjectInputStream objectInputStream, byte dataType) throws IOException, ClassNotFoundException {
 			switch (dataType) {
 			case MessageProtocolConstants.OBJECT:
 				return objectInputStream.readObject();
@@ -34,11 +34,16 @@ import com.robo4j.RoboUnit;
  * @author Miroslav Wengner (@miragemiko)
  */
 public class DefaultScheduler implements Scheduler {
+	/**
+	 * The name used to select this scheduler in the system configuration.
+	 */
+	public static final String NAME = "default";
 	private static final int DEFAULT_NUMBER_OF_THREADS = 2;
 	private static final int TERMINATION_TIMEOUT = 4;
 
 	private final ScheduledExecutorService executor;
 	private final RoboContext context;
+	private final PeriodicTimer.Timers periodicTimers = new PeriodicTimer.Timers();
 
 	/**
 	 * Default constructor.
@@ -74,7 +79,7 @@ public class DefaultScheduler implements Scheduler {
 	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long period, TimeUnit unit,
 			int numberOfInvocations, FinalInvocationListener listener) {
 		ScheduledMessageWrapper<T> command = createCommand(target, numberOfInvocations, message, listener);
-		ScheduledFuture<?> future = executor.scheduleAtFixedRate(command, delay, period, unit);
+		ScheduledFuture<?> future = executor.scheduleAtFixedRate(TrackedTask.track(NAME, command, delay, period, unit), delay, period, unit);
 		command.setFuture(future);
 		return future;
 	}
@@ -86,11 +91,13 @@ public class DefaultScheduler implements Scheduler {
 
 	@Override
 	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit) {
-		return executor.scheduleAtFixedRate(() -> deliverMessage(target, message), delay, interval, unit);
+		return executor.scheduleAtFixedRate(TrackedTask.track(NAME, () -> deliverMessage(target, message), delay, interval, unit), delay,
+				interval, unit);
 	}
 
 	@Override
 	public void shutdown() throws InterruptedException {
+		periodicTimers.shutdown();
 		executor.shutdown();
 		executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
 	}
@@ -108,12 +115,24 @@ public class DefaultScheduler implements Scheduler {
 
 	@Override
 	public ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit) {
-		return executor.scheduleAtFixedRate(runnable, delay, interval, unit);
+		return executor.scheduleAtFixedRate(TrackedTask.track(NAME, runnable, delay, interval, unit), delay, interval, unit);
 	}
 
 	@Override
 	public void schedule(Runnable runnable, long delay, TimeUnit unit) {
-		executor.schedule(runnable, delay, unit);
+		executor.schedule(TrackedTask.track(NAME, runnable, delay, 0, unit), delay, unit);
+	}
+
+	@Override
+	public PeriodicFuture schedulePeriodic(PeriodicTask task, long delay, long period, TimeUnit unit, PeriodicWaitStrategy waitStrategy) {
+		return periodicTimers.start(task, delay, period, unit, waitStrategy);
+	}
+
+	@Override
+	public SequenceFuture scheduleSequence(SequenceStep step, long delay, TimeUnit unit, FinalInvocationListener listener) {
+		return new ScheduledSequence(context, step, unit, listener, (r, delayNanos) -> executor
+				.schedule(TrackedTask.track(NAME, r, delayNanos, 0, TimeUnit.NANOSECONDS), delayNanos, TimeUnit.NANOSECONDS))
+				.start(delay);
 	}
 
 	@Override
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Service provider interface for the executors used to deliver messages to
+ * units. The provider to use for each delivery policy is selected in the
+ * system configuration, either by the name of the provider, or by the fully
+ * qualified name of a class implementing this interface.
+ * 
+ * <p>
+ * Providers can be registered using the {@link java.util.ServiceLoader}
+ * mechanism, in which case they can be selected by their name.
+ * </p>
+ * 
+ * @see ExecutorProviders
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface ExecutorProvider {
+	/**
+	 * Returns the name used to select the provider in the configuration.
+	 * 
+	 * @return the name of the provider.
+	 */
+	String getName();
+
+	/**
+	 * Creates a new executor.
+	 * 
+	 * @param name
+	 *            the name of the pool, to be used for naming threads.
+	 * @param poolSize
+	 *            the configured pool size. May be ignored by providers not
+	 *            using a fixed number of threads.
+	 * @return the executor. Will be shut down by the system.
+	 */
+	ExecutorService createExecutor(String name, int poolSize);
+}
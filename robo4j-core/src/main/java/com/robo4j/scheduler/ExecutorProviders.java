@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The built in {@link ExecutorProvider}s, and the lookup of providers by name.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class ExecutorProviders {
+	private static final int KEEP_ALIVE_TIME = 10;
+
+	/**
+	 * A fixed size thread pool with an unbounded queue. This is the default.
+	 */
+	public static final ExecutorProvider FIXED = new ExecutorProvider() {
+		@Override
+		public String getName() {
+			return "fixed";
+		}
+
+		@Override
+		public ExecutorService createExecutor(String name, int poolSize) {
+			return new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+					new RoboThreadFactory(new ThreadGroup(name), name, true));
+		}
+	};
+
+	/**
+	 * A work stealing fork join pool, in asynchronous (FIFO) mode.
+	 */
+	public static final ExecutorProvider FORK_JOIN = new ExecutorProvider() {
+		@Override
+		public String getName() {
+			return "forkJoin";
+		}
+
+		@Override
+		public ExecutorService createExecutor(String name, int poolSize) {
+			return new ForkJoinPool(poolSize, pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName(name + "-" + thread.getPoolIndex());
+				return thread;
+			}, null, true);
+		}
+	};
+
+	/**
+	 * Runs every task in a new virtual thread, which suits units blocking on
+	 * IO. The pool size is ignored. Falls back to a cached thread pool on
+	 * runtimes without virtual threads.
+	 */
+	public static final ExecutorProvider VIRTUAL = new ExecutorProvider() {
+		@Override
+		public String getName() {
+			return "virtual";
+		}
+
+		@Override
+		public ExecutorService createExecutor(String name, int poolSize) {
+			try {
+				MethodHandle factory = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+						MethodType.methodType(ExecutorService.class));
+				return (ExecutorService) factory.invoke();
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				SimpleLoggingUtil.info(ExecutorProviders.class,
+						"Virtual threads not supported by the runtime. Using a cached thread pool for " + name);
+				return Executors.newCachedThreadPool(new RoboThreadFactory(new ThreadGroup(name), name, true));
+			} catch (Throwable t) {
+				throw new IllegalStateException("Could not create virtual thread executor", t);
+			}
+		}
+	};
+
+	private static final ExecutorProvider[] BUILT_IN = { FIXED, FORK_JOIN, VIRTUAL };
+
+	private ExecutorProviders() {
+		// no instances
+	}
+
+	/**
+	 * Looks up an executor provider. First the built in providers are
+	 * searched, then the providers registered with the
+	 * {@link ServiceLoader}. Last, the name is taken to be the fully qualified
+	 * name of a class implementing {@link ExecutorProvider}.
+	 * 
+	 * @param name
+	 *            the name of the provider, or the name of the provider class.
+	 * @return the provider.
+	 * @throws IllegalArgumentException
+	 *             if no provider could be found.
+	 */
+	public static ExecutorProvider get(String name) {
+		for (ExecutorProvider provider : BUILT_IN) {
+			if (provider.getName().equalsIgnoreCase(name)) {
+				return provider;
+			}
+		}
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		for (ExecutorProvider provider : ServiceLoader.load(ExecutorProvider.class, loader)) {
+			if (provider.getName().equals(name)) {
+				return provider;
+			}
+		}
+		try {
+			Class<?> providerClass = loader.loadClass(name);
+			return (ExecutorProvider) providerClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException("Could not find executor provider " + name, e);
+		}
+	}
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import com.robo4j.RoboContext;
+import com.robo4j.RoboReference;
+import com.robo4j.jfr.ScheduledTaskEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A scheduler based on a hashed timing wheel. Scheduling and cancelling are
+ * O(1), at the cost of the scheduled tasks only being run at the resolution
+ * of the wheel tick. Suitable for systems with large numbers of timed
+ * messages, such as many periodic sensor polls.
+ * 
+ * <p>
+ * A single timer thread advances the wheel one tick at a time, and hands the
+ * expired tasks over to the worker threads, which also run the tasks
+ * submitted for immediate execution. The timer thread is parked while there
+ * is nothing scheduled.
+ * </p>
+ * 
+ * <p>
+ * Any tasks still waiting are cancelled on shutdown.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class HashedWheelScheduler implements Scheduler {
+	/**
+	 * The name used to select this scheduler in the system configuration.
+	 */
+	public static final String NAME = "wheel";
+	/**
+	 * The default duration of a tick, in microseconds.
+	 */
+	public static final int DEFAULT_TICK_MICROS = 1000;
+	/**
+	 * The default number of buckets in the wheel.
+	 */
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private static final String NAME_SCHEDULER_POOL = "Robo4J Scheduler";
+	private static final String NAME_TIMER_THREAD = "Robo4J Wheel Timer";
+	private static final int TERMINATION_TIMEOUT = 4;
+
+	private final RoboContext context;
+	private final PeriodicTimer.Timers periodicTimers = new PeriodicTimer.Timers();
+	private final ExecutorService executor;
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final long startTime;
+	private final Thread timerThread;
+
+	private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+	private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+	private volatile boolean running = true;
+	private volatile boolean idle;
+
+	// Only accessed by the timer thread
+	private long tick;
+	private int registeredCount;
+
+	/**
+	 * Doubly linked list of the timeouts in a wheel slot. Only accessed by the
+	 * timer thread.
+	 */
+	private static final class Bucket {
+		private WheelTimeout head;
+		private WheelTimeout tail;
+
+		void add(WheelTimeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		void remove(WheelTimeout timeout) {
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			} else {
+				tail = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+		}
+	}
+
+	private final class WheelTimeout extends FutureTask<Void> implements ScheduledFuture<Void> {
+		private final long period;
+		private final Class<?> taskClass;
+		private volatile long deadline;
+
+		// Only accessed by the timer thread
+		private long remainingRounds;
+		private WheelTimeout prev;
+		private WheelTimeout next;
+		private Bucket bucket;
+
+		WheelTimeout(Runnable task, long deadline, long period) {
+			super(task, null);
+			this.taskClass = task.getClass();
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (other == this) {
+				return 0;
+			}
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				cancelledTimeouts.add(this);
+			}
+			return cancelled;
+		}
+
+		@Override
+		public void run() {
+			ScheduledTaskEvent event = new ScheduledTaskEvent();
+			boolean recording = event.isEnabled();
+			if (recording) {
+				event.setLateness(System.nanoTime() - deadline);
+				event.begin();
+			}
+			boolean rescheduled;
+			if (period == 0) {
+				super.run();
+				rescheduled = false;
+			} else {
+				rescheduled = runAndReset();
+			}
+			if (recording) {
+				event.setScheduler(NAME);
+				event.setTask(taskClass);
+				event.commit();
+			}
+			if (rescheduled) {
+				deadline += period;
+				enqueue(this);
+			}
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *            the context.
+	 * @param numberOfThreads
+	 *            the number of worker threads.
+	 */
+	public HashedWheelScheduler(RoboContext context, int numberOfThreads) {
+		this(context, numberOfThreads, DEFAULT_TICK_MICROS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *            the context.
+	 * @param numberOfThreads
+	 *            the number of worker threads.
+	 * @param tickMicros
+	 *            the duration of a tick, in microseconds. Tasks are run at the
+	 *            end of the tick in which they expire.
+	 * @param wheelSize
+	 *            the number of buckets in the wheel. Will be rounded up to the
+	 *            closest power of two.
+	 */
+	public HashedWheelScheduler(RoboContext context, int numberOfThreads, int tickMicros, int wheelSize) {
+		if (tickMicros <= 0) {
+			throw new IllegalArgumentException("The tick must be positive, was " + tickMicros);
+		}
+		if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+			throw new IllegalArgumentException("The wheel size must be between 1 and 2^30, was " + wheelSize);
+		}
+		this.context = context;
+		this.executor = ExecutorProviders.FIXED.createExecutor(NAME_SCHEDULER_POOL, numberOfThreads);
+		this.tickNanos = TimeUnit.MICROSECONDS.toNanos(tickMicros);
+		int size = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+		this.startTime = System.nanoTime();
+		this.timerThread = new Thread(this::runWheel, NAME_TIMER_THREAD);
+		timerThread.setDaemon(true);
+		timerThread.start();
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit,
+			int numberOfInvocations) {
+		return schedule(target, message, delay, interval, unit, numberOfInvocations, null);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long period, TimeUnit unit,
+			int numberOfInvocations, FinalInvocationListener listener) {
+		ScheduledMessageWrapper<T> command = new ScheduledMessageWrapper<>(context, target, numberOfInvocations, message, listener);
+		WheelTimeout timeout = createTimeout(command, delay, checkPeriod(period), unit);
+		command.setFuture(timeout);
+		return register(timeout);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit) {
+		return register(createTimeout(() -> DefaultScheduler.deliverMessage(target, message), delay, checkPeriod(interval), unit));
+	}
+
+	@Override
+	public PeriodicFuture schedulePeriodic(PeriodicTask task, long delay, long period, TimeUnit unit, PeriodicWaitStrategy waitStrategy) {
+		return periodicTimers.start(task, delay, period, unit, waitStrategy);
+	}
+
+	@Override
+	public SequenceFuture scheduleSequence(SequenceStep step, long delay, TimeUnit unit, FinalInvocationListener listener) {
+		return new ScheduledSequence(context, step, unit, listener,
+				(r, delayNanos) -> register(createTimeout(r, delayNanos, 0, TimeUnit.NANOSECONDS))).start(delay);
+	}
+
+	@Override
+	public void execute(Runnable r) {
+		executor.execute(r);
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> r) {
+		return executor.submit(r);
+	}
+
+	@Override
+	public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+		register(createTimeout(runnable, delay, 0, unit));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit) {
+		return register(createTimeout(runnable, delay, checkPeriod(interval), unit));
+	}
+
+	@Override
+	public void shutdown() throws InterruptedException {
+		periodicTimers.shutdown();
+		running = false;
+		LockSupport.unpark(timerThread);
+		timerThread.join(TimeUnit.SECONDS.toMillis(TERMINATION_TIMEOUT));
+		executor.shutdown();
+		executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+	}
+
+	private WheelTimeout createTimeout(Runnable runnable, long delay, long period, TimeUnit unit) {
+		if (runnable == null) {
+			throw new NullPointerException("Cannot schedule null");
+		}
+		return new WheelTimeout(runnable, System.nanoTime() + unit.toNanos(Math.max(0, delay)), unit.toNanos(period));
+	}
+
+	private static long checkPeriod(long period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("The period must be positive, was " + period);
+		}
+		return period;
+	}
+
+	private WheelTimeout register(WheelTimeout timeout) {
+		if (!enqueue(timeout)) {
+			throw new RejectedExecutionException("The scheduler has been shut down");
+		}
+		return timeout;
+	}
+
+	private boolean enqueue(WheelTimeout timeout) {
+		pendingTimeouts.add(timeout);
+		if (!running) {
+			// The timer thread may already have cancelled what was pending
+			timeout.cancel(false);
+			return false;
+		}
+		if (idle) {
+			LockSupport.unpark(timerThread);
+		}
+		return true;
+	}
+
+	private void runWheel() {
+		while (running) {
+			if (registeredCount == 0 && pendingTimeouts.isEmpty()) {
+				idle = true;
+				// Re-checking after publishing the idle flag, so that a
+				// concurrent registration either sees the flag or is seen here.
+				if (pendingTimeouts.isEmpty() && running) {
+					LockSupport.park(this);
+				}
+				idle = false;
+				tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+				continue;
+			}
+			long tickDeadline = startTime + (tick + 1) * tickNanos;
+			if (!waitUntil(tickDeadline)) {
+				break;
+			}
+			transferPendingTimeouts();
+			removeCancelledTimeouts();
+			expireTimeouts(wheel[(int) (tick & mask)]);
+			tick++;
+		}
+		cancelAll();
+	}
+
+	private boolean waitUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(this, remaining);
+			if (!running) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void transferPendingTimeouts() {
+		WheelTimeout timeout;
+		while ((timeout = pendingTimeouts.poll()) != null) {
+			if (timeout.isCancelled()) {
+				continue;
+			}
+			long expiryTick = (timeout.deadline - startTime) / tickNanos;
+			timeout.remainingRounds = Math.max(0, expiryTick - tick) / wheel.length;
+			wheel[(int) (Math.max(expiryTick, tick) & mask)].add(timeout);
+			registeredCount++;
+		}
+	}
+
+	private void removeCancelledTimeouts() {
+		WheelTimeout timeout;
+		while ((timeout = cancelledTimeouts.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+				registeredCount--;
+			}
+		}
+	}
+
+	private void expireTimeouts(Bucket bucket) {
+		WheelTimeout timeout = bucket.head;
+		while (timeout != null) {
+			WheelTimeout next = timeout.next;
+			if (timeout.remainingRounds <= 0) {
+				bucket.remove(timeout);
+				registeredCount--;
+				dispatch(timeout);
+			} else {
+				timeout.remainingRounds--;
+			}
+			timeout = next;
+		}
+	}
+
+	private void dispatch(WheelTimeout timeout) {
+		try {
+			executor.execute(timeout);
+		} catch (RejectedExecutionException e) {
+			SimpleLoggingUtil.debug(getClass(), "Dropping scheduled task - the scheduler is shutting down");
+			timeout.cancel(false);
+		}
+	}
+
+	private void cancelAll() {
+		for (Bucket bucket : wheel) {
+			while (bucket.head != null) {
+				WheelTimeout timeout = bucket.head;
+				bucket.remove(timeout);
+				timeout.cancel(false);
+			}
+		}
+		WheelTimeout timeout;
+		while ((timeout = pendingTimeouts.poll()) != null) {
+			timeout.cancel(false);
+		}
+		cancelledTimeouts.clear();
+		registeredCount = 0;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The handle to a {@link PeriodicTask}. Provides the timing statistics of the
+ * task. A periodic task only completes when cancelled, or if the task throws
+ * an exception, in which case get() will throw an ExecutionException.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface PeriodicFuture extends ScheduledFuture<Void> {
+	/**
+	 * @return the number of times the task has been run.
+	 */
+	long getInvocationCount();
+
+	/**
+	 * @return the number of periods in which the task could not be run at
+	 *         all, since the previous invocation (or the thread) was running
+	 *         late by more than a period. The missed periods are skipped,
+	 *         rather than run back to back.
+	 */
+	long getMissedDeadlineCount();
+
+	/**
+	 * @param unit
+	 *            the unit to return the lateness in.
+	 * @return how late the most recent invocation started.
+	 */
+	long getLastLateness(TimeUnit unit);
+
+	/**
+	 * @param unit
+	 *            the unit to return the lateness in.
+	 * @return the worst lateness of any invocation so far.
+	 */
+	long getMaxLateness(TimeUnit unit);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timing of one invocation of a {@link PeriodicTask}. All times are in
+ * the {@link System#nanoTime()} time base.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class PeriodicInvocation {
+	private long sequence;
+	private long scheduledTime;
+	private long startTime;
+
+	PeriodicInvocation() {
+	}
+
+	void set(long sequence, long scheduledTime, long startTime) {
+		this.sequence = sequence;
+		this.scheduledTime = scheduledTime;
+		this.startTime = startTime;
+	}
+
+	/**
+	 * @return the number of the period this invocation was scheduled for,
+	 *         starting at 0. Periods skipped due to missed deadlines are
+	 *         counted, so the sequence may have gaps.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return the time this invocation was scheduled for, in nanoseconds.
+	 */
+	public long getScheduledTime() {
+		return scheduledTime;
+	}
+
+	/**
+	 * @return the time this invocation actually started, in nanoseconds.
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @param unit
+	 *            the unit to return the lateness in.
+	 * @return how late this invocation started, compared to when it was
+	 *         scheduled.
+	 */
+	public long getLateness(TimeUnit unit) {
+		return unit.convert(startTime - scheduledTime, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "PeriodicInvocation [sequence=" + sequence + ", scheduledTime=" + scheduledTime + ", startTime=" + startTime + "]";
+	}
+}
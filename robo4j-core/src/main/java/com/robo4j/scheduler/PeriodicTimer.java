@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import com.robo4j.jfr.ScheduledTaskEvent;
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link PeriodicTask} on a dedicated thread, on a fixed grid of
+ * {@link System#nanoTime()} based start times, so that late invocations do
+ * not make the following ones drift.
+ * 
+ * <p>
+ * Every timer has its own daemon thread, running at maximum priority until
+ * the timer is cancelled or the task fails. The threads are not pooled, and
+ * the number of timers is not bounded, so periodic tasks should be reserved
+ * for the few tasks with tight timing requirements.
+ * </p>
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class PeriodicTimer implements PeriodicFuture, Runnable {
+	/**
+	 * How long before the start of a period to stop parking and start
+	 * spinning, when using {@link PeriodicWaitStrategy#SPIN_THEN_PARK}.
+	 */
+	static final long SPIN_MICROS = 100;
+
+	private static final String NAME_PERIODIC_THREAD = "Robo4J Periodic";
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(SPIN_MICROS);
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final PeriodicTask task;
+	private final long period;
+	private final PeriodicWaitStrategy waitStrategy;
+	private final Set<PeriodicTimer> activeTimers;
+	private final Thread thread;
+	private final CountDownLatch terminated = new CountDownLatch(1);
+
+	private volatile long nextTime;
+	private volatile boolean cancelled;
+	private volatile Throwable failure;
+
+	// Only written by the timer thread
+	private volatile long invocationCount;
+	private volatile long missedDeadlineCount;
+	private volatile long lastLateness;
+	private volatile long maxLateness;
+
+	private PeriodicTimer(PeriodicTask task, long firstTime, long period, PeriodicWaitStrategy waitStrategy, Set<PeriodicTimer> activeTimers) {
+		this.task = task;
+		this.nextTime = firstTime;
+		this.period = period;
+		this.waitStrategy = waitStrategy;
+		this.activeTimers = activeTimers;
+		this.thread = new Thread(this, NAME_PERIODIC_THREAD + "-" + THREAD_COUNTER.incrementAndGet());
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+	}
+
+	/**
+	 * Keeps track of the periodic timers of a scheduler, so that they can be
+	 * cancelled when the scheduler is shut down.
+	 */
+	static final class Timers {
+		/**
+		 * The timers not owned by any scheduler, which are only stopped when
+		 * cancelled.
+		 */
+		static final Timers UNOWNED = new Timers();
+
+		private final Set<PeriodicTimer> activeTimers = ConcurrentHashMap.newKeySet();
+		private volatile boolean shutdown;
+
+		PeriodicFuture start(PeriodicTask task, long delay, long period, TimeUnit unit, PeriodicWaitStrategy waitStrategy) {
+			if (task == null || waitStrategy == null) {
+				throw new NullPointerException();
+			}
+			if (period <= 0) {
+				throw new IllegalArgumentException("The period must be positive, was " + period);
+			}
+			if (shutdown) {
+				throw new IllegalStateException("The scheduler has been shut down");
+			}
+			PeriodicTimer timer = new PeriodicTimer(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)), unit.toNanos(period),
+					waitStrategy, activeTimers);
+			activeTimers.add(timer);
+			timer.thread.start();
+			return timer;
+		}
+
+		void shutdown() {
+			shutdown = true;
+			activeTimers.forEach(timer -> timer.cancel(false));
+		}
+	}
+
+	@Override
+	public void run() {
+		PeriodicInvocation invocation = new PeriodicInvocation();
+		long scheduledTime = nextTime;
+		long sequence = 0;
+		try {
+			while (waitUntil(scheduledTime)) {
+				long startTime = System.nanoTime();
+				long lateness = startTime - scheduledTime;
+				if (lateness >= period) {
+					// Skip the periods we have already missed, rather than
+					// running them back to back.
+					long missed = lateness / period;
+					missedDeadlineCount += missed;
+					sequence += missed;
+					scheduledTime += missed * period;
+					lateness = startTime - scheduledTime;
+				}
+				lastLateness = lateness;
+				if (lateness > maxLateness) {
+					maxLateness = lateness;
+				}
+				invocation.set(sequence, scheduledTime, startTime);
+				ScheduledTaskEvent event = new ScheduledTaskEvent();
+				event.begin();
+				task.run(invocation);
+				if (event.isEnabled()) {
+					event.setScheduler(NAME_PERIODIC_THREAD);
+					event.setTask(task.getClass());
+					event.setLateness(lateness);
+					event.commit();
+				}
+				invocationCount++;
+				sequence++;
+				scheduledTime += period;
+				nextTime = scheduledTime;
+			}
+		} catch (Throwable t) {
+			failure = t;
+			SimpleLoggingUtil.error(getClass(), "Periodic task failed - will not be run again", t);
+		} finally {
+			activeTimers.remove(this);
+			terminated.countDown();
+		}
+	}
+
+	private boolean waitUntil(long time) {
+		long spinNanos = waitStrategy == PeriodicWaitStrategy.SPIN_THEN_PARK ? SPIN_NANOS : 0;
+		long remaining;
+		while ((remaining = time - System.nanoTime()) > spinNanos) {
+			LockSupport.parkNanos(this, remaining - spinNanos);
+			if (cancelled) {
+				return false;
+			}
+			// Clears any interrupt left behind by the task, which would
+			// otherwise make every park return at once
+			Thread.interrupted();
+		}
+		while (System.nanoTime() - time < 0) {
+			Thread.onSpinWait();
+		}
+		return !cancelled;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (cancelled || terminated.getCount() == 0) {
+			return false;
+		}
+		cancelled = true;
+		if (mayInterruptIfRunning) {
+			thread.interrupt();
+		}
+		LockSupport.unpark(thread);
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return cancelled || terminated.getCount() == 0;
+	}
+
+	@Override
+	public Void get() throws InterruptedException, ExecutionException {
+		terminated.await();
+		return report();
+	}
+
+	@Override
+	public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!terminated.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return report();
+	}
+
+	private Void report() throws ExecutionException {
+		if (failure != null) {
+			throw new ExecutionException(failure);
+		}
+		throw new CancellationException();
+	}
+
+	@Override
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(nextTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int compareTo(Delayed other) {
+		if (other == this) {
+			return 0;
+		}
+		return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+	}
+
+	@Override
+	public long getInvocationCount() {
+		return invocationCount;
+	}
+
+	@Override
+	public long getMissedDeadlineCount() {
+		return missedDeadlineCount;
+	}
+
+	@Override
+	public long getLastLateness(TimeUnit unit) {
+		return unit.convert(lastLateness, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public long getMaxLateness(TimeUnit unit) {
+		return unit.convert(maxLateness, TimeUnit.NANOSECONDS);
+	}
+}
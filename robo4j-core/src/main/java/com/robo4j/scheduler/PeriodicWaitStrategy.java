@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+/**
+ * How the thread running a {@link PeriodicTask} waits for the next period.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public enum PeriodicWaitStrategy {
+	/**
+	 * Parks the thread until the next period. Cheap, but the wake up time
+	 * depends on the timer resolution of the operating system, which is
+	 * typically in the range of 50 µs to a few ms.
+	 */
+	PARK,
+	/**
+	 * Parks the thread until shortly before the next period, and then spins
+	 * until the period starts. Suitable for sub millisecond periods, at the
+	 * cost of keeping a core busy for the last
+	 * 100 µs of each period.
+	 */
+	SPIN_THEN_PARK
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import com.robo4j.RoboContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a {@link SequenceStep} by scheduling one step at a time. The due time
+ * of each step is calculated from the due time of the previous step, so that
+ * lateness does not accumulate over the sequence.
+ * 
+ * <p>
+ * Internal implementation class.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class ScheduledSequence implements SequenceFuture, Runnable {
+	/**
+	 * The one-shot scheduling of the scheduler running the sequence. Returns
+	 * null if the scheduled step cannot be cancelled, in which case a
+	 * cancelled sequence skips the step when it runs.
+	 */
+	@FunctionalInterface
+	interface StepScheduler {
+		ScheduledFuture<?> schedule(Runnable step, long delayNanos);
+	}
+
+	private final CompletableFuture<Void> completion = new CompletableFuture<>();
+	private final RoboContext context;
+	private final SequenceStep step;
+	private final TimeUnit unit;
+	private final FinalInvocationListener listener;
+	private final StepScheduler scheduler;
+	private volatile long dueTime;
+	private volatile int completedSteps;
+	private volatile ScheduledFuture<?> current;
+
+	ScheduledSequence(RoboContext context, SequenceStep step, TimeUnit unit, FinalInvocationListener listener, StepScheduler scheduler) {
+		if (step == null) {
+			throw new NullPointerException("Cannot schedule null");
+		}
+		this.context = context;
+		this.step = step;
+		this.unit = unit;
+		this.listener = listener;
+		this.scheduler = scheduler;
+	}
+
+	ScheduledSequence start(long delay) {
+		dueTime = System.nanoTime() + unit.toNanos(Math.max(0, delay));
+		scheduleNext();
+		return this;
+	}
+
+	@Override
+	public void run() {
+		if (completion.isDone()) {
+			return;
+		}
+		long delay;
+		try {
+			delay = step.run(completedSteps);
+		} catch (Throwable t) {
+			completion.completeExceptionally(t);
+			return;
+		}
+		completedSteps++;
+		if (delay < 0) {
+			// Notifying first, so that the listener has run when get() returns
+			try {
+				if (listener != null && !completion.isCancelled()) {
+					listener.onFinalInvocation(context);
+				}
+			} finally {
+				completion.complete(null);
+			}
+		} else {
+			dueTime += unit.toNanos(delay);
+			scheduleNext();
+		}
+	}
+
+	private void scheduleNext() {
+		ScheduledFuture<?> future;
+		try {
+			future = scheduler.schedule(this, dueTime - System.nanoTime());
+		} catch (RejectedExecutionException e) {
+			completion.completeExceptionally(e);
+			return;
+		}
+		current = future;
+		// Cancelled while scheduling - the cancel may not have seen the future
+		if (completion.isCancelled() && future != null) {
+			future.cancel(false);
+		}
+	}
+
+	@Override
+	public int getCompletedSteps() {
+		return completedSteps;
+	}
+
+	@Override
+	public long getDelay(TimeUnit unit) {
+		return unit.convert(dueTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int compareTo(Delayed other) {
+		if (other == this) {
+			return 0;
+		}
+		return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean cancelled = completion.cancel(mayInterruptIfRunning);
+		ScheduledFuture<?> future = current;
+		if (cancelled && future != null) {
+			future.cancel(mayInterruptIfRunning);
+		}
+		return cancelled;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return completion.isCancelled();
+	}
+
+	@Override
+	public boolean isDone() {
+		return completion.isDone();
+	}
+
+	@Override
+	public Void get() throws InterruptedException, ExecutionException {
+		return completion.get();
+	}
+
+	@Override
+	public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		return completion.get(timeout, unit);
+	}
+}
@@ -146,6 +146,96 @@ public interface Scheduler {
 	 */
 	ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit);
 
+	/**
+	 * Runs a task periodically, on its own thread, using high resolution
+	 * timing. The start times are kept on a fixed grid, so that a late
+	 * invocation does not delay the ones after it. Each invocation is told when
+	 * it was scheduled to start and when it actually started, and the returned
+	 * future keeps count of the deadline misses.
+	 * 
+	 * <p>
+	 * Every call starts a new daemon thread, running at maximum priority until
+	 * the returned future is cancelled. The threads are not pooled, so use this
+	 * sparingly, for the tasks with tight timing requirements, and use
+	 * {@link #scheduleAtFixedRate(Runnable, long, long, TimeUnit)} for the
+	 * rest.
+	 * </p>
+	 * 
+	 * <p>
+	 * The default implementation runs the task on a timer which is not owned
+	 * by the scheduler, and which is therefore not stopped by
+	 * {@link #shutdown()}. Cancel the returned future to stop it.
+	 * </p>
+	 * 
+	 * @param task
+	 *            the task to run.
+	 * @param delay
+	 *            the time to delay first execution.
+	 * @param period
+	 *            the period between the start of successive executions.
+	 * @param unit
+	 *            the time unit of the delay and period parameters.
+	 * @param waitStrategy
+	 *            how to wait for the next period.
+	 * @return the future for the task, which also provides its timing
+	 *         statistics.
+	 */
+	default PeriodicFuture schedulePeriodic(PeriodicTask task, long delay, long period, TimeUnit unit, PeriodicWaitStrategy waitStrategy) {
+		return PeriodicTimer.Timers.UNOWNED.start(task, delay, period, unit, waitStrategy);
+	}
+
+	/**
+	 * Runs a sequence of steps, where each step decides the delay until the
+	 * next one. The delays are measured between the times the steps were due,
+	 * so that a late step does not push back the rest of the sequence.
+	 * 
+	 * <p>
+	 * The default implementation schedules the steps one at a time with
+	 * {@link #schedule(Runnable, long, TimeUnit)}, and calls the listener with
+	 * a null context.
+	 * </p>
+	 * 
+	 * @param step
+	 *            the step to run.
+	 * @param delay
+	 *            the time to delay the first step.
+	 * @param unit
+	 *            the time unit of the delay, and of the delays returned by the
+	 *            step.
+	 * @param listener
+	 *            a listener which will be called after the final step, or
+	 *            null.
+	 * @return a single handle for the whole sequence.
+	 */
+	default SequenceFuture scheduleSequence(SequenceStep step, long delay, TimeUnit unit, FinalInvocationListener listener) {
+		return new ScheduledSequence(null, step, unit, listener, (r, delayNanos) -> {
+			schedule(r, delayNanos, TimeUnit.NANOSECONDS);
+			return null;
+		}).start(delay);
+	}
+
+	/**
+	 * Runs a task at the given offsets from now.
+	 * 
+	 * @param task
+	 *            the task to run.
+	 * @param offsets
+	 *            the increasing offsets at which to run the task.
+	 * @param unit
+	 *            the time unit of the offsets.
+	 * @param listener
+	 *            a listener which will be called after the final run, or null.
+	 * @return a single handle for all the runs.
+	 * @throws IllegalArgumentException
+	 *             if there are no offsets, or if they are not increasing.
+	 * @see SequenceStep#ofOffsets(Runnable, long...)
+	 */
+	default SequenceFuture scheduleSequence(Runnable task, long[] offsets, TimeUnit unit, FinalInvocationListener listener) {
+		// Validates the offsets before the first one is used
+		SequenceStep step = SequenceStep.ofOffsets(task, offsets);
+		return scheduleSequence(step, offsets[0], unit, listener);
+	}
+
 	/**
 	 * Scheduler shutdown
 	 *
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * The handle to a sequence scheduled with
+ * {@link Scheduler#scheduleSequence(SequenceStep, long, java.util.concurrent.TimeUnit, FinalInvocationListener)}.
+ * Cancelling it cancels whatever remains of the sequence. get() returns once
+ * the last step has run, and throws an ExecutionException if a step failed.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface SequenceFuture extends ScheduledFuture<Void> {
+	/**
+	 * @return the number of steps run so far.
+	 */
+	int getCompletedSteps();
+}
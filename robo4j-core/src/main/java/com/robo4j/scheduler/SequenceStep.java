@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+/**
+ * One step of a sequence scheduled with
+ * {@link Scheduler#scheduleSequence(SequenceStep, long, java.util.concurrent.TimeUnit, FinalInvocationListener)}.
+ * The step decides when the next step is due, which makes it possible to run
+ * trajectories, scans and similar timed sequences with a single handle.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+@FunctionalInterface
+public interface SequenceStep {
+	/**
+	 * Returned by a step to end the sequence.
+	 */
+	long DONE = -1;
+
+	/**
+	 * Runs one step of the sequence.
+	 * 
+	 * @param step
+	 *            the index of the step, starting at 0.
+	 * @return the delay from the time this step was due until the next step is
+	 *         due, in the time unit of the sequence, or a negative value (such
+	 *         as {@link #DONE}) if this was the last step.
+	 */
+	long run(int step);
+
+	/**
+	 * Creates a sequence step running the same task at fixed offsets from the
+	 * start of the sequence. The first offset is the delay to use when
+	 * scheduling the sequence.
+	 * 
+	 * @param task
+	 *            the task to run at each offset.
+	 * @param offsets
+	 *            the increasing offsets from the start of the sequence.
+	 * @return the sequence step.
+	 * @throws IllegalArgumentException
+	 *             if there are no offsets, or if they are not increasing.
+	 */
+	static SequenceStep ofOffsets(Runnable task, long... offsets) {
+		if (offsets.length == 0) {
+			throw new IllegalArgumentException("A sequence needs at least one offset");
+		}
+		for (int i = 1; i < offsets.length; i++) {
+			if (offsets[i] <= offsets[i - 1]) {
+				throw new IllegalArgumentException("The offsets must be increasing, offset " + i + " was " + offsets[i]);
+			}
+		}
+		final long[] copy = offsets.clone();
+		return step -> {
+			task.run();
+			return step + 1 < copy.length ? copy[step + 1] - copy[step] : DONE;
+		};
+	}
+}
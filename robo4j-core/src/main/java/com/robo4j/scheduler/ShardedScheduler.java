@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import com.robo4j.RoboContext;
+import com.robo4j.RoboReference;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A scheduler split into shards, each with its own thread and delay queue.
+ * Work for a unit is pinned to a shard by the hash of the unit id, which
+ * keeps the unit on the same thread and spreads the contention on the delay
+ * queues over the shards. Messages scheduled to a reference are placed on the
+ * shard of the reference, and the system uses the shard of a unit to deliver
+ * its messages. Work not associated with a unit is spread over the shards.
+ * 
+ * <p>
+ * The time each shard spends running tasks is recorded, so that an uneven
+ * distribution of the units over the shards can be spotted.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class ShardedScheduler implements Scheduler {
+	/**
+	 * The name used to select this scheduler in the system configuration.
+	 */
+	public static final String NAME = "sharded";
+
+	private static final String NAME_SHARD_THREAD = "Robo4J Scheduler Shard ";
+	private static final int TERMINATION_TIMEOUT = 4;
+
+	private final RoboContext context;
+	private final PeriodicTimer.Timers periodicTimers = new PeriodicTimer.Timers();
+	private final Shard[] shards;
+	private final AtomicInteger nextShard = new AtomicInteger();
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * One shard, which is a complete scheduler running on a single thread. The
+	 * shard is also the executor handed out for its units, so that the same
+	 * instance is used for all of them.
+	 */
+	private final class Shard implements Scheduler, Executor {
+		private final ScheduledThreadPoolExecutor executor;
+		private final LongAdder busyNanos = new LongAdder();
+		private final LongAdder executedCount = new LongAdder();
+
+		Shard(int index) {
+			ThreadGroup group = new ThreadGroup(NAME_SHARD_THREAD + index);
+			this.executor = new ScheduledThreadPoolExecutor(1, new RoboThreadFactory(group, NAME_SHARD_THREAD + index, true));
+			executor.setRemoveOnCancelPolicy(true);
+		}
+
+		private Runnable timed(Runnable runnable) {
+			if (runnable == null) {
+				throw new NullPointerException("Cannot schedule null");
+			}
+			return () -> {
+				long start = System.nanoTime();
+				try {
+					runnable.run();
+				} finally {
+					busyNanos.add(System.nanoTime() - start);
+					executedCount.increment();
+				}
+			};
+		}
+
+		@Override
+		public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit,
+				int numberOfInvocations) {
+			return schedule(target, message, delay, interval, unit, numberOfInvocations, null);
+		}
+
+		@Override
+		public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long period, TimeUnit unit,
+				int numberOfInvocations, FinalInvocationListener listener) {
+			ScheduledMessageWrapper<T> command = new ScheduledMessageWrapper<>(context, target, numberOfInvocations, message, listener);
+			ScheduledFuture<?> future = executor.scheduleAtFixedRate(timed(TrackedTask.track(NAME, command, delay, period, unit)), delay, period, unit);
+			command.setFuture(future);
+			return future;
+		}
+
+		@Override
+		public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit) {
+			return executor.scheduleAtFixedRate(
+					timed(TrackedTask.track(NAME, () -> DefaultScheduler.deliverMessage(target, message), delay, interval, unit)), delay, interval,
+					unit);
+		}
+
+		@Override
+		public void execute(Runnable r) {
+			executor.execute(timed(r));
+		}
+
+		@Override
+		public <T> Future<T> submit(Callable<T> r) {
+			if (r == null) {
+				throw new NullPointerException("Cannot submit null");
+			}
+			return executor.submit(() -> {
+				long start = System.nanoTime();
+				try {
+					return r.call();
+				} finally {
+					busyNanos.add(System.nanoTime() - start);
+					executedCount.increment();
+				}
+			});
+		}
+
+		@Override
+		public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+			executor.schedule(timed(TrackedTask.track(NAME, runnable, delay, 0, unit)), delay, unit);
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit) {
+			return executor.scheduleAtFixedRate(timed(TrackedTask.track(NAME, runnable, delay, interval, unit)), delay, interval, unit);
+		}
+
+		@Override
+		public SequenceFuture scheduleSequence(SequenceStep step, long delay, TimeUnit unit, FinalInvocationListener listener) {
+			return new ScheduledSequence(context, step, unit, listener,
+					(r, delayNanos) -> executor.schedule(timed(TrackedTask.track(NAME, r, delayNanos, 0, TimeUnit.NANOSECONDS)), delayNanos,
+							TimeUnit.NANOSECONDS)).start(delay);
+		}
+
+		@Override
+		public PeriodicFuture schedulePeriodic(PeriodicTask task, long delay, long period, TimeUnit unit, PeriodicWaitStrategy waitStrategy) {
+			// Periodic tasks run on their own threads anyway
+			return periodicTimers.start(task, delay, period, unit, waitStrategy);
+		}
+
+		@Override
+		public void shutdown() throws InterruptedException {
+			executor.shutdown();
+			executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *            the context.
+	 * @param numberOfShards
+	 *            the number of shards, and thereby threads.
+	 */
+	public ShardedScheduler(RoboContext context, int numberOfShards) {
+		if (numberOfShards <= 0) {
+			throw new IllegalArgumentException("The number of shards must be positive, was " + numberOfShards);
+		}
+		this.context = context;
+		this.shards = new Shard[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			shards[i] = new Shard(i);
+		}
+	}
+
+	/**
+	 * @return the number of shards.
+	 */
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * @param key
+	 *            the key, usually a unit id.
+	 * @return the index of the shard the key is pinned to.
+	 */
+	public int getShardIndex(String key) {
+		int hash = key.hashCode();
+		// Spreading the high bits, as unit ids often only differ at the end
+		return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+	}
+
+	/**
+	 * Returns a scheduler running everything on the shard the key is pinned
+	 * to. Use it to keep the scheduled work of a unit on the same thread as
+	 * the delivery of its messages.
+	 * 
+	 * @param key
+	 *            the key, usually a unit id.
+	 * @return the scheduler for the shard of the key.
+	 */
+	public Scheduler getShard(String key) {
+		return shards[getShardIndex(key)];
+	}
+
+	/**
+	 * @param key
+	 *            the key, usually a unit id.
+	 * @return an executor running on the shard of the key. The same instance
+	 *         is returned for all the keys of a shard.
+	 */
+	public Executor getExecutor(String key) {
+		return shards[getShardIndex(key)];
+	}
+
+	/**
+	 * @param shard
+	 *            the index of the shard.
+	 * @return the share of the time since the scheduler was created that the
+	 *         shard has spent running tasks, between 0 and 1.
+	 */
+	public double getUtilization(int shard) {
+		long elapsed = System.nanoTime() - startTime;
+		return elapsed <= 0 ? 0 : Math.min(1.0, shards[shard].busyNanos.sum() / (double) elapsed);
+	}
+
+	/**
+	 * @param shard
+	 *            the index of the shard.
+	 * @param unit
+	 *            the unit to return the time in.
+	 * @return the total time the shard has spent running tasks. Sample it
+	 *         periodically to get the utilization over an interval.
+	 */
+	public long getBusyTime(int shard, TimeUnit unit) {
+		return unit.convert(shards[shard].busyNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param shard
+	 *            the index of the shard.
+	 * @return the number of tasks the shard has run.
+	 */
+	public long getExecutedCount(int shard) {
+		return shards[shard].executedCount.sum();
+	}
+
+	/**
+	 * @param shard
+	 *            the index of the shard.
+	 * @return the number of tasks waiting in the queue of the shard.
+	 */
+	public int getQueueSize(int shard) {
+		return shards[shard].executor.getQueue().size();
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit,
+			int numberOfInvocations) {
+		return getShard(target.getId()).schedule(target, message, delay, interval, unit, numberOfInvocations);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long period, TimeUnit unit,
+			int numberOfInvocations, FinalInvocationListener listener) {
+		return getShard(target.getId()).schedule(target, message, delay, period, unit, numberOfInvocations, listener);
+	}
+
+	@Override
+	public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit) {
+		return getShard(target.getId()).schedule(target, message, delay, interval, unit);
+	}
+
+	@Override
+	public void execute(Runnable r) {
+		nextShard().execute(r);
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> r) {
+		return nextShard().submit(r);
+	}
+
+	@Override
+	public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+		nextShard().schedule(runnable, delay, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit) {
+		return nextShard().scheduleAtFixedRate(runnable, delay, interval, unit);
+	}
+
+	@Override
+	public SequenceFuture scheduleSequence(SequenceStep step, long delay, TimeUnit unit, FinalInvocationListener listener) {
+		return nextShard().scheduleSequence(step, delay, unit, listener);
+	}
+
+	@Override
+	public PeriodicFuture schedulePeriodic(PeriodicTask task, long delay, long period, TimeUnit unit, PeriodicWaitStrategy waitStrategy) {
+		return periodicTimers.start(task, delay, period, unit, waitStrategy);
+	}
+
+	@Override
+	public void shutdown() throws InterruptedException {
+		periodicTimers.shutdown();
+		for (Shard shard : shards) {
+			shard.executor.shutdown();
+		}
+		for (Shard shard : shards) {
+			shard.shutdown();
+		}
+	}
+
+	private Shard nextShard() {
+		return shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)];
+	}
+}
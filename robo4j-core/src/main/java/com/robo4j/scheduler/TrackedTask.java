@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import com.robo4j.jfr.ScheduledTaskEvent;
+
+/**
+ * Wraps a task scheduled on a {@link java.util.concurrent.ScheduledExecutorService},
+ * keeping track of when each run is due, so that a
+ * {@link ScheduledTaskEvent} with the lateness can be recorded for every run.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+final class TrackedTask implements Runnable {
+	private final String scheduler;
+	private final Runnable task;
+	private final long period;
+	// Only accessed by the thread running the task, and runs are ordered by
+	// the executor.
+	private long due;
+
+	private TrackedTask(String scheduler, Runnable task, long due, long period) {
+		this.scheduler = scheduler;
+		this.task = task;
+		this.due = due;
+		this.period = period;
+	}
+
+	/**
+	 * Wraps a task.
+	 * 
+	 * @param scheduler
+	 *            the name of the scheduler.
+	 * @param task
+	 *            the task.
+	 * @param delay
+	 *            the delay until the first run.
+	 * @param period
+	 *            the period between the runs, or 0 if the task only runs once.
+	 * @param unit
+	 *            the time unit of the delay and the period.
+	 * @return the wrapped task.
+	 */
+	static Runnable track(String scheduler, Runnable task, long delay, long period, TimeUnit unit) {
+		if (task == null) {
+			throw new NullPointerException("Cannot schedule null");
+		}
+		return new TrackedTask(scheduler, task, System.nanoTime() + unit.toNanos(Math.max(0, delay)), unit.toNanos(period));
+	}
+
+	@Override
+	public void run() {
+		ScheduledTaskEvent event = new ScheduledTaskEvent();
+		long runDue = due;
+		due += period;
+		if (!event.isEnabled()) {
+			task.run();
+			return;
+		}
+		event.setLateness(System.nanoTime() - runDue);
+		event.begin();
+		try {
+			task.run();
+		} finally {
+			event.setScheduler(scheduler);
+			event.setTask(task.getClass());
+			event.commit();
+		}
+	}
+}
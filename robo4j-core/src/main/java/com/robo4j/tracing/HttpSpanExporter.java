@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.tracing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Posts the spans to an HTTP endpoint, as a JSON array per batch.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class HttpSpanExporter implements SpanExporter {
+	private static final int TIMEOUT_MILLIS = 5000;
+
+	private final URI endpoint;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param endpoint
+	 *            the http or https URI to post the spans to.
+	 */
+	public HttpSpanExporter(URI endpoint) {
+		String scheme = endpoint.getScheme();
+		if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+			throw new IllegalArgumentException("Can only export spans over http(s), not to " + endpoint);
+		}
+		this.endpoint = endpoint;
+	}
+
+	@Override
+	public void export(List<Span> spans) throws IOException {
+		StringBuilder builder = new StringBuilder(spans.size() * 256);
+		builder.append('[');
+		for (int i = 0; i < spans.size(); i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append(spans.get(i).toJson());
+		}
+		byte[] body = builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+		HttpURLConnection connection = (HttpURLConnection) endpoint.toURL().openConnection();
+		connection.setRequestMethod("POST");
+		connection.setConnectTimeout(TIMEOUT_MILLIS);
+		connection.setReadTimeout(TIMEOUT_MILLIS);
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+		connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+		int code = connection.getResponseCode();
+		if (code >= 300) {
+			connection.disconnect();
+			throw new IOException("Got " + code + " when exporting spans to " + endpoint);
+		}
+		try (InputStream in = connection.getInputStream()) {
+			// Drained, so that the connection can be kept alive.
+			while (in.read() != -1) {
+			}
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.tracing;
+
+/**
+ * A completed span: one hop of a message on its way through the system, like
+ * the delivery to a unit, or the sending to another process.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class Span {
+	/**
+	 * The span of a trace started by a unit.
+	 */
+	public static final String NAME_ORIGIN = "origin";
+	/**
+	 * The span from a message being posted to a unit, until the unit is done
+	 * with it.
+	 */
+	public static final String NAME_DELIVER = "deliver";
+	/**
+	 * The span of sending a message to a remote context.
+	 */
+	public static final String NAME_SEND = "send";
+	/**
+	 * The span of handing over a message received from a remote context.
+	 */
+	public static final String NAME_RECEIVE = "receive";
+
+	private final TraceContext context;
+	private final String name;
+	private final String contextId;
+	private final String unit;
+	private final long startTime;
+	private final long duration;
+	private final long queueTime;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param context
+	 *            the trace context of the span.
+	 * @param name
+	 *            what kind of hop the span is, for example
+	 *            {@link #NAME_DELIVER}.
+	 * @param contextId
+	 *            the id of the context in which the span was recorded.
+	 * @param unit
+	 *            the id of the unit the span is about.
+	 * @param startTime
+	 *            the start of the span, in microseconds since the epoch.
+	 * @param duration
+	 *            the duration of the span, in nanoseconds.
+	 * @param queueTime
+	 *            how much of the duration, in nanoseconds, the message spent
+	 *            waiting to be delivered.
+	 */
+	public Span(TraceContext context, String name, String contextId, String unit, long startTime, long duration,
+			long queueTime) {
+		this.context = context;
+		this.name = name;
+		this.contextId = contextId;
+		this.unit = unit;
+		this.startTime = startTime;
+		this.duration = duration;
+		this.queueTime = queueTime;
+	}
+
+	public TraceContext getContext() {
+		return context;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getContextId() {
+		return contextId;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * @return the start of the span, in microseconds since the epoch.
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return the duration of the span, in nanoseconds.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return the time, in nanoseconds, the message spent waiting to be
+	 *         delivered.
+	 */
+	public long getQueueTime() {
+		return queueTime;
+	}
+
+	/**
+	 * @return the span as a single line JSON object.
+	 */
+	public String toJson() {
+		StringBuilder builder = new StringBuilder(256);
+		builder.append("{\"traceId\":\"").append(context.getTraceId());
+		builder.append("\",\"spanId\":\"").append(TraceContext.toHex(context.getSpanId()));
+		if (context.getParentSpanId() != TraceContext.NO_PARENT) {
+			builder.append("\",\"parentSpanId\":\"").append(TraceContext.toHex(context.getParentSpanId()));
+		}
+		builder.append("\",\"name\":");
+		appendString(builder, name);
+		builder.append(",\"context\":");
+		appendString(builder, contextId);
+		builder.append(",\"unit\":");
+		appendString(builder, unit);
+		builder.append(",\"startTime\":").append(startTime);
+		builder.append(",\"duration\":").append(duration);
+		builder.append(",\"queueTime\":").append(queueTime);
+		return builder.append('}').toString();
+	}
+
+	@Override
+	public String toString() {
+		return "Span [name=" + name + ", unit=" + unit + ", " + context + ", duration=" + duration + "]";
+	}
+
+	private static void appendString(StringBuilder builder, String value) {
+		if (value == null) {
+			builder.append("null");
+			return;
+		}
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < ' ') {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+}
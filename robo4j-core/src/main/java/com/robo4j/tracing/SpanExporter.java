@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.tracing;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Ships completed spans somewhere they can be assembled into traces. Always
+ * called from the single export thread of the {@link Tracer}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public interface SpanExporter {
+	/**
+	 * Exports a batch of spans.
+	 * 
+	 * @param spans
+	 *            the spans, in the order they were completed.
+	 * @throws IOException
+	 *             if the spans could not be exported. They will not be
+	 *             retried.
+	 */
+	void export(List<Span> spans) throws IOException;
+
+	/**
+	 * Releases any resources held. No more spans will be exported.
+	 * 
+	 * @throws IOException
+	 *             if the resources could not be released.
+	 */
+	default void close() throws IOException {
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.tracing;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identifies a span of a trace: the trace it belongs to, the span itself, and
+ * the span it was started from. Travels with the messages sent while it is
+ * current, see {@link Tracing}.
+ * 
+ * <p>
+ * Across processes, the context is passed in the format of the W3C
+ * <code>traceparent</code> header, so that the traces can be joined with the
+ * ones of other tools.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class TraceContext implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final String VERSION = "00";
+	private static final String FLAGS_SAMPLED = "01";
+	private static final int TRACE_ID_LENGTH = 32;
+	private static final int SPAN_ID_LENGTH = 16;
+	private static final int TRACE_PARENT_LENGTH = 55;
+
+	/**
+	 * The parent span id of the root span of a trace.
+	 */
+	public static final long NO_PARENT = 0;
+
+	private final String traceId;
+	private final long spanId;
+	private final long parentSpanId;
+
+	TraceContext(String traceId, long spanId, long parentSpanId) {
+		this.traceId = traceId;
+		this.spanId = spanId;
+		this.parentSpanId = parentSpanId;
+	}
+
+	/**
+	 * @return the context of the root span of a new trace.
+	 */
+	public static TraceContext newTrace() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return new TraceContext(toHex(newId(random)) + toHex(newId(random)), newId(random), NO_PARENT);
+	}
+
+	/**
+	 * @return the context of a new span, started from this one.
+	 */
+	public TraceContext newChild() {
+		return new TraceContext(traceId, newId(ThreadLocalRandom.current()), spanId);
+	}
+
+	/**
+	 * Parses a W3C <code>traceparent</code> header. The span id of the header
+	 * is the one of the remote span, which the local spans are started from.
+	 * 
+	 * @param traceParent
+	 *            the header value.
+	 * @return the remote context, or null if the header value could not be
+	 *         parsed, in which case it should be ignored.
+	 */
+	public static TraceContext fromTraceParent(String traceParent) {
+		if (traceParent == null) {
+			return null;
+		}
+		String value = traceParent.trim();
+		if (value.length() < TRACE_PARENT_LENGTH || value.charAt(2) != '-' || value.charAt(35) != '-'
+				|| value.charAt(52) != '-') {
+			return null;
+		}
+		String traceId = value.substring(3, 3 + TRACE_ID_LENGTH);
+		String spanId = value.substring(36, 36 + SPAN_ID_LENGTH);
+		if (!isHex(traceId) || !isHex(spanId)) {
+			return null;
+		}
+		return new TraceContext(traceId, Long.parseUnsignedLong(spanId, 16), NO_PARENT);
+	}
+
+	/**
+	 * @return this context as a W3C <code>traceparent</code> header value.
+	 */
+	public String toTraceParent() {
+		return VERSION + '-' + traceId + '-' + toHex(spanId) + '-' + FLAGS_SAMPLED;
+	}
+
+	/**
+	 * @return the id of the trace, as 32 lower case hex digits.
+	 */
+	public String getTraceId() {
+		return traceId;
+	}
+
+	/**
+	 * @return the id of the span.
+	 */
+	public long getSpanId() {
+		return spanId;
+	}
+
+	/**
+	 * @return the id of the span this one was started from, or
+	 *         {@link #NO_PARENT} for the root span, and for spans received
+	 *         from other processes.
+	 */
+	public long getParentSpanId() {
+		return parentSpanId;
+	}
+
+	/**
+	 * Formats a span id the way it is shown in the exported spans.
+	 * 
+	 * @param spanId
+	 *            the span id.
+	 * @return the span id, as 16 lower case hex digits.
+	 */
+	public static String toHex(long spanId) {
+		String hex = Long.toHexString(spanId);
+		return hex.length() == SPAN_ID_LENGTH ? hex : "0000000000000000".substring(hex.length()) + hex;
+	}
+
+	@Override
+	public int hashCode() {
+		return traceId.hashCode() * 31 + Long.hashCode(spanId);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TraceContext)) {
+			return false;
+		}
+		TraceContext other = (TraceContext) obj;
+		return spanId == other.spanId && parentSpanId == other.parentSpanId && traceId.equals(other.traceId);
+	}
+
+	@Override
+	public String toString() {
+		return "TraceContext [traceId=" + traceId + ", spanId=" + toHex(spanId) + ", parentSpanId=" + toHex(parentSpanId)
+				+ "]";
+	}
+
+	private static long newId(ThreadLocalRandom random) {
+		long id;
+		do {
+			id = random.nextLong();
+		} while (id == 0);
+		return id;
+	}
+
+	private static boolean isHex(String value) {
+		boolean nonZero = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+				return false;
+			}
+			nonZero |= c != '0';
+		}
+		return nonZero;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.tracing;
+
+/**
+ * Makes a trace context current on a thread until closed, at which point the
+ * previously current one is restored. If the scope was opened as a span, the
+ * span is recorded when the scope is closed. Always close in a finally block,
+ * or using try-with-resources, on the thread that opened it.
+ * 
+ * @see Tracing
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class TraceScope implements AutoCloseable {
+	/**
+	 * The scope returned when there is nothing to trace.
+	 */
+	static final TraceScope NONE = new TraceScope(null, null, null, null, null, null);
+
+	private final TraceContext context;
+	private final Tracer tracer;
+	private final TraceScope previous;
+	// Only set for scopes recording a span
+	private final String name;
+	private final String contextId;
+	private final String unit;
+	private final long startTime;
+
+	TraceScope(TraceContext context, Tracer tracer, TraceScope previous, String name, String contextId, String unit) {
+		this.context = context;
+		this.tracer = tracer;
+		this.previous = previous;
+		this.name = name;
+		this.contextId = contextId;
+		this.unit = unit;
+		this.startTime = name == null ? 0 : System.nanoTime();
+	}
+
+	/**
+	 * @return the trace context of the scope, or null if there is nothing to
+	 *         trace.
+	 */
+	public TraceContext getContext() {
+		return context;
+	}
+
+	/**
+	 * @return the tracer to record spans with, or null if spans should not be
+	 *         recorded.
+	 */
+	public Tracer getTracer() {
+		return tracer;
+	}
+
+	@Override
+	public void close() {
+		if (context == null) {
+			return;
+		}
+		Tracing.restore(previous);
+		if (name != null && tracer != null) {
+			long duration = System.nanoTime() - startTime;
+			tracer.record(new Span(context, name, contextId, unit, Tracing.toEpochMicros(startTime), duration, 0));
+		}
+	}
+}
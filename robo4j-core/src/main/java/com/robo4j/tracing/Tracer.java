@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.tracing;
+
+import com.robo4j.logging.SimpleLoggingUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the spans recorded in a context, and hands them over to a
+ * {@link SpanExporter} on a thread of its own, so that exporting never holds
+ * up the delivery of messages. Spans are dropped, and counted, if the
+ * exporter cannot keep up.
+ * 
+ * <p>
+ * Configured using the {@link com.robo4j.RoboBuilder#KEY_CONFIGURATION_TRACING}
+ * child configuration of a system.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class Tracer {
+	/**
+	 * Configuration key for the file to append the spans to, one JSON object
+	 * per line.
+	 */
+	public static final String KEY_FILE = "file";
+	/**
+	 * Configuration key for the http endpoint to post the spans to. Takes
+	 * precedence over {@link #KEY_FILE}.
+	 */
+	public static final String KEY_URL = "url";
+	/**
+	 * Configuration key for how many spans may be waiting to be exported
+	 * before new ones are dropped.
+	 */
+	public static final String KEY_QUEUE_SIZE = "queueSize";
+	public static final int DEFAULT_QUEUE_SIZE = 4096;
+
+	private static final int MAX_BATCH_SIZE = 512;
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
+
+	private final SpanExporter exporter;
+	private final BlockingQueue<Span> spans;
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final Thread exportThread;
+	private volatile boolean running = true;
+
+	/**
+	 * Constructor. Tracing is enabled from here on, until the tracer is shut
+	 * down.
+	 * 
+	 * @param exporter
+	 *            where to export the spans to.
+	 * @param queueSize
+	 *            how many spans may be waiting to be exported.
+	 */
+	public Tracer(SpanExporter exporter, int queueSize) {
+		this.exporter = exporter;
+		this.spans = new ArrayBlockingQueue<>(queueSize);
+		exportThread = new Thread(this::exportSpans, "Robo4J span exporter");
+		exportThread.setDaemon(true);
+		exportThread.start();
+		Tracing.tracerStarted();
+	}
+
+	/**
+	 * Records a completed span. Never blocks.
+	 * 
+	 * @param span
+	 *            the span.
+	 */
+	public void record(Span span) {
+		if (!running || !spans.offer(span)) {
+			droppedCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of spans dropped, because the exporter could not keep
+	 *         up.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Exports the spans still waiting, and stops the tracer.
+	 */
+	public void shutdown() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		Tracing.tracerStopped();
+		exportThread.interrupt();
+		try {
+			exportThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void exportSpans() {
+		List<Span> batch = new ArrayList<>(MAX_BATCH_SIZE);
+		while (running) {
+			try {
+				Span span = spans.poll(1, TimeUnit.SECONDS);
+				if (span != null) {
+					batch.add(span);
+					spans.drainTo(batch, MAX_BATCH_SIZE - 1);
+					export(batch);
+				}
+			} catch (InterruptedException e) {
+				// Shutting down
+			}
+		}
+		while (spans.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+			export(batch);
+		}
+		try {
+			exporter.close();
+		} catch (IOException e) {
+			SimpleLoggingUtil.error(getClass(), "Could not close the span exporter", e);
+		}
+	}
+
+	private void export(List<Span> batch) {
+		try {
+			exporter.export(batch);
+		} catch (IOException | RuntimeException e) {
+			droppedCount.addAndGet(batch.size());
+			SimpleLoggingUtil.error(getClass(), "Could not export " + batch.size() + " spans", e);
+		}
+		batch.clear();
+	}
+}
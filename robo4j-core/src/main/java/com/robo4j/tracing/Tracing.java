@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.tracing;
+
+import com.robo4j.RoboUnit;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entry point for tracing messages end to end, for example from the sensor
+ * unit producing a reading, through the units processing it, possibly in
+ * other processes, to the unit finally acting on it.
+ * 
+ * <p>
+ * A unit starts a trace around sending a message:
+ * </p>
+ * 
+ * <pre>
+ * try (TraceScope scope = Tracing.startTrace(this)) {
+ * 	getContext().getReference(target).sendMessage(scan);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Every message sent while a trace context is current carries a child of it.
+ * The receiving unit records a span for the hop, and the context of that span
+ * is current while the unit handles the message, so that the messages it
+ * sends in turn are part of the same trace. Remote contexts and the http units
+ * pass the context along with the message.
+ * </p>
+ * 
+ * <p>
+ * Tracing is off, and costs next to nothing, unless a {@link Tracer} is
+ * running, see {@link com.robo4j.RoboBuilder#KEY_CONFIGURATION_TRACING}.
+ * </p>
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class Tracing {
+	private static final ThreadLocal<TraceScope> CURRENT = new ThreadLocal<>();
+	private static final AtomicInteger RUNNING_TRACERS = new AtomicInteger();
+
+	private Tracing() {
+		// Not to be instantiated
+	}
+
+	/**
+	 * @return true if there is at least one tracer running.
+	 */
+	public static boolean isEnabled() {
+		return RUNNING_TRACERS.get() > 0;
+	}
+
+	/**
+	 * @return the trace context current on this thread, or null if there is
+	 *         none, or if tracing is not enabled.
+	 */
+	public static TraceContext current() {
+		if (!isEnabled()) {
+			return null;
+		}
+		TraceScope scope = CURRENT.get();
+		return scope == null ? null : scope.getContext();
+	}
+
+	/**
+	 * @return the tracer of the scope current on this thread, or null if there
+	 *         is none.
+	 */
+	public static Tracer currentTracer() {
+		if (!isEnabled()) {
+			return null;
+		}
+		TraceScope scope = CURRENT.get();
+		return scope == null ? null : scope.getTracer();
+	}
+
+	/**
+	 * Starts a new trace, with a root span recorded by the tracer of the
+	 * context of the unit.
+	 * 
+	 * @param unit
+	 *            the unit starting the trace.
+	 * @return the scope of the root span. Does nothing if the context of the
+	 *         unit is not traced.
+	 */
+	public static TraceScope startTrace(RoboUnit<?> unit) {
+		Tracer tracer = unit.getContext().getTracer();
+		if (tracer == null) {
+			return TraceScope.NONE;
+		}
+		return open(TraceContext.newTrace(), tracer, Span.NAME_ORIGIN, unit.getContext().getId(), unit.getId());
+	}
+
+	/**
+	 * Starts a span from the one current on this thread, recorded by the same
+	 * tracer.
+	 * 
+	 * @param name
+	 *            what kind of hop the span is.
+	 * @param contextId
+	 *            the id of the context recording the span.
+	 * @param unit
+	 *            the id of the unit the span is about.
+	 * @return the scope of the span. Does nothing if no trace context is
+	 *         current.
+	 */
+	public static TraceScope startSpan(String name, String contextId, String unit) {
+		if (!isEnabled()) {
+			return TraceScope.NONE;
+		}
+		TraceScope current = CURRENT.get();
+		if (current == null || current.getContext() == null) {
+			return TraceScope.NONE;
+		}
+		return open(current.getContext().newChild(), current.getTracer(), name, contextId, unit);
+	}
+
+	/**
+	 * Starts a span from the specified one, for instance one received from
+	 * another process.
+	 * 
+	 * @param parent
+	 *            the context to start the span from.
+	 * @param tracer
+	 *            the tracer to record the span with, or null to not record
+	 *            it.
+	 * @param name
+	 *            what kind of hop the span is.
+	 * @param contextId
+	 *            the id of the context recording the span.
+	 * @param unit
+	 *            the id of the unit the span is about.
+	 * @return the scope of the span. Does nothing if the parent is null.
+	 */
+	public static TraceScope startSpan(TraceContext parent, Tracer tracer, String name, String contextId, String unit) {
+		if (parent == null || !isEnabled()) {
+			return TraceScope.NONE;
+		}
+		return open(parent.newChild(), tracer, name, contextId, unit);
+	}
+
+	/**
+	 * Makes the specified context current, without recording a span for it.
+	 * 
+	 * @param context
+	 *            the context to make current.
+	 * @param tracer
+	 *            the tracer for spans started from the context, or null.
+	 * @return the scope. Does nothing if the context is null.
+	 */
+	public static TraceScope activate(TraceContext context, Tracer tracer) {
+		if (context == null || !isEnabled()) {
+			return TraceScope.NONE;
+		}
+		return open(context, tracer, null, null, null);
+	}
+
+	/**
+	 * Converts a time stamp taken with {@link System#nanoTime()} into the
+	 * wall clock time the spans are exported with.
+	 * 
+	 * @param nanoTime
+	 *            the time stamp.
+	 * @return the time, in microseconds since the epoch.
+	 */
+	public static long toEpochMicros(long nanoTime) {
+		long elapsed = System.nanoTime() - nanoTime;
+		Instant now = Instant.now();
+		return TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(now.getNano() - elapsed);
+	}
+
+	static void restore(TraceScope previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	static void tracerStarted() {
+		RUNNING_TRACERS.incrementAndGet();
+	}
+
+	static void tracerStopped() {
+		RUNNING_TRACERS.decrementAndGet();
+	}
+
+	private static TraceScope open(TraceContext context, Tracer tracer, String name, String contextId, String unit) {
+		TraceScope scope = new TraceScope(context, tracer, CURRENT.get(), name, contextId, unit);
+		CURRENT.set(scope);
+		return scope;
+	}
+}
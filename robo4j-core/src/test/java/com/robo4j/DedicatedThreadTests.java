@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the delivery of messages to units with the
+ * {@link DedicatedThreadTrait}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class DedicatedThreadTests {
+	private static final int TIMEOUT = 10;
+	private static final int MESSAGES = 10000;
+
+	static class ThreadRecorder extends RoboUnit<Integer> {
+		final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		final List<Integer> received = new CopyOnWriteArrayList<>();
+		final CountDownLatch latch = new CountDownLatch(MESSAGES);
+
+		ThreadRecorder(RoboContext context, String id) {
+			super(Integer.class, context, id);
+		}
+
+		@Override
+		public void onMessage(Integer message) {
+			threads.add(Thread.currentThread());
+			received.add(message);
+			latch.countDown();
+		}
+	}
+
+	@DedicatedThreadTrait(idleStrategy = IdleStrategy.BUSY_SPIN)
+	static class SpinningRecorder extends ThreadRecorder {
+		SpinningRecorder(RoboContext context, String id) {
+			super(context, id);
+		}
+	}
+
+	@DedicatedThreadTrait(idleStrategy = IdleStrategy.YIELD)
+	static class YieldingRecorder extends ThreadRecorder {
+		YieldingRecorder(RoboContext context, String id) {
+			super(context, id);
+		}
+	}
+
+	@DedicatedThreadTrait(idleStrategy = IdleStrategy.PARK, name = "Parking Recorder", priority = Thread.MAX_PRIORITY)
+	static class ParkingRecorder extends ThreadRecorder {
+		ParkingRecorder(RoboContext context, String id) {
+			super(context, id);
+		}
+	}
+
+	@DedicatedThreadTrait
+	static class BackingOffRecorder extends ThreadRecorder {
+		BackingOffRecorder(RoboContext context, String id) {
+			super(context, id);
+		}
+	}
+
+	@Test
+	void testIdleStrategies() throws Exception {
+		RoboSystem system = new RoboSystem();
+		ThreadRecorder spinning = new SpinningRecorder(system, "spinning");
+		ThreadRecorder yielding = new YieldingRecorder(system, "yielding");
+		ThreadRecorder parking = new ParkingRecorder(system, "parking");
+		ThreadRecorder backingOff = new BackingOffRecorder(system, "backingOff");
+		List<ThreadRecorder> recorders = List.of(spinning, yielding, parking, backingOff);
+		system.addUnits(spinning, yielding, parking, backingOff);
+		system.start();
+
+		for (ThreadRecorder recorder : recorders) {
+			RoboReference<Integer> reference = system.getReference(recorder.getId());
+			for (int i = 0; i < MESSAGES; i++) {
+				reference.sendMessage(i);
+				if (i % 1000 == 0) {
+					// Let the thread go idle every now and then
+					Thread.sleep(2);
+				}
+			}
+		}
+
+		for (ThreadRecorder recorder : recorders) {
+			assertTrue(recorder.latch.await(TIMEOUT, TimeUnit.SECONDS), "Missing messages for " + recorder.getId());
+			assertEquals(1, recorder.threads.size());
+			for (int i = 0; i < MESSAGES; i++) {
+				assertEquals(i, recorder.received.get(i).intValue());
+			}
+		}
+		assertEquals("Robo4J Dedicated spinning", spinning.threads.iterator().next().getName());
+		Thread parkingThread = parking.threads.iterator().next();
+		assertEquals("Parking Recorder", parkingThread.getName());
+		assertEquals(Thread.MAX_PRIORITY, parkingThread.getPriority());
+
+		system.shutdown();
+		for (ThreadRecorder recorder : recorders) {
+			Thread thread = recorder.threads.iterator().next();
+			thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+			assertFalse(thread.isAlive(), thread.getName() + " still running after shutdown");
+		}
+	}
+
+	@Test
+	void testUrgentOnDedicatedThread() throws Exception {
+		RoboSystem system = new RoboSystem();
+		ThreadRecorder recorder = new BackingOffRecorder(system, "recorder");
+		system.addUnits(recorder);
+		system.start();
+
+		RoboReference<Integer> reference = system.getReference(recorder.getId());
+		for (int i = 0; i < MESSAGES; i++) {
+			if (i % 100 == 0) {
+				reference.sendUrgentMessage(i);
+			} else {
+				reference.sendMessage(i);
+			}
+		}
+		reference.sendMessage(MESSAGES);
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+		while (!recorder.received.contains(MESSAGES) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(recorder.received.contains(MESSAGES));
+		assertEquals(1, recorder.threads.size());
+		system.shutdown();
+	}
+}
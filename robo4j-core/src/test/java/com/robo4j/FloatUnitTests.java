@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.ConfigurationBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the primitive float delivery to units implementing
+ * {@link FloatUnit}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class FloatUnitTests {
+	private static final int TIMEOUT = 10;
+	private static final AttributeDescriptor<Float> DESCRIPTOR_SUM = DefaultAttributeDescriptor.create(Float.class, "sum");
+	private static final AttributeDescriptor<Integer> DESCRIPTOR_COUNT = DefaultAttributeDescriptor.create(Integer.class, "count");
+
+	static class FloatConsumer extends RoboUnit<Float> implements FloatUnit {
+		private float sum;
+		private int count;
+		private float last;
+		private int boxedCount;
+
+		FloatConsumer(RoboContext context, String id) {
+			super(Float.class, context, id);
+		}
+
+		@Override
+		public void onMessage(Float message) {
+			boxedCount++;
+		}
+
+		@Override
+		public void onFloat(float value) {
+			sum += value;
+			last = value;
+			count++;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		protected <R> R onGetAttribute(AttributeDescriptor<R> descriptor) {
+			if (DESCRIPTOR_SUM.getAttributeName().equals(descriptor.getAttributeName())) {
+				return (R) Float.valueOf(sum);
+			}
+			if (DESCRIPTOR_COUNT.getAttributeName().equals(descriptor.getAttributeName())) {
+				return (R) Integer.valueOf(count);
+			}
+			return null;
+		}
+	}
+
+	@ConflatingTrait
+	static class ConflatingFloatConsumer extends FloatConsumer {
+		ConflatingFloatConsumer(RoboContext context, String id) {
+			super(context, id);
+		}
+	}
+
+	@BoundedMailboxTrait(capacity = FloatUnit.DEFAULT_CAPACITY, overflowPolicy = MailboxOverflowPolicy.BLOCK)
+	static class BlockingFloatConsumer extends FloatConsumer {
+		BlockingFloatConsumer(RoboContext context, String id) {
+			super(context, id);
+		}
+	}
+
+	static class GatedFloatConsumer extends FloatConsumer {
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		GatedFloatConsumer(RoboContext context, String id) {
+			super(context, id);
+		}
+
+		@Override
+		public void onFloat(float value) {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.onFloat(value);
+		}
+	}
+
+	static class BrokenFloatConsumer extends RoboUnit<Integer> implements FloatUnit {
+		BrokenFloatConsumer(RoboContext context, String id) {
+			super(Integer.class, context, id);
+		}
+
+		@Override
+		public void onFloat(float value) {
+		}
+	}
+
+	@Test
+	void testSendFloat() throws Exception {
+		RoboSystem system = new RoboSystem();
+		FloatConsumer consumer = new BlockingFloatConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<Float> reference = system.getReference(consumer.getId());
+		assertTrue(reference instanceof FloatRoboReference);
+		FloatRoboReference floatReference = FloatRoboReference.adapt(reference);
+
+		for (int i = 0; i < 10000; i++) {
+			floatReference.sendFloat(1.0f);
+		}
+		reference.sendMessage(2.0f);
+		reference.sendMessages(Arrays.asList(3.0f, 4.0f));
+
+		// Attribute requests are run after the messages sent before them
+		assertEquals(Integer.valueOf(10003), reference.getAttribute(DESCRIPTOR_COUNT).get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(Float.valueOf(10009.0f), reference.getAttribute(DESCRIPTOR_SUM).get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(0, consumer.boxedCount);
+		assertEquals(Integer.valueOf(FloatUnit.DEFAULT_CAPACITY), reference.getAttribute(MailboxAttributes.DESCRIPTOR_CAPACITY).get());
+		system.shutdown();
+	}
+
+	@Test
+	void testDropOldestByDefault() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedFloatConsumer consumer = new GatedFloatConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<Float> reference = system.getReference(consumer.getId());
+		FloatRoboReference floatReference = FloatRoboReference.adapt(reference);
+
+		// Never holds up the sender, even with the unit stuck
+		int sent = 3 * FloatUnit.DEFAULT_CAPACITY;
+		for (int i = 0; i < sent; i++) {
+			floatReference.sendFloat(i);
+		}
+		consumer.gate.countDown();
+		int delivered = reference.getAttribute(DESCRIPTOR_COUNT).get(TIMEOUT, TimeUnit.SECONDS);
+		long overflow = reference.getAttribute(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT).get(TIMEOUT, TimeUnit.SECONDS);
+		assertTrue(delivered >= FloatUnit.DEFAULT_CAPACITY);
+		assertEquals(sent, delivered + overflow);
+		// The latest float is kept
+		assertEquals(sent - 1, ((FloatConsumer) consumer).last);
+		system.shutdown();
+	}
+
+	@Test
+	void testDropOldest() {
+		FloatConsumer consumer = new FloatConsumer(new RoboSystem(), "consumer");
+		List<Runnable> tasks = new ArrayList<>();
+		FloatMailbox mailbox = new FloatMailbox(consumer, tasks::add, 8, 2, MailboxOverflowPolicy.DROP_OLDEST, false);
+		for (int i = 1; i <= 4; i++) {
+			assertTrue(mailbox.offerFloat(i, 0, false, false));
+		}
+		assertEquals(2, mailbox.getOverflowCount());
+
+		tasks.get(0).run();
+		assertEquals(2, consumer.count);
+		assertEquals(7.0f, consumer.sum);
+	}
+
+	@Test
+	void testDropOldestConcurrently() throws Exception {
+		RoboSystem system = new RoboSystem();
+		FloatConsumer consumer = new FloatConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(RoboUnit.KEY_MAILBOX_CAPACITY, 16).build());
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<Float> reference = system.getReference(consumer.getId());
+		FloatRoboReference floatReference = FloatRoboReference.adapt(reference);
+
+		int senders = 4;
+		int perSender = 20000;
+		ExecutorService executor = Executors.newFixedThreadPool(senders);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < senders; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < perSender; j++) {
+						floatReference.sendFloat(1.0f);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(TIMEOUT, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		int delivered = reference.getAttribute(DESCRIPTOR_COUNT).get(TIMEOUT, TimeUnit.SECONDS);
+		long overflow = reference.getAttribute(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT).get(TIMEOUT, TimeUnit.SECONDS);
+		// Every float is either delivered or dropped, exactly once
+		assertEquals(senders * perSender, delivered + overflow);
+		assertEquals(Float.valueOf(delivered), reference.getAttribute(DESCRIPTOR_SUM).get(TIMEOUT, TimeUnit.SECONDS));
+		system.shutdown();
+	}
+
+	@Test
+	void testHaltReleasesBlockedSender() throws Exception {
+		FloatConsumer consumer = new FloatConsumer(new RoboSystem(), "consumer");
+		// Never runs the drain task, so the ring stays full
+		FloatMailbox mailbox = new FloatMailbox(consumer, (task) -> {
+		}, 1, 2, MailboxOverflowPolicy.BLOCK, false);
+		assertTrue(mailbox.offerFloat(1.0f, 0, false, false));
+		assertTrue(mailbox.offerFloat(2.0f, 0, false, false));
+
+		ExecutorService sender = Executors.newSingleThreadExecutor();
+		try {
+			Future<Boolean> blocked = sender.submit(() -> mailbox.offerFloat(3.0f, 0, false, false));
+			assertThrows(TimeoutException.class, () -> blocked.get(100, TimeUnit.MILLISECONDS));
+			mailbox.halt();
+			assertFalse(blocked.get(TIMEOUT, TimeUnit.SECONDS));
+			assertFalse(mailbox.offerFloat(4.0f, 0, false, false));
+			assertEquals(2, mailbox.getOverflowCount());
+		} finally {
+			sender.shutdownNow();
+		}
+	}
+
+	@Test
+	void testDeliverPendingOnRejection() {
+		FloatConsumer consumer = new FloatConsumer(new RoboSystem(), "consumer");
+		List<Runnable> tasks = new ArrayList<>();
+		// Accepts the first drain task, and then shuts down
+		FloatMailbox mailbox = new FloatMailbox(consumer, (task) -> {
+			if (!tasks.isEmpty()) {
+				throw new RejectedExecutionException();
+			}
+			tasks.add(task);
+		}, 1, 8, MailboxOverflowPolicy.DROP_NEWEST, false);
+		for (int i = 1; i <= 3; i++) {
+			mailbox.offerFloat(i, 0, false, false);
+		}
+
+		tasks.get(0).run();
+		assertEquals(3, consumer.count);
+		assertEquals(6.0f, consumer.sum);
+		assertFalse(mailbox.offerFloat(4.0f, 0, false, false));
+	}
+
+	@Test
+	void testConflatingFloats() throws Exception {
+		RoboSystem system = new RoboSystem();
+		FloatConsumer consumer = new ConflatingFloatConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		FloatRoboReference reference = FloatRoboReference.adapt(system.getReference(consumer.getId()));
+
+		for (int i = 1; i <= 1000; i++) {
+			reference.sendFloat(i);
+		}
+		reference.getAttribute(DESCRIPTOR_COUNT).get(TIMEOUT, TimeUnit.SECONDS);
+		assertEquals(1000.0f, consumer.last);
+		system.shutdown();
+	}
+
+	@Test
+	void testAdaptNonFloatReference() {
+		List<Float> received = new ArrayList<>();
+		RoboReference<Float> reference = new LocalReferenceAdapter<Float>(Float.class) {
+			@Override
+			public void sendMessage(Float message) {
+				received.add(message);
+			}
+		};
+		FloatRoboReference.adapt(reference).sendFloat(1.0f);
+		assertEquals(Collections.singletonList(1.0f), received);
+
+		RoboSystem system = new RoboSystem();
+		assertThrows(IllegalArgumentException.class, () -> new BrokenFloatConsumer(system, "broken"));
+	}
+}
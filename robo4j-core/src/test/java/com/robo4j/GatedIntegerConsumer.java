@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumer which will not finish processing a message until the gate is
+ * opened. Useful for filling up the mailbox.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public class GatedIntegerConsumer extends RoboUnit<Integer> {
+	private final CountDownLatch processingLatch = new CountDownLatch(1);
+	private final CountDownLatch gate = new CountDownLatch(1);
+	private final List<Integer> receivedMessages = new ArrayList<>();
+
+	public GatedIntegerConsumer(RoboContext context, String id) {
+		super(Integer.class, context, id);
+	}
+
+	public synchronized List<Integer> getReceivedMessages() {
+		return new ArrayList<>(receivedMessages);
+	}
+
+	public boolean awaitProcessing(long timeout, TimeUnit unit) throws InterruptedException {
+		return processingLatch.await(timeout, unit);
+	}
+
+	public void openGate() {
+		gate.countDown();
+	}
+
+	@Override
+	public void onMessage(Integer message) {
+		processingLatch.countDown();
+		try {
+			gate.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			receivedMessages.add(message);
+		}
+	}
+}
@@ -27,6 +27,9 @@ import com.robo4j.configuration.Configuration;
  * @author Miroslav Wengner (@miragemiko)
  */
 public class IntegerConsumer extends RoboUnit<Integer> {
+	public static final AttributeDescriptor<Integer> DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES = DefaultAttributeDescriptor
+			.create(Integer.class, "NumberOfReceivedMessages");
+
 	private List<Integer> receivedMessages = new ArrayList<>();
 
 	/**
@@ -44,6 +47,9 @@ public class IntegerConsumer extends RoboUnit<Integer> {
 	@Override
 	public synchronized void onMessage(Integer message) {
 		receivedMessages.add(message);
+		if (hasAttributeSubscriptions()) {
+			attributeChanged(DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES, receivedMessages.size());
+		}
 	}
 
 	@Override
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the JFR events recorded by the core.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class JfrEventTests {
+	private static final int TIMEOUT = 10;
+	private static final int MESSAGES = 100;
+
+	@Test
+	void testEvents() throws Exception {
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+			recording.enable("robo4j.core.MessageEnqueue").with("sampling", "10");
+			recording.enable("robo4j.core.MessageDelivery").withThreshold(Duration.ZERO);
+			recording.enable("robo4j.core.ScheduledTask");
+			recording.enable("robo4j.core.UnitLifecycle");
+			recording.start();
+
+			RoboSystem system = new RoboSystem();
+			IntegerConsumer consumer = new IntegerConsumer(system, "consumer");
+			system.addUnits(consumer);
+			system.start();
+			RoboReference<Integer> reference = system.getReference(consumer.getId());
+			for (int i = 0; i < MESSAGES; i++) {
+				reference.sendMessage(i);
+			}
+			CountDownLatch latch = new CountDownLatch(1);
+			system.getScheduler().schedule(latch::countDown, 10, TimeUnit.MILLISECONDS);
+			assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+			reference.getAttribute(IntegerConsumer.DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES).get(TIMEOUT, TimeUnit.SECONDS);
+			system.shutdown();
+
+			recording.stop();
+			Path file = Files.createTempFile("robo4j", ".jfr");
+			try {
+				recording.dump(file);
+				events = RecordingFile.readAllEvents(file);
+			} finally {
+				Files.delete(file);
+			}
+		}
+
+		List<RecordedEvent> enqueued = ofType(events, "robo4j.core.MessageEnqueue");
+		assertEquals(MESSAGES / 10, enqueued.size());
+		assertEquals("consumer", enqueued.get(0).getString("unit"));
+
+		List<RecordedEvent> delivered = ofType(events, "robo4j.core.MessageDelivery");
+		assertEquals(MESSAGES, delivered.size());
+		for (RecordedEvent event : delivered) {
+			assertTrue(event.getLong("queueTime") >= 0);
+		}
+
+		List<RecordedEvent> scheduled = ofType(events, "robo4j.core.ScheduledTask");
+		assertFalse(scheduled.isEmpty());
+		assertTrue(scheduled.get(0).getLong("lateness") >= 0);
+
+		List<String> phases = ofType(events, "robo4j.core.UnitLifecycle").stream().map(event -> event.getString("phase"))
+				.collect(Collectors.toList());
+		assertTrue(phases.contains(UnitLifecycle.Phase.START.name()));
+		assertTrue(phases.contains(UnitLifecycle.Phase.SHUTDOWN.name()));
+	}
+
+	private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+		return events.stream().filter(event -> event.getEventType().getName().equals(name)).collect(Collectors.toList());
+	}
+}
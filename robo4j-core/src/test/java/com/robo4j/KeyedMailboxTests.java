@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the partitioned delivery of units with the {@link KeyedTrait}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class KeyedMailboxTests {
+	private static final int TIMEOUT = 10;
+	private static final int KEYS = 2;
+	private static final int MESSAGES_PER_KEY = 1000;
+
+	/**
+	 * The key is the message modulo {@link KeyedMailboxTests#KEYS}. Blocks on
+	 * the first message with key 0 until a message with key 1 has been
+	 * delivered.
+	 */
+	@KeyedTrait(partitions = KEYS)
+	private static class KeyedConsumer extends RoboUnit<Integer> {
+		private final Map<Integer, List<Integer>> received = new ConcurrentHashMap<>();
+		private final CountDownLatch otherKeyDelivered = new CountDownLatch(1);
+		private final CountDownLatch allDelivered = new CountDownLatch(KEYS * MESSAGES_PER_KEY);
+		private volatile boolean parallel;
+
+		KeyedConsumer(RoboContext context, String id) {
+			super(Integer.class, context, id);
+		}
+
+		@Override
+		protected Object getMessageKey(Integer message) {
+			return message % KEYS;
+		}
+
+		@Override
+		public void onMessage(Integer message) {
+			int key = message % KEYS;
+			if (message == 0) {
+				try {
+					parallel = otherKeyDelivered.await(TIMEOUT, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			} else if (key != 0) {
+				otherKeyDelivered.countDown();
+			}
+			// Only ever modified by one thread per key
+			received.computeIfAbsent(key, k -> new ArrayList<>()).add(message);
+			allDelivered.countDown();
+		}
+	}
+
+	@Test
+	void testOrderPerKey() throws Exception {
+		RoboSystem system = new RoboSystem();
+		KeyedConsumer consumer = new KeyedConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		for (int i = 0; i < KEYS * MESSAGES_PER_KEY; i++) {
+			reference.sendMessage(i);
+		}
+
+		assertTrue(consumer.allDelivered.await(TIMEOUT, TimeUnit.SECONDS));
+		assertTrue(consumer.parallel, "Different keys should be delivered in parallel");
+		for (int key = 0; key < KEYS; key++) {
+			List<Integer> messages = consumer.received.get(key);
+			assertEquals(MESSAGES_PER_KEY, messages.size());
+			for (int i = 0; i < MESSAGES_PER_KEY; i++) {
+				assertEquals(Integer.valueOf(i * KEYS + key), messages.get(i));
+			}
+		}
+		system.shutdown();
+	}
+}
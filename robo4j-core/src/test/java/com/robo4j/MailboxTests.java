@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.scheduler.ShardedScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the bounded mailboxes.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class MailboxTests {
+	private static final int CAPACITY = 2;
+	private static final int TIMEOUT = 10;
+
+	@ConflatingTrait
+	private static class ConflatingConsumer extends GatedIntegerConsumer {
+		ConflatingConsumer(RoboContext context, String id) {
+			super(context, id);
+		}
+	}
+
+	// Sends more messages to itself than its mailbox has room for.
+	private static class SelfSendingConsumer extends RoboUnit<Integer> {
+		private final CountDownLatch overflowed = new CountDownLatch(1);
+
+		SelfSendingConsumer(RoboContext context, String id) {
+			super(Integer.class, context, id);
+		}
+
+		@Override
+		public void onMessage(Integer message) {
+			if (message == 0) {
+				try {
+					sendMessage(1);
+					sendMessage(2);
+				} catch (MailboxOverflowException e) {
+					overflowed.countDown();
+				}
+			}
+		}
+	}
+
+	@Test
+	void testDropNewest() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = createConsumer(system, MailboxOverflowPolicy.DROP_NEWEST);
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		fillMailbox(consumer, reference);
+		assertFalse(reference.trySendMessage(3));
+		reference.sendMessage(4);
+		consumer.openGate();
+
+		assertEquals(Long.valueOf(2), reference.getAttribute(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT).get());
+		assertEquals(Arrays.asList(0, 1, 2), receivedAfterDrain(consumer, reference));
+		system.shutdown();
+	}
+
+	@Test
+	void testDropOldest() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = createConsumer(system, MailboxOverflowPolicy.DROP_OLDEST);
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		fillMailbox(consumer, reference);
+		assertTrue(reference.trySendMessage(3));
+		reference.sendMessage(4);
+		consumer.openGate();
+
+		assertEquals(Arrays.asList(0, 3, 4), receivedAfterDrain(consumer, reference));
+		assertEquals(Long.valueOf(2), reference.getAttribute(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT).get());
+		system.shutdown();
+	}
+
+	@Test
+	void testFail() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = createConsumer(system, MailboxOverflowPolicy.FAIL);
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		fillMailbox(consumer, reference);
+		assertFalse(reference.trySendMessage(3));
+		assertThrows(MailboxOverflowException.class, () -> reference.sendMessage(4));
+		consumer.openGate();
+
+		assertEquals(Arrays.asList(0, 1, 2), receivedAfterDrain(consumer, reference));
+		assertEquals(Integer.valueOf(CAPACITY), reference.getAttribute(MailboxAttributes.DESCRIPTOR_CAPACITY).get());
+		system.shutdown();
+	}
+
+	@Test
+	void testFailRejectsWholeBatch() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = createConsumer(system, MailboxOverflowPolicy.FAIL);
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		reference.sendMessage(0);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		assertTrue(reference.trySendMessage(1));
+		// Room for one more message, but not for two
+		assertThrows(MailboxOverflowException.class, () -> reference.sendMessages(Arrays.asList(2, 3)));
+		reference.sendMessages(Arrays.asList(4));
+		consumer.openGate();
+
+		assertEquals(Arrays.asList(0, 1, 4), receivedAfterDrain(consumer, reference));
+		assertEquals(Long.valueOf(2), reference.getAttribute(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT).get());
+		system.shutdown();
+	}
+
+	// Forwards more copies of its messages to another unit than the mailbox
+	// of the other unit has room for.
+	private static class ForwardingUnit extends RoboUnit<Integer> {
+		private final String targetId;
+		private final CountDownLatch overflowed = new CountDownLatch(1);
+
+		ForwardingUnit(RoboContext context, String id, String targetId) {
+			super(Integer.class, context, id);
+			this.targetId = targetId;
+		}
+
+		@Override
+		public void onMessage(Integer message) {
+			try {
+				RoboReference<Integer> target = getContext().getReference(targetId);
+				for (int i = 0; i <= CAPACITY; i++) {
+					target.sendMessage(message);
+				}
+			} catch (MailboxOverflowException e) {
+				overflowed.countDown();
+			}
+		}
+	}
+
+	@Test
+	void testBlockOnSharedExecutor() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(RoboUnit.KEY_MAILBOX_CAPACITY, CAPACITY)
+				.addString(RoboUnit.KEY_MAILBOX_OVERFLOW_POLICY, MailboxOverflowPolicy.BLOCK.name()).build());
+		ForwardingUnit forwarder = new ForwardingUnit(system, "forwarder", consumer.getId());
+		system.addUnits(consumer, forwarder);
+		system.start();
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		// Both units deliver on the scheduler, which must not be blocked
+		fillMailbox(consumer, reference);
+		system.getReference(forwarder.getId()).sendMessage(3);
+		assertTrue(forwarder.overflowed.await(TIMEOUT, TimeUnit.SECONDS));
+		consumer.openGate();
+
+		assertEquals(Arrays.asList(0, 1, 2), receivedAfterDrain(consumer, reference));
+		system.shutdown();
+	}
+
+	@Test
+	void testBlockOnSameShard() throws Exception {
+		RoboSystem system = new RoboSystem(new ConfigurationBuilder().addString(RoboBuilder.KEY_SCHEDULER, ShardedScheduler.NAME)
+				.addInteger(RoboBuilder.KEY_SCHEDULER_SHARDS, 1).build());
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(RoboUnit.KEY_MAILBOX_CAPACITY, CAPACITY)
+				.addString(RoboUnit.KEY_MAILBOX_OVERFLOW_POLICY, MailboxOverflowPolicy.BLOCK.name()).build());
+		consumer.openGate();
+		ForwardingUnit forwarder = new ForwardingUnit(system, "forwarder", consumer.getId());
+		system.addUnits(consumer, forwarder);
+		system.start();
+
+		// The only thread of the shard is the one forwarding
+		system.getReference(forwarder.getId()).sendMessage(3);
+		assertTrue(forwarder.overflowed.await(TIMEOUT, TimeUnit.SECONDS));
+
+		assertEquals(Arrays.asList(3, 3), receivedAfterDrain(consumer, system.getReference(consumer.getId())));
+		system.shutdown();
+	}
+
+	@Test
+	void testInvalidBatchSize() {
+		for (int batchSize : new int[] { 0, -1 }) {
+			Configuration configuration = new ConfigurationBuilder().addInteger(RoboBuilder.KEY_MAILBOX_BATCH_SIZE, batchSize).build();
+			assertThrows(IllegalArgumentException.class, () -> new RoboSystem(configuration));
+		}
+	}
+
+	@Test
+	void testBlockOnOwnMailbox() throws Exception {
+		RoboSystem system = new RoboSystem();
+		SelfSendingConsumer consumer = new SelfSendingConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(RoboUnit.KEY_MAILBOX_CAPACITY, 1)
+				.addString(RoboUnit.KEY_MAILBOX_OVERFLOW_POLICY, MailboxOverflowPolicy.BLOCK.name()).build());
+		system.addUnits(consumer);
+		system.start();
+
+		consumer.sendMessage(0);
+		assertTrue(consumer.overflowed.await(TIMEOUT, TimeUnit.SECONDS));
+		system.shutdown();
+	}
+
+	@Test
+	void testBlock() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = createConsumer(system, MailboxOverflowPolicy.BLOCK);
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		fillMailbox(consumer, reference);
+		assertFalse(reference.trySendMessage(3));
+		Thread sender = new Thread(() -> reference.sendMessage(4));
+		sender.start();
+		sender.join(200);
+		assertTrue(sender.isAlive());
+		consumer.openGate();
+		sender.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+
+		assertEquals(Arrays.asList(0, 1, 2, 4), receivedAfterDrain(consumer, reference));
+		system.shutdown();
+	}
+
+	@Test
+	void testConflating() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = new ConflatingConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		reference.sendMessage(0);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		for (int i = 1; i <= 10; i++) {
+			assertTrue(reference.trySendMessage(i));
+		}
+		consumer.openGate();
+
+		assertEquals(Arrays.asList(0, 10), receivedAfterDrain(consumer, reference));
+		assertEquals(Long.valueOf(9), reference.getAttribute(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT).get());
+		system.shutdown();
+	}
+
+	@Test
+	void testUrgentSupersedesWaiting() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		reference.sendMessage(0);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		reference.sendMessage(1);
+		reference.sendMessage(2);
+		reference.sendUrgentMessage(3);
+		reference.sendMessage(4);
+		consumer.openGate();
+
+		assertEquals(Arrays.asList(0, 3, 4), receivedAfterDrain(consumer, reference));
+		assertEquals(Long.valueOf(2), reference.getAttribute(MailboxAttributes.DESCRIPTOR_EXPIRED_COUNT).get());
+		assertEquals(Long.valueOf(0), reference.getAttribute(MetricsAttributes.DESCRIPTOR_MAILBOX_DEPTH).get());
+		system.shutdown();
+	}
+
+	@Test
+	void testUrgentBypassesBusyExecutor() throws Exception {
+		// Only one thread for delivering messages
+		RoboSystem system = new RoboSystem("test", 1, 1, 1);
+		GatedIntegerConsumer blocker = new GatedIntegerConsumer(system, "blocker");
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		system.addUnits(blocker, consumer);
+		system.start();
+		consumer.openGate();
+
+		blocker.sendMessage(0);
+		assertTrue(blocker.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		consumer.sendUrgentMessage(2);
+		consumer.sendMessage(1);
+
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+		while (consumer.getReceivedMessages().isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(Arrays.asList(2), consumer.getReceivedMessages());
+		blocker.openGate();
+		assertEquals(Arrays.asList(2, 1), receivedAfterDrain(consumer, system.getReference(consumer.getId())));
+		system.shutdown();
+	}
+
+	@Test
+	void testExpiredMessagesDropped() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+
+		reference.sendMessage(0);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		reference.sendMessage(1, 1, TimeUnit.MILLISECONDS);
+		reference.sendMessage(2, 1, TimeUnit.HOURS);
+		reference.sendMessage(3, 1, TimeUnit.MILLISECONDS);
+		Thread.sleep(10);
+		consumer.openGate();
+
+		assertEquals(Arrays.asList(0, 2), receivedAfterDrain(consumer, reference));
+		assertEquals(Long.valueOf(2), reference.getAttribute(MailboxAttributes.DESCRIPTOR_EXPIRED_COUNT).get());
+		system.shutdown();
+	}
+
+	private static GatedIntegerConsumer createConsumer(RoboSystem system, MailboxOverflowPolicy policy) throws ConfigurationException {
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		Configuration config = new ConfigurationBuilder().addInteger(RoboUnit.KEY_MAILBOX_CAPACITY, CAPACITY)
+				.addString(RoboUnit.KEY_MAILBOX_OVERFLOW_POLICY, policy.name()).build();
+		consumer.initialize(config);
+		system.addUnits(consumer);
+		system.start();
+		return consumer;
+	}
+
+	// Blocks the consumer on the first message, and fills the mailbox
+	private static void fillMailbox(GatedIntegerConsumer consumer, RoboReference<Integer> reference) throws InterruptedException {
+		reference.sendMessage(0);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		for (int i = 1; i <= CAPACITY; i++) {
+			assertTrue(reference.trySendMessage(i));
+		}
+	}
+
+	private static Object receivedAfterDrain(GatedIntegerConsumer consumer, RoboReference<Integer> reference) throws Exception {
+		// Attribute requests are queued behind the messages
+		reference.getAttributes().get(TIMEOUT, TimeUnit.SECONDS);
+		return consumer.getReceivedMessages();
+	}
+}
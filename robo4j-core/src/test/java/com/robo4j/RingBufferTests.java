@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the ring buffer delivery of units with the
+ * {@link RingBufferTrait}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class RingBufferTests {
+	private static final int TIMEOUT = 10;
+	private static final int PRODUCERS = 4;
+	private static final int MESSAGES_PER_PRODUCER = 10000;
+	private static final AttributeDescriptor<Long> DESCRIPTOR_SUM = DefaultAttributeDescriptor.create(Long.class, "sum");
+	private static final AttributeDescriptor<Integer> DESCRIPTOR_COUNT = DefaultAttributeDescriptor.create(Integer.class, "count");
+
+	static class Sample {
+		long value;
+	}
+
+	@RingBufferTrait(size = 100, waitStrategy = RingBufferWaitStrategy.BACK_OFF)
+	static class SampleConsumer extends RoboUnit<Sample> implements RingBufferEvents<Sample> {
+		private long sum;
+		private int count;
+
+		SampleConsumer(RoboContext context, String id) {
+			super(Sample.class, context, id);
+		}
+
+		@Override
+		public Sample newEvent() {
+			return new Sample();
+		}
+
+		@Override
+		public void copyEvent(Sample source, Sample target) {
+			target.value = source.value;
+		}
+
+		@Override
+		public void onMessage(Sample message) {
+			sum += message.value;
+			count++;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		protected <R> R onGetAttribute(AttributeDescriptor<R> descriptor) {
+			if (DESCRIPTOR_SUM.getAttributeName().equals(descriptor.getAttributeName())) {
+				return (R) Long.valueOf(sum);
+			}
+			if (DESCRIPTOR_COUNT.getAttributeName().equals(descriptor.getAttributeName())) {
+				return (R) Integer.valueOf(count);
+			}
+			return null;
+		}
+	}
+
+	@RingBufferTrait
+	static class BrokenConsumer extends RoboUnit<Sample> {
+		BrokenConsumer(RoboContext context, String id) {
+			super(Sample.class, context, id);
+		}
+	}
+
+	@Test
+	void testClaimAndPublish() throws Exception {
+		RoboSystem system = new RoboSystem();
+		SampleConsumer consumer = new SampleConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RingBufferReference<Sample> reference = (RingBufferReference<Sample>) system.<Sample> getReference(consumer.getId());
+		assertEquals(Integer.valueOf(128), reference.getAttribute(MailboxAttributes.DESCRIPTOR_CAPACITY).get());
+
+		List<Thread> producers = new ArrayList<>();
+		for (int i = 0; i < PRODUCERS; i++) {
+			Thread producer = new Thread(() -> {
+				for (int j = 1; j <= MESSAGES_PER_PRODUCER; j++) {
+					long sequence = reference.claim();
+					reference.getEvent(sequence).value = j;
+					reference.publish(sequence);
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+		for (Thread producer : producers) {
+			producer.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		}
+		Sample sample = new Sample();
+		sample.value = 1;
+		reference.sendMessage(sample);
+
+		// Attribute requests are run after the messages sent before them
+		long expectedSum = PRODUCERS * (long) MESSAGES_PER_PRODUCER * (MESSAGES_PER_PRODUCER + 1) / 2 + 1;
+		assertEquals(Long.valueOf(expectedSum), reference.getAttribute(DESCRIPTOR_SUM).get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(PRODUCERS * MESSAGES_PER_PRODUCER + 1),
+				reference.getAttribute(DESCRIPTOR_COUNT).get(TIMEOUT, TimeUnit.SECONDS));
+		system.shutdown();
+	}
+
+	@Test
+	void testMissingEvents() {
+		RoboSystem system = new RoboSystem();
+		assertThrows(IllegalArgumentException.class, () -> new BrokenConsumer(system, "broken"));
+	}
+
+	@Test
+	void testTrySendWhenFull() throws Exception {
+		RoboSystem system = new RoboSystem();
+		SampleConsumer consumer = new SampleConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RingBufferReference<Sample> reference = (RingBufferReference<Sample>) system.<Sample> getReference(consumer.getId());
+
+		// Claim without publishing, to stall the consumer
+		long stalled = reference.claim();
+		int accepted = 0;
+		while (reference.trySendMessage(new Sample())) {
+			accepted++;
+		}
+		assertEquals(127, accepted);
+		assertTrue(reference.getAttribute(MailboxAttributes.DESCRIPTOR_OVERFLOW_COUNT).get() > 0);
+		reference.publish(stalled);
+		assertEquals(Integer.valueOf(128), reference.getAttribute(DESCRIPTOR_COUNT).get(TIMEOUT, TimeUnit.SECONDS));
+		system.shutdown();
+	}
+
+	@Test
+	void testClaimWhenHalted() throws Exception {
+		RoboSystem system = new RoboSystem();
+		SampleConsumer consumer = new SampleConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		RingBufferReference<Sample> reference = (RingBufferReference<Sample>) system.<Sample> getReference(consumer.getId());
+
+		// Fill up the ring, stalling the consumer on the first slot
+		long stalled = reference.claim();
+		boolean accepted;
+		do {
+			accepted = reference.trySendMessage(new Sample());
+		} while (accepted);
+		system.shutdown();
+
+		// Must neither wait for, nor overwrite, the waiting events
+		long sequence = reference.claim();
+		assertEquals(-1, sequence);
+		reference.getEvent(sequence).value = 1;
+		reference.publish(sequence);
+		reference.publish(stalled);
+	}
+}
@@ -224,4 +224,41 @@ public class RoboBuilderTests {
 		system.stop();
 		system.shutdown();
 	}
+
+	@Test
+	void testConfiguredExecutors() throws RoboBuilderException, ConfigurationException, InterruptedException, ExecutionException,
+			TimeoutException {
+		Configuration systemConfig = new ConfigurationBuilder().addString(RoboBuilder.KEY_SYSTEM_EXECUTOR, "forkJoin")
+				.addString(RoboBuilder.KEY_WORKER_EXECUTOR, "forkJoin").addString(RoboBuilder.KEY_BLOCKING_EXECUTOR, "virtual")
+				.build();
+		runConfiguredExecutors(new RoboBuilder(systemConfig));
+	}
+
+	@Test
+	void testConfiguredExecutorsFromXml() throws RoboBuilderException, ConfigurationException, InterruptedException, ExecutionException,
+			TimeoutException {
+		RoboBuilder builder = new RoboBuilder(SystemUtil.getInputStreamByResourceName("testRoboSystemExecutors.xml"));
+		runConfiguredExecutors(builder);
+	}
+
+	private void runConfiguredExecutors(RoboBuilder builder) throws RoboBuilderException, ConfigurationException, InterruptedException,
+			ExecutionException, TimeoutException {
+		builder.add(StringConsumer.class, "consumer");
+		builder.add(StringConsumerWorker.class, "worker");
+		RoboContext system = builder.build();
+		assertEquals("forkJoin", system.getConfiguration().getString(RoboBuilder.KEY_WORKER_EXECUTOR, null));
+		assertEquals("virtual", system.getConfiguration().getString(RoboBuilder.KEY_BLOCKING_EXECUTOR, null));
+		system.start();
+
+		RoboReference<String> consumer = system.getReference("consumer");
+		RoboReference<String> worker = system.getReference("worker");
+		for (int i = 0; i < MESSAGES; i++) {
+			consumer.sendMessage("message " + i);
+			worker.sendMessage("message " + i);
+		}
+
+		assertEquals(MESSAGES, (int) consumer.getAttribute(StringConsumer.DESCRIPTOR_TOTAL_MESSAGES).get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(MESSAGES, (int) worker.getAttribute(StringConsumer.DESCRIPTOR_TOTAL_MESSAGES).get(TIMEOUT, TimeUnit.SECONDS));
+		system.shutdown();
+	}
 }
@@ -16,16 +16,37 @@
  */
 package com.robo4j;
 
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.scheduler.DefaultScheduler;
 import com.robo4j.scheduler.FinalInvocationListener;
+import com.robo4j.scheduler.HashedWheelScheduler;
+import com.robo4j.scheduler.PeriodicFuture;
+import com.robo4j.scheduler.PeriodicWaitStrategy;
 import com.robo4j.scheduler.Scheduler;
+import com.robo4j.scheduler.SequenceFuture;
+import com.robo4j.scheduler.SequenceStep;
+import com.robo4j.scheduler.ShardedScheduler;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -35,6 +56,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * @author Miroslav Wengner (@miragemiko)
  */
 class RoboSchedulerTests {
+	private static final int TIMEOUT = 10;
+
 	private static class SchedulerListener implements FinalInvocationListener {
 		volatile boolean wasFinalCalled;
 
@@ -44,10 +67,334 @@ class RoboSchedulerTests {
 		}
 	}
 
+	/**
+	 * Only implements the abstract methods, to test the default ones.
+	 */
+	private static class DelegatingScheduler implements Scheduler {
+		private final Scheduler delegate;
+
+		DelegatingScheduler(Scheduler delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long period, TimeUnit unit,
+				int numberOfInvocations, FinalInvocationListener listener) {
+			return delegate.schedule(target, message, delay, period, unit, numberOfInvocations, listener);
+		}
+
+		@Override
+		public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit,
+				int numberOfInvocations) {
+			return delegate.schedule(target, message, delay, interval, unit, numberOfInvocations);
+		}
+
+		@Override
+		public <T> ScheduledFuture<?> schedule(RoboReference<T> target, T message, long delay, long interval, TimeUnit unit) {
+			return delegate.schedule(target, message, delay, interval, unit);
+		}
+
+		@Override
+		public void execute(Runnable r) {
+			delegate.execute(r);
+		}
+
+		@Override
+		public <T> Future<T> submit(Callable<T> r) {
+			return delegate.submit(r);
+		}
+
+		@Override
+		public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+			delegate.schedule(runnable, delay, unit);
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleAtFixedRate(Runnable runnable, long delay, long interval, TimeUnit unit) {
+			return delegate.scheduleAtFixedRate(runnable, delay, interval, unit);
+		}
+
+		@Override
+		public void shutdown() throws InterruptedException {
+			delegate.shutdown();
+		}
+	}
+
 	@Test
 	void testScheduler() throws InterruptedException, ExecutionException {
-		// FIXME: 20.08.17 (miro,marcus): when notification implemented, correct the test
+		runScheduler(new RoboSystem());
+	}
+
+	@Test
+	void testWheelScheduler() throws InterruptedException, ExecutionException {
+		runScheduler(createWheelSystem(HashedWheelScheduler.DEFAULT_WHEEL_SIZE));
+	}
+
+	@Test
+	void testSchedulerWithPressureAndMultipleTasks() throws InterruptedException, ExecutionException {
+		runSchedulerWithPressureAndMultipleTasks(new RoboSystem());
+	}
+
+	@Test
+	void testWheelSchedulerWithPressureAndMultipleTasks() throws InterruptedException, ExecutionException {
+		runSchedulerWithPressureAndMultipleTasks(createWheelSystem(HashedWheelScheduler.DEFAULT_WHEEL_SIZE));
+	}
+
+	@Test
+	void testShardedSchedulerWithPressureAndMultipleTasks() throws InterruptedException, ExecutionException {
+		runSchedulerWithPressureAndMultipleTasks(createShardedSystem(4));
+	}
+
+	@Test
+	void testShardedSchedulerAffinity() throws Exception {
+		RoboSystem system = createShardedSystem(4);
+		Set<String> threadNames = ConcurrentHashMap.newKeySet();
+		CountDownLatch directLatch = new CountDownLatch(10);
+		CountDownLatch scheduledLatch = new CountDownLatch(10);
+		RoboUnit<String> unit = new RoboUnit<>(String.class, system, "sharded") {
+			@Override
+			public void onMessage(String message) {
+				threadNames.add(Thread.currentThread().getName());
+				if ("direct".equals(message)) {
+					directLatch.countDown();
+				} else {
+					scheduledLatch.countDown();
+				}
+			}
+		};
+		system.addUnits(unit);
+		system.start();
+
+		ShardedScheduler scheduler = (ShardedScheduler) system.getScheduler();
+		int shard = scheduler.getShardIndex("sharded");
+		Scheduler unitShard = scheduler.getShard("sharded");
+		// Waits for the shard to run everything queued before counting
+		unitShard.submit(() -> null).get(TIMEOUT, TimeUnit.SECONDS);
+		long executedBefore = scheduler.getExecutedCount(shard);
+
+		// Delivered by a single task
+		RoboReference<String> reference = system.getReference("sharded");
+		reference.sendMessages(Collections.nCopies(10, "direct"));
+		assertTrue(directLatch.await(TIMEOUT, TimeUnit.SECONDS));
+		// Every invocation is followed by a task delivering the message, long
+		// before the next invocation is due
+		system.getScheduler().schedule(reference, "scheduled", 0, 20, TimeUnit.MILLISECONDS, 10);
+		assertTrue(scheduledLatch.await(TIMEOUT, TimeUnit.SECONDS));
+		unitShard.submit(() -> null).get(TIMEOUT, TimeUnit.SECONDS);
+
+		assertEquals(4, scheduler.getShardCount());
+		assertSame(scheduler.getExecutor("sharded"), scheduler.getExecutor("sharded"));
+		assertEquals(1, threadNames.size(), "Ran on " + threadNames);
+		assertTrue(threadNames.iterator().next().startsWith("Robo4J Scheduler Shard " + shard));
+		// One delivery of the batch, ten invocations with one delivery each,
+		// and the final submit
+		assertEquals(executedBefore + 1 + 2 * 10 + 1, scheduler.getExecutedCount(shard));
+		double utilization = scheduler.getUtilization(shard);
+		assertTrue(utilization > 0 && utilization <= 1, "Utilization " + utilization);
+		system.shutdown();
+	}
+
+	@Test
+	void testWheelSchedulerCancel() throws Exception {
+		// A small wheel, so that the timeouts go around it several times
+		RoboSystem system = createWheelSystem(8);
+		Scheduler scheduler = system.getScheduler();
+		List<Integer> executed = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(1);
+
+		scheduler.schedule(() -> executed.add(1), 20, TimeUnit.MILLISECONDS);
+		ScheduledFuture<?> cancelled = scheduler.scheduleAtFixedRate(() -> executed.add(2), 40, 10, TimeUnit.MILLISECONDS);
+		scheduler.schedule(() -> executed.add(3), 60, TimeUnit.MILLISECONDS);
+		scheduler.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+		assertTrue(cancelled.cancel(false));
+
+		assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(1, 3), executed);
+		assertTrue(cancelled.isCancelled());
+		system.shutdown();
+	}
+
+	@Test
+	void testPeriodicOnGrid() throws Exception {
 		RoboSystem system = new RoboSystem();
+		long period = TimeUnit.MILLISECONDS.toNanos(2);
+		List<Long> scheduledTimes = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(20);
+		PeriodicFuture future = system.getScheduler().schedulePeriodic(invocation -> {
+			assertTrue(invocation.getStartTime() >= invocation.getScheduledTime());
+			scheduledTimes.add(invocation.getScheduledTime() - invocation.getSequence() * period);
+			latch.countDown();
+		}, 0, period, TimeUnit.NANOSECONDS, PeriodicWaitStrategy.SPIN_THEN_PARK);
+
+		assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+		assertTrue(future.cancel(false));
+		assertThrows(CancellationException.class, () -> future.get(TIMEOUT, TimeUnit.SECONDS));
+		// All invocations are on the same grid, no matter how late they were
+		assertEquals(1, scheduledTimes.stream().distinct().count());
+		assertTrue(future.getInvocationCount() >= 20);
+		system.shutdown();
+	}
+
+	@Test
+	void testPeriodicClearsInterrupt() throws Exception {
+		RoboSystem system = new RoboSystem();
+		List<Boolean> interrupted = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(3);
+		PeriodicFuture future = system.getScheduler().schedulePeriodic(invocation -> {
+			interrupted.add(Thread.currentThread().isInterrupted());
+			// Leaves the interrupt behind for the timer
+			Thread.currentThread().interrupt();
+			latch.countDown();
+		}, 0, 5, TimeUnit.MILLISECONDS, PeriodicWaitStrategy.PARK);
+
+		assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+		future.cancel(false);
+		assertFalse(interrupted.contains(Boolean.TRUE), "Interrupted " + interrupted);
+		system.shutdown();
+	}
+
+	@Test
+	void testDefaultPeriodic() throws Exception {
+		RoboSystem system = new RoboSystem();
+		Scheduler scheduler = new DelegatingScheduler(new DefaultScheduler(system));
+		CountDownLatch latch = new CountDownLatch(5);
+		PeriodicFuture future = scheduler.schedulePeriodic(invocation -> latch.countDown(), 0, 2, TimeUnit.MILLISECONDS,
+				PeriodicWaitStrategy.PARK);
+
+		assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+		assertTrue(future.cancel(false));
+		assertThrows(CancellationException.class, () -> future.get(TIMEOUT, TimeUnit.SECONDS));
+		assertTrue(future.getInvocationCount() >= 5);
+		scheduler.shutdown();
+		system.shutdown();
+	}
+
+	@Test
+	void testPeriodicMissedDeadlines() throws Exception {
+		RoboSystem system = createWheelSystem(HashedWheelScheduler.DEFAULT_WHEEL_SIZE);
+		List<Long> sequences = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(3);
+		PeriodicFuture future = system.getScheduler().schedulePeriodic(invocation -> {
+			sequences.add(invocation.getSequence());
+			if (invocation.getSequence() == 0) {
+				sleep(35);
+			}
+			latch.countDown();
+		}, 0, 10, TimeUnit.MILLISECONDS, PeriodicWaitStrategy.PARK);
+
+		assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+		future.cancel(false);
+		// The first invocation ran into the fourth period, so the second and
+		// third are skipped
+		assertTrue(future.getMissedDeadlineCount() >= 2, "Missed " + future.getMissedDeadlineCount());
+		assertTrue(sequences.get(1) >= 3, "Sequences " + sequences);
+		assertTrue(future.getMaxLateness(TimeUnit.MILLISECONDS) < 10);
+		system.shutdown();
+	}
+
+	@Test
+	void testSequence() throws Exception {
+		runSequence(new RoboSystem());
+	}
+
+	@Test
+	void testWheelSequence() throws Exception {
+		runSequence(createWheelSystem(8));
+	}
+
+	@Test
+	void testDefaultSequence() throws Exception {
+		RoboSystem system = new RoboSystem();
+		Scheduler scheduler = new DelegatingScheduler(new DefaultScheduler(system));
+		List<Integer> steps = new CopyOnWriteArrayList<>();
+		SchedulerListener listener = new SchedulerListener();
+		SequenceFuture future = scheduler.scheduleSequence(step -> {
+			steps.add(step);
+			return step < 2 ? 5 : SequenceStep.DONE;
+		}, 0, TimeUnit.MILLISECONDS, listener);
+
+		assertNull(future.get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(0, 1, 2), steps);
+		assertTrue(listener.wasFinalCalled);
+		scheduler.shutdown();
+		system.shutdown();
+	}
+
+	@Test
+	void testSequenceOffsetsValidated() throws Exception {
+		RoboSystem system = new RoboSystem();
+		Scheduler scheduler = system.getScheduler();
+		Runnable task = () -> {
+		};
+		assertThrows(IllegalArgumentException.class, () -> scheduler.scheduleSequence(task, new long[0], TimeUnit.MILLISECONDS, null));
+		assertThrows(IllegalArgumentException.class,
+				() -> scheduler.scheduleSequence(task, new long[] { 10, 10 }, TimeUnit.MILLISECONDS, null));
+		assertThrows(IllegalArgumentException.class,
+				() -> scheduler.scheduleSequence(task, new long[] { 10, 5 }, TimeUnit.MILLISECONDS, null));
+		system.shutdown();
+	}
+
+	@Test
+	void testSequenceCancel() throws Exception {
+		RoboSystem system = new RoboSystem();
+		List<Integer> steps = new CopyOnWriteArrayList<>();
+		SchedulerListener listener = new SchedulerListener();
+		SequenceFuture future = system.getScheduler().scheduleSequence(step -> {
+			steps.add(step);
+			return 5;
+		}, 0, TimeUnit.MILLISECONDS, listener);
+
+		sleep(30);
+		assertTrue(future.cancel(false));
+		int completed = future.getCompletedSteps();
+		sleep(30);
+		assertTrue(completed > 0);
+		assertEquals(completed, future.getCompletedSteps());
+		assertEquals(completed, steps.size());
+		assertThrows(CancellationException.class, future::get);
+		assertFalse(listener.wasFinalCalled);
+		system.shutdown();
+	}
+
+	private void runSequence(RoboSystem system) throws Exception {
+		long[] offsets = { 10, 20, 30, 45 };
+		List<Long> runTimes = new CopyOnWriteArrayList<>();
+		SchedulerListener listener = new SchedulerListener();
+		long start = System.nanoTime();
+		SequenceFuture future = system.getScheduler().scheduleSequence(() -> runTimes.add(System.nanoTime() - start), offsets,
+				TimeUnit.MILLISECONDS, listener);
+
+		assertNull(future.get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(offsets.length, future.getCompletedSteps());
+		assertEquals(offsets.length, runTimes.size());
+		for (int i = 0; i < offsets.length; i++) {
+			assertTrue(runTimes.get(i) >= TimeUnit.MILLISECONDS.toNanos(offsets[i]) - TimeUnit.MILLISECONDS.toNanos(2),
+					"Step " + i + " ran early: " + runTimes);
+		}
+		assertTrue(listener.wasFinalCalled);
+		system.shutdown();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static RoboSystem createWheelSystem(int wheelSize) {
+		return new RoboSystem(new ConfigurationBuilder().addString(RoboBuilder.KEY_SCHEDULER, HashedWheelScheduler.NAME)
+				.addInteger(RoboBuilder.KEY_SCHEDULER_WHEEL_SIZE, wheelSize).build());
+	}
+
+	private static RoboSystem createShardedSystem(int shards) {
+		return new RoboSystem(new ConfigurationBuilder().addString(RoboBuilder.KEY_SCHEDULER, ShardedScheduler.NAME)
+				.addInteger(RoboBuilder.KEY_SCHEDULER_SHARDS, shards).build());
+	}
+
+	private void runScheduler(RoboSystem system) throws InterruptedException, ExecutionException {
+		// FIXME: 20.08.17 (miro,marcus): when notification implemented, correct the test
 		StringConsumer consumer = new StringConsumer(system, "consumer");
 		system.addUnits(consumer);
 		consumer.setState(LifecycleState.STARTED);
@@ -68,9 +415,7 @@ class RoboSchedulerTests {
 		system.shutdown();
 	}
 
-	@Test
-	void testSchedulerWithPressureAndMultipleTasks() throws InterruptedException, ExecutionException {
-		RoboSystem system = new RoboSystem();
+	private void runSchedulerWithPressureAndMultipleTasks(RoboSystem system) throws InterruptedException, ExecutionException {
 		StringConsumer consumer = new StringConsumer(system, "consumer");
 		system.addUnits(consumer);
 
@@ -20,6 +20,19 @@ import com.robo4j.configuration.Configuration;
 import com.robo4j.configuration.ConfigurationBuilder;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -30,6 +43,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  * @author Miroslav Wengner (@miragemiko)
  */
 class RoboUnitTests {
+	private static final int TIMEOUT = 10;
 
 	@Test
 	void testSystem() throws Exception {
@@ -70,4 +84,198 @@ class RoboUnitTests {
 		system.shutdown();
 		assertEquals(2, consumer.getReceivedMessages().size());
 	}
+
+	@Test
+	void testMessagesDeliveredInOrder() throws Exception {
+		int totalMessages = 1000;
+		RoboSystem system = new RoboSystem();
+		IntegerConsumer consumer = new IntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> ref = system.getReference(consumer.getId());
+		for (int i = 0; i < totalMessages; i++) {
+			ref.sendMessage(i);
+		}
+		// Attribute requests are queued behind the messages
+		int received = ref.getAttribute(DefaultAttributeDescriptor.create(Integer.class, "NumberOfReceivedMessages")).get();
+		assertEquals(totalMessages, received);
+		for (int i = 0; i < totalMessages; i++) {
+			assertEquals(Integer.valueOf(i), consumer.getReceivedMessages().get(i));
+		}
+		system.shutdown();
+	}
+
+	@Test
+	void testBatchDelivery() throws Exception {
+		int totalMessages = 100;
+		List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+		RoboSystem system = new RoboSystem();
+		IntegerConsumer consumer = new IntegerConsumer(system, "consumer") {
+			@Override
+			public void onMessages(List<Integer> messages) {
+				batchSizes.add(messages.size());
+				super.onMessages(messages);
+			}
+		};
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> ref = system.getReference(consumer.getId());
+		List<Integer> batch = new ArrayList<>();
+		for (int i = 0; i < totalMessages; i++) {
+			batch.add(i);
+		}
+		ref.sendMessages(batch);
+		// The batch is copied when sent
+		batch.clear();
+		ref.sendMessage(totalMessages);
+		int received = ref.getAttribute(DefaultAttributeDescriptor.create(Integer.class, "NumberOfReceivedMessages")).get();
+		assertEquals(totalMessages + 1, received);
+		assertEquals(Collections.singletonList(totalMessages), batchSizes);
+		for (int i = 0; i <= totalMessages; i++) {
+			assertEquals(Integer.valueOf(i), consumer.getReceivedMessages().get(i));
+		}
+		system.shutdown();
+	}
+
+	@Test
+	void testAsyncAttributes() throws Exception {
+		RoboSystem system = new RoboSystem();
+		AttributeDescriptor<Integer> count = DefaultAttributeDescriptor.create(Integer.class, "NumberOfReceivedMessages");
+		IntegerConsumer consumer = new IntegerConsumer(system, "consumer") {
+			@Override
+			public Collection<AttributeDescriptor<?>> getKnownAttributes() {
+				return Collections.singletonList(count);
+			}
+		};
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> ref = system.getReference(consumer.getId());
+		for (int i = 0; i < 10; i++) {
+			ref.sendMessage(i);
+		}
+		int doubled = ref.getAttributeAsync(count).thenApply(value -> value * 2).toCompletableFuture().get(TIMEOUT, TimeUnit.SECONDS);
+		assertEquals(20, doubled);
+		// The values, not futures for them
+		Map<AttributeDescriptor<?>, Object> all = ref.getAttributesAsync().toCompletableFuture().get(TIMEOUT, TimeUnit.SECONDS);
+		assertEquals(Collections.singletonMap(count, 10), all);
+		system.shutdown();
+	}
+
+	@Test
+	void testAttributeSnapshot() throws Exception {
+		RoboSystem system = new RoboSystem();
+		IntegerConsumer consumer = new IntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+
+		AttributeDescriptor<Integer> count = DefaultAttributeDescriptor.create(Integer.class, "NumberOfReceivedMessages");
+		@SuppressWarnings("rawtypes")
+		AttributeDescriptor<ArrayList> messages = DefaultAttributeDescriptor.create(ArrayList.class, "ReceivedMessages");
+		RoboReference<Integer> ref = system.getReference(consumer.getId());
+		for (int i = 0; i < 100; i++) {
+			ref.sendMessage(i);
+		}
+		List<AttributeDescriptor<?>> requested = Arrays.asList(count, messages, MailboxAttributes.DESCRIPTOR_EXPIRED_COUNT);
+		Map<AttributeDescriptor<?>, Object> snapshot = ref.getAttributes(requested).get(TIMEOUT, TimeUnit.SECONDS);
+		assertEquals(3, snapshot.size());
+		assertEquals(100, snapshot.get(count));
+		assertEquals(100, ((List<?>) snapshot.get(messages)).size());
+		assertEquals(0L, snapshot.get(MailboxAttributes.DESCRIPTOR_EXPIRED_COUNT));
+		system.shutdown();
+	}
+
+	@Test
+	void testAttributeSubscription() throws Exception {
+		RoboSystem system = new RoboSystem();
+		IntegerConsumer consumer = new IntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> ref = system.getReference(consumer.getId());
+		List<Object> values = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(11);
+		AttributeSubscription subscription = ref.subscribe(IntegerConsumer.DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES, (descriptor, value) -> {
+			values.add(value);
+			latch.countDown();
+		});
+		for (int i = 0; i < 10; i++) {
+			ref.sendMessage(i);
+		}
+		assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+		// The initial value first, then every change in order
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), values);
+
+		subscription.cancel();
+		assertTrue(subscription.isCancelled());
+		ref.sendMessage(10);
+		ref.getAttribute(IntegerConsumer.DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES).get(TIMEOUT, TimeUnit.SECONDS);
+		assertEquals(11, values.size());
+		system.shutdown();
+	}
+
+	@Test
+	void testCoalescedAttributeSubscription() throws Exception {
+		RoboSystem system = new RoboSystem();
+		IntegerConsumer consumer = new IntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> ref = system.getReference(consumer.getId());
+		List<Object> values = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(1);
+		ref.subscribe(Collections.singletonList(IntegerConsumer.DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES), (descriptor, value) -> {
+			values.add(value);
+			if (Integer.valueOf(1000).equals(value)) {
+				latch.countDown();
+			}
+		}, 50, TimeUnit.MILLISECONDS, true);
+		for (int i = 0; i < 1000; i++) {
+			ref.sendMessage(i);
+		}
+		assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+		// Rate limited, and only the latest value delivered
+		assertTrue(values.size() < 1000, "Got " + values.size() + " notifications");
+		assertEquals(1000, values.get(values.size() - 1));
+		system.shutdown();
+	}
+
+	@Test
+	void testPolledAttributeSubscription() throws Exception {
+		AtomicInteger number = new AtomicInteger();
+		RoboReference<Integer> ref = new LocalReferenceAdapter<Integer>(Integer.class) {
+			@Override
+			public void sendMessage(Integer message) {
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public <R> Future<R> getAttribute(AttributeDescriptor<R> attribute) {
+				return CompletableFuture.completedFuture((R) Integer.valueOf(number.get()));
+			}
+		};
+		List<Object> values = new CopyOnWriteArrayList<>();
+		CountDownLatch initial = new CountDownLatch(1);
+		CountDownLatch changed = new CountDownLatch(2);
+		AttributeSubscription subscription = ref.subscribe(Collections.singletonList(IntegerConsumer.DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES),
+				(descriptor, value) -> {
+					values.add(value);
+					initial.countDown();
+					changed.countDown();
+				}, 10, TimeUnit.MILLISECONDS, true);
+		assertTrue(initial.await(TIMEOUT, TimeUnit.SECONDS));
+		number.set(5);
+		assertTrue(changed.await(TIMEOUT, TimeUnit.SECONDS));
+		// Unchanged values are not notified again
+		Thread.sleep(50);
+		assertEquals(Arrays.asList(0, 5), values);
+
+		subscription.cancel();
+		assertTrue(subscription.isCancelled());
+		number.set(6);
+		Thread.sleep(50);
+		assertEquals(Arrays.asList(0, 5), values);
+	}
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.configuration.ConfigurationFactory;
+import com.robo4j.net.MessageClient;
+import com.robo4j.net.MessageServer;
+import com.robo4j.tracing.Span;
+import com.robo4j.tracing.SpanExporter;
+import com.robo4j.tracing.TraceContext;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracer;
+import com.robo4j.tracing.Tracing;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for tracing messages end to end.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class TracingTests {
+	private static final int TIMEOUT = 10;
+	private static final Pattern FIELD = Pattern.compile("\"(\\w+)\":\"?([^\",}]*)");
+
+	@Test
+	void testTraceParent() {
+		TraceContext context = TraceContext.newTrace().newChild();
+		String traceParent = context.toTraceParent();
+		assertEquals(55, traceParent.length());
+
+		TraceContext remote = TraceContext.fromTraceParent(traceParent);
+		assertEquals(context.getTraceId(), remote.getTraceId());
+		assertEquals(context.getSpanId(), remote.getSpanId());
+		assertEquals(TraceContext.NO_PARENT, remote.getParentSpanId());
+
+		assertNull(TraceContext.fromTraceParent("null"));
+		assertNull(TraceContext.fromTraceParent("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+		assertNull(TraceContext.fromTraceParent("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01"));
+	}
+
+	@Test
+	void testLocalTrace() throws Exception {
+		Path file = Files.createTempFile("robo4j", ".spans");
+		try {
+			Configuration configuration = new ConfigurationBuilder().addBuilder(RoboBuilder.KEY_CONFIGURATION_TRACING,
+					new ConfigurationBuilder().addString(Tracer.KEY_FILE, file.toString())).build();
+			RoboSystem system = new RoboSystem("traced", configuration);
+			StringProducer producer = new StringProducer(system, "producer");
+			producer.initialize(new ConfigurationBuilder().addString(StringProducer.PROP_TARGET, "consumer")
+					.addInteger(StringProducer.PROP_TOTAL_MESSAGES, 1).build());
+			StringConsumer consumer = new StringConsumer(system, "consumer");
+			consumer.initialize(new ConfigurationBuilder().addInteger(StringConsumer.PROP_TOTAL_MESSAGES, 2).build());
+			system.addUnits(producer, consumer);
+			system.start();
+			assertTrue(Tracing.isEnabled());
+
+			// Not traced
+			system.getReference(producer.getId()).sendMessage(StringProducer.PROPERTY_SEND_RANDOM_MESSAGE);
+			try (TraceScope scope = Tracing.startTrace(producer)) {
+				assertNotNull(Tracing.current());
+				system.getReference(producer.getId()).sendMessage(StringProducer.PROPERTY_SEND_RANDOM_MESSAGE);
+			}
+			assertNull(Tracing.current());
+			CountDownLatch latch = consumer.getAttribute(StringConsumer.DESCRIPTOR_COUNT_DOWN_LATCH).get();
+			assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+			// Flushes the spans
+			system.shutdown();
+			assertFalse(Tracing.isEnabled());
+
+			Map<String, Map<String, String>> spansByUnit = new HashMap<>();
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				Map<String, String> span = parse(line);
+				if (spansByUnit.put(span.get("unit") + "/" + span.get("name"), span) != null) {
+					throw new AssertionError("Only the traced message should have spans: " + line);
+				}
+			}
+			assertEquals(3, spansByUnit.size());
+			Map<String, String> origin = spansByUnit.get("producer/" + Span.NAME_ORIGIN);
+			Map<String, String> producerDelivery = spansByUnit.get("producer/" + Span.NAME_DELIVER);
+			Map<String, String> consumerDelivery = spansByUnit.get("consumer/" + Span.NAME_DELIVER);
+			assertNull(origin.get("parentSpanId"));
+			assertEquals(origin.get("spanId"), producerDelivery.get("parentSpanId"));
+			assertEquals(producerDelivery.get("spanId"), consumerDelivery.get("parentSpanId"));
+			assertEquals(origin.get("traceId"), consumerDelivery.get("traceId"));
+			assertEquals("traced", consumerDelivery.get("context"));
+			assertTrue(Long.parseLong(consumerDelivery.get("duration")) >= Long.parseLong(consumerDelivery.get("queueTime")));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void testRemoteTrace() throws Exception {
+		List<Span> exported = new CopyOnWriteArrayList<>();
+		SpanExporter exporter = exported::addAll;
+		Tracer tracer = new Tracer(exporter, Tracer.DEFAULT_QUEUE_SIZE);
+		AtomicReference<TraceContext> received = new AtomicReference<>();
+		CountDownLatch latch = new CountDownLatch(2);
+		MessageServer server = new MessageServer((uuid, id, message) -> {
+			received.compareAndSet(null, Tracing.current());
+			latch.countDown();
+		}, new ConfigurationBuilder().addString(MessageServer.KEY_HOST_NAME, "localhost").build());
+		Thread serverThread = new Thread(() -> {
+			try {
+				server.start();
+			} catch (Exception e) {
+				// Reported by the missing messages
+			}
+		}, "Server Listener");
+		serverThread.setDaemon(true);
+		serverThread.start();
+		try {
+			for (int i = 0; i < TIMEOUT * 4 && server.getListeningURI() == null; i++) {
+				Thread.sleep(250);
+			}
+			MessageClient client = new MessageClient(server.getListeningURI(), "client",
+					ConfigurationFactory.createEmptyConfiguration());
+			client.connect();
+			TraceContext trace = TraceContext.newTrace();
+			try (TraceScope scope = Tracing.activate(trace, tracer)) {
+				client.sendMessage("unit", "traced");
+			}
+			client.sendMessage("unit", "untraced");
+			assertTrue(latch.await(TIMEOUT, TimeUnit.SECONDS));
+			tracer.shutdown();
+
+			assertEquals(1, exported.size());
+			Span send = exported.get(0);
+			assertEquals(Span.NAME_SEND, send.getName());
+			assertEquals(trace.getSpanId(), send.getContext().getParentSpanId());
+			assertEquals(trace.getTraceId(), received.get().getTraceId());
+			assertEquals(send.getContext().getSpanId(), received.get().getSpanId());
+		} finally {
+			tracer.shutdown();
+			server.stop();
+		}
+	}
+
+	private static Map<String, String> parse(String json) {
+		Map<String, String> fields = new HashMap<>();
+		Matcher matcher = FIELD.matcher(json);
+		while (matcher.find()) {
+			fields.put(matcher.group(1), matcher.group(2));
+		}
+		return fields;
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.Configuration;
+import com.robo4j.configuration.ConfigurationBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for starting, stopping and shutting down units.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class UnitLifecycleTests {
+	private static final int DELAY = 300;
+	private static final int TIMEOUT = 10;
+	@SuppressWarnings("rawtypes")
+	private static final DefaultAttributeDescriptor<List> DESCRIPTOR_RECEIVED_MESSAGES = DefaultAttributeDescriptor.create(List.class,
+			StringConsumer.ATTR_GET_RECEIVED_MESSAGES);
+
+	private static class SlowUnit extends RoboUnit<Object> {
+		private final List<String> events;
+		private int delay;
+
+		SlowUnit(RoboContext context, String id, List<String> events) {
+			super(Object.class, context, id);
+			this.events = events;
+		}
+
+		@Override
+		protected void onInitialization(Configuration configuration) throws ConfigurationException {
+			delay = configuration.getInteger("delay", DELAY);
+		}
+
+		@Override
+		public void start() {
+			work("start");
+		}
+
+		@Override
+		public void stop() {
+			work("stop");
+		}
+
+		@Override
+		public void shutdown() {
+			events.add("shutdown " + getId());
+		}
+
+		private void work(String phase) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			events.add(phase + " " + getId());
+		}
+	}
+
+	@Test
+	void testIndependentUnitsInParallel() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		RoboSystem system = new RoboSystem();
+		for (int i = 0; i < 4; i++) {
+			system.addUnits(createUnit(system, "unit" + i, events, null, DELAY));
+		}
+
+		long start = System.nanoTime();
+		system.start();
+		long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(time < 3 * DELAY, "Took " + time + " ms to start");
+		assertEquals(4, system.getLifecycleTimings(UnitLifecycle.Phase.START).size());
+		assertTrue(system.getLifecycleTimings(UnitLifecycle.Phase.START).get("unit0") >= TimeUnit.MILLISECONDS.toNanos(DELAY));
+		for (RoboReference<?> reference : system.getUnits()) {
+			assertEquals(LifecycleState.STARTED, reference.getState());
+		}
+		system.shutdown();
+		assertEquals(LifecycleState.SHUTDOWN, system.getReference("unit0").getState());
+	}
+
+	@Test
+	void testDependencyOrder() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		RoboSystem system = new RoboSystem();
+		system.addUnits(createUnit(system, "controller", events, "sensor, actuator", 0), createUnit(system, "sensor", events, null, DELAY),
+				createUnit(system, "actuator", events, null, 0));
+
+		system.start();
+		assertEquals("start controller", events.get(2));
+
+		system.shutdown();
+		assertEquals("stop controller", events.get(3));
+		assertEquals("shutdown controller", events.get(6));
+	}
+
+	@Test
+	void testTimeout() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		RoboSystem system = new RoboSystem();
+		SlowUnit hanging = new SlowUnit(system, "hanging", events);
+		hanging.initialize(new ConfigurationBuilder().addInteger("delay", 6 * DELAY).addInteger(RoboUnit.KEY_LIFECYCLE_TIMEOUT, 50).build());
+		system.addUnits(hanging, createUnit(system, "dependent", events, "hanging", 0));
+
+		long start = System.nanoTime();
+		system.start();
+		long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(time < 5 * DELAY, "Took " + time + " ms to start");
+		assertEquals(LifecycleState.STARTING, hanging.getState());
+		assertEquals(LifecycleState.STARTED, system.getReference("dependent").getState());
+		system.shutdown();
+	}
+
+	@Test
+	void testLazyInitialization() throws Exception {
+		RoboBuilder builder = new RoboBuilder(new ConfigurationBuilder().addBoolean(RoboBuilder.KEY_LAZY_INITIALIZATION, true).build());
+		builder.add(StringConsumer.class, new ConfigurationBuilder().addInteger(StringConsumer.PROP_TOTAL_MESSAGES, 3).build(), "lazy");
+		builder.add(StringConsumer.class, new ConfigurationBuilder().build(), "unused");
+		builder.add(StringConsumer.class, new ConfigurationBuilder().addBoolean(RoboUnit.KEY_LAZY_INITIALIZATION, false).build(), "eager");
+		RoboContext system = builder.build();
+		system.start();
+
+		RoboReference<String> lazy = system.getReference("lazy");
+		assertEquals(LifecycleState.STARTED, system.getReference("eager").getState());
+		assertEquals(LifecycleState.UNINITIALIZED, lazy.getState());
+
+		lazy.sendMessage("a");
+		lazy.sendMessage("b");
+		lazy.sendMessage("c");
+		assertEquals(Integer.valueOf(3), lazy.getAttribute(StringConsumer.DESCRIPTOR_TOTAL_MESSAGES).get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(LifecycleState.STARTED, lazy.getState());
+		assertEquals(Arrays.asList("a", "b", "c"), lazy.getAttribute(DESCRIPTOR_RECEIVED_MESSAGES).get(TIMEOUT, TimeUnit.SECONDS));
+		assertNull(system.getReference("unused").getConfiguration());
+
+		system.shutdown();
+		assertEquals(LifecycleState.SHUTDOWN, lazy.getState());
+	}
+
+	@Test
+	void testLazyInitializationAfterStart() throws Exception {
+		RoboSystem system = new RoboSystem();
+		SlowStartingConsumer consumer = new SlowStartingConsumer(system, "lazy");
+		system.addUnits(consumer);
+		system.start();
+
+		assertThrows(IllegalStateException.class, () -> system.deferInitialization(consumer, new ConfigurationBuilder().build()));
+		system.shutdown();
+	}
+
+	@Test
+	void testLazyInitializationWithOverflow() throws Exception {
+		RoboSystem system = new RoboSystem();
+		SlowStartingConsumer consumer = new SlowStartingConsumer(system, "lazy");
+		system.addUnits(consumer);
+		system.deferInitialization(consumer, new ConfigurationBuilder().addInteger(RoboUnit.KEY_MAILBOX_CAPACITY, 1)
+				.addString(RoboUnit.KEY_MAILBOX_OVERFLOW_POLICY, MailboxOverflowPolicy.FAIL.name()).build());
+		system.start();
+
+		// All waiting until the unit is started, and then overflowing the
+		// mailbox when handed over
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+		reference.sendMessage(1);
+		reference.sendMessage(2);
+		reference.sendMessage(3);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		consumer.openGate();
+
+		// The inbox must still have been handed over. Retried until the
+		// message handed over is out of the way.
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+		while (!reference.trySendMessage(4) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		while (!consumer.getReceivedMessages().contains(4) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(Integer.valueOf(1), consumer.getReceivedMessages().get(0));
+		assertTrue(consumer.getReceivedMessages().contains(4));
+		system.shutdown();
+	}
+
+	private static class SlowStartingConsumer extends GatedIntegerConsumer {
+		SlowStartingConsumer(RoboContext context, String id) {
+			super(context, id);
+		}
+
+		@Override
+		public void start() {
+			try {
+				Thread.sleep(DELAY);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static SlowUnit createUnit(RoboContext system, String id, List<String> events, String dependsOn, int delay) throws Exception {
+		SlowUnit unit = new SlowUnit(system, id, events);
+		ConfigurationBuilder builder = new ConfigurationBuilder().addInteger("delay", delay);
+		if (dependsOn != null) {
+			builder.addString(RoboUnit.KEY_DEPENDS_ON, dependsOn);
+		}
+		unit.initialize(builder.build());
+		return unit;
+	}
+}
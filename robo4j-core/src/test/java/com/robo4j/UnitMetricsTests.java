@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.ConfigurationBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the unit metrics, and the latency histogram.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class UnitMetricsTests {
+	private static final int TIMEOUT = 10;
+	private static final int MESSAGES = 10;
+
+	@Test
+	void testHistogramBuckets() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		long previousUpperBound = -1;
+		for (int i = 0; i < histogram.getNumberOfBuckets(); i++) {
+			long upperBound = histogram.getBucketUpperBound(i);
+			assertTrue(upperBound > previousUpperBound);
+			assertEquals(i, LatencyHistogram.getBucket(previousUpperBound + 1));
+			assertEquals(i, LatencyHistogram.getBucket(upperBound));
+			previousUpperBound = upperBound;
+		}
+		assertEquals(Long.MAX_VALUE, previousUpperBound);
+	}
+
+	@Test
+	void testHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000000, histogram.getMax());
+		assertEquals(500500, histogram.getMean(), 0.1);
+		assertWithinBucket(500000, histogram.getValueAtPercentile(50));
+		assertWithinBucket(990000, histogram.getValueAtPercentile(99));
+		assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+		LatencyHistogram snapshot = histogram.snapshot();
+		histogram.record(1);
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(1001, histogram.getCount());
+	}
+
+	@Test
+	void testUnitMetrics() throws Exception {
+		RoboSystem system = new RoboSystem("metrics", new ConfigurationBuilder().addInteger(RoboBuilder.KEY_METRICS_SAMPLING, 1).build());
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+		for (int i = 0; i < MESSAGES; i++) {
+			reference.sendMessage(i);
+		}
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		UnitMetrics metrics = system.getMetricsRegistry().getUnitMetrics(consumer.getId());
+		assertEquals(MESSAGES, metrics.getReceivedCount());
+		assertEquals(0, metrics.getProcessedCount());
+		assertEquals(MESSAGES, metrics.getMailboxDepth());
+
+		consumer.openGate();
+		Map<AttributeDescriptor<?>, Object> attributes = reference
+				.getAttributes(Arrays.asList(MetricsAttributes.DESCRIPTOR_RECEIVED_COUNT, MetricsAttributes.DESCRIPTOR_PROCESSED_COUNT,
+						MetricsAttributes.DESCRIPTOR_MAILBOX_DEPTH, MetricsAttributes.DESCRIPTOR_SERVICE_TIME))
+				.get(TIMEOUT, TimeUnit.SECONDS);
+		// The request is run after the messages sent before it
+		assertEquals((long) MESSAGES, attributes.get(MetricsAttributes.DESCRIPTOR_RECEIVED_COUNT));
+		assertEquals((long) MESSAGES, attributes.get(MetricsAttributes.DESCRIPTOR_PROCESSED_COUNT));
+		assertEquals(0L, attributes.get(MetricsAttributes.DESCRIPTOR_MAILBOX_DEPTH));
+		assertEquals(MESSAGES, ((LatencyHistogram) attributes.get(MetricsAttributes.DESCRIPTOR_SERVICE_TIME)).getCount());
+		LatencyHistogram queueTime = reference.getAttribute(MetricsAttributes.DESCRIPTOR_QUEUE_TIME).get(TIMEOUT, TimeUnit.SECONDS);
+		assertEquals(MESSAGES, queueTime.getCount());
+
+		assertEquals(1, system.getMetricsRegistry().getUnitMetrics().size());
+		assertNull(system.getMetricsRegistry().getUnitMetrics("nonexistent"));
+		system.shutdown();
+	}
+
+	@Test
+	void testDroppedMessages() throws Exception {
+		RoboSystem system = new RoboSystem();
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(RoboUnit.KEY_MAILBOX_CAPACITY, 2)
+				.addString(RoboUnit.KEY_MAILBOX_OVERFLOW_POLICY, MailboxOverflowPolicy.DROP_NEWEST.name()).build());
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+		reference.sendMessage(0);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		// Two fit in the mailbox, the rest are refused
+		for (int i = 1; i < MESSAGES; i++) {
+			reference.sendMessage(i);
+		}
+		assertFalse(reference.trySendMessage(MESSAGES));
+		reference.sendMessages(Arrays.asList(MESSAGES + 1, MESSAGES + 2));
+		UnitMetrics metrics = system.getMetricsRegistry().getUnitMetrics(consumer.getId());
+		assertEquals(3, metrics.getReceivedCount());
+		assertEquals(MESSAGES, metrics.getDroppedCount());
+		assertEquals(3, metrics.getMailboxDepth());
+
+		consumer.openGate();
+		// Attribute requests are queued behind the messages
+		reference.getAttributes().get(TIMEOUT, TimeUnit.SECONDS);
+		assertEquals(Long.valueOf(0), reference.getAttribute(MetricsAttributes.DESCRIPTOR_MAILBOX_DEPTH).get(TIMEOUT, TimeUnit.SECONDS));
+		assertEquals(Long.valueOf(MESSAGES), reference.getAttribute(MetricsAttributes.DESCRIPTOR_DROPPED_COUNT).get(TIMEOUT, TimeUnit.SECONDS));
+		system.shutdown();
+	}
+
+	@Test
+	void testSampling() throws Exception {
+		RoboSystem system = new RoboSystem();
+		IntegerConsumer consumer = new IntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+		int messages = UnitMetrics.DEFAULT_SAMPLING * 100;
+		for (int i = 0; i < messages; i++) {
+			reference.sendMessage(i);
+		}
+		reference.getAttribute(IntegerConsumer.DESCRIPTOR_NUMBER_OF_RECEIVED_MESSAGES).get(TIMEOUT, TimeUnit.SECONDS);
+		UnitMetrics metrics = system.getMetricsRegistry().getUnitMetrics(consumer.getId());
+		assertEquals(messages, metrics.getProcessedCount());
+		assertEquals(100, metrics.getServiceTime().getCount());
+		system.shutdown();
+	}
+
+	private static void assertWithinBucket(long expected, long actual) {
+		assertTrue(Math.abs(expected - actual) <= expected / 4, "Expected about " + expected + ", got " + actual);
+	}
+}
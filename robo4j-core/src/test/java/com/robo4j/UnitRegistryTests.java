@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for the unit registry of the {@link RoboSystem}.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class UnitRegistryTests {
+	private static final int UNIT_COUNT = 16;
+
+	@Test
+	void testHandles() {
+		RoboSystem system = new RoboSystem();
+		for (int i = 0; i < UNIT_COUNT; i++) {
+			system.addUnits(new StringConsumer(system, "consumer" + i));
+		}
+
+		for (int i = 0; i < UNIT_COUNT; i++) {
+			int handle = system.getHandle("consumer" + i);
+			assertEquals(i, handle);
+			assertSame(system.getReference("consumer" + i), system.getReference(handle));
+		}
+		assertEquals(-1, system.getHandle("missing"));
+		assertNull(system.getReference("missing"));
+		system.shutdown();
+	}
+
+	@Test
+	void testUnitsCached() {
+		RoboSystem system = new RoboSystem();
+		StringConsumer consumer = new StringConsumer(system, "consumer");
+		system.addUnits(consumer);
+
+		Collection<RoboReference<?>> units = system.getUnits();
+		assertSame(units, system.getUnits());
+		assertSame(system.getReference(consumer), units.iterator().next());
+		assertThrows(UnsupportedOperationException.class, () -> units.clear());
+		system.shutdown();
+	}
+
+	@Test
+	void testSingleReferenceBeforeAdded() {
+		RoboSystem system = new RoboSystem();
+		StringConsumer consumer = new StringConsumer(system, "consumer");
+		RoboReference<String> reference = system.getReference(consumer);
+		assertSame(reference, system.getReference(consumer));
+
+		system.addUnits(consumer);
+		assertSame(reference, system.getReference(consumer));
+		assertSame(reference, system.getReference("consumer"));
+
+		RoboSystem other = new RoboSystem();
+		assertThrows(IllegalArgumentException.class, () -> other.getReference(consumer));
+		other.shutdown();
+		system.shutdown();
+	}
+
+	@Test
+	void testConcurrentLookups() throws Exception {
+		RoboSystem system = new RoboSystem();
+		for (int i = 0; i < UNIT_COUNT; i++) {
+			system.addUnits(new StringConsumer(system, "consumer" + i));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<RoboReference<?>>> lookups = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			String id = "consumer" + (i % UNIT_COUNT);
+			lookups.add(executor.submit(() -> system.getReference(id)));
+		}
+
+		for (int i = 0; i < lookups.size(); i++) {
+			assertSame(system.getReference("consumer" + (i % UNIT_COUNT)), lookups.get(i).get());
+		}
+		executor.shutdown();
+		system.shutdown();
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j;
+
+import com.robo4j.configuration.ConfigurationBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the watchdog reporting stalled message handlers and growing
+ * mailboxes.
+ * 
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class UnitWatchdogTests {
+	private static final int TIMEOUT = 10;
+	private static final int BUDGET = 20;
+
+	@Test
+	void testHandlerStall() throws Exception {
+		RoboSystem system = new RoboSystem("watchdog", new ConfigurationBuilder().addInteger(RoboBuilder.KEY_WATCHDOG_INTERVAL, 0).build());
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		UnitWatchdog watchdog = new UnitWatchdog(() -> Collections.singletonMap(consumer.getId(), consumer), 1, BUDGET, 0);
+
+		system.getReference(consumer.getId()).sendMessage(1);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		watchdog.check();
+		Thread.sleep(BUDGET * 2);
+		watchdog.check();
+		assertEquals(1, watchdog.getStallCount());
+		// Only reported once
+		watchdog.check();
+		assertEquals(1, watchdog.getStallCount());
+
+		consumer.openGate();
+		system.shutdown();
+	}
+
+	@Test
+	void testHandlerBudgetOverride() throws Exception {
+		RoboSystem system = new RoboSystem("watchdog", new ConfigurationBuilder().addInteger(RoboBuilder.KEY_WATCHDOG_INTERVAL, 0).build());
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		consumer.initialize(new ConfigurationBuilder().addInteger(RoboUnit.KEY_WATCHDOG_BUDGET, 0).build());
+		system.addUnits(consumer);
+		system.start();
+		UnitWatchdog watchdog = new UnitWatchdog(() -> Collections.singletonMap(consumer.getId(), consumer), 1, BUDGET, 0);
+
+		system.getReference(consumer.getId()).sendMessage(1);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		watchdog.check();
+		Thread.sleep(BUDGET * 2);
+		watchdog.check();
+		assertEquals(0, watchdog.getStallCount());
+
+		consumer.openGate();
+		system.shutdown();
+	}
+
+	@Test
+	void testQueueGrowth() throws Exception {
+		RoboSystem system = new RoboSystem("watchdog", new ConfigurationBuilder().addInteger(RoboBuilder.KEY_WATCHDOG_INTERVAL, 0).build());
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+		Map<String, RoboUnit<?>> units = Collections.singletonMap(consumer.getId(), consumer);
+		UnitWatchdog watchdog = new UnitWatchdog(() -> units, 1, 0, 3);
+
+		RoboReference<Integer> reference = system.getReference(consumer.getId());
+		watchdog.check();
+		for (int i = 0; i < 3; i++) {
+			reference.sendMessage(i);
+			watchdog.check();
+		}
+		assertEquals(1, watchdog.getQueueGrowthCount());
+		// Still growing, but already reported
+		reference.sendMessage(3);
+		watchdog.check();
+		assertEquals(1, watchdog.getQueueGrowthCount());
+
+		consumer.openGate();
+		system.shutdown();
+	}
+
+	@Test
+	void testOffByDefault() throws Exception {
+		RoboSystem system = new RoboSystem();
+		system.start();
+		assertNull(system.getWatchdog());
+		system.shutdown();
+	}
+
+	@Test
+	void testSystemWatchdog() throws Exception {
+		RoboSystem system = new RoboSystem("watchdog", new ConfigurationBuilder().addInteger(RoboBuilder.KEY_WATCHDOG_INTERVAL, 5)
+				.addInteger(RoboBuilder.KEY_WATCHDOG_BUDGET, BUDGET).build());
+		GatedIntegerConsumer consumer = new GatedIntegerConsumer(system, "consumer");
+		system.addUnits(consumer);
+		system.start();
+
+		system.getReference(consumer.getId()).sendMessage(1);
+		assertTrue(consumer.awaitProcessing(TIMEOUT, TimeUnit.SECONDS));
+		UnitWatchdog watchdog = system.getWatchdog();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+		while (watchdog.getStallCount() == 0 && System.nanoTime() - deadline < 0) {
+			Thread.sleep(BUDGET);
+		}
+		assertEquals(1, watchdog.getStallCount());
+
+		consumer.openGate();
+		system.shutdown();
+	}
+
+	@Test
+	void testDumpThread() {
+		String dump = UnitWatchdog.dumpThread(Thread.currentThread());
+		assertTrue(dump.startsWith("\"" + Thread.currentThread().getName() + "\" RUNNABLE"));
+		assertTrue(dump.contains("testDumpThread"));
+	}
+}
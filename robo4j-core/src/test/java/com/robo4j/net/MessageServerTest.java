@@ -22,13 +22,19 @@ import com.robo4j.configuration.ConfigurationBuilder;
 import com.robo4j.configuration.ConfigurationFactory;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -196,6 +202,132 @@ public class MessageServerTest {
 		}
 	}
 
+	@Test
+	void testBatchMessagePassing() throws Exception {
+		final List<List<Object>> batches = new ArrayList<>();
+		final CountDownLatch messageLatch = new CountDownLatch(1);
+
+		Configuration serverConfig = new ConfigurationBuilder().addString(PROPERTY_SERVER_NAME, "Server Name")
+				.addString(MessageServer.KEY_HOST_NAME, "localhost").build();
+		MessageServer server = new MessageServer(new MessageCallback() {
+			@Override
+			public void handleMessage(String sourceUuid, String id, Object message) {
+				fail("Expected the messages in one batch");
+			}
+
+			@Override
+			public void handleMessages(String sourceUuid, String id, List<Object> messages) {
+				batches.add(messages);
+				messageLatch.countDown();
+			}
+		}, serverConfig);
+
+		Thread t = new Thread(() -> {
+			try {
+				server.start();
+			} catch (IOException e) {
+				exception = e;
+				fail(e.getMessage());
+			}
+		}, "Server Listener");
+		t.setDaemon(true);
+		t.start();
+		for (int i = 0; i < 10; i++) {
+			if (server.getListeningPort() == 0) {
+				Thread.sleep(250);
+			} else {
+				break;
+			}
+		}
+
+		Configuration clientConfig = ConfigurationFactory.createEmptyConfiguration();
+		MessageClient client = new MessageClient(server.getListeningURI(), CONST_MYUUID, clientConfig);
+		if (exception != null) {
+			throw exception;
+		}
+		client.connect();
+
+		List<Object> testMessages = Arrays.asList(1, 2.0f, "three", new TestMessageType(4, "four", null));
+		client.sendMessages("test", testMessages);
+		messageLatch.await(2, TimeUnit.SECONDS);
+
+		assertEquals(1, batches.size());
+		List<Object> messages = batches.get(0);
+		assertEquals(testMessages.subList(0, 3), messages.subList(0, 3));
+		assertEquals(4, ((TestMessageType) messages.get(3)).getNumber());
+	}
+
+	@Test
+	void testBatchSizeLimit() throws Exception {
+		final List<List<Object>> batches = new CopyOnWriteArrayList<>();
+		final CountDownLatch messageLatch = new CountDownLatch(2);
+
+		Configuration serverConfig = new ConfigurationBuilder().addString(PROPERTY_SERVER_NAME, "Server Name")
+				.addString(MessageServer.KEY_HOST_NAME, "localhost").build();
+		MessageServer server = new MessageServer(new MessageCallback() {
+			@Override
+			public void handleMessage(String sourceUuid, String id, Object message) {
+				fail("Expected the messages in batches");
+			}
+
+			@Override
+			public void handleMessages(String sourceUuid, String id, List<Object> messages) {
+				batches.add(messages);
+				messageLatch.countDown();
+			}
+		}, serverConfig);
+
+		Thread t = new Thread(() -> {
+			try {
+				server.start();
+			} catch (IOException e) {
+				exception = e;
+				fail(e.getMessage());
+			}
+		}, "Server Listener");
+		t.setDaemon(true);
+		t.start();
+		for (int i = 0; i < 10; i++) {
+			if (server.getListeningPort() == 0) {
+				Thread.sleep(250);
+			} else {
+				break;
+			}
+		}
+
+		// Oversized batches are split by the client...
+		MessageClient client = new MessageClient(server.getListeningURI(), CONST_MYUUID,
+				ConfigurationFactory.createEmptyConfiguration());
+		if (exception != null) {
+			throw exception;
+		}
+		client.connect();
+		List<Integer> testMessages = IntStream.rangeClosed(1, MessageProtocolConstants.MAX_BATCH_SIZE + 1).boxed()
+				.collect(Collectors.toList());
+		client.sendMessages("test", testMessages);
+		messageLatch.await(2, TimeUnit.SECONDS);
+		assertEquals(2, batches.size());
+		assertEquals(MessageProtocolConstants.MAX_BATCH_SIZE, batches.get(0).size());
+		assertEquals(Arrays.asList(MessageProtocolConstants.MAX_BATCH_SIZE + 1), batches.get(1));
+
+		// ...and refused by the server, which drops the connection
+		try (Socket socket = new Socket(server.getListeningURI().getHost(), server.getListeningPort())) {
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeShort(MessageProtocolConstants.MAGIC);
+			out.writeUTF(CONST_MYUUID);
+			out.writeUTF("test");
+			out.writeByte(MessageProtocolConstants.BATCH);
+			out.writeInt(Integer.MAX_VALUE);
+			out.flush();
+			// Times out unless the server closes the connection
+			socket.setSoTimeout(2000);
+			socket.getInputStream().readAllBytes();
+		}
+		assertEquals(2, batches.size());
+		client.shutdown();
+		server.stop();
+	}
+
 	public static RoboContext createTestContext() {
 		RoboTestContext testContext = new RoboTestContext("TestContext", ConfigurationFactory.createEmptyConfiguration());
 		Configuration configuration = new ConfigurationBuilder().addString("name", "Test").addString("description", "Lalalala").build();
@@ -56,4 +56,6 @@ public final class HttpHeaderFieldNames {
 
 	public static final String ROBO_UNIT_UID = "uid";
 
+	public static final String TRACEPARENT = "traceparent";
+
 }
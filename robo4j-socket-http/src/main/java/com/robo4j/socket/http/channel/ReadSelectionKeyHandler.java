@@ -64,6 +64,7 @@ public class ReadSelectionKeyHandler implements SelectionKeyHandler {
 	@Override
 	public SelectionKey handle() {
 		SocketChannel channel = (SocketChannel) key.channel();
+		final long startTime = System.nanoTime();
 		lock.lock();
 		try {
 			final HttpDecoratedRequest decoratedRequest = channelRequestBuffer.getHttpDecoratedRequestByChannel(channel);
@@ -71,6 +72,7 @@ public class ReadSelectionKeyHandler implements SelectionKeyHandler {
 			final RoboRequestCallable callable = new RoboRequestCallable(context, serverContext, decoratedRequest, factory);
 			final Future<HttpResponseProcess> futureResult = context.getScheduler().submit(callable);
 			final HttpResponseProcess result = extractRoboResponseProcess(futureResult);
+			result.setStartTime(startTime);
 			outBuffers.put(key, result);
 			registerSelectionKey(channel);
 			return key;
@@ -31,6 +31,9 @@ import com.robo4j.socket.http.units.ServerPathConfig;
 import com.robo4j.socket.http.util.ChannelBufferUtils;
 import com.robo4j.socket.http.util.ChannelUtils;
 import com.robo4j.socket.http.util.HttpMessageBuilder;
+import com.robo4j.tracing.Span;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracing;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -75,11 +78,14 @@ public class WriteSelectionKeyHandler implements SelectionKeyHandler {
 					String responseMessage = responseProcess.getResult().toString();
 					HttpDenominator denominator = new HttpResponseDenominator(responseProcess.getCode(),
 							HttpVersion.HTTP_1_1);
-					getResponse = HttpMessageBuilder.Build().setDenominator(denominator)
+					HttpMessageBuilder responseBuilder = HttpMessageBuilder.Build().setDenominator(denominator)
 							.addHeaderElement(HttpHeaderFieldNames.ROBO_UNIT_UID, context.getId())
 							.addHeaderElement(HttpHeaderFieldNames.CONTENT_LENGTH,
-									String.valueOf(responseMessage.length()))
-							.build(responseMessage);
+									String.valueOf(responseMessage.length()));
+					if (responseProcess.getContentType() != null) {
+						responseBuilder.addHeaderElement(HttpHeaderFieldNames.CONTENT_TYPE, responseProcess.getContentType());
+					}
+					getResponse = responseBuilder.build(responseMessage);
 				} else {
 					HttpDenominator denominator = new HttpResponseDenominator(responseProcess.getCode(),
 							HttpVersion.HTTP_1_1);
@@ -116,6 +122,11 @@ public class WriteSelectionKeyHandler implements SelectionKeyHandler {
 			buffer.clear();
 		}
 
+		if (responseProcess.getPath() != null && responseProcess.getMethod() != null) {
+			serverContext.recordRequestLatency(new PathHttpMethod(responseProcess.getPath(), responseProcess.getMethod()),
+					System.nanoTime() - responseProcess.getStartTime());
+		}
+
 		try {
 			key.cancel();
 			key.channel().close();
@@ -130,7 +141,13 @@ public class WriteSelectionKeyHandler implements SelectionKeyHandler {
 		if (pathConfig.getRoboUnit() != null
 				&& pathConfig.getRoboUnit().getMessageType().equals(process.getResult().getClass())) {
 			RoboReference<Object> reference = pathConfig.getRoboUnit();
-			reference.sendMessage(process.getResult());
+			TraceScope scope = Tracing.startSpan(process.getTrace(), context.getTracer(), Span.NAME_RECEIVE, context.getId(),
+					reference.getId());
+			try {
+				reference.sendMessage(process.getResult());
+			} finally {
+				scope.close();
+			}
 		} else {
 			throw new IllegalStateException(String.format("process %s", process));
 		}
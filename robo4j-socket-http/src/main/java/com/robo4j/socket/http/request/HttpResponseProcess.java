@@ -18,6 +18,7 @@ package com.robo4j.socket.http.request;
 
 import com.robo4j.socket.http.HttpMethod;
 import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.tracing.TraceContext;
 
 /**
  *  wrapper for http request result
@@ -32,13 +33,19 @@ public final class HttpResponseProcess implements ChannelResponseProcess<String>
     private HttpMethod method;
     private StatusCode code;
     private Object result;
+    private TraceContext trace;
+    private String contentType;
+    private long startTime;
 
-    HttpResponseProcess(String path, String target, HttpMethod method, StatusCode code, Object result) {
+    HttpResponseProcess(String path, String target, HttpMethod method, StatusCode code, Object result, TraceContext trace,
+            String contentType) {
         this.path = path;
         this.target = target;
         this.method = method;
         this.code = code;
         this.result = result;
+        this.trace = trace;
+        this.contentType = contentType;
     }
 
     @Override
@@ -84,6 +91,32 @@ public final class HttpResponseProcess implements ChannelResponseProcess<String>
         return code;
     }
 
+    /**
+     * @return the trace context sent along with the request, or null if the
+     *         request was not traced.
+     */
+    public TraceContext getTrace() {
+        return trace;
+    }
+
+    /**
+     * @return the content type of the result, or null if not known
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return when the request was read, as given by {@link System#nanoTime()}
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
     @Override
     public String toString() {
         return "HttpResponseProcess{" +
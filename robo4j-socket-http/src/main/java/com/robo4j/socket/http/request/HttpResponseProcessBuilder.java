@@ -18,6 +18,7 @@ package com.robo4j.socket.http.request;
 
 import com.robo4j.socket.http.HttpMethod;
 import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.tracing.TraceContext;
 
 /**
  * {@link HttpResponseProcess}
@@ -32,6 +33,8 @@ public class HttpResponseProcessBuilder {
 	private HttpMethod method;
 	private StatusCode code;
 	private Object result;
+	private TraceContext trace;
+	private String contentType;
 
 	private HttpResponseProcessBuilder() {
 	}
@@ -65,7 +68,17 @@ public class HttpResponseProcessBuilder {
 		return this;
 	}
 
+	public HttpResponseProcessBuilder setTrace(TraceContext trace) {
+		this.trace = trace;
+		return this;
+	}
+
+	public HttpResponseProcessBuilder setContentType(String contentType) {
+		this.contentType = contentType;
+		return this;
+	}
+
 	public HttpResponseProcess build() {
-		return new HttpResponseProcess(path, target, method, code, result);
+		return new HttpResponseProcess(path, target, method, code, result, trace, contentType);
 	}
 }
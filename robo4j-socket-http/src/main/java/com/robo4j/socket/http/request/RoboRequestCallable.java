@@ -23,14 +23,18 @@ import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.socket.http.dto.ClassGetSetDTO;
 import com.robo4j.socket.http.dto.PathAttributeDTO;
 import com.robo4j.socket.http.dto.PathAttributeListDTO;
+import com.robo4j.socket.http.HttpHeaderFieldNames;
 import com.robo4j.socket.http.enums.StatusCode;
+import com.robo4j.socket.http.enums.SystemPath;
 import com.robo4j.socket.http.message.HttpDecoratedRequest;
 import com.robo4j.socket.http.message.HttpRequestDenominator;
 import com.robo4j.socket.http.units.ServerContext;
 import com.robo4j.socket.http.units.ServerPathConfig;
 import com.robo4j.socket.http.util.HttpPathUtils;
 import com.robo4j.socket.http.util.JsonUtil;
+import com.robo4j.socket.http.util.MetricsUtils;
 import com.robo4j.socket.http.util.ReflectUtils;
+import com.robo4j.tracing.TraceContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -78,6 +82,15 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 				if (pathConfig.getPath().equals(UTF8_SOLIDUS)) {
 					resultBuilder.setCode(StatusCode.OK);
 					resultBuilder.setResult(factory.processGet(context));
+				} else if (pathConfig.getPath().equals(HttpPathUtils.toPath(SystemPath.METRICS.getPath()))) {
+					resultBuilder.setCode(StatusCode.OK);
+					if (isJsonRequested()) {
+						resultBuilder.setContentType(MetricsUtils.CONTENT_TYPE_JSON);
+						resultBuilder.setResult(MetricsUtils.toJson(context, serverContext));
+					} else {
+						resultBuilder.setContentType(MetricsUtils.CONTENT_TYPE_PROMETHEUS);
+						resultBuilder.setResult(MetricsUtils.toPrometheus(context, serverContext));
+					}
 				} else {
 
 					resultBuilder.setTarget(pathConfig.getRoboUnit().getId());
@@ -103,16 +116,21 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 					} else {
 						RoboReference<?> unit = context.getReference(pathConfig.getRoboUnit().getId());
 
-						List<PathAttributeDTO> attributes = new ArrayList<>();
-						for (AttributeDescriptor attr : unit.getKnownAttributes()) {
+						List<AttributeDescriptor<?>> requested = new ArrayList<>();
+						for (AttributeDescriptor<?> attr : unit.getKnownAttributes()) {
 							if (requestAttributes.contains(attr.getAttributeName())) {
-								PathAttributeDTO attribute = new PathAttributeDTO();
-								String valueString = String.valueOf(unit.getAttribute(attr).get());
-								attribute.setValue(valueString);
-								attribute.setName(attr.getAttributeName());
-								attributes.add(attribute);
+								requested.add(attr);
 							}
 						}
+						// All the requested attributes in one request to the unit
+						Map<AttributeDescriptor<?>, Object> values = unit.getAttributes(requested).get();
+						List<PathAttributeDTO> attributes = new ArrayList<>();
+						for (AttributeDescriptor<?> attr : requested) {
+							PathAttributeDTO attribute = new PathAttributeDTO();
+							attribute.setValue(String.valueOf(values.get(attr)));
+							attribute.setName(attr.getAttributeName());
+							attributes.add(attribute);
+						}
 						if (attributes.size() == 1) {
 							Map<String, ClassGetSetDTO> responseAttributeDescriptorMap = ReflectUtils
 									.getFieldsTypeMap(PathAttributeDTO.class);
@@ -137,6 +155,8 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 					} else {
 						resultBuilder.setCode(StatusCode.ACCEPTED);
 						resultBuilder.setResult(respObj);
+						resultBuilder.setTrace(TraceContext
+								.fromTraceParent(decoratedRequest.getHeaderValue(HttpHeaderFieldNames.TRACEPARENT)));
 					}
 				}
 				break;
@@ -150,6 +170,16 @@ public class RoboRequestCallable implements Callable<HttpResponseProcess> {
 		return resultBuilder.build();
 	}
 
+	private boolean isJsonRequested() {
+		final HttpRequestDenominator denominator = (HttpRequestDenominator) decoratedRequest.getDenominator();
+		final Set<String> format = denominator.getAttributes().get(MetricsUtils.ATTRIBUTE_FORMAT);
+		if (format != null) {
+			return format.contains(MetricsUtils.FORMAT_JSON);
+		}
+		final String accept = decoratedRequest.getHeaderValue(HttpHeaderFieldNames.ACCEPT);
+		return accept != null && accept.contains(MetricsUtils.CONTENT_TYPE_JSON);
+	}
+
 	private boolean isValidPath(ServerPathConfig pathConfig) {
 		return pathConfig != null && decoratedRequest.getPathMethod() != null
 				&& decoratedRequest.getPathMethod().getMethod().equals(pathConfig.getMethod());
@@ -16,6 +16,7 @@
  */
 package com.robo4j.socket.http.request;
 
+import com.robo4j.AttributeDescriptor;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.logging.SimpleLoggingUtil;
@@ -31,8 +32,10 @@ import com.robo4j.socket.http.util.JsonUtil;
 import com.robo4j.socket.http.util.ReflectUtils;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -60,9 +63,10 @@ public class RoboRequestFactory implements DefaultRequestFactory<Object> {
 	 */
 	@Override
 	public Object processGet(RoboContext context) {
-		if (!context.getUnits().isEmpty()) {
+		final Collection<RoboReference<?>> units = context.getUnits();
+		if (!units.isEmpty()) {
 
-			final List<ResponseUnitDTO> unitList = context.getUnits().stream()
+			final List<ResponseUnitDTO> unitList = units.stream()
 					.map(u -> new ResponseUnitDTO(u.getId(), u.getState())).collect(Collectors.toList());
 			unitList.add(0, new ResponseUnitDTO(context.getId(), context.getState()));
 			return JsonUtil.toJsonArray(unitList);
@@ -79,27 +83,27 @@ public class RoboRequestFactory implements DefaultRequestFactory<Object> {
 		final SocketDecoder<?, ?> decoder = codecRegistry.getDecoder(unitRef.getMessageType());
 
 		if(unitRef.getMessageType().equals(Object.class) || decoder == null){
-			 List<ResponseAttributeDTO> attrList = unitRef.getKnownAttributes().stream()
+			 final Collection<AttributeDescriptor<?>> descriptors = unitRef.getKnownAttributes();
+			 final Map<AttributeDescriptor<?>, Object> values;
+			 try {
+				 // All the attributes in one request to the unit
+				 values = unitRef.getAttributes(descriptors).get();
+			 } catch (InterruptedException | ExecutionException e) {
+				 SimpleLoggingUtil.error(getClass(), e.getMessage());
+				 return JsonUtil.toJsonArrayServer(Collections.emptyList());
+			 }
+			 List<ResponseAttributeDTO> attrList = descriptors.stream()
 					 .map(d -> {
-						 try {
-							 Object val = unitRef.getAttribute(d).get();
-							 ResponseAttributeDTO attributeDTO = new ResponseAttributeDTO();
-							 attributeDTO.setId(d.getAttributeName());
-							 attributeDTO.setType(d.getAttributeType().getTypeName());
-							 attributeDTO.setValue(String.valueOf(val));
+						 ResponseAttributeDTO attributeDTO = new ResponseAttributeDTO();
+						 attributeDTO.setId(d.getAttributeName());
+						 attributeDTO.setType(d.getAttributeType().getTypeName());
+						 attributeDTO.setValue(String.valueOf(values.get(d)));
 
-							 if(d.getAttributeName().equals(HttpServerUnit.ATTR_PATHS)){
-								 attributeDTO.setType("java.util.ArrayList");
-							 }
-							 return attributeDTO;
-
-
-						 } catch (InterruptedException | ExecutionException e) {
-							 SimpleLoggingUtil.error(getClass(), e.getMessage());
-							 return null;
+						 if(d.getAttributeName().equals(HttpServerUnit.ATTR_PATHS)){
+							 attributeDTO.setType("java.util.ArrayList");
 						 }
+						 return attributeDTO;
 					 })
-					 .filter(Objects::nonNull)
 					 .collect(Collectors.toList());
 			 return JsonUtil.toJsonArrayServer(attrList);
 
@@ -22,11 +22,15 @@ import com.robo4j.RoboContext;
 import com.robo4j.RoboUnit;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.logging.SimpleLoggingUtil;
+import com.robo4j.socket.http.HttpHeaderFieldNames;
 import com.robo4j.socket.http.ProtocolType;
 import com.robo4j.socket.http.channel.OutboundHttpSocketChannelHandler;
 import com.robo4j.socket.http.enums.StatusCode;
 import com.robo4j.socket.http.message.HttpDecoratedRequest;
 import com.robo4j.socket.http.message.HttpDecoratedResponse;
+import com.robo4j.tracing.Span;
+import com.robo4j.tracing.TraceScope;
+import com.robo4j.tracing.Tracing;
 
 import java.net.InetSocketAddress;
 import java.nio.channels.SocketChannel;
@@ -85,7 +89,11 @@ public class HttpClientUnit extends RoboUnit<HttpDecoratedRequest> {
 			return;
 		}
 		final InetSocketAddress address = new InetSocketAddress(request.getHost(), request.getPort());
-		try (SocketChannel channel = SocketChannel.open(address)) {
+		try (TraceScope scope = Tracing.startSpan(Span.NAME_SEND, getContext().getId(), getId());
+				SocketChannel channel = SocketChannel.open(address)) {
+			if (scope.getContext() != null) {
+				request.addHeaderElement(HttpHeaderFieldNames.TRACEPARENT, scope.getContext().toTraceParent());
+			}
 			if (bufferCapacity != null) {
 				channel.socket().setSendBufferSize(bufferCapacity);
 			}
@@ -16,12 +16,15 @@
  */
 package com.robo4j.socket.http.units;
 
+import com.robo4j.LatencyHistogram;
 import com.robo4j.socket.http.util.ExceptionMessageUtils;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Configuration for http server unit {@link HttpServerUnit} Server context
@@ -42,12 +45,42 @@ public final class ServerContext implements SocketContext<ServerPathConfig> {
 	 */
 	private final Map<String, Object> properties = new HashMap<>();
 
+	/**
+	 * latencies of the handled requests, per registered path
+	 */
+	private final Map<PathHttpMethod, LatencyHistogram> requestLatencies = new ConcurrentHashMap<>();
+
 	ServerContext() {
 	}
 
 	@Override
 	public void addPaths(Map<PathHttpMethod, ServerPathConfig> paths) {
 		pathConfigs.putAll(paths);
+		paths.keySet().forEach(path -> requestLatencies.putIfAbsent(path, new LatencyHistogram()));
+	}
+
+	/**
+	 * Records the time it took to handle a request. Requests to paths which
+	 * are not registered are not recorded.
+	 *
+	 * @param pathMethod
+	 *            the path and method of the request
+	 * @param nanos
+	 *            the time from reading the request to having written the
+	 *            response, in nanoseconds
+	 */
+	public void recordRequestLatency(PathHttpMethod pathMethod, long nanos) {
+		LatencyHistogram histogram = requestLatencies.get(pathMethod);
+		if (histogram != null) {
+			histogram.record(nanos);
+		}
+	}
+
+	/**
+	 * @return the latencies of the handled requests, per registered path
+	 */
+	public Map<PathHttpMethod, LatencyHistogram> getRequestLatencies() {
+		return Collections.unmodifiableMap(requestLatencies);
 	}
 
 	@Override
@@ -110,6 +110,9 @@ public final class HttpPathUtils {
 
 		resultPaths.put(new PathHttpMethod(Utf8Constant.UTF8_SOLIDUS, HttpMethod.GET),
 				new ServerPathConfig(Utf8Constant.UTF8_SOLIDUS, null, HttpMethod.GET));
+		final String metricsPath = toPath(SystemPath.METRICS.getPath());
+		resultPaths.put(new PathHttpMethod(metricsPath, HttpMethod.GET),
+				new ServerPathConfig(metricsPath, null, HttpMethod.GET));
 		serverContext.addPaths(resultPaths);
 	}
 
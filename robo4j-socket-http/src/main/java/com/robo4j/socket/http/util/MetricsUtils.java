@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.util;
+
+import com.robo4j.ExecutorMetrics;
+import com.robo4j.LatencyHistogram;
+import com.robo4j.MetricsRegistry;
+import com.robo4j.RoboContext;
+import com.robo4j.UnitMetrics;
+import com.robo4j.socket.http.units.PathHttpMethod;
+import com.robo4j.socket.http.units.ServerContext;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders the metrics of a context, of the JVM, and of the http server, for
+ * the metrics system path. Everything is read from the counters and
+ * histograms kept anyway, and written out directly, so rendering costs little
+ * more than the text itself.
+ *
+ * <p>
+ * The histograms are rendered as Prometheus histograms, in seconds, with the
+ * buckets of the {@link LatencyHistogram}. Only the buckets which have been
+ * hit are listed, as there are a lot of them. As the histograms are never
+ * reset, a bucket, once listed, stays listed.
+ * </p>
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+public final class MetricsUtils {
+	public static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+	public static final String CONTENT_TYPE_JSON = "application/json";
+	/**
+	 * Path attribute for choosing the format, for example
+	 * <code>/metrics?format=json</code>.
+	 */
+	public static final String ATTRIBUTE_FORMAT = "format";
+	public static final String FORMAT_JSON = "json";
+
+	private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+	private static final double MILLIS_PER_SECOND = 1_000.0;
+	private static final String LE_INFINITY = "+Inf";
+	private static final String AREA_HEAP = "heap";
+	private static final String AREA_NON_HEAP = "nonheap";
+
+	private MetricsUtils() {
+		// Not to be instantiated
+	}
+
+	/**
+	 * @param context
+	 *            the context to render the metrics of.
+	 * @param serverContext
+	 *            the server context with the request latencies.
+	 * @return the metrics, in the Prometheus text format.
+	 */
+	public static String toPrometheus(RoboContext context, ServerContext serverContext) {
+		PrometheusWriter writer = new PrometheusWriter();
+		String contextLabel = label("context", context.getId());
+		MetricsRegistry registry = context.getMetricsRegistry();
+		writeExecutors(writer, contextLabel, registry.getExecutorMetrics());
+		writeUnits(writer, contextLabel, registry.getUnitMetrics());
+		writeJvm(writer);
+		writer.header("robo4j_http_request_duration_seconds", "histogram",
+				"Time from reading a request to having written the response.");
+		for (Map.Entry<PathHttpMethod, LatencyHistogram> entry : serverContext.getRequestLatencies().entrySet()) {
+			String labels = contextLabel + ',' + label("method", entry.getKey().getMethod().getName()) + ','
+					+ label("path", entry.getKey().getPath());
+			writer.histogram("robo4j_http_request_duration_seconds", labels, entry.getValue().snapshot());
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * @param context
+	 *            the context to render the metrics of.
+	 * @param serverContext
+	 *            the server context with the request latencies.
+	 * @return the metrics, as a JSON object. The times are in nanoseconds.
+	 */
+	public static String toJson(RoboContext context, ServerContext serverContext) {
+		StringBuilder builder = new StringBuilder(4096);
+		builder.append("{\"context\":");
+		appendString(builder, context.getId());
+		MetricsRegistry registry = context.getMetricsRegistry();
+		Collection<ExecutorMetrics> executors = registry.getExecutorMetrics();
+		Collection<UnitMetrics> units = registry.getUnitMetrics();
+
+		builder.append(",\"executors\":[");
+		boolean first = true;
+		for (ExecutorMetrics executor : executors) {
+			first = separate(builder, first);
+			builder.append("{\"name\":");
+			appendString(builder, executor.getName());
+			builder.append(",\"poolSize\":").append(executor.getPoolSize());
+			builder.append(",\"maxPoolSize\":").append(executor.getMaxPoolSize());
+			builder.append(",\"activeCount\":").append(executor.getActiveCount());
+			builder.append(",\"queueSize\":").append(executor.getQueueSize());
+			builder.append(",\"completedCount\":").append(executor.getCompletedCount());
+			builder.append(",\"utilization\":").append(executor.getUtilization()).append('}');
+		}
+
+		builder.append("],\"units\":[");
+		first = true;
+		for (UnitMetrics unit : units) {
+			first = separate(builder, first);
+			builder.append("{\"id\":");
+			appendString(builder, unit.getUnitId());
+			builder.append(",\"receivedCount\":").append(unit.getReceivedCount());
+			builder.append(",\"droppedCount\":").append(unit.getDroppedCount());
+			builder.append(",\"processedCount\":").append(unit.getProcessedCount());
+			builder.append(",\"mailboxDepth\":").append(unit.getMailboxDepth());
+			builder.append(",\"queueTime\":");
+			appendHistogram(builder, unit.getQueueTime().snapshot());
+			builder.append(",\"serviceTime\":");
+			appendHistogram(builder, unit.getServiceTime().snapshot());
+			builder.append('}');
+		}
+
+		builder.append("],\"jvm\":{\"heap\":");
+		appendMemory(builder, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage());
+		builder.append(",\"nonHeap\":");
+		appendMemory(builder, ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage());
+		builder.append(",\"threads\":").append(ManagementFactory.getThreadMXBean().getThreadCount());
+		builder.append(",\"gc\":[");
+		first = true;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			first = separate(builder, first);
+			builder.append("{\"name\":");
+			appendString(builder, gc.getName());
+			builder.append(",\"count\":").append(gc.getCollectionCount());
+			builder.append(",\"timeMillis\":").append(gc.getCollectionTime()).append('}');
+		}
+
+		builder.append("]},\"http\":[");
+		first = true;
+		for (Map.Entry<PathHttpMethod, LatencyHistogram> entry : serverContext.getRequestLatencies().entrySet()) {
+			first = separate(builder, first);
+			builder.append("{\"method\":");
+			appendString(builder, entry.getKey().getMethod().getName());
+			builder.append(",\"path\":");
+			appendString(builder, entry.getKey().getPath());
+			builder.append(",\"latency\":");
+			appendHistogram(builder, entry.getValue().snapshot());
+			builder.append('}');
+		}
+		return builder.append("]}").toString();
+	}
+
+	private static void writeExecutors(PrometheusWriter writer, String contextLabel, Collection<ExecutorMetrics> executors) {
+		writer.header("robo4j_executor_threads", "gauge", "Number of threads in the pool.");
+		for (ExecutorMetrics executor : executors) {
+			writer.sample("robo4j_executor_threads", executorLabels(contextLabel, executor), executor.getPoolSize());
+		}
+		writer.header("robo4j_executor_max_threads", "gauge", "Maximum number of threads in the pool.");
+		for (ExecutorMetrics executor : executors) {
+			writer.sample("robo4j_executor_max_threads", executorLabels(contextLabel, executor), executor.getMaxPoolSize());
+		}
+		writer.header("robo4j_executor_active_threads", "gauge", "Number of threads running tasks.");
+		for (ExecutorMetrics executor : executors) {
+			writer.sample("robo4j_executor_active_threads", executorLabels(contextLabel, executor), executor.getActiveCount());
+		}
+		writer.header("robo4j_executor_utilization", "gauge", "Share of the threads running tasks.");
+		for (ExecutorMetrics executor : executors) {
+			writer.sample("robo4j_executor_utilization", executorLabels(contextLabel, executor), executor.getUtilization());
+		}
+		writer.header("robo4j_executor_queued_tasks", "gauge", "Number of tasks waiting for a thread.");
+		for (ExecutorMetrics executor : executors) {
+			writer.sample("robo4j_executor_queued_tasks", executorLabels(contextLabel, executor), executor.getQueueSize());
+		}
+		writer.header("robo4j_executor_completed_tasks_total", "counter", "Number of tasks run to completion.");
+		for (ExecutorMetrics executor : executors) {
+			writer.sample("robo4j_executor_completed_tasks_total", executorLabels(contextLabel, executor),
+					executor.getCompletedCount());
+		}
+	}
+
+	private static String executorLabels(String contextLabel, ExecutorMetrics executor) {
+		return contextLabel + ',' + label("executor", executor.getName());
+	}
+
+	private static void writeUnits(PrometheusWriter writer, String contextLabel, Collection<UnitMetrics> units) {
+		writer.header("robo4j_unit_messages_received_total", "counter", "Number of messages accepted by the mailbox of the unit.");
+		for (UnitMetrics unit : units) {
+			writer.sample("robo4j_unit_messages_received_total", unitLabels(contextLabel, unit), unit.getReceivedCount());
+		}
+		writer.header("robo4j_unit_messages_dropped_total", "counter", "Number of messages refused by the mailbox of the unit.");
+		for (UnitMetrics unit : units) {
+			writer.sample("robo4j_unit_messages_dropped_total", unitLabels(contextLabel, unit), unit.getDroppedCount());
+		}
+		writer.header("robo4j_unit_messages_processed_total", "counter", "Number of messages handled by the unit.");
+		for (UnitMetrics unit : units) {
+			writer.sample("robo4j_unit_messages_processed_total", unitLabels(contextLabel, unit), unit.getProcessedCount());
+		}
+		writer.header("robo4j_unit_mailbox_depth", "gauge", "Number of messages waiting to be delivered to the unit.");
+		for (UnitMetrics unit : units) {
+			writer.sample("robo4j_unit_mailbox_depth", unitLabels(contextLabel, unit), unit.getMailboxDepth());
+		}
+		writer.header("robo4j_unit_queue_time_seconds", "histogram", "Time the timed messages waited in the mailbox.");
+		for (UnitMetrics unit : units) {
+			writer.histogram("robo4j_unit_queue_time_seconds", unitLabels(contextLabel, unit), unit.getQueueTime().snapshot());
+		}
+		writer.header("robo4j_unit_service_time_seconds", "histogram", "Time the unit spent handling the timed messages.");
+		for (UnitMetrics unit : units) {
+			writer.histogram("robo4j_unit_service_time_seconds", unitLabels(contextLabel, unit),
+					unit.getServiceTime().snapshot());
+		}
+	}
+
+	private static String unitLabels(String contextLabel, UnitMetrics unit) {
+		return contextLabel + ',' + label("unit", unit.getUnitId());
+	}
+
+	private static void writeJvm(PrometheusWriter writer) {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+		String heapLabel = label("area", AREA_HEAP);
+		String nonHeapLabel = label("area", AREA_NON_HEAP);
+		writer.header("robo4j_jvm_memory_used_bytes", "gauge", "Used memory.");
+		writer.sample("robo4j_jvm_memory_used_bytes", heapLabel, heap.getUsed());
+		writer.sample("robo4j_jvm_memory_used_bytes", nonHeapLabel, nonHeap.getUsed());
+		writer.header("robo4j_jvm_memory_committed_bytes", "gauge", "Committed memory.");
+		writer.sample("robo4j_jvm_memory_committed_bytes", heapLabel, heap.getCommitted());
+		writer.sample("robo4j_jvm_memory_committed_bytes", nonHeapLabel, nonHeap.getCommitted());
+		writer.header("robo4j_jvm_memory_max_bytes", "gauge", "Maximum memory.");
+		writer.sample("robo4j_jvm_memory_max_bytes", heapLabel, heap.getMax());
+		writer.sample("robo4j_jvm_memory_max_bytes", nonHeapLabel, nonHeap.getMax());
+		writer.header("robo4j_jvm_threads", "gauge", "Number of live threads.");
+		writer.sample("robo4j_jvm_threads", null, ManagementFactory.getThreadMXBean().getThreadCount());
+
+		List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		writer.header("robo4j_jvm_gc_collections_total", "counter", "Number of garbage collections.");
+		for (GarbageCollectorMXBean gc : collectors) {
+			writer.sample("robo4j_jvm_gc_collections_total", label("gc", gc.getName()), gc.getCollectionCount());
+		}
+		writer.header("robo4j_jvm_gc_collection_seconds_total", "counter", "Time spent on garbage collections.");
+		for (GarbageCollectorMXBean gc : collectors) {
+			long millis = gc.getCollectionTime();
+			writer.sample("robo4j_jvm_gc_collection_seconds_total", label("gc", gc.getName()),
+					millis < 0 ? -1 : millis / MILLIS_PER_SECOND);
+		}
+	}
+
+	private static String label(String name, String value) {
+		StringBuilder builder = new StringBuilder(name.length() + value.length() + 3);
+		builder.append(name).append("=\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				builder.append('\\').append(c);
+			} else if (c == '\n') {
+				builder.append("\\n");
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.append('"').toString();
+	}
+
+	private static boolean separate(StringBuilder builder, boolean first) {
+		if (!first) {
+			builder.append(',');
+		}
+		return false;
+	}
+
+	private static void appendMemory(StringBuilder builder, MemoryUsage usage) {
+		builder.append("{\"used\":").append(usage.getUsed());
+		builder.append(",\"committed\":").append(usage.getCommitted());
+		builder.append(",\"max\":").append(usage.getMax()).append('}');
+	}
+
+	private static void appendHistogram(StringBuilder builder, LatencyHistogram histogram) {
+		builder.append("{\"count\":").append(histogram.getCount());
+		builder.append(",\"sum\":").append(histogram.getSum());
+		builder.append(",\"max\":").append(histogram.getMax());
+		builder.append(",\"p50\":").append(histogram.getValueAtPercentile(50));
+		builder.append(",\"p90\":").append(histogram.getValueAtPercentile(90));
+		builder.append(",\"p99\":").append(histogram.getValueAtPercentile(99));
+		builder.append(",\"buckets\":[");
+		boolean first = true;
+		for (int i = 0; i < histogram.getNumberOfBuckets(); i++) {
+			long count = histogram.getBucketCount(i);
+			if (count > 0) {
+				first = separate(builder, first);
+				builder.append('[').append(histogram.getBucketUpperBound(i)).append(',').append(count).append(']');
+			}
+		}
+		builder.append("]}");
+	}
+
+	private static void appendString(StringBuilder builder, String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < ' ') {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+
+	private static final class PrometheusWriter {
+		private final StringBuilder builder = new StringBuilder(8192);
+
+		void header(String name, String type, String help) {
+			builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+			builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		}
+
+		// Negative values are the unknown ones, and are left out.
+		void sample(String name, String labels, double value) {
+			if (value < 0) {
+				return;
+			}
+			appendName(name, labels);
+			builder.append(value).append('\n');
+		}
+
+		void sample(String name, String labels, long value) {
+			if (value < 0) {
+				return;
+			}
+			appendName(name, labels);
+			builder.append(value).append('\n');
+		}
+
+		void histogram(String name, String labels, LatencyHistogram histogram) {
+			String bucketName = name + "_bucket";
+			String bucketLabels = labels + ",le=\"";
+			long cumulative = 0;
+			for (int i = 0; i < histogram.getNumberOfBuckets(); i++) {
+				long count = histogram.getBucketCount(i);
+				long upperBound = histogram.getBucketUpperBound(i);
+				cumulative += count;
+				if (count > 0 && upperBound != Long.MAX_VALUE) {
+					sample(bucketName, bucketLabels + upperBound / NANOS_PER_SECOND + '"', cumulative);
+				}
+			}
+			// Summed from the buckets, so that the counts always add up
+			sample(bucketName, bucketLabels + LE_INFINITY + '"', cumulative);
+			sample(name + "_sum", labels, histogram.getSum() / NANOS_PER_SECOND);
+			sample(name + "_count", labels, cumulative);
+		}
+
+		private void appendName(String name, String labels) {
+			builder.append(name);
+			if (labels != null && !labels.isEmpty()) {
+				builder.append('{').append(labels).append('}');
+			}
+			builder.append(' ');
+		}
+
+		@Override
+		public String toString() {
+			return builder.toString();
+		}
+	}
+}
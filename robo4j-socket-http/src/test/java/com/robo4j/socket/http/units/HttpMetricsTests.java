@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2014, 2019, Marcus Hirt, Miroslav Wengner
+ *
+ * Robo4J is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Robo4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Robo4J. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.robo4j.socket.http.units;
+
+import com.robo4j.RoboBuilder;
+import com.robo4j.RoboContext;
+import com.robo4j.RoboReference;
+import com.robo4j.configuration.ConfigurationBuilder;
+import com.robo4j.socket.http.HttpMethod;
+import com.robo4j.socket.http.enums.SystemPath;
+import com.robo4j.socket.http.json.JsonDocument;
+import com.robo4j.socket.http.json.JsonReader;
+import com.robo4j.socket.http.units.test.StringConsumer;
+import com.robo4j.socket.http.util.HttpPathUtils;
+import com.robo4j.socket.http.util.MetricsUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the metrics system path.
+ *
+ * @author Marcus Hirt (@hirt)
+ * @author Miroslav Wengner (@miragemiko)
+ */
+class HttpMetricsTests {
+	private static final int MESSAGES = 5;
+	private static final PathHttpMethod METRICS_PATH = new PathHttpMethod(
+			HttpPathUtils.toPath(SystemPath.METRICS.getPath()), HttpMethod.GET);
+
+	@Test
+	void metricsPathRegisteredTest() {
+		ServerContext context = new ServerContext();
+		HttpPathUtils.updateHttpServerContextPaths(null, context, Collections.emptyList());
+
+		assertTrue(context.containsPath(METRICS_PATH));
+		assertEquals(0, context.getRequestLatencies().get(METRICS_PATH).getCount());
+	}
+
+	@Test
+	void metricsFormatsTest() throws Exception {
+		RoboBuilder builder = new RoboBuilder("metrics", new ConfigurationBuilder().build());
+		builder.add(StringConsumer.class,
+				new ConfigurationBuilder().addInteger(StringConsumer.PROP_TOTAL_NUMBER_MESSAGES, MESSAGES).build(),
+				StringConsumer.NAME);
+		RoboContext context = builder.build();
+		context.start();
+		RoboReference<String> consumer = context.getReference(StringConsumer.NAME);
+		for (int i = 0; i < MESSAGES; i++) {
+			consumer.sendMessage("message " + i);
+		}
+		CountDownLatch latch = consumer.getAttribute(StringConsumer.DESCRIPTOR_MESSAGES_LATCH).get();
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+		ServerContext serverContext = new ServerContext();
+		HttpPathUtils.updateHttpServerContextPaths(context, serverContext, Collections.emptyList());
+		serverContext.recordRequestLatency(METRICS_PATH, TimeUnit.MILLISECONDS.toNanos(2));
+
+		String prometheus = MetricsUtils.toPrometheus(context, serverContext);
+		assertTrue(prometheus.contains("# TYPE robo4j_unit_queue_time_seconds histogram\n"));
+		assertTrue(prometheus.contains(
+				"robo4j_unit_messages_received_total{context=\"metrics\",unit=\"" + StringConsumer.NAME + "\"} " + MESSAGES + "\n"));
+		assertTrue(prometheus.contains("executor=\"Robo4J Worker Pool\""));
+		assertTrue(prometheus.contains("robo4j_jvm_memory_used_bytes{area=\"heap\"} "));
+		assertTrue(prometheus.contains(
+				"robo4j_http_request_duration_seconds_bucket{context=\"metrics\",method=\"GET\",path=\"/metrics\",le=\"+Inf\"} 1\n"));
+		assertTrue(prometheus.contains(
+				"robo4j_http_request_duration_seconds_count{context=\"metrics\",method=\"GET\",path=\"/metrics\"} 1\n"));
+
+		String json = MetricsUtils.toJson(context, serverContext);
+		JsonDocument document = new JsonReader(json).read();
+		assertNotNull(document);
+		assertEquals("metrics", document.getKey("context"));
+		assertTrue(json.contains("\"receivedCount\":" + MESSAGES));
+		context.shutdown();
+	}
+}
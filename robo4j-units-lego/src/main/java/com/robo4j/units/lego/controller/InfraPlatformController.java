@@ -18,6 +18,7 @@ package com.robo4j.units.lego.controller;
 
 import com.robo4j.ConfigurationException;
 import com.robo4j.RoboContext;
+import com.robo4j.RoboReference;
 import com.robo4j.RoboUnit;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.logging.SimpleLoggingUtil;
@@ -95,7 +96,12 @@ public class InfraPlatformController extends RoboUnit<InfraSensorMessage> {
     private void sendPlatformMessage(LegoPlatformMessageTypeEnum type){
         if(!currentMessage.equals(type)){
             currentMessage = type;
-            getContext().getReference(target).sendMessage(type);
+            RoboReference<LegoPlatformMessageTypeEnum> platform = getContext().getReference(target);
+            if (type == LegoPlatformMessageTypeEnum.STOP) {
+                platform.sendUrgentMessage(type);
+            } else {
+                platform.sendMessage(type);
+            }
         }
     }
 }
@@ -17,6 +17,7 @@
 package com.robo4j.units.rpi.accelerometer;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.ConflatingTrait;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboUnit;
 import com.robo4j.configuration.Configuration;
@@ -27,6 +28,7 @@ import com.robo4j.configuration.Configuration;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
+@ConflatingTrait
 public class AccelerometerProcessor extends RoboUnit<AccelerometerEvent> {
 	public AccelerometerProcessor(RoboContext context, String id) {
 		super(AccelerometerEvent.class, context, id);
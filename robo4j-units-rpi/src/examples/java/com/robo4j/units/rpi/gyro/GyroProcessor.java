@@ -17,6 +17,7 @@
 package com.robo4j.units.rpi.gyro;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.ConflatingTrait;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboUnit;
 import com.robo4j.configuration.Configuration;
@@ -27,6 +28,7 @@ import com.robo4j.configuration.Configuration;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
+@ConflatingTrait
 public class GyroProcessor extends RoboUnit<GyroEvent> {
 	public GyroProcessor(RoboContext context, String id) {
 		super(GyroEvent.class, context, id);
@@ -19,6 +19,7 @@ package com.robo4j.units.rpi.lidarlite;
 import java.util.concurrent.TimeUnit;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.ConflatingTrait;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.RoboUnit;
@@ -31,6 +32,7 @@ import com.robo4j.math.geometry.ScanResult2D;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
+@ConflatingTrait
 public class LaserScanProcessor extends RoboUnit<ScanResult2D> {
 	public LaserScanProcessor(RoboContext context, String id) {
 		super(ScanResult2D.class, context, id);
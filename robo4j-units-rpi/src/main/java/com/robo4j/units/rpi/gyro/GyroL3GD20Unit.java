@@ -22,7 +22,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.robo4j.AttributeDescriptor;
@@ -37,6 +36,10 @@ import com.robo4j.hw.rpi.i2c.gyro.GyroL3GD20Device;
 import com.robo4j.hw.rpi.i2c.gyro.GyroL3GD20Device.Sensitivity;
 import com.robo4j.logging.SimpleLoggingUtil;
 import com.robo4j.math.geometry.Tuple3f;
+import com.robo4j.scheduler.PeriodicFuture;
+import com.robo4j.scheduler.PeriodicInvocation;
+import com.robo4j.scheduler.PeriodicTask;
+import com.robo4j.scheduler.PeriodicWaitStrategy;
 import com.robo4j.units.rpi.I2CRoboUnit;
 import com.robo4j.units.rpi.gyro.GyroRequest.GyroAction;
 
@@ -76,8 +79,15 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 	 */
 	public static final String ATTRIBUTE_NAME_STATE = "state";
 
+	/**
+	 * This attribute will provide the number of periods in which the gyro
+	 * could not be read in time, as a {@link Long}.
+	 */
+	public static final String ATTRIBUTE_NAME_MISSED_DEADLINES = "missedDeadlines";
+
 	public static final Collection<AttributeDescriptor<?>> KNOWN_ATTRIBUTES = Collections
-			.unmodifiableCollection(Arrays.asList(DefaultAttributeDescriptor.create(Tuple3f.class, ATTRIBUTE_NAME_STATE)));
+			.unmodifiableCollection(Arrays.asList(DefaultAttributeDescriptor.create(Tuple3f.class, ATTRIBUTE_NAME_STATE),
+					DefaultAttributeDescriptor.create(Long.class, ATTRIBUTE_NAME_MISSED_DEADLINES)));
 
 	private final Map<RoboReference<GyroEvent>, GyroNotificationEntry> activeThresholds = new HashMap<>();
 
@@ -87,22 +97,25 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 	private boolean highPassFilter;
 	private int period;
 	private CalibratedGyro gyro;
-	private volatile ScheduledFuture<?> readings;
+	private volatile PeriodicFuture readings;
+	private volatile long missedDeadlines;
 
-	private class GyroScanner implements Runnable {
-		private long lastReadingTime = System.currentTimeMillis();
+	private class GyroScanner implements PeriodicTask {
+		private long lastReadingTime = System.nanoTime();
 		private Tuple3f lastReading = new Tuple3f(0f, 0f, 0f);
 
 		@Override
-		public void run() {
+		public void run(PeriodicInvocation invocation) {
 			Tuple3f data = read();
-			long newTime = System.currentTimeMillis();
+			// Using the actual start of the reading, so that jitter in the
+			// scheduling does not end up in the integrated angles.
+			long newTime = invocation.getStartTime();
 
 			// Trapezoid
 			Tuple3f tmp = new Tuple3f(data);
 			long deltaTime = newTime - lastReadingTime;
 			data.add(lastReading);
-			data.multiplyScalar(deltaTime / 2000.0f);
+			data.multiplyScalar(deltaTime / 2000000000.0f);
 
 			lastReading.set(tmp);
 			addToDeltas(data);
@@ -118,7 +131,7 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 		}
 
 		private void reset() {
-			lastReadingTime = System.currentTimeMillis();
+			lastReadingTime = System.nanoTime();
 			lastReading = read();
 		}
 
@@ -200,6 +213,7 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 			if (activeThresholds.isEmpty()) {
 				if (readings != null) {
 					readings.cancel(false);
+					missedDeadlines += readings.getMissedDeadlineCount();
 					readings = null;
 				}
 			}
@@ -216,6 +230,10 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 				SimpleLoggingUtil.error(getClass(), "Failed to read the gyro!", e);
 			}
 		}
+		if (descriptor.getAttributeType() == Long.class && descriptor.getAttributeName().equals(ATTRIBUTE_NAME_MISSED_DEADLINES)) {
+			PeriodicFuture currentReadings = readings;
+			return (R) Long.valueOf(missedDeadlines + (currentReadings == null ? 0 : currentReadings.getMissedDeadlineCount()));
+		}
 		return super.onGetAttribute(descriptor);
 	}
 
@@ -229,7 +247,7 @@ public class GyroL3GD20Unit extends I2CRoboUnit<GyroRequest> {
 		}
 		if (readings == null) {
 			synchronized (this) {
-				readings = getContext().getScheduler().scheduleAtFixedRate(scanner, 0, period, TimeUnit.MILLISECONDS);
+				readings = getContext().getScheduler().schedulePeriodic(scanner, 0, period, TimeUnit.MILLISECONDS, PeriodicWaitStrategy.PARK);
 			}
 		}
 	}
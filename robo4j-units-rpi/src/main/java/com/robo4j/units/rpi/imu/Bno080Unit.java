@@ -18,6 +18,8 @@
 package com.robo4j.units.rpi.imu;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.DedicatedThreadTrait;
+import com.robo4j.IdleStrategy;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.RoboUnit;
@@ -41,6 +43,7 @@ import java.util.List;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
+@DedicatedThreadTrait(idleStrategy = IdleStrategy.PARK)
 public class Bno080Unit extends RoboUnit<BnoRequest> {
 
 	public static final String PROPERTY_REPORT_TYPE = "reportType";
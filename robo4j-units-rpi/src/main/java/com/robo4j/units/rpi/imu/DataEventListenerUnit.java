@@ -17,6 +17,7 @@
 
 package com.robo4j.units.rpi.imu;
 
+import com.robo4j.ConflatingTrait;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboUnit;
 import com.robo4j.hw.rpi.imu.bno.DataEvent3f;
@@ -29,6 +30,7 @@ import com.robo4j.logging.SimpleLoggingUtil;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
+@ConflatingTrait
 public class DataEventListenerUnit extends RoboUnit<DataEvent3f> {
 
 	public DataEventListenerUnit(RoboContext context, String id) {
@@ -18,6 +18,7 @@
 package com.robo4j.units.rpi.imu;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.ConflatingTrait;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.RoboUnit;
@@ -32,6 +33,7 @@ import com.robo4j.net.LookupServiceProvider;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
+@ConflatingTrait
 public class VectorEventListenerUnit extends RoboUnit<VectorEvent> {
 	
 	public static final String ATTR_TARGET_CONTEXT = "targetContext";
@@ -17,12 +17,13 @@
 package com.robo4j.units.rpi.lidarlite;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+import com.robo4j.AttributeSubscription;
 import com.robo4j.ConfigurationException;
+import com.robo4j.FloatRoboReference;
 import com.robo4j.RoboContext;
 import com.robo4j.RoboReference;
 import com.robo4j.configuration.Configuration;
@@ -33,6 +34,8 @@ import com.robo4j.math.geometry.ScanResult2D;
 import com.robo4j.math.geometry.impl.ScanResultImpl;
 import com.robo4j.math.jfr.JfrUtils;
 import com.robo4j.math.jfr.ScanEvent;
+import com.robo4j.scheduler.SequenceFuture;
+import com.robo4j.scheduler.SequenceStep;
 import com.robo4j.units.rpi.I2CRoboUnit;
 import com.robo4j.units.rpi.pwm.PCA9685ServoUnit;
 
@@ -65,6 +68,13 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 	private float angularSpeed;
 	private float minimumAcquisitionTime;
 	private float trim;
+	private final Object scanLock = new Object();
+	// Guarded by scanLock
+	private SequenceFuture currentScan;
+	private boolean scanning;
+	private volatile AttributeSubscription servoInputSubscription;
+	// The latest servo input, as reported by the servo
+	private volatile Float servoInput;
 
 	/**
 	 * Filter for filtering out mis-reads. Anything closer than minRange will be
@@ -83,12 +93,11 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 		}
 	}
 
-	private final static class ScanJob implements Runnable {
-		private final AtomicInteger invokeCount = new AtomicInteger(0);
+	private final static class ScanJob implements SequenceStep {
 		private final ScanResultImpl scanResult;
 		private final ScanRequest request;
 		private final RoboReference<ScanResult2D> recipient;
-		private final RoboReference<Float> servo;
+		private final FloatRoboReference servo;
 		private final boolean lowToHigh;
 		private final int numberOfScans;
 		private long delayMicros;
@@ -119,7 +128,7 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 			this.lowToHigh = lowToHigh;
 			this.trim = trim;
 			this.request = request;
-			this.servo = servo;
+			this.servo = FloatRoboReference.adapt(servo);
 			this.servoRange = servoRange;
 			this.lidar = lidar;
 			this.recipient = recipient;
@@ -134,30 +143,34 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 		}
 
 		@Override
-		public void run() {
-			int currentRun = invokeCount.incrementAndGet();
+		public long run(int step) {
+			// The steps of a sequence never run concurrently
+			int currentRun = step + 1;
 			if (currentRun == 1) {
 				// On first step, only move servo to start position
 				float normalizedServoTarget = getNormalizedAngle();
-				servo.sendMessage(normalizedServoTarget);
-				return;
+				servo.sendFloat(normalizedServoTarget);
+				return delayMicros;
 			} else if (currentRun == 2) {
 				// On second, just start acquisition (no point to read yet)
 				startAcquisition();
 			} else if (currentRun > numberOfScans) {
 				doScan();
 				finish();
+				return DONE;
 			} else {
 				doScan();
 			}
-			// FIXME(Marcus/Mar 10, 2017): May want to synchronize this...
 			updateTargetAngle();
+			// FIXME(Marcus/Apr 4, 2017): Simplified - need to take angular
+			// speed of the servo into account.
+			return delayMicros;
 		}
 
 		private void startAcquisition() {
 			try {
 				lidar.acquireRange();
-				servo.sendMessage(getNormalizedAngle());
+				servo.sendFloat(getNormalizedAngle());
 			} catch (IOException e) {
 				SimpleLoggingUtil.error(getClass(), "Could not read laser!", e);
 			}
@@ -175,7 +188,8 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 				// moving - recalculate for that angle
 				float lastAngle = currentAngle + (lowToHigh ? -request.getStep() - trim : request.getStep() + trim);
 				scanResult.addPoint(Point2f.fromPolar(readDistance, (float) Math.toRadians(lastAngle)));
-				servo.sendMessage(getNormalizedAngle());
+				// Stale once the next step has been taken
+				servo.sendFloat(getNormalizedAngle(), delayMicros, TimeUnit.MICROSECONDS);
 				lidar.acquireRange();
 			} catch (IOException e) {
 				SimpleLoggingUtil.error(getClass(), "Could not read laser!", e);
@@ -291,8 +305,18 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 		RoboReference<Float> servo = getPanServo();
 		if (message.getRange() == 0 || message.getStep() == 0) {
 			scheduleFixPanScan(message, servo);
+		} else if (servoInput != null) {
+			scheduleScan(message, servo, servoInput);
 		} else {
-			scheduleScan(message, servo);
+			// Not blocking this thread while the servo reads its input
+			servo.getAttributeAsync(PCA9685ServoUnit.ATTRIBUTE_SERVO_INPUT).whenComplete((input, error) -> {
+				if (error != null || input == null) {
+					// Which way to sweep is not known
+					SimpleLoggingUtil.error(getClass(), "Could not read servo input - skipping scan!", error);
+				} else {
+					scheduleScan(message, servo, input);
+				}
+			});
 		}
 	}
 
@@ -303,8 +327,9 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 		// now assuming that it will take little time to move the servo to the
 		// "new" position, however, the fact is that the new position will
 		// usually be the old position.
-		getContext().getScheduler().schedule(fixedAngleJob, 31, TimeUnit.MILLISECONDS);
-		getContext().getScheduler().schedule(fixedAngleJob, (long) (31 + minimumAcquisitionTime), TimeUnit.MILLISECONDS);
+		long startMicros = TimeUnit.MILLISECONDS.toMicros(31);
+		long[] offsets = { startMicros, startMicros + Math.max(1, Math.round(minimumAcquisitionTime * 1000.0d)) };
+		startScan(() -> getContext().getScheduler().scheduleSequence(fixedAngleJob, offsets, TimeUnit.MICROSECONDS, null));
 	}
 
 	private RoboReference<Float> getPanServo() {
@@ -312,8 +337,7 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 		return servo;
 	}
 
-	private void scheduleScan(ScanRequest message, RoboReference<Float> servo) {
-		float currentInput = getCurrentInput(servo);
+	private void scheduleScan(ScanRequest message, RoboReference<Float> servo, float currentInput) {
 		float midPoint = message.getStartAngle() + message.getRange() / 2;
 		boolean lowToHigh = false;
 		if (inputToAngle(currentInput) <= midPoint) {
@@ -330,23 +354,55 @@ public class LaserScanner extends I2CRoboUnit<ScanRequest> {
 	}
 
 	private void schedule(ScanJob job) {
-		long actualDelayMicros = job.delayMicros;
-		// One extra for first servo move.
-		for (int i = 0; i < job.numberOfScans + 1; i++) {
-			// FIXME(Marcus/Apr 4, 2017): Simplified - need to take angular
-			// speed of the servo into account.
-			getContext().getScheduler().schedule(job, actualDelayMicros, TimeUnit.MICROSECONDS);
-			actualDelayMicros += job.delayMicros;
+		// One step more than the number of scans, for the first servo move.
+		startScan(() -> getContext().getScheduler().scheduleSequence(job, job.delayMicros, TimeUnit.MICROSECONDS, null));
+	}
+
+	/*
+	 * Replaces the scan in progress, if any. May be called from the thread
+	 * completing the read of the servo input, so only one sweep at a time is
+	 * ensured here, rather than by the delivery of the messages.
+	 */
+	private void startScan(Supplier<SequenceFuture> scan) {
+		synchronized (scanLock) {
+			if (currentScan != null) {
+				currentScan.cancel(false);
+			}
+			currentScan = scanning ? scan.get() : null;
 		}
 	}
 
-	private float getCurrentInput(RoboReference<Float> servo) {
-		try {
-			return servo.getAttribute(PCA9685ServoUnit.ATTRIBUTE_SERVO_INPUT).get();
-		} catch (InterruptedException | ExecutionException e) {
-			SimpleLoggingUtil.error(getClass(), "Could not read servo input!", e);
-			return 0;
+	@Override
+	public void start() {
+		super.start();
+		synchronized (scanLock) {
+			scanning = true;
+		}
+		RoboReference<Float> servo = getPanServo();
+		if (servo != null) {
+			// Keeping track of the servo input, instead of asking for it on
+			// every scan
+			servoInputSubscription = servo.subscribe(PCA9685ServoUnit.ATTRIBUTE_SERVO_INPUT,
+					(descriptor, value) -> servoInput = (Float) value);
+		}
+	}
+
+	@Override
+	public void stop() {
+		AttributeSubscription subscription = servoInputSubscription;
+		if (subscription != null) {
+			subscription.cancel();
+			servoInputSubscription = null;
+			servoInput = null;
+		}
+		synchronized (scanLock) {
+			scanning = false;
+			if (currentScan != null) {
+				currentScan.cancel(false);
+				currentScan = null;
+			}
 		}
+		super.stop();
 	}
 
 	private <T> RoboReference<Float> getReference(String unit) {
@@ -21,6 +21,7 @@ import java.io.IOException;
 import com.pi4j.io.gpio.Pin;
 import com.pi4j.io.gpio.RaspiPin;
 import com.robo4j.ConfigurationException;
+import com.robo4j.FloatUnit;
 import com.robo4j.RoboContext;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.hw.rpi.i2c.pwm.HBridgeMC33926Device;
@@ -35,7 +36,7 @@ import com.robo4j.units.rpi.I2CRoboUnit;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
-public class MC33926HBridgeUnit extends I2CRoboUnit<Float> {
+public class MC33926HBridgeUnit extends I2CRoboUnit<Float> implements FloatUnit {
 	/**
 	 * The key used to configure which channel to use.
 	 */
@@ -112,10 +113,15 @@ public class MC33926HBridgeUnit extends I2CRoboUnit<Float> {
 
 	@Override
 	public void onMessage(Float message) {
+		onFloat(message);
+	}
+
+	@Override
+	public void onFloat(float value) {
 		try {
-			engine.setSpeed(message);
+			engine.setSpeed(value);
 		} catch (IOException e) {
-			SimpleLoggingUtil.error(getClass(), "Failed to set motor speed to " + message, e);
+			SimpleLoggingUtil.error(getClass(), "Failed to set motor speed to " + value, e);
 		}
 	}
 }
@@ -22,6 +22,7 @@ import java.util.Collections;
 
 import com.robo4j.AttributeDescriptor;
 import com.robo4j.ConfigurationException;
+import com.robo4j.FloatUnit;
 import com.robo4j.DefaultAttributeDescriptor;
 import com.robo4j.RoboContext;
 import com.robo4j.configuration.Configuration;
@@ -37,7 +38,7 @@ import com.robo4j.units.rpi.I2CRoboUnit;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
-public class PCA9685ServoUnit extends I2CRoboUnit<Float> {
+public class PCA9685ServoUnit extends I2CRoboUnit<Float> implements FloatUnit {
 	/**
 	 * The key used to configure which channel to use.
 	 */
@@ -116,8 +117,22 @@ public class PCA9685ServoUnit extends I2CRoboUnit<Float> {
 	 */
 	@Override
 	public void onMessage(Float message) {
+		onFloat(message);
+	}
+
+	/**
+	 * -1 to 1
+	 * 
+	 * @param value
+	 *            the message received by this unit.
+	 */
+	@Override
+	public void onFloat(float value) {
 		try {
-			servo.setInput(message);
+			servo.setInput(value);
+			if (hasAttributeSubscriptions()) {
+				attributeChanged(ATTRIBUTE_SERVO_INPUT, value);
+			}
 		} catch (IOException e) {
 			SimpleLoggingUtil.error(getClass(), "Could not set servo input", e);
 		}
@@ -19,6 +19,7 @@ package com.robo4j.units.rpi.roboclaw;
 import java.io.IOException;
 
 import com.robo4j.ConfigurationException;
+import com.robo4j.DedicatedThreadTrait;
 import com.robo4j.RoboContext;
 import com.robo4j.configuration.Configuration;
 import com.robo4j.hw.rpi.i2c.pwm.PCA9685Servo;
@@ -35,6 +36,7 @@ import com.robo4j.units.rpi.I2CRoboUnit;
  * @author Marcus Hirt (@hirt)
  * @author Miroslav Wengner (@miragemiko)
  */
+@DedicatedThreadTrait
 public class RoboClawRCTankUnit extends I2CRoboUnit<MotionEvent> {
 	/**
 	 * The key used to configure which channel to use for the left engine.